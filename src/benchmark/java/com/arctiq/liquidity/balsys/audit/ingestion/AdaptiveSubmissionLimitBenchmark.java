@@ -0,0 +1,47 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+
+/**
+ * Time to drain a burst behind a 1 ms notifier with the submission limit
+ * fixed at 100 or left to {@link AdaptiveSubmissionLimit}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AdaptiveSubmissionLimitBenchmark {
+
+    private static final int BURST = 20_000;
+
+    @Param({ "false", "true" })
+    public boolean adaptive;
+
+    @Benchmark
+    public int burst() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setSubmissionLimit(100);
+        config.setQueueCapacity(BURST);
+        config.setFlushIntervalMillis(5);
+        config.setAdaptiveSubmissionLimit(adaptive);
+        config.setSubmissionLimitFloor(100);
+        config.setSubmissionLimitCeiling(5_000);
+        return AuditProcessingServiceBenchmark.run(config, BURST, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
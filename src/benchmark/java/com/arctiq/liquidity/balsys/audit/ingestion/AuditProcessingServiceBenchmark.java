@@ -0,0 +1,99 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.audit.grouping.FirstFitDecreasingBatchingStrategy;
+import com.arctiq.liquidity.balsys.audit.persistence.InMemoryAuditBatchStore;
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Time to audit a pre-filled queue behind a notifier of fixed latency. Each
+ * invocation builds a fresh service and runs to the last notification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AuditProcessingServiceBenchmark {
+
+    private static final int WORKER_TRANSACTIONS = 40_000;
+
+    @Param({ "1", "2", "4" })
+    public int workers;
+
+    static final class SlowNotifier implements AuditNotifier {
+        final AtomicInteger transactions = new AtomicInteger();
+        final long latencyNanos;
+
+        SlowNotifier(long latencyNanos) {
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public void submit(List<AuditBatch> batches) {
+            LockSupport.parkNanos(latencyNanos);
+            transactions.addAndGet(batches.stream().mapToInt(AuditBatch::getTransactionCount).sum());
+        }
+    }
+
+    /**
+     * Audits {@code count} queued transactions and returns how many were
+     * notified.
+     */
+    static int run(TransactionConfigProperties config, int count, long notifyNanos)
+            throws InterruptedException {
+        MpscRingBuffer<Transaction> queue = new MpscRingBuffer<>(count);
+        AuditTestFixtures.randomTransactions(count, config).forEach(queue::add);
+        SlowNotifier notifier = new SlowNotifier(notifyNanos);
+        AuditProcessingService auditService = new AuditProcessingService(queue, config,
+                new FirstFitDecreasingBatchingStrategy(Money.of(config.getMaxBatchValue())), notifier,
+                new InMemoryAuditBatchStore(), new MetricsCollector(new SimpleMeterRegistry()));
+
+        auditService.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (notifier.transactions.get() < count && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+        auditService.shutdown();
+        auditService.awaitTermination(5, TimeUnit.SECONDS);
+        return notifier.transactions.get();
+    }
+
+    /**
+     * Partitioned workers behind a 4 ms notifier.
+     */
+    @Benchmark
+    public int byWorkerCount() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setAuditThreads(workers);
+        config.setSubmissionLimit(500);
+        config.setQueueCapacity(WORKER_TRANSACTIONS);
+        config.setFlushIntervalMillis(5);
+        return run(config, WORKER_TRANSACTIONS, TimeUnit.MILLISECONDS.toNanos(4));
+    }
+}
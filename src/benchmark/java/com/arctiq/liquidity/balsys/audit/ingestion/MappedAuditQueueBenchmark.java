@@ -0,0 +1,100 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+/**
+ * Enqueue cost of the mapped audit queue next to the in-memory ring it wraps.
+ * Each invocation offers a batch, then drains and commits it so rolls land on
+ * recycled spares, as they do in steady state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedAuditQueueBenchmark {
+
+    private static final int BATCH = 10_000;
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final List<Transaction> transactions = new ArrayList<>(BATCH);
+    private final List<Transaction> sink = new ArrayList<>(BATCH);
+    private Path directory;
+    private MappedAuditQueue mapped;
+    private MpscRingBuffer<Transaction> ring;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        for (long id = 1; id <= BATCH; id++) {
+            transactions.add(new Transaction(new TransactionId(id), new Money(new BigDecimal(id + ".125")),
+                    BASE.plusNanos(id), new AccountId("acct-" + id % 7)));
+        }
+        directory = Files.createTempDirectory("audit-queue-bench");
+        mapped = new MappedAuditQueue(directory, BATCH, 4 * 1024 * 1024, Duration.ofMillis(10));
+        ring = new MpscRingBuffer<>(BATCH);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mapped.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int mappedOffer() {
+        for (Transaction transaction : transactions) {
+            mapped.offer(transaction);
+        }
+        int drained = mapped.drainTo(sink);
+        sink.clear();
+        mapped.commit(mapped.drainedSequence());
+        return drained;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int ringOffer() {
+        for (Transaction transaction : transactions) {
+            ring.offer(transaction);
+        }
+        int drained = ring.drainTo(sink);
+        sink.clear();
+        return drained;
+    }
+}
@@ -0,0 +1,120 @@
+package com.arctiq.liquidity.balsys.producer.orchestration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arctiq.liquidity.balsys.account.application.BankAccountServiceImpl;
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.audit.grouping.FirstFitDecreasingBatchingStrategy;
+import com.arctiq.liquidity.balsys.audit.ingestion.AuditProcessingService;
+import com.arctiq.liquidity.balsys.audit.ingestion.ReactiveAuditPipeline;
+import com.arctiq.liquidity.balsys.audit.persistence.InMemoryAuditBatchStore;
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.producer.config.ProducerConfig;
+import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Time for both pipeline modes to apply and audit the same number of
+ * transactions against a notifier that takes 1 ms per cycle. Each invocation
+ * builds fresh services and runs to the last notification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReactiveTransactionPipelineBenchmark {
+
+    private static final int PER_STREAM = 20_000;
+    private static final long NOTIFY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final class SlowNotifier implements AuditNotifier {
+        final AtomicInteger transactions = new AtomicInteger();
+
+        @Override
+        public void submit(List<AuditBatch> batches) {
+            LockSupport.parkNanos(NOTIFY_NANOS);
+            transactions.addAndGet(batches.stream().mapToInt(AuditBatch::getTransactionCount).sum());
+        }
+    }
+
+    private static TransactionConfigProperties config() {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setSubmissionLimit(200);
+        config.setFlushIntervalMillis(50);
+        config.setAuditThreads(2);
+        config.setDefaultBalance(1_000_000_000.0);
+        return config;
+    }
+
+    private static AuditProcessingService auditService(MpscRingBuffer<Transaction> queue,
+            TransactionConfigProperties config, AuditNotifier notifier, MetricsCollector metrics) {
+        return new AuditProcessingService(queue, config,
+                new FirstFitDecreasingBatchingStrategy(Money.of(config.getMaxBatchValue())), notifier,
+                new InMemoryAuditBatchStore(), metrics);
+    }
+
+    @Benchmark
+    public int executor() throws InterruptedException {
+        TransactionConfigProperties config = config();
+        MetricsCollector metrics = new MetricsCollector(new SimpleMeterRegistry());
+        MpscRingBuffer<Transaction> queue = new MpscRingBuffer<>(config.getQueueCapacity());
+        SlowNotifier notifier = new SlowNotifier();
+        AuditProcessingService auditService = auditService(queue, config, notifier, metrics);
+        ExecutorService emitters = Executors.newFixedThreadPool(2);
+        TransactionProducerOrchestrator orchestrator = new TransactionProducerOrchestrator(
+                () -> AuditTestFixtures.randomCredit(config), () -> AuditTestFixtures.randomDebit(config),
+                new BankAccountServiceImpl(queue, config, metrics), auditService, new SimpleMeterRegistry(),
+                emitters, metrics);
+
+        auditService.start();
+        orchestrator.startEmitLoops(new ProducerConfig(PER_STREAM, 0));
+        emitters.shutdown();
+        emitters.awaitTermination(60, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (notifier.transactions.get() < metrics.getAcceptedTxCount() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        auditService.shutdown();
+        auditService.awaitTermination(5, TimeUnit.SECONDS);
+        return notifier.transactions.get();
+    }
+
+    @Benchmark
+    public int reactive() {
+        TransactionConfigProperties config = config();
+        MetricsCollector metrics = new MetricsCollector(new SimpleMeterRegistry());
+        MpscRingBuffer<Transaction> unused = new MpscRingBuffer<>(config.getQueueCapacity());
+        SlowNotifier notifier = new SlowNotifier();
+        try (ReactiveTransactionPipeline pipeline = new ReactiveTransactionPipeline(
+                () -> AuditTestFixtures.randomCredit(config), () -> AuditTestFixtures.randomDebit(config),
+                new BankAccountServiceImpl(unused, config, metrics),
+                new ReactiveAuditPipeline(auditService(unused, config, notifier, metrics), config), metrics)) {
+            pipeline.run(new ProducerConfig(PER_STREAM, 0)).block(Duration.ofSeconds(60));
+        }
+        return notifier.transactions.get();
+    }
+}
@@ -0,0 +1,53 @@
+package com.arctiq.liquidity.balsys.shared.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for 200 sink calls that each block for 5 ms on a pool sized for two
+ * platform threads, in either executor mode. {@code VIRTUAL} needs a Java 21
+ * runtime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutorRegistryBenchmark {
+
+    private static final int CALLS = 200;
+    private static final long CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Param({ "PLATFORM", "VIRTUAL" })
+    public ExecutorMode mode;
+
+    @Benchmark
+    public long blockingCalls() throws Exception {
+        try (ExecutorRegistry registry = new ExecutorRegistry(mode)) {
+            MeteredExecutor pool = registry.executor("sink-" + mode.name().toLowerCase(), 2);
+            List<Future<?>> results = new ArrayList<>(CALLS);
+            for (int i = 0; i < CALLS; i++) {
+                results.add(pool.submit(() -> LockSupport.parkNanos(CALL_NANOS)));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+            return pool.completedCount();
+        }
+    }
+}
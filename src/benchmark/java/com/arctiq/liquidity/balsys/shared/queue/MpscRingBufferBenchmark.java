@@ -0,0 +1,78 @@
+package com.arctiq.liquidity.balsys.shared.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Four producers offering into one consumer that drains in chunks, through
+ * the bounded ring and through a {@link LinkedTransferQueue}. Reported per
+ * element transferred.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MpscRingBufferBenchmark {
+
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 250_000;
+    private static final Integer ELEMENT = 42;
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUCERS * PER_PRODUCER)
+    public int ring() throws InterruptedException {
+        return transfer(new MpscRingBuffer<>(8_192));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUCERS * PER_PRODUCER)
+    public int linkedTransferQueue() throws InterruptedException {
+        return transfer(new LinkedTransferQueue<>());
+    }
+
+    private static int transfer(BlockingQueue<Integer> queue) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; p++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    while (!queue.offer(ELEMENT)) {
+                        LockSupport.parkNanos(1_000);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        List<Integer> sink = new ArrayList<>(1_024);
+        int received = 0;
+        while (received < PRODUCERS * PER_PRODUCER) {
+            int drained = queue.drainTo(sink, 1_024);
+            if (drained == 0) {
+                Thread.onSpinWait();
+            }
+            received += drained;
+            sink.clear();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return received;
+    }
+}
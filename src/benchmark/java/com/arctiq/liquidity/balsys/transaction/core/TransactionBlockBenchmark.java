@@ -0,0 +1,57 @@
+package com.arctiq.liquidity.balsys.transaction.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+
+/**
+ * Cost of holding a cycle's transactions as objects versus as a columnar
+ * {@link TransactionBlock}. Run with {@code -prof gc} to compare the bytes
+ * allocated per transaction, which is what the block saves the collector.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBlockBenchmark {
+
+    private static final int COUNT = 100_000;
+    private static final long EPOCH_NANOS = Instant.parse("2026-03-01T00:00:00Z").getEpochSecond() * 1_000_000_000L;
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public List<Transaction> objects() {
+        List<Transaction> objects = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            objects.add(new Transaction(new TransactionId(i), Money.ofMinorUnits(i % 2_000_000 - 1_000_000),
+                    Instant.ofEpochSecond(0, EPOCH_NANOS + i)));
+        }
+        return objects;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public TransactionBlock block() {
+        TransactionBlock.Builder builder = TransactionBlock.builder(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            builder.add(i, i % 2_000_000 - 1_000_000, EPOCH_NANOS + i, AccountId.DEFAULT);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.arctiq.liquidity.balsys.transaction.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.exception.TransactionValidationException;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+
+/**
+ * Cost of accepting, rejecting with a result code, and rejecting with an
+ * exception.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionValidatorBenchmark {
+
+    private static final int SIZE = 1 << 12;
+
+    private final TransactionId id = TransactionId.generate();
+    private final Money[] valid = new Money[SIZE];
+    private final Money[] invalid = new Money[SIZE];
+    private TransactionValidator validator;
+    private int next;
+
+    @Setup
+    public void setup() {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        validator = new TransactionValidator(config);
+        for (int i = 0; i < SIZE; i++) {
+            valid[i] = AuditTestFixtures.randomCredit(config).amount();
+            invalid[i] = Money.of(1.0 + (i % 150));
+        }
+    }
+
+    @Benchmark
+    public ValidationResult accepted() {
+        return validator.check(id, valid[next++ & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public ValidationResult rejected() {
+        return validator.check(id, invalid[next++ & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public String rejectedByException() {
+        try {
+            validator.validate(id, invalid[next++ & (SIZE - 1)]);
+            return null;
+        } catch (TransactionValidationException ex) {
+            return ex.getMessage();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.arctiq.liquidity.balsys.transaction.transport.codec;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Round trip of default-account transactions through the binary codec and
+ * through Jackson with the equivalent flat JSON shape. Run with
+ * {@code -prof gc} to see that the binary encode allocates nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionCodecBenchmark {
+
+    private static final int COUNT = 10_000;
+    private static final Instant TIMESTAMP = Instant.parse("2026-03-01T10:15:30.123456789Z");
+
+    /** Flat JSON shape of a transaction. */
+    public record TransactionJson(String id, BigDecimal amount, long epochNanos, String accountId) {
+    }
+
+    private final List<Transaction> transactions = new ArrayList<>(COUNT);
+    private final TransactionEncoder encoder = new TransactionEncoder();
+    private final TransactionDecoder decoder = new TransactionDecoder();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < COUNT; i++) {
+            transactions.add(new Transaction(new TransactionId(1_000_000L + i),
+                    Money.ofMinorUnits((i % 2 == 0 ? 1 : -1) * (200_000L + i)), TIMESTAMP.plusNanos(i)));
+        }
+        buffer = ByteBuffer.allocateDirect(COUNT * 64);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long encode() {
+        int offset = 0;
+        for (Transaction transaction : transactions) {
+            offset += encoder.wrapAndApplyHeader(buffer, offset).encode(transaction).encodedLength();
+        }
+        return offset;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long binaryRoundTrip() {
+        int offset = 0;
+        for (Transaction transaction : transactions) {
+            offset += encoder.wrapAndApplyHeader(buffer, offset).encode(transaction).encodedLength();
+        }
+        long sink = 0;
+        offset = 0;
+        for (int i = 0; i < COUNT; i++) {
+            decoder.wrapWithHeader(buffer, offset);
+            sink += decoder.toTransaction().id().value();
+            offset += decoder.encodedLength();
+        }
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long jacksonRoundTrip() throws IOException {
+        long sink = 0;
+        for (Transaction transaction : transactions) {
+            Instant timestamp = transaction.timestamp();
+            byte[] json = mapper.writeValueAsBytes(new TransactionJson(String.valueOf(transaction.id().value()),
+                    transaction.amount().amount(), timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano(),
+                    transaction.accountId().value()));
+            sink += mapper.readValue(json, TransactionJson.class).epochNanos();
+        }
+        return sink;
+    }
+}
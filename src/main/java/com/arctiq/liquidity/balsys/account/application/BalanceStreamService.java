@@ -0,0 +1,71 @@
+package com.arctiq.liquidity.balsys.account.application;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Pushes balance changes to any number of subscribers at a bounded rate.
+ * <p>
+ * A single ticker samples {@link BankAccountService#retrieveBalance()} once per
+ * interval and publishes only changed values, shared by every subscriber, so
+ * the cost is one read per tick regardless of transaction volume or audience.
+ * Nothing is pushed from the write path, so subscribers can never slow down
+ * {@code processTransaction}. Each subscriber is conflated to the latest value:
+ * a slow consumer skips intermediate balances instead of buffering them.
+ */
+public class BalanceStreamService {
+
+    private final Duration minInterval;
+    private final Flux<BalanceUpdate> shared;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public BalanceStreamService(BankAccountService bankAccountService, Duration minInterval,
+            MetricsCollector metricsCollector) {
+        if (minInterval.isZero() || minInterval.isNegative()) {
+            throw new IllegalArgumentException("Balance stream interval must be positive");
+        }
+        this.minInterval = minInterval;
+        this.shared = Flux.interval(Duration.ZERO, minInterval)
+                .onBackpressureDrop()
+                .map(tick -> bankAccountService.retrieveBalance())
+                .distinctUntilChanged()
+                .map(balance -> new BalanceUpdate(balance, Instant.now()))
+                .replay(1)
+                .refCount();
+        metricsCollector.bindBalanceStream(this);
+    }
+
+    /**
+     * Streams the balance whenever it changes, no more often than
+     * {@code interval}. Intervals below the configured minimum are raised to it.
+     *
+     * @param interval requested spacing between updates, or {@code null} for the
+     *                 configured minimum
+     */
+    public Flux<BalanceUpdate> stream(Duration interval) {
+        Flux<BalanceUpdate> updates = shared;
+        if (interval != null && interval.compareTo(minInterval) > 0) {
+            updates = updates.sample(interval);
+        }
+        return updates
+                .onBackpressureLatest()
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    public Duration minInterval() {
+        return minInterval;
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    public record BalanceUpdate(double balance, Instant timestamp) {
+    }
+}
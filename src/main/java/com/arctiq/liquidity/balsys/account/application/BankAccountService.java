@@ -3,24 +3,99 @@ package com.arctiq.liquidity.balsys.account.application;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
+import com.arctiq.liquidity.balsys.exception.TransactionValidationException;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionBatchResult;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionOutcome;
 
 public interface BankAccountService {
     /**
      * Processes a transaction, updating the account balance accordingly.
+     * A transaction whose ID was already taken within the dedup window is a
+     * duplicate: it changes nothing and is reported by the return value
+     * rather than thrown, as {@link #submit(Transaction)} reports it with a
+     * {@code TransactionDuplicate}.
      *
      * @param transaction the transaction to process
+     * @return {@code true} if it was applied, {@code false} if it was a
+     *         duplicate
+     * @throws IllegalArgumentException       if {@code transaction} is
+     *                                        {@code null}
+     * @throws TransactionValidationException if it fails validation
+     * @throws IllegalStateException          if the audit queue is full or
+     *                                        the dedup window is saturated
      */
-    void processTransaction(Transaction transaction);
+    boolean processTransaction(Transaction transaction);
 
     /**
-     * Retrieves the current balance of the bank account.
+     * Processes a transaction and reports the result instead of throwing.
+     * Rejections carry a canonical reason and cost about the same as an
+     * acceptance; {@link #processTransaction(Transaction)} is the throwing
+     * wrapper around this.
+     *
+     * @param transaction the transaction to process, possibly {@code null}
+     * @return whether it was accepted, rejected as invalid, a duplicate, or
+     *         turned away because the audit queue is full
+     */
+    TransactionOutcome submit(Transaction transaction);
+
+    /**
+     * Validates and applies a transaction like {@link #submit(Transaction)},
+     * but does not hand it to the audit queue: the caller audits accepted
+     * transactions itself, as the reactive pipeline does. There is no audit
+     * queue to be full, so the outcome is never a rejection for that reason.
+     *
+     * @param transaction the transaction to apply, possibly {@code null}
+     * @return whether it was accepted, rejected as invalid or a duplicate
+     */
+    TransactionOutcome apply(Transaction transaction);
+
+    /**
+     * Processes a block of transactions. Each item is validated on its own;
+     * the accepted ones are applied to the balance as a single net delta and
+     * enqueued together. Invalid items are reported rather than thrown.
+     *
+     * @param transactions the block to process, in order
+     * @return which items were accepted and why the others were rejected
+     */
+    TransactionBatchResult processTransactions(List<Transaction> transactions);
+
+    /**
+     * Retrieves the current balance across all accounts. The default
+     * account's share is exact as soon as a transaction is accepted; other
+     * accounts' shares follow once their ledger shard has applied it.
      *
      * @return the current balance
      */
     double retrieveBalance();
 
+    /**
+     * Retrieves the balance as it stood at a point in time, i.e. after every
+     * transaction stamped at or before {@code at}. Per-transaction detail is
+     * kept only for the retained history (see {@code transaction.history-*});
+     * movements older than that are folded into the opening balance, so an
+     * instant before the oldest retained transaction yields the balance at
+     * the start of the retained history.
+     *
+     * @param at the instant to evaluate
+     * @return the balance at that instant
+     */
+    double retrieveBalanceAt(Instant at);
+
+    /**
+     * Retrieves the balance of a single account. The default account is
+     * always known and always current; any other account is applied
+     * asynchronously by the ledger shard that owns it, so its balance may
+     * briefly trail the transactions already accepted for it.
+     *
+     * @param accountId the account to look up
+     * @return the balance, or empty if the account is unknown to the ledger
+     */
+    Optional<Double> retrieveBalance(AccountId accountId);
+
     /**
      * Retrieves the "available" balance, which is the total balance
      * minus any funds currently on hold.
@@ -1,84 +1,394 @@
 package com.arctiq.liquidity.balsys.account.application;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedTransferQueue;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import com.arctiq.liquidity.balsys.account.balance.StripedBalanceAccumulator;
+import com.arctiq.liquidity.balsys.account.history.BalanceTimeIndex;
+import com.arctiq.liquidity.balsys.account.history.ChunkedHistoryLog;
+import com.arctiq.liquidity.balsys.account.history.HistoryRetentionPolicy;
+import com.arctiq.liquidity.balsys.account.hold.HoldLedger;
+import com.arctiq.liquidity.balsys.account.journal.JournalSnapshot;
+import com.arctiq.liquidity.balsys.account.journal.TransactionJournal;
+import com.arctiq.liquidity.balsys.account.ledger.ShardedLedger;
 import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.id.SnowflakeIdGenerator;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.shared.queue.OverflowPolicy;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
 import com.arctiq.liquidity.balsys.transaction.core.TransactionValidator;
+import com.arctiq.liquidity.balsys.transaction.core.ValidationResult;
 import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionAccepted;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionBatchResult;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionDuplicate;
 import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionInvalid;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionOutcome;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionRejected;
+import com.arctiq.liquidity.balsys.transaction.dedup.TimeSlicedDedupWindow;
+import com.arctiq.liquidity.balsys.transaction.dedup.TimeSlicedDedupWindow.Mark;
+import com.arctiq.liquidity.balsys.transaction.rules.RuleChain;
 
 public class BankAccountServiceImpl implements BankAccountService {
 
-    private final AtomicReference<Money> balance;
-    private final LinkedTransferQueue<Transaction> transactionQueue;
-    private final List<Transaction> transactionHistory;
+    private static final String NULL_TRANSACTION = "Transaction must not be null";
+    private static final String AUDIT_QUEUE_FULL = "Audit queue is full";
+    private static final String DEDUP_SATURATED = "Dedup window is saturated";
+
+    // each account has one owner: the default account, which takes all producer traffic, the striped cells; every other account its ledger shard
+    private final StripedBalanceAccumulator balance;
+    private final ShardedLedger ledger;
+    private final BlockingQueue<Transaction> transactionQueue;
+    private final OverflowPolicy overflowPolicy;
+    private final ChunkedHistoryLog transactionHistory;
+    private final BalanceTimeIndex balanceIndex;
+    private final HoldLedger holds;
+    private final TransactionJournal journal;
+    private final TimeSlicedDedupWindow dedupWindow;
     private final TransactionValidator validator;
     private final MetricsCollector metricsCollector;
 
-    public BankAccountServiceImpl(LinkedTransferQueue<Transaction> transactionQueue,
+    public BankAccountServiceImpl(BlockingQueue<Transaction> transactionQueue,
             TransactionConfigProperties config,
             MetricsCollector metricsCollector) {
+        this(transactionQueue, config, metricsCollector, TransactionJournal.disabled());
+    }
+
+    /**
+     * Creates the service on top of a write-ahead journal. State recovered by
+     * the journal is applied on top of the configured opening balance before
+     * any new transaction is accepted.
+     */
+    public BankAccountServiceImpl(BlockingQueue<Transaction> transactionQueue,
+            TransactionConfigProperties config,
+            MetricsCollector metricsCollector,
+            TransactionJournal journal) {
+        JournalSnapshot recovered = journal.recover().orElse(JournalSnapshot.EMPTY);
         this.transactionQueue = transactionQueue;
-        this.balance = new AtomicReference<>(Money.of(config.getDefaultBalance()));
-        this.transactionHistory = new CopyOnWriteArrayList<>();
+        this.overflowPolicy = config.getQueueOverflowPolicy();
+        this.journal = journal;
+        this.balance = new StripedBalanceAccumulator(
+                BigDecimal.valueOf(config.getDefaultBalance())
+                        .add(recovered.accounts().getOrDefault(AccountId.DEFAULT, BigDecimal.ZERO)),
+                config.getBalanceReconciliation(),
+                config.getBalanceStripes() > 0 ? config.getBalanceStripes() : StripedBalanceAccumulator.defaultStripes());
+        this.ledger = new ShardedLedger(
+                config.getLedgerShards() > 0 ? config.getLedgerShards() : ShardedLedger.defaultShardCount());
+        recovered.accounts().forEach((accountId, movement) -> {
+            if (!AccountId.DEFAULT.equals(accountId)) {
+                ledger.seed(accountId, movement);
+            }
+        });
+        this.transactionHistory = new ChunkedHistoryLog(config.getHistorySegmentSize(),
+                new HistoryRetentionPolicy(config.getHistoryMaxSegments(),
+                        Duration.ofSeconds(config.getHistoryRetentionSeconds())));
+        recovered.recentHistory().forEach(transactionHistory::append);
+        BigDecimal replayed = recovered.recentHistory().stream()
+                .map(tx -> tx.amount().amount())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        this.balanceIndex = new BalanceTimeIndex(transactionHistory,
+                BigDecimal.valueOf(config.getDefaultBalance()).add(recovered.balance()).subtract(replayed),
+                Duration.ofMillis(config.getBalanceIndexPollMillis()));
+        this.holds = new HoldLedger(Duration.ofSeconds(config.getHoldTtlSeconds()),
+                Duration.ofMillis(config.getHoldTickMillis()));
+        this.dedupWindow = new TimeSlicedDedupWindow(Duration.ofSeconds(config.getDedupWindowSeconds()),
+                config.getDedupSlices(), config.getDedupSliceCapacity());
+        SnowflakeIdGenerator ids = SnowflakeIdGenerator.shared();
+        recovered.recentHistory().forEach(tx -> {
+            dedupWindow.mark(tx.id().value());
+            ids.advancePast(tx.id().value());
+        });
         this.validator = new TransactionValidator(config);
         this.metricsCollector = metricsCollector;
+        metricsCollector.bindBalanceAccumulator(balance);
+        metricsCollector.bindHistoryLog(transactionHistory);
+        metricsCollector.bindBalanceIndex(balanceIndex);
+        metricsCollector.bindHoldLedger(holds);
+        metricsCollector.bindJournal(journal);
+        metricsCollector.bindDedupWindow(dedupWindow);
+        metricsCollector.bindRuleChain(validator.rules());
+        metricsCollector.bindAuditQueue(transactionQueue);
     }
 
     @Override
-    public void processTransaction(Transaction transaction) {
+    public boolean processTransaction(Transaction transaction) {
         if (transaction == null) {
-            metricsCollector.recordTransactionOutcome(new TransactionInvalid(null, "Transaction must not be null"));
-            throw new IllegalArgumentException("Transaction must not be null");
+            record(new TransactionInvalid(null, NULL_TRANSACTION));
+            throw new IllegalArgumentException(NULL_TRANSACTION);
+        }
+        ValidationResult validation = validator.check(transaction);
+        if (!validation.isValid()) {
+            record(new TransactionInvalid(transaction, validation.reason()));
+            throw validator.failure(validation, transaction.amount());
+        }
+        TransactionOutcome outcome = take(transaction, true);
+        if (outcome instanceof TransactionRejected rejected) {
+            throw new IllegalStateException(rejected.reason());
+        }
+        return !(outcome instanceof TransactionDuplicate);
+    }
+
+    @Override
+    public TransactionOutcome submit(Transaction transaction) {
+        return accept(transaction, true);
+    }
+
+    @Override
+    public TransactionOutcome apply(Transaction transaction) {
+        return accept(transaction, false);
+    }
+
+    private TransactionOutcome accept(Transaction transaction, boolean audit) {
+        if (transaction == null) {
+            return record(new TransactionInvalid(null, NULL_TRANSACTION));
+        }
+
+        ValidationResult validation = validator.check(transaction);
+        if (!validation.isValid()) {
+            return record(new TransactionInvalid(transaction, validation.reason()));
+        }
+        return take(transaction, audit);
+    }
+
+    /**
+     * Everything after validation: queue admission, dedup, journal, then the
+     * account's balance (striped cells or ledger shard), audit queue and
+     * history.
+     */
+    private TransactionOutcome take(Transaction transaction, boolean audit) {
+        // Checked before the dedup window remembers the ID, so a rejected transaction can be retried
+        if (audit && !overflowPolicy.admits(transactionQueue)) {
+            return record(new TransactionRejected(transaction, AUDIT_QUEUE_FULL));
+        }
+
+        Mark mark = dedupWindow.mark(transaction.id().value());
+        if (mark == Mark.DUPLICATE) {
+            return record(new TransactionDuplicate(transaction));
+        }
+        if (mark == Mark.OVERFLOW) {
+            return record(new TransactionRejected(transaction, DEDUP_SATURATED));
         }
 
         try {
-            validator.validate(transaction.id(), transaction.amount());
-        } catch (Exception ex) {
-            metricsCollector.recordTransactionOutcome(new TransactionInvalid(transaction, ex.getMessage()));
-            throw ex;
+            journal.append(transaction);
+        } catch (RuntimeException e) {
+            // never written, so a retry must not be taken for a duplicate
+            dedupWindow.unmark(transaction.id().value());
+            throw e;
+        }
+        // only now is the transaction taken, so only now does it count towards the velocity limits
+        validator.record(transaction);
+        if (AccountId.DEFAULT.equals(transaction.accountId())) {
+            balance.add(transaction.amount());
+        } else {
+            ledger.submit(transaction);
+        }
+        if (audit) {
+            enqueueForAudit(transaction);
+        }
+        transactionHistory.append(transaction);
+        return record(new TransactionAccepted(transaction));
+    }
+
+    @Override
+    public TransactionBatchResult processTransactions(List<Transaction> transactions) {
+        int size = transactions.size();
+        BitSet accepted = new BitSet(size);
+        Map<Integer, String> rejections = new HashMap<>();
+        List<Transaction> valid = new ArrayList<>(size);
+        int admissible = overflowPolicy.admissible(transactionQueue);
+
+        // charged to the velocity windows only once the block is journaled
+        RuleChain.Pending charges = validator.rules().pending();
+        long netMinorUnits = 0;
+        BigDecimal netResidual = BigDecimal.ZERO;
+        boolean overflowed = false;
+        for (int i = 0; i < size; i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction == null) {
+                rejections.put(i, NULL_TRANSACTION);
+                metricsCollector.recordTransactionOutcome(new TransactionInvalid(null, NULL_TRANSACTION));
+                continue;
+            }
+            ValidationResult validation = validator.check(transaction, charges);
+            if (!validation.isValid()) {
+                rejections.put(i, validation.reason());
+                metricsCollector.recordTransactionOutcome(new TransactionInvalid(transaction, validation.reason()));
+                continue;
+            }
+            if (valid.size() >= admissible) {
+                rejections.put(i, AUDIT_QUEUE_FULL);
+                metricsCollector.recordTransactionOutcome(new TransactionRejected(transaction, AUDIT_QUEUE_FULL));
+                continue;
+            }
+            Mark mark = dedupWindow.mark(transaction.id().value());
+            if (mark == Mark.DUPLICATE) {
+                TransactionDuplicate duplicate = new TransactionDuplicate(transaction);
+                rejections.put(i, duplicate.reason());
+                metricsCollector.recordTransactionOutcome(duplicate);
+                continue;
+            }
+            if (mark == Mark.OVERFLOW) {
+                rejections.put(i, DEDUP_SATURATED);
+                metricsCollector.recordTransactionOutcome(new TransactionRejected(transaction, DEDUP_SATURATED));
+                continue;
+            }
+            // later items in the block are checked against it
+            charges.add(transaction);
+
+            accepted.set(i);
+            valid.add(transaction);
+            if (!AccountId.DEFAULT.equals(transaction.accountId())) {
+                // applied by its ledger shard once the block is journaled
+                continue;
+            }
+            long minorUnits = transaction.amount().toMinorUnits();
+            if (minorUnits == Money.NOT_REPRESENTABLE || overflowed) {
+                netResidual = netResidual.add(transaction.amount().amount());
+            } else {
+                long next = netMinorUnits + minorUnits;
+                if (((netMinorUnits ^ next) & (minorUnits ^ next)) < 0) {
+                    // fold what we have into the residual and stay exact from here on
+                    netResidual = netResidual.add(BigDecimal.valueOf(netMinorUnits, Money.MINOR_UNIT_SCALE))
+                            .add(transaction.amount().amount());
+                    netMinorUnits = 0;
+                    overflowed = true;
+                } else {
+                    netMinorUnits = next;
+                }
+            }
         }
 
-        balance.updateAndGet(b -> b.add(transaction.amount()));
-        transactionQueue.offer(transaction);
-        transactionHistory.add(transaction);
-        metricsCollector.updateQueueSize(transactionQueue.size());
-        metricsCollector.recordTransactionOutcome(new TransactionAccepted(transaction));
+        if (!valid.isEmpty()) {
+            try {
+                journal.appendAll(valid);
+            } catch (RuntimeException e) {
+                for (Transaction transaction : valid) {
+                    dedupWindow.unmark(transaction.id().value());
+                }
+                throw e;
+            }
+            balance.addMinorUnits(netMinorUnits);
+            if (netResidual.signum() != 0) {
+                balance.add(netResidual);
+            }
+            for (Transaction transaction : valid) {
+                validator.record(transaction);
+                if (!AccountId.DEFAULT.equals(transaction.accountId())) {
+                    ledger.submit(transaction);
+                }
+                transactionHistory.append(transaction);
+            }
+            enqueueAllForAudit(valid);
+            metricsCollector.recordAcceptedTransactions(valid.size());
+        }
+        return new TransactionBatchResult(size, accepted, rejections);
     }
 
     @Override
     public double retrieveBalance() {
-        return balance.get().asDouble();
+        return totalBalance();
+    }
+
+    @Override
+    public double retrieveBalanceAt(Instant at) {
+        return balanceIndex.balanceAt(at).doubleValue();
+    }
+
+    @Override
+    public Optional<Double> retrieveBalance(AccountId accountId) {
+        if (AccountId.DEFAULT.equals(accountId)) {
+            return Optional.of(balance.doubleValue());
+        }
+        return ledger.balanceOf(accountId).map(BigDecimal::doubleValue);
     }
 
     @Override
     public double retrieveAvailableBalance() {
-        throw new UnsupportedOperationException("Unimplemented method 'retrieveAvailableBalance'");
+        return totalBalance() - holds.heldTotalAsDouble();
+    }
+
+    private double totalBalance() {
+        BigDecimal others = ledger.total();
+        return others.signum() == 0 ? balance.doubleValue() : balance.sum().add(others).doubleValue();
     }
 
     @Override
     public List<Transaction> getTransactionHistory(Instant start, Instant end) {
-        return transactionHistory.stream()
-                .filter(tx -> !tx.timestamp().isBefore(start) && !tx.timestamp().isAfter(end))
-                .collect(Collectors.toList());
+        return transactionHistory.range(start, end);
     }
 
     @Override
     public String placeHold(BigDecimal amount, String reason) {
-        throw new UnsupportedOperationException("Unimplemented method 'placeHold'");
+        return holds.place(amount, reason);
     }
 
     @Override
     public void releaseHold(String holdId) {
-        throw new UnsupportedOperationException("Unimplemented method 'releaseHold'");
+        if (!holds.release(holdId)) {
+            throw new IllegalArgumentException("No active hold with ID " + holdId);
+        }
+    }
+
+    /**
+     * Hands an applied transaction to the audit queue. The configured
+     * overflow policy only comes into play, and is only timed, once a plain
+     * offer has failed.
+     */
+    private void enqueueForAudit(Transaction transaction) {
+        if (transactionQueue.offer(transaction)) {
+            return;
+        }
+        long start = System.nanoTime();
+        boolean enqueued;
+        try {
+            enqueued = overflowPolicy.onFull(transactionQueue, transaction);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            enqueued = false;
+        }
+        metricsCollector.recordAuditQueueWait(System.nanoTime() - start);
+        if (!enqueued) {
+            metricsCollector.incrementDropped(transaction);
+        }
+    }
+
+    /**
+     * Hands a block of applied transactions to the audit queue. A ring queue
+     * takes as much of the block as fits with one claim; whatever is left, or
+     * the whole block on any other queue, goes through
+     * {@link #enqueueForAudit} one by one.
+     */
+    private void enqueueAllForAudit(List<Transaction> transactions) {
+        int handed = transactionQueue instanceof MpscRingBuffer<Transaction> ring ? ring.offerAll(transactions) : 0;
+        for (int i = handed; i < transactions.size(); i++) {
+            enqueueForAudit(transactions.get(i));
+        }
+    }
+
+    private TransactionOutcome record(TransactionOutcome outcome) {
+        metricsCollector.recordTransactionOutcome(outcome);
+        return outcome;
+    }
+
+    public boolean awaitLedgerQuiescence(long timeout, TimeUnit unit) {
+        return ledger.awaitQuiescence(timeout, unit);
+    }
+
+    public void shutdown() {
+        ledger.shutdown();
+        holds.shutdown();
+        balanceIndex.shutdown();
     }
 }
\ No newline at end of file
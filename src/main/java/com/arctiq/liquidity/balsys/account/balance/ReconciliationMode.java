@@ -0,0 +1,21 @@
+package com.arctiq.liquidity.balsys.account.balance;
+
+/**
+ * Controls how {@link StripedBalanceAccumulator} handles amounts that cannot be
+ * expressed as a whole number of minor units.
+ */
+public enum ReconciliationMode {
+
+    /**
+     * Sub-minor-unit amounts are carried in an exact {@code BigDecimal} residual,
+     * so the balance always matches plain {@code BigDecimal} addition.
+     */
+    EXACT,
+
+    /**
+     * Sub-minor-unit amounts are rounded half-up to the nearest minor unit and
+     * added to the striped cells rather than the residual; the rounding itself
+     * allocates.
+     */
+    ROUNDED
+}
@@ -0,0 +1,167 @@
+package com.arctiq.liquidity.balsys.account.balance;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.id.FibonacciHash;
+
+/**
+ * Fixed-point balance built from striped {@code long} cells of minor units.
+ * <p>
+ * Writers pick a cell from their thread identity and CAS only that cell, so
+ * concurrent producers rarely touch the same cache line. Readers sum every cell
+ * plus an exact {@code BigDecimal} residual that absorbs amounts the cells
+ * cannot hold (sub-minor precision in {@link ReconciliationMode#EXACT} mode, or
+ * a cell that would overflow).
+ */
+public class StripedBalanceAccumulator {
+
+    // 16 longs = 128 bytes between live cells, enough to defeat adjacent-line prefetch
+    private static final int PAD_SHIFT = 4;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+    private final ReconciliationMode mode;
+    private final AtomicReference<BigDecimal> residual = new AtomicReference<>(BigDecimal.ZERO);
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder casRetries = new LongAdder();
+    private final LongAdder residualUpdates = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    public StripedBalanceAccumulator(BigDecimal initial, ReconciliationMode mode, int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.cells = new AtomicLongArray(size << PAD_SHIFT);
+        this.mask = size - 1;
+        this.mode = mode;
+        add(initial);
+    }
+
+    public StripedBalanceAccumulator(BigDecimal initial, ReconciliationMode mode) {
+        this(initial, mode, defaultStripes());
+    }
+
+    public static int defaultStripes() {
+        return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    public void add(Money amount) {
+        add(amount.amount());
+    }
+
+    /**
+     * Adds an amount. Allocation-free when {@link Money#toMinorUnits(BigDecimal)}
+     * converts it without allocating; an amount with sub-minor precision is
+     * rounded into a new {@code BigDecimal} or added to the residual.
+     */
+    public void add(BigDecimal amount) {
+        long minorUnits = Money.toMinorUnits(amount);
+        if (minorUnits == Money.NOT_REPRESENTABLE) {
+            if (mode == ReconciliationMode.ROUNDED) {
+                minorUnits = Money.toMinorUnits(amount.setScale(Money.MINOR_UNIT_SCALE, RoundingMode.HALF_UP));
+            }
+            if (minorUnits == Money.NOT_REPRESENTABLE) {
+                updates.increment();
+                addResidual(amount);
+                return;
+            }
+        }
+        addMinorUnits(minorUnits);
+    }
+
+    /**
+     * Adds a pre-scaled amount without allocating.
+     */
+    public void addMinorUnits(long minorUnits) {
+        updates.increment();
+        int stripe = stripeOf(Thread.currentThread());
+        while (true) {
+            int slot = stripe << PAD_SHIFT;
+            long current = cells.get(slot);
+            long next = current + minorUnits;
+            if (((current ^ next) & (minorUnits ^ next)) < 0) {
+                overflows.increment();
+                addResidual(BigDecimal.valueOf(minorUnits, Money.MINOR_UNIT_SCALE));
+                return;
+            }
+            if (cells.compareAndSet(slot, current, next)) {
+                return;
+            }
+            casRetries.increment();
+            stripe = (stripe + 1) & mask;
+        }
+    }
+
+    /**
+     * Sums every cell and the residual. The result is exact; a transient
+     * {@code long} overflow across cells falls back to {@code BigDecimal}.
+     */
+    public BigDecimal sum() {
+        long total = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            long cell = cells.get(stripe << PAD_SHIFT);
+            long next = total + cell;
+            if (((total ^ next) & (cell ^ next)) < 0) {
+                return wideSum();
+            }
+            total = next;
+        }
+        BigDecimal exact = residual.get();
+        BigDecimal striped = BigDecimal.valueOf(total, Money.MINOR_UNIT_SCALE);
+        return exact.signum() == 0 ? striped : striped.add(exact);
+    }
+
+    public double doubleValue() {
+        return sum().doubleValue();
+    }
+
+    public ReconciliationMode mode() {
+        return mode;
+    }
+
+    public int stripes() {
+        return mask + 1;
+    }
+
+    public long updates() {
+        return updates.sum();
+    }
+
+    public long casRetries() {
+        return casRetries.sum();
+    }
+
+    /**
+     * Number of updates that allocated on the residual path instead of staying
+     * on the striped cells.
+     */
+    public long residualUpdates() {
+        return residualUpdates.sum();
+    }
+
+    public long overflows() {
+        return overflows.sum();
+    }
+
+    private BigDecimal wideSum() {
+        BigDecimal total = residual.get();
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            total = total.add(BigDecimal.valueOf(cells.get(stripe << PAD_SHIFT), Money.MINOR_UNIT_SCALE));
+        }
+        return total;
+    }
+
+    private void addResidual(BigDecimal amount) {
+        residualUpdates.increment();
+        residual.accumulateAndGet(amount, BigDecimal::add);
+    }
+
+    private int stripeOf(Thread thread) {
+        // identity hash rather than the thread ID: stable per thread, and not deprecated on newer JDKs
+        return FibonacciHash.bucketOf(System.identityHashCode(thread), mask + 1);
+    }
+}
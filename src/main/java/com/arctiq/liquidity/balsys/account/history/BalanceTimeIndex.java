@@ -0,0 +1,285 @@
+package com.arctiq.liquidity.balsys.account.history;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Answers "what was the balance at instant T" without rescanning history.
+ * <p>
+ * A background thread tails the {@link ChunkedHistoryLog} and folds each
+ * transaction into a Fenwick tree of per-second net movements in minor units,
+ * so ingestion pays nothing extra. A lookup first catches up with whatever
+ * the tailer has not reached yet, takes the prefix sum up to the previous
+ * whole second in O(log n), then adds the partial second from the log's own
+ * time-indexed range query. Transactions whose timestamps arrive out of order
+ * just update an earlier bucket. Amounts finer than a minor unit, or outside
+ * the covered span, are kept exactly in a side map.
+ * <p>
+ * The index slides with the log's retention: seconds wholly before the oldest
+ * retained transaction are folded into a single opening total, both from the
+ * buckets and from the side map, so lookups before that point return the
+ * balance at the start of the retained history. Memory is two {@code long}s
+ * per second between that point and the newest transaction, at most
+ * {@link #MAX_SECONDS} of them; the side map holds at most one entry per
+ * retained transaction.
+ */
+public class BalanceTimeIndex {
+
+    private static final int CATCH_UP_BATCH = 4096;
+    private static final int INITIAL_SECONDS = 1024;
+    // 16 MiB of buckets and tree; a wider retained span overflows into the side map
+    private static final long MAX_SECONDS = 1L << 20;
+
+    private final ChunkedHistoryLog log;
+    private final BigDecimal baseline;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile Thread tailer;
+
+    // guarded by lock
+    private final TreeMap<Long, BigDecimal> residuals = new TreeMap<>();
+    // movements in seconds before horizon, folded out of the buckets and the side map
+    private long foldedMinorUnits;
+    private BigDecimal foldedResiduals = BigDecimal.ZERO;
+    private long horizon = Long.MIN_VALUE;
+    private long baseSecond;
+    private long[] deltas = new long[0];
+    private long[] tree = new long[1];
+    private long nextSequence;
+    private int folded;
+
+    private volatile long indexedSequence;
+    private volatile long skipped;
+
+    /**
+     * @param baseline     balance before the first transaction in the log
+     * @param pollInterval how often the background tailer catches up
+     */
+    public BalanceTimeIndex(ChunkedHistoryLog log, BigDecimal baseline, Duration pollInterval) {
+        this(log, baseline);
+        if (pollInterval.isZero() || pollInterval.isNegative()) {
+            throw new IllegalArgumentException("Index poll interval must be positive");
+        }
+        start(pollInterval);
+    }
+
+    /**
+     * Index without a background tailer; it only catches up on lookups.
+     */
+    BalanceTimeIndex(ChunkedHistoryLog log, BigDecimal baseline) {
+        this.log = log;
+        this.baseline = baseline;
+    }
+
+    /**
+     * Returns the balance after every transaction stamped at or before
+     * {@code at}. Instants before the first indexed transaction yield the
+     * baseline.
+     */
+    public BigDecimal balanceAt(Instant at) {
+        lock.lock();
+        try {
+            catchUp();
+            long second = at.getEpochSecond();
+            BigDecimal total = baseline.add(foldedResiduals)
+                    .add(BigDecimal.valueOf(foldedMinorUnits + prefixThrough(second - 1), Money.MINOR_UNIT_SCALE));
+            for (BigDecimal residual : residuals.headMap(second, false).values()) {
+                total = total.add(residual);
+            }
+            for (Transaction tx : log.range(Instant.ofEpochSecond(second), at)) {
+                total = total.add(tx.amount().amount());
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Transactions appended to the log but not yet folded into the index.
+     */
+    public long lag() {
+        return Math.max(0, log.appendedCount() - indexedSequence);
+    }
+
+    /**
+     * Transactions retired from the log before the tailer reached them. Any
+     * non-zero value means lookups are missing those movements.
+     */
+    public long skippedCount() {
+        return skipped;
+    }
+
+    public void shutdown() {
+        Thread thread = tailer;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void start(Duration interval) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        long intervalNanos = interval.toNanos();
+        Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                lock.lock();
+                try {
+                    catchUp();
+                } finally {
+                    lock.unlock();
+                }
+                LockSupport.parkNanos(intervalNanos);
+            }
+        }, "balance-time-index");
+        thread.setDaemon(true);
+        tailer = thread;
+        thread.start();
+    }
+
+    private void catchUp() {
+        while (true) {
+            folded = 0;
+            long next = log.readFrom(nextSequence, CATCH_UP_BATCH, this::fold);
+            skipped += next - nextSequence - folded;
+            nextSequence = next;
+            if (folded < CATCH_UP_BATCH) {
+                break;
+            }
+        }
+        indexedSequence = nextSequence;
+        slide();
+    }
+
+    /**
+     * Folds every second before the oldest retained transaction into the
+     * opening totals and moves the buckets up to start there.
+     */
+    private void slide() {
+        long oldest = log.oldestRetainedNanos();
+        if (oldest == Long.MAX_VALUE) {
+            return;
+        }
+        long oldestSecond = Math.floorDiv(oldest, 1_000_000_000L);
+        if (oldestSecond <= horizon) {
+            return;
+        }
+        horizon = oldestSecond;
+        SortedMap<Long, BigDecimal> expired = residuals.headMap(horizon);
+        for (BigDecimal residual : expired.values()) {
+            foldedResiduals = foldedResiduals.add(residual);
+        }
+        expired.clear();
+        if (deltas.length == 0 || horizon <= baseSecond) {
+            return;
+        }
+        int shift = (int) Math.min(horizon - baseSecond, deltas.length);
+        for (int i = 0; i < shift; i++) {
+            foldedMinorUnits += deltas[i];
+        }
+        if (shift == deltas.length) {
+            deltas = new long[0];
+            tree = new long[1];
+        } else {
+            rebuild(baseSecond + shift, deltas.length);
+        }
+    }
+
+    /**
+     * Seconds the buckets currently span.
+     */
+    int coveredSeconds() {
+        return deltas.length;
+    }
+
+    private void fold(Transaction tx) {
+        folded++;
+        long second = tx.timestamp().getEpochSecond();
+        long minorUnits = tx.amount().toMinorUnits();
+        // a second before the horizon is folded out with the rest on the next slide
+        if (minorUnits == Money.NOT_REPRESENTABLE || second < horizon || !cover(second)) {
+            residuals.merge(second, tx.amount().amount(), BigDecimal::add);
+            return;
+        }
+        for (int i = (int) (second - baseSecond) + 1; i < tree.length; i += i & -i) {
+            tree[i] += minorUnits;
+        }
+        deltas[(int) (second - baseSecond)] += minorUnits;
+    }
+
+    private long prefixThrough(long second) {
+        if (deltas.length == 0 || second < baseSecond) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = (int) Math.min(second - baseSecond, deltas.length - 1) + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Grows the bucket range to include {@code second}, leaving the spare
+     * room on whichever side had to move, and rebuilds the tree in O(n).
+     *
+     * @return {@code false} if that would exceed {@link #MAX_SECONDS}; the
+     *         caller then keeps the amount in the side map instead
+     */
+    private boolean cover(long second) {
+        if (deltas.length == 0) {
+            baseSecond = second;
+            rebuild(second, INITIAL_SECONDS);
+            return true;
+        }
+        long end = baseSecond + deltas.length;
+        if (second >= baseSecond && second < end) {
+            return true;
+        }
+        long low = Math.min(baseSecond, second);
+        long high = Math.max(end, second + 1);
+        if (high - low > MAX_SECONDS) {
+            return false;
+        }
+        int capacity = deltas.length;
+        while (capacity < high - low) {
+            capacity <<= 1;
+        }
+        rebuild(second < baseSecond ? high - capacity : low, capacity);
+        return true;
+    }
+
+    /**
+     * Moves the buckets to span {@code capacity} seconds from
+     * {@code newBase}, keeping those the old and new spans share, and
+     * rebuilds the tree in O(n).
+     */
+    private void rebuild(long newBase, int capacity) {
+        long[] grown = new long[capacity];
+        long from = Math.max(baseSecond, newBase);
+        long to = Math.min(baseSecond + deltas.length, newBase + capacity);
+        if (from < to) {
+            System.arraycopy(deltas, (int) (from - baseSecond), grown, (int) (from - newBase), (int) (to - from));
+        }
+        long[] rebuilt = new long[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            rebuilt[i] += grown[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                rebuilt[parent] += rebuilt[i];
+            }
+        }
+        deltas = grown;
+        tree = rebuilt;
+        baseSecond = newBase;
+    }
+}
@@ -0,0 +1,360 @@
+package com.arctiq.liquidity.balsys.account.history;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Append-only transaction history split into fixed-size segments.
+ * <p>
+ * Appends claim a sequence number and write into the segment that owns it;
+ * only the thread that crosses a segment boundary allocates, and it publishes
+ * the new segment table with a CAS. Each segment tracks its own min/max
+ * timestamp plus two watermarks that stay monotonic across the table:
+ * {@code high} (newest timestamp in this or any earlier segment) and
+ * {@code low} (oldest timestamp in this or any later segment). Range queries
+ * binary-search both to find the candidate segments and only scan those.
+ * <p>
+ * Retention retires whole segments from the head, but never one that appends
+ * are still filling (more sequences claimed in it than written), nor one
+ * nothing has been written to yet, and so nothing after either. The
+ * retention count can therefore be exceeded briefly while a slow writer
+ * finishes.
+ */
+public class ChunkedHistoryLog {
+
+    private final int segmentShift;
+    private final int segmentMask;
+    private final HistoryRetentionPolicy retention;
+    private final Clock clock;
+
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicReference<Segment[]> segments = new AtomicReference<>(new Segment[0]);
+    private final LongAdder retiredSegments = new LongAdder();
+    private final LongAdder evictedEntries = new LongAdder();
+    private final LongAdder droppedAppends = new LongAdder();
+
+    public ChunkedHistoryLog(int segmentSize, HistoryRetentionPolicy retention) {
+        this(segmentSize, retention, Clock.systemUTC());
+    }
+
+    ChunkedHistoryLog(int segmentSize, HistoryRetentionPolicy retention, Clock clock) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        int size = segmentSize == 1 ? 1 : Integer.highestOneBit(segmentSize - 1) << 1;
+        this.segmentShift = Integer.numberOfTrailingZeros(size);
+        this.segmentMask = size - 1;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * Appends a transaction and returns its sequence number.
+     */
+    public long append(Transaction transaction) {
+        long sequence = nextSequence.getAndIncrement();
+        Segment segment = segmentFor(sequence >>> segmentShift);
+        if (segment == null) {
+            droppedAppends.increment();
+            return sequence;
+        }
+        long timestamp = epochNanos(transaction.timestamp());
+        segment.entries.set((int) (sequence & segmentMask), transaction);
+        segment.record(timestamp);
+        propagateWatermarks(segment, timestamp);
+        segment.published.incrementAndGet();
+        return sequence;
+    }
+
+    /**
+     * Returns retained transactions whose timestamp falls within
+     * {@code [start, end]}, in append order.
+     */
+    public List<Transaction> range(Instant start, Instant end) {
+        long from = epochNanos(start);
+        long to = epochNanos(end);
+        List<Transaction> result = new ArrayList<>();
+        if (from > to) {
+            return result;
+        }
+
+        Segment[] table = segments.get();
+        int first = firstWithHighAtLeast(table, from);
+        int last = lastWithLowAtMost(table, to);
+        long published = nextSequence.get();
+
+        for (int i = first; i <= last; i++) {
+            Segment segment = table[i];
+            if (segment.max.get() < from || segment.min.get() > to) {
+                continue;
+            }
+            int filled = (int) Math.min(segmentMask + 1L, published - segment.firstSequence);
+            for (int slot = 0; slot < filled; slot++) {
+                Transaction tx = segment.entries.get(slot);
+                if (tx != null) {
+                    long ts = epochNanos(tx.timestamp());
+                    if (ts >= from && ts <= to) {
+                        result.add(tx);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Feeds retained entries from {@code sequence} onwards to {@code sink} in
+     * sequence order, stopping at the first slot whose append is still in
+     * flight. Entries that were already retired are skipped.
+     *
+     * @return the sequence to resume from on the next call
+     */
+    public long readFrom(long sequence, int maxEntries, Consumer<Transaction> sink) {
+        Segment[] table = segments.get();
+        if (table.length == 0) {
+            return sequence;
+        }
+        long published = nextSequence.get();
+        long next = Math.max(sequence, table[0].firstSequence);
+        for (int read = 0; read < maxEntries && next < published; read++, next++) {
+            long position = (next >>> segmentShift) - table[0].index;
+            if (position >= table.length) {
+                break;
+            }
+            Transaction tx = table[(int) position].entries.get((int) (next & segmentMask));
+            if (tx == null) {
+                break;
+            }
+            sink.accept(tx);
+        }
+        return next;
+    }
+
+    /**
+     * Epoch nanos of the oldest retained transaction, or
+     * {@link Long#MAX_VALUE} if none is retained.
+     */
+    long oldestRetainedNanos() {
+        Segment[] table = segments.get();
+        return table.length == 0 ? Long.MAX_VALUE : table[0].low.get();
+    }
+
+    public long appendedCount() {
+        return nextSequence.get();
+    }
+
+    public long retainedCount() {
+        Segment[] table = segments.get();
+        if (table.length == 0) {
+            return 0;
+        }
+        return Math.max(0, nextSequence.get() - table[0].firstSequence);
+    }
+
+    public int segmentCount() {
+        return segments.get().length;
+    }
+
+    public long retiredSegments() {
+        return retiredSegments.sum();
+    }
+
+    /**
+     * Transactions dropped from history because their segment was retired.
+     */
+    public long evictedEntries() {
+        return evictedEntries.sum();
+    }
+
+    public long droppedAppends() {
+        return droppedAppends.sum();
+    }
+
+    public int segmentSize() {
+        return segmentMask + 1;
+    }
+
+    private Segment segmentFor(long index) {
+        while (true) {
+            Segment[] table = segments.get();
+            if (table.length > 0) {
+                long head = table[0].index;
+                if (index < head) {
+                    return null;
+                }
+                if (index - head < table.length) {
+                    return table[(int) (index - head)];
+                }
+            }
+            Segment[] grown = grow(table, index);
+            if (segments.compareAndSet(table, grown)) {
+                countRetired(table, grown);
+                // heal against predecessor watermarks raised while we were publishing
+                for (int i = 1; i < grown.length; i++) {
+                    raise(grown[i].high, grown[i - 1].high.get());
+                }
+                return index < grown[0].index ? null : grown[(int) (index - grown[0].index)];
+            }
+        }
+    }
+
+    private Segment[] grow(Segment[] table, long index) {
+        // the first table starts at segment 0, not at whichever claim happened to get here first
+        long nextIndex = table.length == 0 ? 0 : table[table.length - 1].index + 1;
+        List<Segment> next = new ArrayList<>(Arrays.asList(table));
+        for (long i = nextIndex; i <= index; i++) {
+            long inheritedHigh = next.isEmpty() ? Long.MIN_VALUE : next.get(next.size() - 1).high.get();
+            next.add(new Segment(i, i << segmentShift, segmentMask + 1, inheritedHigh));
+        }
+
+        int retire = Math.max(0, next.size() - retention.maxSegments());
+        if (retention.ageLimited()) {
+            long cutoff = epochNanos(clock.instant().minus(retention.maxAge()));
+            // an unwritten segment has no age yet, however low its empty max looks
+            while (retire < next.size() - 1 && next.get(retire).published.get() > 0
+                    && next.get(retire).max.get() < cutoff) {
+                retire++;
+            }
+        }
+        long claimed = nextSequence.get();
+        for (int i = 0; i < retire; i++) {
+            if (stillFilling(next.get(i), claimed)) {
+                retire = i;
+                break;
+            }
+        }
+        return next.subList(retire, next.size()).toArray(new Segment[0]);
+    }
+
+    private boolean stillFilling(Segment segment, long claimed) {
+        long claimedHere = Math.min(segmentMask + 1L, Math.max(0, claimed - segment.firstSequence));
+        return claimedHere > segment.published.get();
+    }
+
+    /**
+     * Counts the segments {@code after} no longer holds, and the entries they
+     * held. None of them was still being filled, so their counts are final.
+     */
+    private void countRetired(Segment[] before, Segment[] after) {
+        if (before.length == 0) {
+            return;
+        }
+        long head = after[0].index;
+        retiredSegments.add(Math.max(0, head - before[0].index));
+        for (Segment segment : before) {
+            if (segment.index >= head) {
+                break;
+            }
+            evictedEntries.add(segment.published.get());
+        }
+    }
+
+    private void propagateWatermarks(Segment segment, long timestamp) {
+        Segment[] table = segments.get();
+        int position = table.length == 0 ? -1 : (int) (segment.index - table[0].index);
+        if (position < 0 || position >= table.length) {
+            return;
+        }
+        for (int i = position; i >= 0 && lower(table[i].low, timestamp); i--) {
+            // keep lowering earlier watermarks until one already covers this timestamp
+        }
+        for (int i = position; i < table.length && raise(table[i].high, timestamp); i++) {
+            // a late write into an older segment must lift the watermarks that follow it
+        }
+    }
+
+    private static int firstWithHighAtLeast(Segment[] table, long from) {
+        int lo = 0;
+        int hi = table.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (table[mid].high.get() >= from) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private static int lastWithLowAtMost(Segment[] table, long to) {
+        int lo = 0;
+        int hi = table.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (table[mid].low.get() <= to) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    private static boolean lower(AtomicLong watermark, long value) {
+        long current;
+        while ((current = watermark.get()) > value) {
+            if (watermark.compareAndSet(current, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean raise(AtomicLong watermark, long value) {
+        long current;
+        while ((current = watermark.get()) < value) {
+            if (watermark.compareAndSet(current, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long epochNanos(Instant instant) {
+        long seconds = instant.getEpochSecond();
+        if (seconds >= Long.MAX_VALUE / 1_000_000_000L) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds <= Long.MIN_VALUE / 1_000_000_000L) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * 1_000_000_000L + instant.getNano();
+    }
+
+    private static final class Segment {
+
+        final long index;
+        final long firstSequence;
+        final AtomicReferenceArray<Transaction> entries;
+        final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        final AtomicLong low = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong high;
+        // appends that have finished writing here
+        final AtomicInteger published = new AtomicInteger();
+
+        Segment(long index, long firstSequence, int size, long inheritedHigh) {
+            this.index = index;
+            this.firstSequence = firstSequence;
+            this.entries = new AtomicReferenceArray<>(size);
+            this.high = new AtomicLong(inheritedHigh);
+        }
+
+        void record(long timestamp) {
+            lower(min, timestamp);
+            raise(max, timestamp);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.arctiq.liquidity.balsys.account.history;
+
+import java.time.Duration;
+
+/**
+ * Bounds the memory held by {@link ChunkedHistoryLog}. Whole segments are
+ * retired from the head once either limit is exceeded, except that a segment
+ * appends are still filling is kept until they finish.
+ *
+ * @param maxSegments maximum number of segments kept, including the active one
+ * @param maxAge      segments whose newest entry is older than this are retired;
+ *                    {@link Duration#ZERO} disables age-based retirement
+ */
+public record HistoryRetentionPolicy(int maxSegments, Duration maxAge) {
+
+    public HistoryRetentionPolicy {
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("History must retain at least one segment");
+        }
+        if (maxAge == null || maxAge.isNegative()) {
+            throw new IllegalArgumentException("History retention age must be zero or positive");
+        }
+    }
+
+    public static HistoryRetentionPolicy segments(int maxSegments) {
+        return new HistoryRetentionPolicy(maxSegments, Duration.ZERO);
+    }
+
+    boolean ageLimited() {
+        return !maxAge.isZero();
+    }
+}
@@ -0,0 +1,194 @@
+package com.arctiq.liquidity.balsys.account.hold;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hierarchical timing wheel driving deadline callbacks from a single ticker
+ * thread.
+ * <p>
+ * Callers hand entries over through a lock-free inbox, so scheduling is O(1)
+ * and never contends with the ticker. The ticker owns the wheels: level 0 has
+ * one slot per tick, and each higher level covers {@value #WHEEL_SIZE} slots of
+ * the level below. When a lower wheel wraps, the matching higher-level slot is
+ * cascaded down. Cancellation is lazy: the expiry callback decides whether an
+ * entry still matters, so nothing is ever removed from a slot early.
+ *
+ * @param <T> the payload handed to the expiry callback
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+    static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_BITS = Integer.numberOfTrailingZeros(WHEEL_SIZE);
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final LongSupplier nanoClock;
+    private final Consumer<T> onExpiry;
+    private final long startNanos;
+
+    private final ConcurrentLinkedQueue<Entry<T>> inbox = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Entry<T>>[][] wheels;
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private long currentTick;
+    private volatile Thread ticker;
+
+    public HierarchicalTimingWheel(Duration tick, Consumer<T> onExpiry) {
+        this(tick, onExpiry, System::nanoTime);
+    }
+
+    HierarchicalTimingWheel(Duration tick, Consumer<T> onExpiry, LongSupplier nanoClock) {
+        if (tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.tickNanos = tick.toNanos();
+        this.onExpiry = onExpiry;
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        // No generic array creation in Java; the cast is safe because every slot is filled with an
+        // ArrayDeque<Entry<T>> right below and the array never leaves this class
+        @SuppressWarnings("unchecked")
+        ArrayDeque<Entry<T>>[][] slots = (ArrayDeque<Entry<T>>[][]) new ArrayDeque<?>[LEVELS][WHEEL_SIZE];
+        this.wheels = slots;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new ArrayDeque<>();
+            }
+        }
+    }
+
+    /**
+     * Schedules {@code item} to be handed to the expiry callback once
+     * {@code delay} has elapsed. Resolution is one tick.
+     */
+    public void schedule(T item, Duration delay) {
+        long elapsed = nanoClock.getAsLong() - startNanos + Math.max(0, delay.toNanos());
+        long deadlineTick = (elapsed + tickNanos - 1) / tickNanos;
+        inbox.offer(new Entry<>(item, deadlineTick));
+        scheduled.increment();
+    }
+
+    /**
+     * Starts the ticker thread. Tests drive {@link #advance()} directly instead.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(this::runTicker, "hold-expiry-wheel");
+        thread.setDaemon(true);
+        ticker = thread;
+        thread.start();
+    }
+
+    public void shutdown() {
+        Thread thread = ticker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public long scheduledCount() {
+        return scheduled.sum();
+    }
+
+    public long firedCount() {
+        return fired.sum();
+    }
+
+    /**
+     * Moves pending entries into the wheels and processes every tick up to
+     * the current time. Must only be called from one thread at a time.
+     */
+    void advance() {
+        long targetTick = (nanoClock.getAsLong() - startNanos) / tickNanos;
+        drainInbox();
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            expire(wheels[0][(int) (currentTick & WHEEL_MASK)]);
+        }
+    }
+
+    private void runTicker() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                advance();
+                LockSupport.parkNanos(tickNanos);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Timing wheel ticker stopped: {}", e.getMessage(), e);
+        }
+    }
+
+    private void drainInbox() {
+        Entry<T> entry;
+        while ((entry = inbox.poll()) != null) {
+            place(entry);
+        }
+    }
+
+    private void cascade() {
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            int shift = level * WHEEL_BITS;
+            if ((currentTick & ((1L << shift) - 1)) == 0) {
+                ArrayDeque<Entry<T>> bucket = wheels[level][(int) ((currentTick >>> shift) & WHEEL_MASK)];
+                for (int n = bucket.size(); n > 0; n--) {
+                    place(bucket.poll());
+                }
+            }
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        if (entry.deadlineTick <= currentTick) {
+            fire(entry);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * WHEEL_BITS;
+            long distance = (entry.deadlineTick >>> shift) - (currentTick >>> shift);
+            if (distance < WHEEL_SIZE) {
+                wheels[level][(int) ((entry.deadlineTick >>> shift) & WHEEL_MASK)].add(entry);
+                return;
+            }
+        }
+        // beyond the outermost wheel: park in its furthest slot and re-place on cascade
+        int shift = (LEVELS - 1) * WHEEL_BITS;
+        wheels[LEVELS - 1][(int) (((currentTick >>> shift) + WHEEL_MASK) & WHEEL_MASK)].add(entry);
+    }
+
+    private void expire(ArrayDeque<Entry<T>> bucket) {
+        Entry<T> entry;
+        while ((entry = bucket.poll()) != null) {
+            fire(entry);
+        }
+    }
+
+    private void fire(Entry<T> entry) {
+        fired.increment();
+        try {
+            onExpiry.accept(entry.item);
+        } catch (RuntimeException e) {
+            logger.warn("Expiry callback failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.arctiq.liquidity.balsys.account.hold;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.arctiq.liquidity.balsys.account.balance.ReconciliationMode;
+import com.arctiq.liquidity.balsys.account.balance.StripedBalanceAccumulator;
+
+/**
+ * Funds held against the account, e.g. card authorisations.
+ * <p>
+ * Holds live in a concurrent map keyed by ID, so place and release are O(1).
+ * The held total is kept in a {@link StripedBalanceAccumulator}, which makes
+ * reading it as cheap as reading the balance. Each hold settles exactly once:
+ * release and expiry race on a CAS and only the winner subtracts the amount.
+ * Expiry is driven by a {@link HierarchicalTimingWheel}; released holds are
+ * simply ignored when their deadline comes round.
+ */
+public class HoldLedger {
+
+    private static final String ID_PREFIX = "HOLD-";
+
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final StripedBalanceAccumulator heldTotal;
+    private final HierarchicalTimingWheel<Hold> expiryWheel;
+    private final Duration defaultTtl;
+    private final AtomicLong nextId = new AtomicLong();
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public HoldLedger(Duration defaultTtl, Duration tick) {
+        this(defaultTtl, tick, System::nanoTime);
+        this.expiryWheel.start();
+    }
+
+    /**
+     * Ledger whose expiry wheel is not started; tests drive it through
+     * {@link #advanceExpiry()}.
+     */
+    HoldLedger(Duration defaultTtl, Duration tick, LongSupplier nanoClock) {
+        this.defaultTtl = defaultTtl;
+        this.heldTotal = new StripedBalanceAccumulator(BigDecimal.ZERO, ReconciliationMode.EXACT);
+        this.expiryWheel = new HierarchicalTimingWheel<>(tick, this::expire, nanoClock);
+    }
+
+    public String place(BigDecimal amount, String reason) {
+        return place(amount, reason, defaultTtl);
+    }
+
+    /**
+     * Places a hold that expires automatically after {@code ttl}.
+     *
+     * @return the hold ID used to release it
+     */
+    public String place(BigDecimal amount, String reason, Duration ttl) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Hold amount must be positive");
+        }
+        Hold hold = new Hold(ID_PREFIX + nextId.incrementAndGet(), amount, reason);
+        holds.put(hold.id, hold);
+        heldTotal.add(amount);
+        placed.increment();
+        expiryWheel.schedule(hold, ttl);
+        return hold.id;
+    }
+
+    /**
+     * Releases an active hold.
+     *
+     * @return {@code false} if the hold is unknown, already released or expired
+     */
+    public boolean release(String holdId) {
+        Hold hold = holdId == null ? null : holds.get(holdId);
+        if (hold == null || !settle(hold)) {
+            return false;
+        }
+        released.increment();
+        return true;
+    }
+
+    public BigDecimal heldTotal() {
+        return heldTotal.sum();
+    }
+
+    public double heldTotalAsDouble() {
+        return heldTotal.doubleValue();
+    }
+
+    public boolean isActive(String holdId) {
+        return holdId != null && holds.containsKey(holdId);
+    }
+
+    public Optional<String> reasonOf(String holdId) {
+        Hold hold = holdId == null ? null : holds.get(holdId);
+        return hold == null ? Optional.empty() : Optional.ofNullable(hold.reason);
+    }
+
+    public int activeCount() {
+        return holds.size();
+    }
+
+    public long placedCount() {
+        return placed.sum();
+    }
+
+    public long releasedCount() {
+        return released.sum();
+    }
+
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    public void shutdown() {
+        expiryWheel.shutdown();
+    }
+
+    void advanceExpiry() {
+        expiryWheel.advance();
+    }
+
+    private void expire(Hold hold) {
+        if (settle(hold)) {
+            expired.increment();
+        }
+    }
+
+    private boolean settle(Hold hold) {
+        if (!hold.settled.compareAndSet(false, true)) {
+            return false;
+        }
+        holds.remove(hold.id, hold);
+        heldTotal.add(hold.amount.negate());
+        return true;
+    }
+
+    private static final class Hold {
+
+        private final String id;
+        private final BigDecimal amount;
+        private final String reason;
+        private final AtomicBoolean settled = new AtomicBoolean(false);
+
+        Hold(String id, BigDecimal amount, String reason) {
+            this.id = id;
+            this.amount = amount;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+/**
+ * When an accepted transaction is considered durable.
+ */
+public enum DurabilityMode {
+
+    /** Every append forces its record to disk before returning. */
+    PER_TRANSACTION,
+
+    /**
+     * Appends wait for the next shared fsync, so concurrent writers amortise a
+     * single force across the whole group.
+     */
+    GROUP_COMMIT,
+
+    /** Appends return immediately; records are forced in the background. */
+    ASYNC
+}
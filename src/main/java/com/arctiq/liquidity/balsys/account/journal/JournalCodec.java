@@ -0,0 +1,104 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+/**
+ * Binary layout shared by journal records and snapshots.
+ * <p>
+ * Amounts that fit a {@code long} count of minor units take nine bytes; any
+ * other amount falls back to its scale and unscaled bytes so nothing is
+ * rounded on the way to disk.
+ */
+final class JournalCodec {
+
+    private static final byte MINOR_UNITS = 0;
+    private static final byte EXACT = 1;
+
+    private JournalCodec() {
+    }
+
+    static int transactionSize(Transaction transaction) {
+        return Long.BYTES + Long.BYTES + Integer.BYTES
+                + accountIdSize(transaction.accountId())
+                + amountSize(transaction.amount().amount());
+    }
+
+    static void writeTransaction(ByteBuffer buffer, Transaction transaction) {
+        buffer.putLong(transaction.id().value());
+        buffer.putLong(transaction.timestamp().getEpochSecond());
+        buffer.putInt(transaction.timestamp().getNano());
+        writeAccountId(buffer, transaction.accountId());
+        writeAmount(buffer, transaction.amount().amount());
+    }
+
+    static Transaction readTransaction(ByteBuffer buffer) {
+        TransactionId id = new TransactionId(buffer.getLong());
+        Instant timestamp = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        AccountId accountId = readAccountId(buffer);
+        BigDecimal amount = readAmount(buffer);
+        return new Transaction(id, new Money(amount), timestamp, accountId);
+    }
+
+    static int accountIdSize(AccountId accountId) {
+        return Short.BYTES + accountId.value().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    static void writeAccountId(ByteBuffer buffer, AccountId accountId) {
+        byte[] bytes = accountId.value().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Account ID too long to journal: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static AccountId readAccountId(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new AccountId(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    static int amountSize(BigDecimal amount) {
+        if (Money.toMinorUnits(amount) != Money.NOT_REPRESENTABLE) {
+            return 1 + Long.BYTES;
+        }
+        return 1 + Integer.BYTES + Integer.BYTES + amount.unscaledValue().toByteArray().length;
+    }
+
+    static void writeAmount(ByteBuffer buffer, BigDecimal amount) {
+        long minorUnits = Money.toMinorUnits(amount);
+        if (minorUnits != Money.NOT_REPRESENTABLE) {
+            buffer.put(MINOR_UNITS);
+            buffer.putLong(minorUnits);
+            return;
+        }
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        buffer.put(EXACT);
+        buffer.putInt(amount.scale());
+        buffer.putInt(unscaled.length);
+        buffer.put(unscaled);
+    }
+
+    static BigDecimal readAmount(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        if (kind == MINOR_UNITS) {
+            return BigDecimal.valueOf(buffer.getLong(), Money.MINOR_UNIT_SCALE);
+        }
+        if (kind != EXACT) {
+            throw new IllegalStateException("Unknown amount encoding: " + kind);
+        }
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.getInt()];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,9 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * A transaction as read back from the journal, with its journal sequence.
+ */
+public record JournalRecord(long sequence, Transaction transaction) {
+}
@@ -0,0 +1,31 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * State folded from the journal up to {@code lastSequence}. Balances are net
+ * movements from the journal only; opening balances come from configuration.
+ *
+ * @param lastSequence  last journal sequence included
+ * @param balance       net movement across all accounts
+ * @param accounts      net movement per account
+ * @param recentHistory the most recent transactions, oldest first
+ */
+public record JournalSnapshot(
+        long lastSequence,
+        BigDecimal balance,
+        Map<AccountId, BigDecimal> accounts,
+        List<Transaction> recentHistory) {
+
+    public static final JournalSnapshot EMPTY = new JournalSnapshot(0, BigDecimal.ZERO, Map.of(), List.of());
+
+    public JournalSnapshot {
+        accounts = Map.copyOf(accounts);
+        recentHistory = List.copyOf(recentHistory);
+    }
+}
@@ -0,0 +1,54 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Folds newly durable journal records into the running state, writes a
+ * snapshot and retires the segments it covers. Runs on the journal's
+ * snapshot thread; each run only reads records added since the previous one.
+ */
+class JournalSnapshotter implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalSnapshotter.class);
+
+    private final MappedTransactionJournal journal;
+    private final SnapshotStore snapshots;
+    private final JournalState state;
+    private final LongAdder written = new LongAdder();
+    // not a monitor: the run reads and writes files, which would pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    JournalSnapshotter(MappedTransactionJournal journal, SnapshotStore snapshots, JournalState state) {
+        this.journal = journal;
+        this.snapshots = snapshots;
+        this.state = state;
+    }
+
+    @Override
+    public void run() {
+        lock.lock();
+        try {
+            long target = journal.durableSequence();
+            if (target <= state.lastSequence()) {
+                return;
+            }
+            journal.read(state.lastSequence() + 1, target, state::apply);
+            snapshots.write(state.toSnapshot());
+            written.increment();
+            journal.retireSegmentsThrough(state.lastSequence());
+            logger.debug("Journal snapshot written at sequence {}", state.lastSequence());
+        } catch (RuntimeException e) {
+            logger.error("Journal snapshot failed: {}", e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long snapshotCount() {
+        return written.sum();
+    }
+}
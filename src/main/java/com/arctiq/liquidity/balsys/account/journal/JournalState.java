@@ -0,0 +1,61 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Mutable fold of journal records into balances and bounded history. Confined
+ * to a single thread.
+ */
+final class JournalState {
+
+    private final int historyLimit;
+    private final Map<AccountId, BigDecimal> accounts = new HashMap<>();
+    private final ArrayDeque<Transaction> history = new ArrayDeque<>();
+    private BigDecimal balance = BigDecimal.ZERO;
+    private long lastSequence;
+
+    JournalState(JournalSnapshot snapshot, int historyLimit) {
+        this.historyLimit = historyLimit;
+        this.lastSequence = snapshot.lastSequence();
+        this.balance = snapshot.balance();
+        this.accounts.putAll(snapshot.accounts());
+        snapshot.recentHistory().forEach(this::remember);
+    }
+
+    void apply(JournalRecord record) {
+        if (record.sequence() <= lastSequence) {
+            return;
+        }
+        Transaction tx = record.transaction();
+        BigDecimal amount = tx.amount().amount();
+        balance = balance.add(amount);
+        accounts.merge(tx.accountId(), amount, BigDecimal::add);
+        remember(tx);
+        lastSequence = record.sequence();
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    JournalSnapshot toSnapshot() {
+        return new JournalSnapshot(lastSequence, balance, accounts, new ArrayList<>(history));
+    }
+
+    private void remember(Transaction tx) {
+        if (historyLimit <= 0) {
+            return;
+        }
+        if (history.size() == historyLimit) {
+            history.pollFirst();
+        }
+        history.addLast(tx);
+    }
+}
@@ -0,0 +1,421 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.shared.segment.SegmentFiles;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Journal backed by memory-mapped segment files.
+ * <p>
+ * Records are {@code [payload length][CRC32C][sequence][transaction]} and are
+ * appended to the active segment under a short lock; a zero length marks the
+ * end of a segment. Durability follows the configured {@link DurabilityMode}:
+ * per-transaction appends force their own bytes, group-commit appends wake the
+ * sync thread and wait for the force that covers them, and async appends never
+ * wait. A background snapshotter folds durable records into snapshots and
+ * deletes the segments they cover, so recovery reads the latest snapshot and
+ * replays only the tail.
+ */
+public class MappedTransactionJournal implements TransactionJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedTransactionJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+
+    private final SegmentFiles segments;
+    private final int segmentBytes;
+    private final DurabilityMode durability;
+    private final long syncIntervalNanos;
+    private final JournalSnapshot recovered;
+    private final JournalSnapshotter snapshotter;
+    private final ScheduledExecutorService snapshotExecutor;
+    private final Thread syncThread;
+
+    private final CRC32C crc = new CRC32C();
+    // Not a monitor: appends can roll or force a segment while holding it, which would pin a virtual thread's carrier
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private final LongAdder syncs = new LongAdder();
+
+    // guarded by appendLock
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private int lastRecordStart;
+
+    private volatile boolean closed;
+    private volatile long writtenSequence;
+    private volatile long durableSequence;
+
+    /**
+     * Opens (or creates) the journal in {@code directory} and recovers its
+     * state.
+     *
+     * @param snapshotInterval how often to fold the journal into a snapshot;
+     *                         {@link Duration#ZERO} disables snapshots
+     * @param historyLimit     transactions of history kept in each snapshot
+     */
+    public MappedTransactionJournal(Path directory, int segmentBytes, DurabilityMode durability,
+            Duration syncInterval, Duration snapshotInterval, int historyLimit) {
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Journal segments must be at least " + MIN_SEGMENT_BYTES + " bytes");
+        }
+        this.segments = new SegmentFiles(directory, SEGMENT_PREFIX, ByteOrder.BIG_ENDIAN, 1, "journal");
+        this.segmentBytes = segmentBytes;
+        this.durability = durability;
+        this.syncIntervalNanos = Math.max(1, syncInterval.toNanos());
+
+        long startNanos = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create journal directory " + directory, e);
+        }
+
+        SnapshotStore snapshots = new SnapshotStore(directory);
+        JournalSnapshot base = snapshots.latest().orElse(JournalSnapshot.EMPTY);
+        openTail(base.lastSequence() + 1);
+
+        JournalState state = new JournalState(base, historyLimit);
+        read(base.lastSequence() + 1, writtenSequence, state::apply);
+        this.recovered = state.lastSequence() == 0 ? null : state.toSnapshot();
+        logger.info("Journal recovered to sequence {} from snapshot {} in {} ms",
+                state.lastSequence(), base.lastSequence(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        if (snapshotInterval.isZero() || snapshotInterval.isNegative()) {
+            this.snapshotter = null;
+            this.snapshotExecutor = null;
+        } else {
+            this.snapshotter = new JournalSnapshotter(this, snapshots, state);
+            this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-snapshotter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = snapshotInterval.toMillis();
+            snapshotExecutor.scheduleWithFixedDelay(snapshotter, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        if (durability == DurabilityMode.PER_TRANSACTION) {
+            this.syncThread = null;
+        } else {
+            this.syncThread = new Thread(this::runSync, "journal-sync");
+            syncThread.setDaemon(true);
+            syncThread.start();
+        }
+    }
+
+    @Override
+    public long append(Transaction transaction) {
+        long sequence;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            sequence = write(transaction);
+            if (durability == DurabilityMode.PER_TRANSACTION) {
+                segment.force(lastRecordStart, segment.position() - lastRecordStart);
+                syncs.increment();
+                durableSequence = sequence;
+            }
+            writtenSequence = sequence;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitGroupCommit(sequence);
+        return sequence;
+    }
+
+    /**
+     * Writes the whole block under one lock acquisition and waits for a single
+     * force covering all of it.
+     */
+    @Override
+    public long appendAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return writtenSequence;
+        }
+        long last;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            last = writtenSequence;
+            for (Transaction transaction : transactions) {
+                last = write(transaction);
+            }
+            if (durability == DurabilityMode.PER_TRANSACTION) {
+                segment.force();
+                syncs.increment();
+                durableSequence = last;
+            }
+            writtenSequence = last;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitGroupCommit(last);
+        return last;
+    }
+
+    @Override
+    public Optional<JournalSnapshot> recover() {
+        return Optional.ofNullable(recovered);
+    }
+
+    @Override
+    public long lastSequence() {
+        return writtenSequence;
+    }
+
+    @Override
+    public long durableSequence() {
+        return durableSequence;
+    }
+
+    @Override
+    public long syncCount() {
+        return syncs.sum();
+    }
+
+    public long snapshotCount() {
+        return snapshotter == null ? 0 : snapshotter.snapshotCount();
+    }
+
+    public int segmentCount() {
+        return segments.list().size();
+    }
+
+    /**
+     * Forces everything written so far to disk.
+     */
+    public void sync() {
+        MappedByteBuffer current;
+        long target;
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            current = segment;
+            target = writtenSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        if (target > durableSequence) {
+            current.force();
+            syncs.increment();
+            markDurable(target);
+        }
+    }
+
+    /**
+     * Folds durable records into a snapshot now rather than waiting for the
+     * next scheduled run.
+     */
+    public void snapshot() {
+        if (snapshotter != null) {
+            snapshotter.run();
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            try {
+                snapshotExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (syncThread != null) {
+            syncThread.interrupt();
+        }
+        sync();
+        snapshot();
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        durableLock.lock();
+        try {
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Streams records with sequences in {@code [from, to]} to {@code sink}, in
+     * order.
+     */
+    void read(long from, long to, Consumer<JournalRecord> sink) {
+        segments.read(from, to, (sequence, buffer, offset, length) -> {
+            ByteBuffer body = buffer.duplicate();
+            body.limit(offset + length).position(offset);
+            sink.accept(new JournalRecord(sequence, JournalCodec.readTransaction(body)));
+        });
+    }
+
+    /**
+     * Deletes sealed segments whose records are all at or below
+     * {@code sequence}. The active segment is never deleted.
+     */
+    void retireSegmentsThrough(long sequence) {
+        for (Path file : segments.sealedThrough(sequence)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Failed to delete journal segment {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    /**
+     * Appends {@code transaction} under the next sequence. Journal records
+     * are small, so each is sized before anything is written and the segment
+     * is rolled first if the record would straddle its end; called with
+     * {@code appendLock} held.
+     */
+    private long write(Transaction transaction) {
+        int bodyBytes = JournalCodec.transactionSize(transaction);
+        int recordBytes = SegmentFiles.recordBytes(bodyBytes);
+        segments.requireFits(recordBytes, segmentBytes);
+        if (segment.remaining() < recordBytes) {
+            roll();
+        }
+        long sequence = nextSequence++;
+        lastRecordStart = segment.position();
+
+        // the codec writes relative to a position, which the segment's own must not take
+        ByteBuffer body = segment.duplicate();
+        body.position(SegmentFiles.begin(segment, sequence));
+        JournalCodec.writeTransaction(body, transaction);
+        SegmentFiles.publish(segment, body, bodyBytes, crc);
+        return sequence;
+    }
+
+    private void awaitGroupCommit(long sequence) {
+        if (durability == DurabilityMode.GROUP_COMMIT) {
+            LockSupport.unpark(syncThread);
+            awaitDurable(sequence);
+        }
+    }
+
+    private void openTail(long minimumSequence) {
+        SegmentFiles.Tail tail = segments.tail();
+        if (tail == null) {
+            segment = segments.map(minimumSequence, segmentBytes, 0);
+            nextSequence = minimumSequence;
+        } else {
+            nextSequence = tail.lastSequence() + 1;
+            segment = segments.map(tail.firstSequence(), segmentBytes, tail.end());
+            if (nextSequence < minimumSequence) {
+                // the snapshot is ahead of the surviving journal; never reuse its sequences
+                logger.warn("Journal ends at {} but snapshot covers {}; starting a new segment",
+                        nextSequence - 1, minimumSequence - 1);
+                nextSequence = minimumSequence;
+                roll();
+            }
+        }
+        writtenSequence = nextSequence - 1;
+        durableSequence = writtenSequence;
+    }
+
+    /**
+     * Seals the active segment and maps a fresh one starting at the next
+     * sequence. The force makes everything written so far durable, so waiting
+     * group-commit callers are released here rather than at the next sync.
+     */
+    private void roll() {
+        segment.force();
+        syncs.increment();
+        markDurable(writtenSequence);
+        segment = segments.map(nextSequence, segmentBytes, 0);
+    }
+
+    private void runSync() {
+        while (!Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(syncIntervalNanos);
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                logger.error("Journal sync failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void markDurable(long sequence) {
+        durableLock.lock();
+        try {
+            if (sequence > durableSequence) {
+                durableSequence = sequence;
+            }
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Waits on a {@link Condition} rather than a monitor, so a virtual thread
+     * waiting for group commit unmounts instead of pinning its carrier.
+     */
+    private void awaitDurable(long sequence) {
+        durableLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (closed) {
+                    throw new IllegalStateException("Journal closed before sequence " + sequence + " was synced");
+                }
+                try {
+                    // bounded, so a close that races the check above is noticed
+                    durableAdvanced.awaitNanos(syncIntervalNanos + TimeUnit.MILLISECONDS.toNanos(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for journal sync", e);
+                }
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+}
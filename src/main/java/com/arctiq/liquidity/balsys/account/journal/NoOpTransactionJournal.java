@@ -0,0 +1,47 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.util.Optional;
+
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Journal used when durability is disabled: nothing is written and nothing is
+ * recovered.
+ */
+public final class NoOpTransactionJournal implements TransactionJournal {
+
+    static final NoOpTransactionJournal INSTANCE = new NoOpTransactionJournal();
+
+    private NoOpTransactionJournal() {
+    }
+
+    @Override
+    public long append(Transaction transaction) {
+        return 0;
+    }
+
+    @Override
+    public Optional<JournalSnapshot> recover() {
+        return Optional.empty();
+    }
+
+    @Override
+    public long lastSequence() {
+        return 0;
+    }
+
+    @Override
+    public long durableSequence() {
+        return 0;
+    }
+
+    @Override
+    public long syncCount() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
@@ -0,0 +1,198 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Snapshot files next to the journal segments.
+ * <p>
+ * Each snapshot is written to a temporary file, forced, then atomically
+ * renamed, so a crash mid-write never leaves a half-written snapshot under
+ * its final name. A trailing CRC guards against anything else; a corrupt
+ * snapshot is skipped in favour of the previous one.
+ */
+class SnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x534E4150;
+    private static final int VERSION = 1;
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int RETAINED = 2;
+
+    private final Path directory;
+
+    SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    Optional<JournalSnapshot> latest() {
+        List<Path> files = snapshotFiles();
+        for (int i = files.size() - 1; i >= 0; i--) {
+            Path file = files.get(i);
+            try {
+                return Optional.of(read(file));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Skipping unreadable snapshot {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    void write(JournalSnapshot snapshot) {
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, snapshot.lastSequence(), SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ChunkWriter out = new ChunkWriter(channel);
+            out.ensure(Integer.BYTES * 2 + Long.BYTES + JournalCodec.amountSize(snapshot.balance()));
+            out.buffer.putInt(MAGIC).putInt(VERSION).putLong(snapshot.lastSequence());
+            JournalCodec.writeAmount(out.buffer, snapshot.balance());
+
+            out.ensure(Integer.BYTES);
+            out.buffer.putInt(snapshot.accounts().size());
+            for (Map.Entry<AccountId, BigDecimal> account : snapshot.accounts().entrySet()) {
+                out.ensure(JournalCodec.accountIdSize(account.getKey()) + JournalCodec.amountSize(account.getValue()));
+                JournalCodec.writeAccountId(out.buffer, account.getKey());
+                JournalCodec.writeAmount(out.buffer, account.getValue());
+            }
+
+            out.ensure(Integer.BYTES);
+            out.buffer.putInt(snapshot.recentHistory().size());
+            for (Transaction tx : snapshot.recentHistory()) {
+                out.ensure(JournalCodec.transactionSize(tx));
+                JournalCodec.writeTransaction(out.buffer, tx);
+            }
+            out.finish();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot " + target.getFileName(), e);
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to publish snapshot " + target.getFileName(), e);
+        }
+        pruneOlderThan(RETAINED);
+    }
+
+    private JournalSnapshot read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < Integer.BYTES * 3) {
+            throw new IllegalStateException("truncated");
+        }
+        CRC32C crc = new CRC32C();
+        ByteBuffer body = buffer.duplicate().limit(buffer.limit() - Integer.BYTES);
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - Integer.BYTES)) {
+            throw new IllegalStateException("checksum mismatch");
+        }
+        if (body.getInt() != MAGIC || body.getInt() != VERSION) {
+            throw new IllegalStateException("unrecognised header");
+        }
+
+        long lastSequence = body.getLong();
+        BigDecimal balance = JournalCodec.readAmount(body);
+        int accountCount = body.getInt();
+        Map<AccountId, BigDecimal> accounts = new HashMap<>(accountCount * 2);
+        for (int i = 0; i < accountCount; i++) {
+            accounts.put(JournalCodec.readAccountId(body), JournalCodec.readAmount(body));
+        }
+        int historyCount = body.getInt();
+        List<Transaction> history = new ArrayList<>(historyCount);
+        for (int i = 0; i < historyCount; i++) {
+            history.add(JournalCodec.readTransaction(body));
+        }
+        return new JournalSnapshot(lastSequence, balance, accounts, history);
+    }
+
+    private void pruneOlderThan(int keep) {
+        List<Path> files = snapshotFiles();
+        for (int i = 0; i < files.size() - keep; i++) {
+            try {
+                Files.deleteIfExists(files.get(i));
+            } catch (IOException e) {
+                logger.warn("Failed to delete old snapshot {}: {}", files.get(i).getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    private List<Path> snapshotFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted(Comparator.comparing(p -> p.getFileName().toString())).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list snapshots in " + directory, e);
+        }
+    }
+
+    /**
+     * Streams a snapshot through a fixed buffer, checksumming as it goes.
+     */
+    private static final class ChunkWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        private final CRC32C crc = new CRC32C();
+
+        ChunkWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (bytes > CHUNK_BYTES) {
+                throw new IllegalArgumentException("Snapshot entry exceeds chunk size: " + bytes);
+            }
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        void finish() throws IOException {
+            drain();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
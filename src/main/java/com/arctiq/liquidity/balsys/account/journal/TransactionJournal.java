@@ -0,0 +1,55 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Write-ahead log of accepted transactions.
+ */
+public interface TransactionJournal extends AutoCloseable {
+
+    /**
+     * Records a transaction before it is applied. Depending on the
+     * {@link DurabilityMode}, may block until the record is on disk.
+     *
+     * @return the journal sequence assigned to the transaction
+     */
+    long append(Transaction transaction);
+
+    /**
+     * Records a block of transactions in order, paying for at most one
+     * durability wait.
+     *
+     * @return the journal sequence of the last transaction in the block
+     */
+    default long appendAll(List<Transaction> transactions) {
+        long last = lastSequence();
+        for (Transaction transaction : transactions) {
+            last = append(transaction);
+        }
+        return last;
+    }
+
+    /**
+     * State recovered when the journal was opened: the latest snapshot plus
+     * every record after it.
+     *
+     * @return the recovered state, or empty if there was nothing to recover
+     */
+    Optional<JournalSnapshot> recover();
+
+    long lastSequence();
+
+    long durableSequence();
+
+    long syncCount();
+
+    @Override
+    void close();
+
+    static TransactionJournal disabled() {
+        return NoOpTransactionJournal.INSTANCE;
+    }
+}
@@ -0,0 +1,285 @@
+package com.arctiq.liquidity.balsys.account.ledger;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.id.FibonacciHash;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Per-account balances spread across single-writer shards.
+ * <p>
+ * Each account is owned by exactly one shard, chosen from its ID, and only
+ * that shard's thread ever mutates its balance, so updates are plain reads and
+ * volatile writes with no CAS, and every transaction is applied exactly once.
+ * Producers hand transactions over through each shard's bounded
+ * {@link MpscRingBuffer} inbox, whose slot claim is the only contended step,
+ * and wait while it is full. Reads are lock-free and may trail the latest
+ * submission until the owning shard catches up.
+ */
+public class ShardedLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedLedger.class);
+    private static final int DRAIN_LIMIT = 256;
+    private static final int DEFAULT_INBOX_CAPACITY = 8_192;
+    private static final long ENQUEUE_WAIT_MILLIS = 100;
+
+    private final LedgerShard[] shards;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    public ShardedLedger(int shardCount) {
+        this(shardCount, DEFAULT_INBOX_CAPACITY);
+    }
+
+    public ShardedLedger(int shardCount, int inboxCapacity) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        this.shards = new LedgerShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LedgerShard(i, inboxCapacity);
+        }
+    }
+
+    public static int defaultShardCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets an opening balance on the shard that owns the account. Only safe
+     * before the first {@link #submit}.
+     */
+    public void seed(AccountId accountId, BigDecimal openingBalance) {
+        if (started.get()) {
+            throw new IllegalStateException("Ledger already started; accounts can only be seeded before ingestion");
+        }
+        shardOf(accountId).account(accountId).apply(openingBalance);
+    }
+
+    /**
+     * Hands {@code transaction} to the shard that owns its account, waiting
+     * while that shard's inbox is full. Callers have already journaled the
+     * transaction by now, so the hand-off never throws: an interrupt during
+     * the wait is deferred until the transaction is in, and re-asserted on
+     * return. Only a ledger that has been shut down turns a transaction away,
+     * which is logged and counted in {@link #failedCount()}.
+     */
+    public void submit(Transaction transaction) {
+        if (!started.get()) {
+            start();
+        }
+        shardOf(transaction.accountId()).enqueue(transaction);
+    }
+
+    public Optional<BigDecimal> balanceOf(AccountId accountId) {
+        AccountState state = shardOf(accountId).accounts.get(accountId);
+        return state == null ? Optional.empty() : Optional.of(state.balance());
+    }
+
+    public Map<AccountId, BigDecimal> balances() {
+        Map<AccountId, BigDecimal> snapshot = new HashMap<>();
+        for (LedgerShard shard : shards) {
+            shard.accounts.forEach((id, state) -> snapshot.put(id, state.balance()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Sum of every account balance the ledger holds.
+     */
+    public BigDecimal total() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (LedgerShard shard : shards) {
+            for (AccountState state : shard.accounts.values()) {
+                total = total.add(state.balance());
+            }
+        }
+        return total;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public int shardIndexOf(AccountId accountId) {
+        return FibonacciHash.bucketOf(accountId.value().hashCode(), shards.length);
+    }
+
+    private LedgerShard shardOf(AccountId accountId) {
+        return shards[shardIndexOf(accountId)];
+    }
+
+    /**
+     * Transactions a shard could not apply, or could not take because it had
+     * been shut down; each was logged and skipped.
+     */
+    public long failedCount() {
+        long failed = 0;
+        for (LedgerShard shard : shards) {
+            failed += shard.failed.sum();
+        }
+        return failed;
+    }
+
+    /**
+     * Waits until every submitted transaction has been applied by its shard.
+     *
+     * @return {@code true} if the ledger drained before the timeout
+     */
+    public boolean awaitQuiescence(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (LedgerShard shard : shards) {
+            while (shard.applied < shard.submitted.sum()) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        for (LedgerShard shard : shards) {
+            shard.stopped = true;
+            if (shard.thread != null) {
+                shard.thread.interrupt();
+            }
+        }
+    }
+
+    private synchronized void start() {
+        if (started.get()) {
+            return;
+        }
+        for (LedgerShard shard : shards) {
+            Thread thread = new Thread(shard, "ledger-shard-" + shard.index);
+            thread.setDaemon(true);
+            shard.thread = thread;
+            thread.start();
+        }
+        started.set(true);
+    }
+
+    private static final class LedgerShard implements Runnable {
+
+        private final int index;
+        private final MpscRingBuffer<Transaction> inbox;
+        private final Map<AccountId, AccountState> accounts = new ConcurrentHashMap<>();
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile long applied;
+        private volatile boolean stopped;
+        private Thread thread;
+
+        LedgerShard(int index, int inboxCapacity) {
+            this.index = index;
+            this.inbox = new MpscRingBuffer<>(inboxCapacity);
+        }
+
+        void enqueue(Transaction transaction) {
+            submitted.increment();
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    if (stopped) {
+                        submitted.decrement();
+                        failed.increment();
+                        logger.error("Ledger shard {} is stopped; transaction {} not applied", index, transaction.id());
+                        return;
+                    }
+                    try {
+                        // waits in slices so a shard stopped meanwhile cannot park the producer forever
+                        if (inbox.offer(transaction, ENQUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        AccountState account(AccountId accountId) {
+            return accounts.computeIfAbsent(accountId, id -> new AccountState());
+        }
+
+        @Override
+        public void run() {
+            List<Transaction> drained = new ArrayList<>(DRAIN_LIMIT);
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    drained.add(inbox.take());
+                    inbox.drainTo(drained, DRAIN_LIMIT - 1);
+                    for (Transaction tx : drained) {
+                        apply(tx);
+                    }
+                    applied += drained.size();
+                    drained.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Applies one transaction; a failure skips it rather than stop the
+         * shard, which would leave every later transaction unapplied.
+         */
+        private void apply(Transaction tx) {
+            try {
+                account(tx.accountId()).apply(tx.amount().amount());
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.error("Ledger shard {} skipped transaction {}: {}", index, tx.id(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Balance of one account. Written only by the owning shard thread.
+     */
+    private static final class AccountState {
+
+        private volatile long minorUnits;
+        private volatile BigDecimal residual = BigDecimal.ZERO;
+
+        void apply(BigDecimal amount) {
+            long delta = Money.toMinorUnits(amount);
+            if (delta != Money.NOT_REPRESENTABLE) {
+                long current = minorUnits;
+                long next = current + delta;
+                if (((current ^ next) & (delta ^ next)) >= 0) {
+                    minorUnits = next;
+                    return;
+                }
+            }
+            residual = residual.add(amount);
+        }
+
+        BigDecimal balance() {
+            BigDecimal exact = residual;
+            BigDecimal scaled = BigDecimal.valueOf(minorUnits, Money.MINOR_UNIT_SCALE);
+            return exact.signum() == 0 ? scaled : scaled.add(exact);
+        }
+    }
+}
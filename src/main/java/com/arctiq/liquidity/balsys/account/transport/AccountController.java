@@ -1,18 +1,29 @@
 package com.arctiq.liquidity.balsys.account.transport;
 
+import java.time.Duration;
+import java.time.Instant;
+
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.arctiq.liquidity.balsys.account.application.BalanceStreamService;
+import com.arctiq.liquidity.balsys.account.application.BalanceStreamService.BalanceUpdate;
 import com.arctiq.liquidity.balsys.account.application.BankAccountService;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Tag(name = "Account", description = "Balance tracking and transaction history")
@@ -22,23 +33,53 @@ public class AccountController {
 
     private final BankAccountService bankAccountService;
     private final MetricsCollector metricsCollector;
+    private final BalanceStreamService balanceStreamService;
 
-    public AccountController(BankAccountService bankAccountService, MetricsCollector metricsCollector) {
+    public AccountController(BankAccountService bankAccountService, MetricsCollector metricsCollector,
+            BalanceStreamService balanceStreamService) {
         this.bankAccountService = bankAccountService;
         this.metricsCollector = metricsCollector;
+        this.balanceStreamService = balanceStreamService;
     }
 
     // @PreAuthorize("hasAnyRole('USER', 'OPS')")
-    @Operation(summary = "Get current account balance", description = "Returns the latest computed balance after applying all ingested transactions.")
+    @Operation(summary = "Get current account balance", description = "Returns the latest computed balance after applying all ingested transactions, or the balance as of the ISO-8601 instant given in 'at'.")
     @ApiResponse(responseCode = "200", description = "Balance retrieved successfully")
     @GetMapping(value = "/balance", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<BalanceResponse> getBalance() {
+    public Mono<BalanceResponse> getBalance(@RequestParam(required = false) Instant at) {
+        if (at != null) {
+            return Mono.fromSupplier(() -> new BalanceResponse(bankAccountService.retrieveBalanceAt(at)));
+        }
         double value = bankAccountService.retrieveBalance();
         metricsCollector.recordBalance(value);
         return Mono.fromSupplier(() -> new BalanceResponse(value));
     }
 
+    @Operation(summary = "Stream balance changes", description = "Pushes the balance as Server-Sent Events or NDJSON whenever it changes, conflated to at most one update per interval.")
+    @ApiResponse(responseCode = "200", description = "Balance stream opened")
+    @GetMapping(value = "/balance/stream", produces = { MediaType.TEXT_EVENT_STREAM_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<BalanceUpdate> streamBalance(@RequestParam(required = false) Long intervalMillis) {
+        return balanceStreamService.stream(intervalMillis == null ? null : Duration.ofMillis(intervalMillis));
+    }
+
+    @Operation(summary = "Get balance of a single account", description = "Returns the balance of one account. Accounts other than the default one are applied by the ledger shard that owns them and may briefly trail accepted transactions.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Balance retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Account is unknown to the ledger")
+    })
+    @GetMapping(value = "/{accountId}/balance", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<AccountBalanceResponse>> getAccountBalance(@PathVariable String accountId) {
+        return Mono.fromSupplier(() -> bankAccountService.retrieveBalance(new AccountId(accountId))
+                .map(value -> ResponseEntity.ok(new AccountBalanceResponse(accountId, value)))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
     @Schema(description = "Response containing the current account balance")
     public record BalanceResponse(double balance) {
     }
+
+    @Schema(description = "Response containing the balance of a single account")
+    public record AccountBalanceResponse(String accountId, double balance) {
+    }
 }
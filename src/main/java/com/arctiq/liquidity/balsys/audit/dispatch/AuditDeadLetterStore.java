@@ -0,0 +1,111 @@
+package com.arctiq.liquidity.balsys.audit.dispatch;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+
+/**
+ * Bounded holding area for batches the delivery layer gave up on, keyed by
+ * batch ID. A batch that fails again updates its letter in place, adding to
+ * the attempt count and replacing the last error, so a batch that keeps
+ * failing across recovery runs holds one slot rather than one per run. The
+ * recovery run takes a {@link #snapshot()}, hands the letters back to the
+ * notifier and {@linkplain #remove(Collection) removes} those acknowledged.
+ */
+public class AuditDeadLetterStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditDeadLetterStore.class);
+
+    /**
+     * One undelivered batch. {@code sequence} is {@code 0} when the batch was
+     * submitted without one.
+     */
+    public record DeadLetter(long sequence, AuditBatch batch, String reason, int attempts, Instant failedAt) {
+    }
+
+    private final int capacity;
+    // guarded by this; insertion order is first failure, and updates keep it
+    private final Map<String, DeadLetter> letters = new LinkedHashMap<>();
+    private final LongAdder overflow = new LongAdder();
+
+    public AuditDeadLetterStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Dead letter capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Records {@code attempts} more failed attempts of each batch.
+     *
+     * @return {@code false} if the store was full and a batch not already in
+     *         it was lost
+     */
+    public synchronized boolean add(long sequence, List<AuditBatch> batches, String reason, int attempts,
+            Instant failedAt) {
+        int lost = 0;
+        for (AuditBatch batch : batches) {
+            DeadLetter previous = letters.get(batch.getBatchId());
+            if (previous != null) {
+                long knownSequence = sequence != 0 ? sequence : previous.sequence();
+                letters.put(batch.getBatchId(), new DeadLetter(knownSequence, batch, reason,
+                        previous.attempts() + attempts, failedAt));
+            } else if (letters.size() < capacity) {
+                letters.put(batch.getBatchId(), new DeadLetter(sequence, batch, reason, attempts, failedAt));
+            } else {
+                lost++;
+            }
+        }
+        if (lost > 0) {
+            overflow.add(lost);
+            logger.error("Dead letter store full ({}); {} batches of submission {} lost", capacity, lost, sequence);
+        }
+        return lost == 0;
+    }
+
+    /**
+     * Every letter, oldest first, left in the store.
+     */
+    public synchronized List<DeadLetter> snapshot() {
+        return new ArrayList<>(letters.values());
+    }
+
+    /**
+     * Forgets the letters of batches that have since been acknowledged.
+     */
+    public synchronized void remove(Collection<String> batchIds) {
+        batchIds.forEach(letters::remove);
+    }
+
+    /**
+     * Removes and returns every letter, oldest first.
+     */
+    public synchronized List<DeadLetter> drain() {
+        List<DeadLetter> drained = new ArrayList<>(letters.values());
+        letters.clear();
+        return drained;
+    }
+
+    /**
+     * Number of batches held.
+     */
+    public synchronized int size() {
+        return letters.size();
+    }
+
+    /**
+     * Batches lost because the store was full.
+     */
+    public long overflowCount() {
+        return overflow.sum();
+    }
+}
@@ -24,16 +24,30 @@ public class ConsoleAuditNotifier implements AuditNotifier {
 
     @Override
     public void submit(List<AuditBatch> batches) {
-        var batchSummaries = batches.stream()
-                .map(batch -> {
+        log(Map.of("batches", summarize(batches)));
+    }
+
+    @Override
+    public void submit(long sequence, List<AuditBatch> batches) {
+        Map<String, Object> submission = new LinkedHashMap<>();
+        submission.put("sequence", sequence);
+        submission.put("batches", summarize(batches));
+        log(submission);
+    }
+
+    private static List<Map<String, Object>> summarize(List<AuditBatch> batches) {
+        return batches.stream()
+                .<Map<String, Object>>map(batch -> {
                     Map<String, Object> ordered = new LinkedHashMap<>();
                     ordered.put("totalValueOfAllTransactions", batch.getTotalValue().roundedTo3Decimals());
                     ordered.put("countOfTransactions", batch.getTransactionCount());
                     return ordered;
                 })
                 .toList();
+    }
 
-        Map<String, Object> payload = Map.of("submission", Map.of("batches", batchSummaries));
+    private static void log(Map<String, Object> submission) {
+        Map<String, Object> payload = Map.of("submission", submission);
 
         try {
             String json = mapper.writeValueAsString(payload);
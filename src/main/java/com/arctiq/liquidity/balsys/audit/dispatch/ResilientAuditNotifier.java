@@ -0,0 +1,236 @@
+package com.arctiq.liquidity.balsys.audit.dispatch;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.config.AuditDeliveryConfigProperties;
+import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorMode;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
+
+/**
+ * Delivery layer around any {@link AuditNotifier}.
+ * <p>
+ * Each attempt runs on a delivery thread and is abandoned, and interrupted,
+ * after {@code attemptTimeoutMillis}, so a hung sink costs the audit thread one
+ * timeout rather than the whole stream. The delivery pool is bounded: a sink
+ * that ignores the interrupt holds at most {@code attemptThreads} threads,
+ * and once {@code attemptCapacity} attempts are queued or running the next
+ * one is refused at once and counts as a breaker failure. Failed attempts, and batches the
+ * receiver did not acknowledge, are retried up to {@code maxAttempts} in
+ * total, sleeping a random time up to an exponentially growing cap between
+ * them ("full jitter"), so workers that failed together do not retry
+ * together. A {@link CircuitBreaker} shared by all callers stops
+ * attempts while the sink keeps failing. A submission that runs out of
+ * attempts, or meets an open breaker, goes to the {@link AuditDeadLetterStore}
+ * and {@code submit} returns normally; recovery redelivers it later.
+ */
+public class ResilientAuditNotifier implements AuditNotifier, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilientAuditNotifier.class);
+
+    private final AuditNotifier delegate;
+    private final AuditDeadLetterStore deadLetters;
+    private final CircuitBreaker breaker;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long attemptTimeoutNanos;
+    private final ExecutorService attempts;
+
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder poolRejections = new LongAdder();
+
+    public ResilientAuditNotifier(AuditNotifier delegate, AuditDeadLetterStore deadLetters,
+            AuditDeliveryConfigProperties config) {
+        this(delegate, deadLetters, config, new ExecutorRegistry(ExecutorMode.PLATFORM));
+    }
+
+    /**
+     * Runs the attempts on the registry's bounded {@code audit-delivery} pool.
+     */
+    public ResilientAuditNotifier(AuditNotifier delegate, AuditDeadLetterStore deadLetters,
+            AuditDeliveryConfigProperties config, ExecutorRegistry executors) {
+        if (config.getMaxAttempts() <= 0) {
+            throw new IllegalArgumentException("Delivery attempts must be positive");
+        }
+        if (config.getAttemptTimeoutMillis() <= 0) {
+            throw new IllegalArgumentException("Delivery attempt timeout must be positive");
+        }
+        if (config.getAttemptThreads() <= 0 || config.getAttemptCapacity() < config.getAttemptThreads()) {
+            throw new IllegalArgumentException("Delivery attempt threads must be positive and within capacity");
+        }
+        this.delegate = delegate;
+        this.deadLetters = deadLetters;
+        this.breaker = new CircuitBreaker(config.getBreakerFailureThreshold(), config.getBreakerOpenMillis());
+        this.maxAttempts = config.getMaxAttempts();
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(config.getInitialBackoffMillis());
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxBackoffMillis());
+        this.attemptTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getAttemptTimeoutMillis());
+        this.attempts = executors.executor("audit-delivery", config.getAttemptThreads(),
+                config.getAttemptCapacity());
+    }
+
+    @Override
+    public void submit(List<AuditBatch> batches) {
+        submitForAck(0, batches);
+    }
+
+    @Override
+    public void submit(long sequence, List<AuditBatch> batches) {
+        submitForAck(sequence, batches);
+    }
+
+    /**
+     * Delivers the batches, retrying only those not yet acknowledged, and
+     * dead-letters whatever is still unacknowledged at the end.
+     */
+    @Override
+    public Set<String> submitForAck(long sequence, List<AuditBatch> batches) {
+        Set<String> acked = new HashSet<>();
+        List<AuditBatch> remaining = batches;
+        String reason = null;
+        int attempt = 0;
+        try {
+            while (attempt < maxAttempts) {
+                if (!breaker.tryAcquire()) {
+                    rejections.increment();
+                    reason = "circuit open";
+                    break;
+                }
+                attempt++;
+                reason = attempt(sequence, remaining, acked);
+                if (reason == null) {
+                    breaker.onSuccess();
+                    remaining = remaining.stream().filter(batch -> !acked.contains(batch.getBatchId())).toList();
+                    if (remaining.isEmpty()) {
+                        successes.increment();
+                        return acked;
+                    }
+                    failures.increment();
+                    reason = remaining.size() + " batches not acknowledged";
+                } else {
+                    breaker.onFailure();
+                }
+                if (attempt < maxAttempts) {
+                    retries.increment();
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos(attempt));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reason = "interrupted";
+        }
+        deadLettered.increment();
+        logger.warn("Audit submission {} dead-lettered after {} attempts: {}", sequence, attempt, reason);
+        deadLetters.add(sequence, remaining, reason, attempt, Instant.now());
+        return acked;
+    }
+
+    /**
+     * Adds the receiver's acknowledgements to {@code acked}.
+     *
+     * @return {@code null} if the delegate returned, otherwise why the attempt failed
+     */
+    private String attempt(long sequence, List<AuditBatch> batches, Set<String> acked) throws InterruptedException {
+        Future<Set<String>> call;
+        try {
+            call = attempts.submit(() -> delegate.submitForAck(sequence, batches));
+        } catch (RejectedExecutionException e) {
+            // every delivery thread is stuck on the sink: as much a sink failure as a timeout
+            poolRejections.increment();
+            return "delivery pool full";
+        }
+        try {
+            acked.addAll(call.get(attemptTimeoutNanos, TimeUnit.NANOSECONDS));
+            return null;
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            timeouts.increment();
+            return "timed out after " + TimeUnit.NANOSECONDS.toMillis(attemptTimeoutNanos) + " ms";
+        } catch (ExecutionException e) {
+            failures.increment();
+            return String.valueOf(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            throw e;
+        }
+    }
+
+    private long backoffNanos(int attempt) {
+        if (initialBackoffNanos <= 0) {
+            return 0;
+        }
+        long cap = initialBackoffNanos << Math.min(attempt - 1, 30);
+        if (cap <= 0 || cap > maxBackoffNanos) {
+            cap = maxBackoffNanos;
+        }
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    public CircuitBreaker.State breakerState() {
+        return breaker.state();
+    }
+
+    public long successCount() {
+        return successes.sum();
+    }
+
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    public long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long retryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Submissions refused without an attempt because the breaker was open.
+     */
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * Attempts refused because the delivery pool was full.
+     */
+    public long poolRejectionCount() {
+        return poolRejections.sum();
+    }
+
+    public long deadLetterCount() {
+        return deadLettered.sum();
+    }
+
+    public AuditDeadLetterStore deadLetters() {
+        return deadLetters;
+    }
+
+    @Override
+    public void close() {
+        attempts.shutdownNow();
+    }
+}
@@ -1,22 +1,31 @@
 package com.arctiq.liquidity.balsys.audit.domain;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
 
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 public final class AuditBatch {
     private final String batchId;
-    private final List<Transaction> transactions;
+    private final TransactionBlock transactions;
     private final Money totalValue;
     private final Money valueLimit;
 
     public AuditBatch(String batchId, List<Transaction> transactions, Money valueLimit) {
+        this(batchId, TransactionBlock.of(transactions), valueLimit);
+    }
+
+    public AuditBatch(String batchId, TransactionBlock transactions, Money valueLimit) {
         this.batchId = batchId;
-        this.transactions = List.copyOf(transactions);
-        this.totalValue = transactions.stream()
-                .map(Transaction::absoluteValue)
-                .reduce(Money.of(0.0), Money::add);
+        this.transactions = transactions;
+        this.totalValue = transactions.absoluteTotal();
         this.valueLimit = valueLimit;
 
         if (this.totalValue.amount().compareTo(valueLimit.amount()) > 0) {
@@ -24,6 +33,38 @@ public final class AuditBatch {
         }
     }
 
+    /**
+     * Batch ID derived from the batch contents: a SHA-256 over the row count,
+     * the sorted transaction IDs and the signed total in minor units. A batch
+     * with exactly the same members always gets the same ID, so re-batching a
+     * stored block on a recovery run reproduces its IDs and receivers and the
+     * ack store can use them as idempotency keys. Transactions the durable
+     * queue replays are cut into new cycles and usually packed differently,
+     * so their batches get new IDs; receivers must fall back on transaction
+     * IDs to spot those repeats.
+     */
+    public static String contentId(TransactionBlock members) {
+        int size = members.size();
+        long[] ids = new long[size];
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            ids[i] = members.id(i);
+            total += members.minorUnits(i);
+        }
+        Arrays.sort(ids);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + (size + 1) * Long.BYTES).putInt(size);
+        for (long id : ids) {
+            buffer.putLong(id);
+        }
+        buffer.putLong(total);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(buffer.array());
+            return "batch-" + HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     public boolean isWithinLimit() {
         return totalValue.amount().compareTo(valueLimit.amount()) <= 0;
     }
@@ -32,7 +73,16 @@ public final class AuditBatch {
         return batchId;
     }
 
+    /**
+     * Materializing view of the batch contents; prefer {@link #getBlock()}
+     * when iterating amounts.
+     */
     public List<Transaction> getTransactions() {
+        return transactions.toTransactions();
+    }
+
+    @JsonIgnore
+    public TransactionBlock getBlock() {
         return transactions;
     }
 
@@ -40,6 +90,11 @@ public final class AuditBatch {
         return totalValue;
     }
 
+    @JsonIgnore
+    public Money getValueLimit() {
+        return valueLimit;
+    }
+
     public int getTransactionCount() {
         return transactions.size();
     }
@@ -53,4 +108,4 @@ public final class AuditBatch {
                 valueLimit.amount().doubleValue(),
                 isWithinLimit());
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,14 @@ package com.arctiq.liquidity.balsys.audit.grouping;
 
 import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
 
 import java.util.List;
 
 public interface BatchingStrategy {
-    List<AuditBatch> groupIntoBatches(List<Transaction> transactions);
-}
\ No newline at end of file
+    List<AuditBatch> groupIntoBatches(TransactionBlock transactions);
+
+    default List<AuditBatch> groupIntoBatches(List<Transaction> transactions) {
+        return groupIntoBatches(TransactionBlock.of(transactions));
+    }
+}
@@ -2,55 +2,28 @@ package com.arctiq.liquidity.balsys.audit.grouping;
 
 import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
-import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
 
 import java.util.*;
 
 public class GreedyBatchingStrategy implements BatchingStrategy {
 
     private final Money valueLimit;
+    private final long valueLimitMinorUnits;
 
     public GreedyBatchingStrategy(Money valueLimit) {
         this.valueLimit = valueLimit;
+        this.valueLimitMinorUnits = MinorUnitBinPacker.limitInMinorUnits(valueLimit);
     }
 
     @Override
-    public List<AuditBatch> groupIntoBatches(List<Transaction> transactions) {
-        List<List<Transaction>> rawBatches = new ArrayList<>();
-
-        List<Transaction> sorted = transactions.stream()
-                .sorted(Comparator.comparingDouble(t -> -t.absoluteValue().asDouble()))
-                .toList();
-
-        for (Transaction tx : sorted) {
-            boolean placed = false;
-            Money txValue = tx.absoluteValue();
-
-            for (List<Transaction> batch : rawBatches) {
-                Money batchTotal = batch.stream()
-                        .map(Transaction::absoluteValue)
-                        .reduce(Money.of(0.0), Money::add);
-
-                if (batchTotal.add(txValue).amount().compareTo(valueLimit.amount()) <= 0) {
-                    batch.add(tx);
-                    placed = true;
-                    break;
-                }
-            }
-
-            if (!placed) {
-                List<Transaction> newBatch = new ArrayList<>();
-                newBatch.add(tx);
-                rawBatches.add(newBatch);
-            }
-        }
-
+    public List<AuditBatch> groupIntoBatches(TransactionBlock transactions) {
         List<AuditBatch> auditBatches = new ArrayList<>();
-        for (List<Transaction> batch : rawBatches) {
-            String batchId = "batch-" + UUID.randomUUID();
+        for (TransactionBlock batch : MinorUnitBinPacker.pack(transactions, valueLimitMinorUnits)) {
+            String batchId = AuditBatch.contentId(batch);
             auditBatches.add(new AuditBatch(batchId, batch, valueLimit));
         }
 
         return auditBatches;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package com.arctiq.liquidity.balsys.audit.grouping;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
+
+/**
+ * First-fit-decreasing placement of block rows into bins whose absolute
+ * totals stay within a limit, computed on {@code long} minor units.
+ */
+final class MinorUnitBinPacker {
+
+    private MinorUnitBinPacker() {
+    }
+
+    static long limitInMinorUnits(Money valueLimit) {
+        return valueLimit.amount().setScale(Money.MINOR_UNIT_SCALE, RoundingMode.FLOOR).unscaledValue().longValue();
+    }
+
+    /**
+     * @return one sub-block per bin, rows in descending amount order
+     */
+    static List<TransactionBlock> pack(TransactionBlock block, long limit) {
+        int[] order = block.indicesByAbsoluteAmountDescending();
+        int[] binOf = new int[order.length];
+        long[] totals = new long[16];
+        int[] counts = new int[16];
+        int bins = 0;
+
+        for (int n = 0; n < order.length; n++) {
+            long value = block.absoluteMinorUnits(order[n]);
+            int bin = 0;
+            while (bin < bins && (value > limit || totals[bin] > limit - value)) {
+                bin++;
+            }
+            if (bin == bins) {
+                if (bins == totals.length) {
+                    totals = Arrays.copyOf(totals, bins * 2);
+                    counts = Arrays.copyOf(counts, bins * 2);
+                }
+                bins++;
+            }
+            totals[bin] += value;
+            counts[bin]++;
+            binOf[n] = bin;
+        }
+
+        int[][] members = new int[bins][];
+        for (int bin = 0; bin < bins; bin++) {
+            members[bin] = new int[counts[bin]];
+            counts[bin] = 0;
+        }
+        for (int n = 0; n < order.length; n++) {
+            int bin = binOf[n];
+            members[bin][counts[bin]++] = order[n];
+        }
+
+        List<TransactionBlock> packed = new ArrayList<>(bins);
+        for (int[] rows : members) {
+            packed.add(block.select(rows));
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,156 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.util.concurrent.TimeUnit;
+
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+
+/**
+ * AIMD controller for the number of transactions an audit worker cuts per
+ * cycle.
+ * <p>
+ * Every notified cycle reports its size, its cost (cut to notified) and its
+ * latency (oldest transaction queued to notified). From those the controller
+ * keeps an arrival rate and a cycle cost, both as moving averages, and works
+ * out how many transactions one worker can gather and still notify within
+ * {@code maxAuditLatencyMillis}: its share of the arrival rate times the
+ * budget left after one cycle's cost. Then:
+ * <ul>
+ * <li>a cycle over the latency budget, or a limit more than twice what fits
+ * in it, halves the limit (multiplicative decrease);</li>
+ * <li>a full cycle, meaning transactions are backing up, while the limit is
+ * still below what fits, raises it by {@code submissionLimitFloor} (additive
+ * increase), so bursts are drained in fewer, larger cycles;</li>
+ * <li>anything else holds.</li>
+ * </ul>
+ * The limit starts at {@code submissionLimit} and stays within
+ * {@code submissionLimitFloor} and {@code submissionLimitCeiling}, the latter
+ * capped at {@code queueCapacity} since no cycle can drain more than the queue
+ * holds. Disabled, it is fixed at {@code submissionLimit}.
+ */
+public final class AdaptiveSubmissionLimit {
+
+    private static final long RATE_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final double SMOOTHING = 0.3;
+
+    private final boolean enabled;
+    private final int floor;
+    private final int ceiling;
+    private final long budgetNanos;
+    private final int partitions;
+
+    private volatile int limit;
+    private volatile double arrivalRate;
+    private volatile double cycleCostNanos;
+    private volatile long increases;
+    private volatile long decreases;
+    private volatile long holds;
+
+    // guarded by this
+    private long windowStart;
+    private long windowCount;
+
+    AdaptiveSubmissionLimit(TransactionConfigProperties config, int partitions) {
+        int initial = config.getSubmissionLimit();
+        this.enabled = config.isAdaptiveSubmissionLimit();
+        this.floor = enabled ? config.getSubmissionLimitFloor() : initial;
+        int queueCapacity = config.getQueueCapacity();
+        int configuredCeiling = queueCapacity > 0 ? Math.min(config.getSubmissionLimitCeiling(), queueCapacity)
+                : config.getSubmissionLimitCeiling();
+        this.ceiling = enabled ? configuredCeiling : initial;
+        if (enabled && (floor <= 0 || floor > ceiling)) {
+            throw new IllegalArgumentException(
+                    "Submission limit bounds must satisfy 0 < floor <= ceiling: " + floor + ", " + ceiling);
+        }
+        if (enabled && config.getMaxAuditLatencyMillis() <= 0) {
+            throw new IllegalArgumentException("Max audit latency must be positive");
+        }
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxAuditLatencyMillis());
+        this.partitions = Math.max(1, partitions);
+        this.limit = Math.min(ceiling, Math.max(floor, initial));
+        this.windowStart = System.nanoTime();
+    }
+
+    /**
+     * Current number of transactions per cycle.
+     */
+    public int current() {
+        return limit;
+    }
+
+    /**
+     * Largest limit the controller may reach.
+     */
+    int ceiling() {
+        return ceiling;
+    }
+
+    /**
+     * Feeds back one notified cycle and retunes the limit. {@code cutLimit} is
+     * the limit the cycle was cut under; with stages in between, several
+     * cycles may be cut before the first of them reports back.
+     */
+    void onCycle(int size, int cutLimit, long costNanos, long latencyNanos) {
+        onCycle(size, cutLimit, costNanos, latencyNanos, System.nanoTime());
+    }
+
+    synchronized void onCycle(int size, int cutLimit, long costNanos, long latencyNanos, long nowNanos) {
+        if (!enabled) {
+            return;
+        }
+        windowCount += size;
+        long elapsed = nowNanos - windowStart;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            double sample = windowCount * 1e9 / elapsed;
+            arrivalRate = arrivalRate == 0 ? sample : arrivalRate + SMOOTHING * (sample - arrivalRate);
+            windowStart = nowNanos;
+            windowCount = 0;
+        }
+        cycleCostNanos = cycleCostNanos == 0 ? costNanos : cycleCostNanos + SMOOTHING * (costNanos - cycleCostNanos);
+
+        // until the first rate sample only the latency budget can be judged
+        double fits = arrivalRate == 0 ? Double.MAX_VALUE
+                : arrivalRate / partitions * Math.max(0, budgetNanos - cycleCostNanos) / 1e9;
+        if (latencyNanos > budgetNanos || limit > 2 * fits) {
+            decrease();
+        } else if (size >= cutLimit && limit < fits && limit < ceiling) {
+            limit = Math.min(ceiling, limit + floor);
+            increases++;
+        } else {
+            holds++;
+        }
+    }
+
+    private void decrease() {
+        int next = Math.max(floor, limit / 2);
+        if (next == limit) {
+            holds++;
+            return;
+        }
+        limit = next;
+        decreases++;
+    }
+
+    /**
+     * Transactions per second reaching the audit workers, all partitions
+     * together.
+     */
+    public double arrivalRate() {
+        return arrivalRate;
+    }
+
+    public double cycleCostSeconds() {
+        return cycleCostNanos / 1e9;
+    }
+
+    public long increaseCount() {
+        return increases;
+    }
+
+    public long decreaseCount() {
+        return decreases;
+    }
+
+    public long holdCount() {
+        return holds;
+    }
+}
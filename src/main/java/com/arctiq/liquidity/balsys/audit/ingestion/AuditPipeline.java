@@ -0,0 +1,166 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Chain of single-threaded stages joined by bounded rings. Each stage hands a
+ * cycle on as soon as it is done with it, so while one cycle is being
+ * notified the next can already be persisted and a third packed. A full ring
+ * blocks the stage before it, which pushes back all the way to the drain
+ * loop. Cycles pass every stage in the order they entered; a cycle whose
+ * stage throws is logged and goes no further.
+ */
+final class AuditPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPipeline.class);
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * One drained submission on its way through the stages.
+     */
+    static final class Cycle {
+        final long sequence;
+        final String batchId;
+        final TransactionBlock block;
+        final long oldestNanos;
+        final long cutNanos;
+        final Timer.Sample latencySample;
+        int partition;
+        int cutLimit;
+        List<AuditBatch> batches;
+
+        Cycle(long sequence, String batchId, TransactionBlock block, long oldestNanos, Timer.Sample latencySample) {
+            this.sequence = sequence;
+            this.batchId = batchId;
+            this.block = block;
+            this.oldestNanos = oldestNanos;
+            this.cutNanos = System.nanoTime();
+            this.latencySample = latencySample;
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final MetricsCollector metrics;
+    private final ExecutorRegistry executors;
+    private final String partition;
+    private final int capacity;
+
+    AuditPipeline(MetricsCollector metrics, ExecutorRegistry executors, String partition, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Stage capacity must be positive: " + capacity);
+        }
+        this.metrics = metrics;
+        this.executors = executors;
+        this.partition = partition;
+        this.capacity = capacity;
+    }
+
+    AuditPipeline stage(String name, Consumer<Cycle> work) {
+        Stage stage = new Stage(name, work, new MpscRingBuffer<>(capacity), metrics.auditStageTimer(name));
+        metrics.bindAuditStage(name, partition, stage.inbox);
+        if (!stages.isEmpty()) {
+            stages.get(stages.size() - 1).next = stage;
+        }
+        stages.add(stage);
+        return this;
+    }
+
+    void start() {
+        for (Stage stage : stages) {
+            Thread thread = executors.newThread("audit-" + stage.name + "-" + partition, stage::run);
+            stage.thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Hands a cycle to the first stage, waiting while its ring is full.
+     */
+    void submit(Cycle cycle) throws InterruptedException {
+        stages.get(0).inbox.put(cycle);
+    }
+
+    /**
+     * Lets every stage finish the cycles already handed to it, then stop.
+     */
+    void close() {
+        stages.get(0).closed = true;
+    }
+
+    boolean awaitTermination(long deadlineNanos) throws InterruptedException {
+        for (Stage stage : stages) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            stage.thread.join(Math.max(1, remainingMillis));
+            if (stage.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Stage {
+        final String name;
+        final Consumer<Cycle> work;
+        final MpscRingBuffer<Cycle> inbox;
+        final Timer timer;
+        volatile boolean closed;
+        Stage next;
+        Thread thread;
+
+        Stage(String name, Consumer<Cycle> work, MpscRingBuffer<Cycle> inbox, Timer timer) {
+            this.name = name;
+            this.work = work;
+            this.inbox = inbox;
+            this.timer = timer;
+        }
+
+        void run() {
+            try {
+                while (true) {
+                    // Read the flag first: once closed, an empty inbox stays empty
+                    boolean last = closed;
+                    Cycle cycle = inbox.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                    if (cycle == null) {
+                        if (last) {
+                            break;
+                        }
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        work.accept(cycle);
+                    } catch (Exception e) {
+                        logger.error("Audit {} stage failed for cycle {}: {}", name, cycle.sequence, e.getMessage(), e);
+                        continue;
+                    } finally {
+                        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                    if (next != null) {
+                        next.inbox.put(cycle);
+                    }
+                }
+            } catch (InterruptedException e) {
+                logger.warn("Audit {} stage interrupted with {} cycles pending", name, inbox.size());
+                Thread.currentThread().interrupt();
+            } finally {
+                if (next != null) {
+                    next.closed = true;
+                }
+            }
+        }
+    }
+}
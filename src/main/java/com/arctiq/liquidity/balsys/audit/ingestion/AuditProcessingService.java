@@ -1,12 +1,18 @@
 package com.arctiq.liquidity.balsys.audit.ingestion;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,23 +22,96 @@ import com.arctiq.liquidity.balsys.audit.grouping.BatchingStrategy;
 import com.arctiq.liquidity.balsys.audit.persistence.AuditBatchPersistence;
 import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
 import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorMode;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
+import com.arctiq.liquidity.balsys.shared.id.FibonacciHash;
+import com.arctiq.liquidity.balsys.shared.id.SnowflakeIdGenerator;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
 
 import io.micrometer.core.instrument.Timer;
 
+/**
+ * Drains the audit queue into submissions of at most {@code submissionLimit}
+ * transactions, a limit the {@link AdaptiveSubmissionLimit} retunes as it
+ * goes when {@code adaptiveSubmissionLimit} is set.
+ * <p>
+ * Once {@link #start()} is called the service owns the queue. Each worker
+ * blocks until transactions arrive and cuts a submission as soon as
+ * {@code submissionLimit} of them are buffered or the oldest has waited
+ * {@code flushIntervalMillis}, so no tail is left behind and
+ * queue-to-submission latency stays within the flush interval plus one
+ * cycle. That latency is exported as {@code audit_queue_to_submission}.
+ * <p>
+ * With {@code auditThreads} above one, a dispatcher thread splits the stream
+ * by transaction ID into that many partitions, each with its own bounded
+ * ring and worker, and the workers persist, batch and notify independently.
+ * The dispatcher never blocks on one partition: a transaction whose ring is
+ * full waits in that partition's backlog while the others keep receiving
+ * theirs, and the dispatcher only stops taking from the shared queue once
+ * the backlogs together hold {@code queueCapacity} transactions.
+ * Every submission takes the next value of a shared sequence, passed to
+ * {@link AuditNotifier#submitForAck(long, List)}, so the order in which
+ * submissions were cut can be rebuilt downstream. The acknowledged batch IDs
+ * are recorded in persistence, and the cycle is marked submitted only once
+ * every batch in it was acknowledged.
+ * <p>
+ * Behind every drain loop sits an {@link AuditPipeline} of persist, pack and
+ * notify stages with {@code auditStageCapacity} cycles of slack between
+ * them, so a slow store or notifier delays later cycles only once that
+ * slack is used up.
+ * <p>
+ * Drain loops, stages and flush cycles all run on threads from the
+ * {@link ExecutorRegistry}, virtual ones in virtual mode.
+ * <p>
+ * On a {@link MappedAuditQueue}, a drained transaction is committed only
+ * once its cycle has been notified, and, across partitions, only once every
+ * transaction drained before it has been notified as well; an
+ * {@link AuditQueueWatermark} tracks that. A cycle that fails before it is
+ * notified holds the position back, so after a restart it is replayed along
+ * with everything drained after it.
+ * <p>
+ * Without {@code start()}, cycles only run when a caller invokes
+ * {@link #flushIfThresholdMet()}, and their stages run inline.
+ */
 public class AuditProcessingService {
 
     private static final Logger logger = LoggerFactory.getLogger(AuditProcessingService.class);
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int DISPATCH_CHUNK = 256;
+    private static final long BACKLOG_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
 
     private final BlockingQueue<Transaction> transactionQueue;
     private final BatchingStrategy batchingStrategy;
     private final AuditNotifier notifier;
     private final AuditBatchPersistence auditBatchPersistence;
     private final MetricsCollector metrics;
+    private final ExecutorRegistry executors;
     private final ExecutorService auditExecutor;
-    private final int submissionLimit;
+    private final AdaptiveSubmissionLimit submissionLimit;
+    private final long flushIntervalNanos;
+    private final long shutdownTimeoutMillis;
+    private final int partitionCount;
+    private final int partitionCapacity;
+    private final int backlogLimit;
+    private final int stageCapacity;
+    private final Timer drainTimer;
+    private final MappedAuditQueue durableQueue;
+    private final AuditQueueWatermark watermark;
+    private final AtomicLong submissionSequence = new AtomicLong();
+    // Cut but not yet notified or dropped; recovery leaves these alone
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
     private final AtomicBoolean submitting = new AtomicBoolean(false);
+    // Only touched by the cycle that holds the submitting flag
+    private final List<Transaction> drainBuffer = new ArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean running;
+    private volatile boolean stopping;
+    private volatile boolean dispatcherDone;
+    private volatile List<Thread> threads = List.of();
+    private volatile List<AuditPipeline> pipelines = List.of();
 
     public AuditProcessingService(
             BlockingQueue<Transaction> transactionQueue,
@@ -42,53 +121,453 @@ public class AuditProcessingService {
             AuditBatchPersistence auditBatchPersistence,
             MetricsCollector metrics) {
 
+        this(transactionQueue, config, batchingStrategy, notifier, auditBatchPersistence, metrics,
+                new ExecutorRegistry(ExecutorMode.PLATFORM));
+    }
+
+    public AuditProcessingService(
+            BlockingQueue<Transaction> transactionQueue,
+            TransactionConfigProperties config,
+            BatchingStrategy batchingStrategy,
+            AuditNotifier notifier,
+            AuditBatchPersistence auditBatchPersistence,
+            MetricsCollector metrics,
+            ExecutorRegistry executors) {
+
         this.transactionQueue = transactionQueue;
-        this.submissionLimit = config.getSubmissionLimit();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMillis());
+        this.shutdownTimeoutMillis = config.getAuditShutdownTimeoutMillis();
+        this.partitionCount = Math.max(1, config.getAuditThreads());
+        this.submissionLimit = new AdaptiveSubmissionLimit(config, partitionCount);
+        this.partitionCapacity = Math.max(submissionLimit.ceiling(), config.getQueueCapacity() / partitionCount);
+        this.backlogLimit = Math.max(partitionCapacity, config.getQueueCapacity());
+        this.stageCapacity = config.getAuditStageCapacity();
         this.batchingStrategy = batchingStrategy;
         this.notifier = notifier;
         this.auditBatchPersistence = auditBatchPersistence;
         this.metrics = metrics;
-        this.auditExecutor = Executors.newFixedThreadPool(config.getAuditThreads());
+        this.drainTimer = metrics.auditStageTimer("drain");
+        metrics.bindSubmissionLimit(submissionLimit);
+        this.executors = executors;
+        this.auditExecutor = executors.executor("audit-cycle", 1);
+        this.durableQueue = transactionQueue instanceof MappedAuditQueue durable ? durable : null;
+        this.watermark = durableQueue == null ? null
+                : new AuditQueueWatermark(partitionCount, durableQueue.drainedSequence());
     }
 
+    /**
+     * Starts the consumer thread, or the dispatcher and one worker per
+     * partition. Calling it again has no effect.
+     */
+    public void start() {
+        if (flushIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        if (submissionLimit.current() <= 0) {
+            throw new IllegalArgumentException("Submission limit must be positive");
+        }
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        running = true;
+        List<Thread> created = new ArrayList<>();
+        List<AuditPipeline> stages = new ArrayList<>();
+        if (partitionCount == 1) {
+            AuditPipeline pipeline = pipeline("0");
+            stages.add(pipeline);
+            created.add(daemon(() -> consume(transactionQueue, 0, () -> stopping, pipeline), "audit-consumer"));
+        } else {
+            List<MpscRingBuffer<Transaction>> partitions = new ArrayList<>(partitionCount);
+            for (int i = 0; i < partitionCount; i++) {
+                MpscRingBuffer<Transaction> partition = new MpscRingBuffer<>(partitionCapacity);
+                AuditPipeline pipeline = pipeline(String.valueOf(i));
+                int index = i;
+                partitions.add(partition);
+                stages.add(pipeline);
+                created.add(daemon(() -> consume(partition, index, () -> dispatcherDone, pipeline),
+                        "audit-worker-" + i));
+            }
+            metrics.bindAuditPartitions(partitions);
+            created.add(daemon(() -> dispatch(partitions), "audit-dispatcher"));
+        }
+        threads = List.copyOf(created);
+        pipelines = List.copyOf(stages);
+        stages.forEach(AuditPipeline::start);
+        created.forEach(Thread::start);
+    }
+
+    private AuditPipeline pipeline(String partition) {
+        return new AuditPipeline(metrics, executors, partition, stageCapacity)
+                .stage("persist", releasingOnFailure(this::persist))
+                .stage("pack", releasingOnFailure(this::pack))
+                .stage("notify", this::deliver);
+    }
+
+    /**
+     * Runs a cycle if the queue has reached {@code submissionLimit}. A no-op
+     * while the consumer threads are running, as they cut on size by
+     * themselves.
+     */
     public void flushIfThresholdMet() {
+        if (running) {
+            return;
+        }
+        int limit = submissionLimit.current();
         logger.debug(" transactionQueue.size() {} submissionLimit {} submitting {} ", transactionQueue.size(),
-                submissionLimit, submitting);
-        boolean thresholdMet = transactionQueue.size() >= submissionLimit && submitting.compareAndSet(false, true);
+                limit, submitting);
+        boolean thresholdMet = transactionQueue.size() >= limit && submitting.compareAndSet(false, true);
         logger.debug("thresholdMet {}", thresholdMet);
         if (thresholdMet) {
             auditExecutor.submit(this::runAuditCycle);
         }
     }
 
-    private void runAuditCycle() {
+    /**
+     * Routes the shared queue into partitions by transaction ID, so a
+     * replayed transaction always lands on the same worker.
+     */
+    private void dispatch(List<MpscRingBuffer<Transaction>> partitions) {
+        List<Transaction> chunk = new ArrayList<>(DISPATCH_CHUNK);
+        List<ArrayDeque<Transaction>> backlogs = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            backlogs.add(new ArrayDeque<>());
+        }
+        try {
+            while (!stopping) {
+                int backlogged = flushBacklogs(partitions, backlogs);
+                if (backlogged >= backlogLimit) {
+                    // stalled partitions hold a whole queue's worth: let the shared queue push back on producers
+                    LockSupport.parkNanos(BACKLOG_RETRY_NANOS);
+                    continue;
+                }
+                if (transactionQueue.drainTo(chunk, DISPATCH_CHUNK) == 0) {
+                    long idle = backlogged > 0 ? BACKLOG_RETRY_NANOS : IDLE_POLL_NANOS;
+                    Transaction next = transactionQueue.poll(idle, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        continue;
+                    }
+                    chunk.add(next);
+                }
+                route(chunk, partitions, backlogs);
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Audit dispatcher interrupted");
+        } finally {
+            Thread.interrupted();
+            route(chunk, partitions, backlogs);
+            while (transactionQueue.drainTo(chunk, DISPATCH_CHUNK) > 0) {
+                route(chunk, partitions, backlogs);
+            }
+            // the workers keep draining until dispatcherDone, so every backlog empties
+            while (flushBacklogs(partitions, backlogs) > 0) {
+                if (Thread.interrupted()) {
+                    logger.warn("Audit dispatcher interrupted during shutdown; {} transactions left unrouted",
+                            backlogs.stream().mapToInt(ArrayDeque::size).sum());
+                    break;
+                }
+                LockSupport.parkNanos(BACKLOG_RETRY_NANOS);
+            }
+            dispatcherDone = true;
+        }
+    }
+
+    /**
+     * Assigns each transaction in {@code chunk} to its partition and clears
+     * the chunk. A transaction goes behind its partition's backlog, if there
+     * is one, so every partition still receives its share in queue order;
+     * that order is what lets the watermark count it as routed here.
+     */
+    private void route(List<Transaction> chunk, List<MpscRingBuffer<Transaction>> partitions,
+            List<ArrayDeque<Transaction>> backlogs) {
+        for (Transaction transaction : chunk) {
+            int partition = partitionOf(transaction.id().value(), partitions.size());
+            ArrayDeque<Transaction> backlog = backlogs.get(partition);
+            if (!backlog.isEmpty() || !partitions.get(partition).offer(transaction)) {
+                backlog.add(transaction);
+            }
+            if (watermark != null) {
+                watermark.routed(partition, 1);
+            }
+        }
+        if (watermark != null && !chunk.isEmpty()) {
+            watermark.checkpoint(durableQueue.drainedSequence());
+        }
+        chunk.clear();
+    }
+
+    static int partitionOf(long transactionId, int partitions) {
+        return FibonacciHash.bucketOf(transactionId, partitions);
+    }
+
+    /**
+     * Moves what fits from each backlog into its partition.
+     *
+     * @return the number of transactions left in the backlogs
+     */
+    private static int flushBacklogs(List<MpscRingBuffer<Transaction>> partitions,
+            List<ArrayDeque<Transaction>> backlogs) {
+        int left = 0;
+        for (int i = 0; i < backlogs.size(); i++) {
+            ArrayDeque<Transaction> backlog = backlogs.get(i);
+            MpscRingBuffer<Transaction> partition = partitions.get(i);
+            while (!backlog.isEmpty() && partition.offer(backlog.peek())) {
+                backlog.poll();
+            }
+            left += backlog.size();
+        }
+        return left;
+    }
+
+    private void consume(BlockingQueue<Transaction> queue, int partition, BooleanSupplier stopped,
+            AuditPipeline pipeline) {
+        List<Transaction> buffer = new ArrayList<>(submissionLimit.current());
+        long oldestNanos = 0;
+        try {
+            while (!stopped.getAsBoolean()) {
+                if (buffer.isEmpty()) {
+                    long headAge = headAgeNanos(queue);
+                    Transaction first = queue.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    buffer.add(first);
+                    oldestNanos = System.nanoTime() - headAge;
+                }
+                int limit = submissionLimit.current();
+                queue.drainTo(buffer, Math.max(0, limit - buffer.size()));
+                long waitNanos = oldestNanos + flushIntervalNanos - System.nanoTime();
+                if (buffer.size() < limit && waitNanos > 0) {
+                    // Bounded so a stop request is noticed within one idle poll
+                    Transaction next = queue.poll(Math.min(waitNanos, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        buffer.add(next);
+                    }
+                    continue;
+                }
+                pipeline.submit(cut(queue, buffer, oldestNanos, partition));
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Audit consumer interrupted");
+        } finally {
+            // Whatever was accepted before shutdown still gets audited
+            Thread.interrupted();
+            try {
+                do {
+                    queue.drainTo(buffer, Math.max(0, submissionLimit.current() - buffer.size()));
+                    if (!buffer.isEmpty()) {
+                        pipeline.submit(cut(queue, buffer, oldestNanos, partition));
+                        oldestNanos = System.nanoTime();
+                    }
+                } while (!queue.isEmpty());
+            } catch (InterruptedException e) {
+                logger.warn("Audit consumer interrupted during shutdown; {} transactions left queued", queue.size());
+            }
+            pipeline.close();
+        }
+    }
+
+    /**
+     * Cuts a cycle for {@code partition}. When the buffer was drained straight
+     * from a durable queue, its position is checkpointed as well.
+     */
+    private AuditPipeline.Cycle cut(BlockingQueue<Transaction> source, List<Transaction> buffer, long oldestNanos,
+            int partition) {
+        int size = buffer.size();
+        AuditPipeline.Cycle cycle = cut(buffer, oldestNanos);
+        cycle.partition = partition;
+        if (watermark != null && source == durableQueue) {
+            watermark.routed(partition, size);
+            watermark.checkpoint(durableQueue.drainedSequence());
+        }
+        return cycle;
+    }
+
+    /**
+     * Turns the buffered transactions into a cycle and clears the buffer.
+     */
+    AuditPipeline.Cycle cut(List<Transaction> buffer, long oldestNanos) {
         Timer.Sample latencySample = metrics.startAuditLatencySample();
+        long start = System.nanoTime();
+        // Transaction objects die here; the rest of the cycle works on columns
+        TransactionBlock block = TransactionBlock.of(buffer);
+        buffer.clear();
+        AuditPipeline.Cycle cycle = new AuditPipeline.Cycle(submissionSequence.incrementAndGet(),
+                Long.toString(SnowflakeIdGenerator.shared().nextId()), block, oldestNanos, latencySample);
+        cycle.cutLimit = submissionLimit.current();
+        inFlight.add(cycle.batchId);
+        drainTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return cycle;
+    }
+
+    void persist(AuditPipeline.Cycle cycle) {
+        auditBatchPersistence.save(cycle.batchId, cycle.block);
+    }
 
+    void pack(AuditPipeline.Cycle cycle) {
+        cycle.batches = batchingStrategy.groupIntoBatches(cycle.block);
+    }
+
+    void deliver(AuditPipeline.Cycle cycle) {
         try {
-            List<Transaction> drained = new ArrayList<>();
-            transactionQueue.drainTo(drained, submissionLimit);
-            metrics.updateQueueSize(transactionQueue.size());
+            Set<String> acked = notifier.submitForAck(cycle.sequence, cycle.batches);
+            auditBatchPersistence.markAcknowledged(acked);
+            if (allAcknowledged(cycle.batches, acked)) {
+                auditBatchPersistence.markSubmitted(cycle.batchId);
+            }
+        } finally {
+            // a block with unacknowledged batches stays pending for AuditRecoveryService
+            inFlight.remove(cycle.batchId);
+        }
+        if (watermark != null) {
+            durableQueue.commit(watermark.notified(cycle.partition, cycle.block.size()));
+        }
+        long now = System.nanoTime();
+        submissionLimit.onCycle(cycle.block.size(), cycle.cutLimit, now - cycle.cutNanos, now - cycle.oldestNanos);
+        metrics.recordAuditSubmission(cycle.batches);
+        metrics.recordAuditLatency(cycle.latencySample);
+        metrics.recordQueueToSubmission(now - cycle.oldestNanos);
+    }
 
-            if (drained.isEmpty())
-                return;
+    static boolean allAcknowledged(List<AuditBatch> batches, Set<String> acked) {
+        for (AuditBatch batch : batches) {
+            if (!acked.contains(batch.getBatchId())) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            String batchId = UUID.randomUUID().toString();
-            auditBatchPersistence.save(batchId, drained);
+    Consumer<AuditPipeline.Cycle> releasingOnFailure(Consumer<AuditPipeline.Cycle> stage) {
+        return cycle -> {
+            try {
+                stage.accept(cycle);
+            } catch (RuntimeException e) {
+                inFlight.remove(cycle.batchId);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Controller for the number of transactions cut per cycle.
+     */
+    AdaptiveSubmissionLimit submissionLimit() {
+        return submissionLimit;
+    }
+
+    /**
+     * Whether a persisted batch is still on its way through a cycle, so its
+     * pending state says nothing about a failed submission yet.
+     */
+    public boolean isInFlight(String batchId) {
+        return inFlight.contains(batchId);
+    }
 
-            List<AuditBatch> grouped = batchingStrategy.groupIntoBatches(drained);
-            notifier.submit(grouped);
-            auditBatchPersistence.markSubmitted(batchId);
-            metrics.recordAuditSubmission(grouped);
+    /**
+     * How long the head of the queue has been waiting, when the queue can
+     * tell; otherwise the head is taken to have just arrived.
+     */
+    private static long headAgeNanos(BlockingQueue<Transaction> queue) {
+        if (queue instanceof MpscRingBuffer<?> ring) {
+            return ring.oldestAgeNanos();
+        }
+        return queue instanceof MappedAuditQueue durable ? durable.oldestAgeNanos() : 0;
+    }
 
+    private void runAuditCycle() {
+        try {
+            transactionQueue.drainTo(drainBuffer, submissionLimit.current());
+            submitCycle(drainBuffer);
+        } finally {
+            submitting.set(false);
+        }
+        // Producers may have filled the queue while this cycle ran and be waiting on a bounded queue
+        if (!auditExecutor.isShutdown()) {
+            flushIfThresholdMet();
+        }
+    }
+
+    /**
+     * Runs every stage of one drained cycle inline, then clears
+     * {@code drained}.
+     */
+    private void submitCycle(List<Transaction> drained) {
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            AuditPipeline.Cycle cycle = cut(transactionQueue, drained, System.nanoTime(), 0);
+            releasingOnFailure(this::persist).accept(cycle);
+            releasingOnFailure(this::pack).accept(cycle);
+            deliver(cycle);
         } catch (Exception e) {
             logger.error("Audit cycle failure: {}", e.getMessage(), e);
         } finally {
-            submitting.set(false);
-            metrics.recordAuditLatency(latencySample);
+            drained.clear();
         }
     }
 
+    /**
+     * Sequence of the last submission cut, {@code 0} before the first.
+     */
+    public long lastSubmissionSequence() {
+        return submissionSequence.get();
+    }
+
+    /**
+     * Stops the consumers after they submit everything already queued and
+     * their pipelines have notified it.
+     */
     public void shutdown() {
+        running = false;
+        stopping = true;
         auditExecutor.shutdown();
     }
+
+    /**
+     * {@link #shutdown()} followed by {@link #awaitTermination} for up to
+     * {@code transaction.audit-shutdown-timeout-millis}. This is the container's
+     * destroy method, so the queue bean, which is destroyed after this one,
+     * is only closed once the final submissions have been notified and
+     * committed. Whatever is still queued at the timeout is left for the
+     * next start.
+     */
+    public void shutdownAndAwait() {
+        shutdown();
+        try {
+            if (!awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("Audit service did not finish within {} ms of shutdown; {} transactions left queued",
+                        shutdownTimeoutMillis, transactionQueue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted waiting for the audit service to finish; {} transactions left queued",
+                    transactionQueue.size());
+        }
+    }
+
+    /**
+     * Waits for the consumer threads and their pipelines to finish the final
+     * submissions.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread thread : threads) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            thread.join(Math.max(1, remainingMillis));
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+        for (AuditPipeline pipeline : pipelines) {
+            if (!pipeline.awaitTermination(deadline)) {
+                return false;
+            }
+        }
+        return auditExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private Thread daemon(Runnable task, String name) {
+        return executors.newThread(name, task);
+    }
 }
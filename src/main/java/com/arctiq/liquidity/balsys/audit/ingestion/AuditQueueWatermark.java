@@ -0,0 +1,74 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.util.ArrayDeque;
+
+/**
+ * Works out how far a {@link MappedAuditQueue} may be committed when its
+ * transactions are notified by several partitions, each at its own pace.
+ * <p>
+ * The thread draining the queue counts what it routes to each partition and,
+ * after each drain, checkpoints the queue sequence it has reached together
+ * with those counts. Each partition notifies its transactions in the order it
+ * received them, so a checkpoint is covered once every partition has notified
+ * at least as many as had been routed to it at that point. The watermark is
+ * the newest covered checkpoint.
+ */
+final class AuditQueueWatermark {
+
+    private record Checkpoint(long sequence, long[] routed) {
+    }
+
+    // written by the draining thread only
+    private final long[] routed;
+    // guarded by this
+    private final long[] notified;
+    private final ArrayDeque<Checkpoint> pending = new ArrayDeque<>();
+    private long position;
+
+    AuditQueueWatermark(int partitions, long start) {
+        this.routed = new long[partitions];
+        this.notified = new long[partitions];
+        this.position = start;
+    }
+
+    /**
+     * Counts transactions handed to {@code partition}. Draining thread only.
+     */
+    void routed(int partition, int count) {
+        routed[partition] += count;
+    }
+
+    /**
+     * Records that everything up to {@code sequence} has been routed.
+     * Draining thread only.
+     */
+    void checkpoint(long sequence) {
+        Checkpoint checkpoint = new Checkpoint(sequence, routed.clone());
+        synchronized (this) {
+            pending.add(checkpoint);
+        }
+    }
+
+    /**
+     * Counts transactions {@code partition} has notified.
+     *
+     * @return the queue sequence everything up to which is now notified
+     */
+    synchronized long notified(int partition, int count) {
+        notified[partition] += count;
+        for (Checkpoint head = pending.peek(); head != null && covered(head); head = pending.peek()) {
+            position = head.sequence();
+            pending.poll();
+        }
+        return position;
+    }
+
+    private boolean covered(Checkpoint checkpoint) {
+        for (int i = 0; i < notified.length; i++) {
+            if (notified[i] < checkpoint.routed()[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
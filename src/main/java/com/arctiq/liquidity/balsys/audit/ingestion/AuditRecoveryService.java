@@ -0,0 +1,303 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.audit.dispatch.AuditDeadLetterStore;
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.audit.grouping.BatchingStrategy;
+import com.arctiq.liquidity.balsys.audit.persistence.AuditBatchPersistence;
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorMode;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
+import com.arctiq.liquidity.balsys.shared.ratelimit.TokenBucket;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
+
+/**
+ * Resubmits persisted batches that never reached the notifier, for instance
+ * because {@link AuditNotifier#submit} threw mid-cycle or the process stopped
+ * between persist and notify.
+ * <p>
+ * A run starts at {@link #start()} and then every
+ * {@code auditRecoveryIntervalSeconds}. It takes the pending batch IDs, skips
+ * those still {@linkplain AuditProcessingService#isInFlight(String) in
+ * flight}, and reloads, re-batches and resubmits the rest on
+ * {@code auditRecoveryParallelism} threads of the registry's
+ * {@code audit-recovery} pool. Every resubmission first takes a
+ * permit from a token bucket of {@code auditRecoveryRatePerSecond}, so a
+ * large backlog drains at a steady pace instead of competing with live
+ * cycles for the notifier. A batch that fails again stays pending for the
+ * next run.
+ * <p>
+ * The same run first redelivers the batches the delivery layer put in the
+ * {@link AuditDeadLetterStore}, one submission per original sequence, under
+ * the same permits, and removes the letters of batches that end up
+ * acknowledged. A batch that fails again keeps its letter, updated in place,
+ * whether the redelivery or the resubmission of its pending block failed it.
+ * Batch IDs are
+ * content-derived, so re-batching a pending block reproduces the IDs it was
+ * first submitted under: batches the persistence layer already records as
+ * acknowledged, whether by the original cycle, a dead letter or an earlier
+ * run, are skipped without another round trip, and a block whose batches
+ * are all acknowledged is just marked submitted.
+ */
+public class AuditRecoveryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditRecoveryService.class);
+
+    private final AuditBatchPersistence persistence;
+    private final BatchingStrategy batchingStrategy;
+    private final AuditNotifier notifier;
+    private final AuditDeadLetterStore deadLetters;
+    private final Predicate<String> inFlight;
+    private final long intervalSeconds;
+    private final TokenBucket permits;
+    private final ExecutorService workers;
+    private final Thread scheduler;
+
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final LongAdder resubmitted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile double drainRate;
+
+    public AuditRecoveryService(
+            AuditBatchPersistence persistence,
+            BatchingStrategy batchingStrategy,
+            AuditNotifier notifier,
+            AuditDeadLetterStore deadLetters,
+            Predicate<String> inFlight,
+            TransactionConfigProperties config,
+            MetricsCollector metrics) {
+        this(persistence, batchingStrategy, notifier, deadLetters, inFlight, config, metrics,
+                new ExecutorRegistry(ExecutorMode.PLATFORM));
+    }
+
+    public AuditRecoveryService(
+            AuditBatchPersistence persistence,
+            BatchingStrategy batchingStrategy,
+            AuditNotifier notifier,
+            AuditDeadLetterStore deadLetters,
+            Predicate<String> inFlight,
+            TransactionConfigProperties config,
+            MetricsCollector metrics,
+            ExecutorRegistry executors) {
+
+        int parallelism = config.getAuditRecoveryParallelism();
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Recovery parallelism must be positive");
+        }
+        this.persistence = persistence;
+        this.batchingStrategy = batchingStrategy;
+        this.notifier = notifier;
+        this.deadLetters = deadLetters;
+        this.inFlight = inFlight;
+        this.intervalSeconds = config.getAuditRecoveryIntervalSeconds();
+        this.permits = new TokenBucket(config.getAuditRecoveryRatePerSecond(), 1);
+        this.workers = executors.executor("audit-recovery", parallelism);
+        this.scheduler = executors.newThread("audit-recovery-scheduler", this::runPeriodically);
+        metrics.bindAuditRecovery(this);
+    }
+
+    /**
+     * Runs recovery now and then every interval; an interval of zero or less
+     * runs it once, at startup only.
+     */
+    public void start() {
+        scheduler.start();
+    }
+
+    private void runPeriodically() {
+        runQuietly();
+        while (intervalSeconds > 0 && !Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.SECONDS.sleep(intervalSeconds);
+            } catch (InterruptedException e) {
+                return;
+            }
+            runQuietly();
+        }
+    }
+
+    /**
+     * Resubmits every pending batch that is not in flight, and every dead
+     * letter, and waits for the run to finish.
+     *
+     * @return how many batches and letters were resubmitted
+     */
+    public int recoverPending() throws InterruptedException {
+        List<String> pending = persistence.findPendingBatchIds().stream()
+                .filter(inFlight.negate())
+                .toList();
+        // letters stay in the store until acknowledged; those that fail again wait for the next run
+        Map<Long, List<AuditBatch>> letters = new LinkedHashMap<>();
+        for (AuditDeadLetterStore.DeadLetter letter : deadLetters.snapshot()) {
+            letters.computeIfAbsent(letter.sequence(), sequence -> new ArrayList<>()).add(letter.batch());
+        }
+        int total = pending.size() + letters.size();
+        backlog.set(total);
+        if (total == 0) {
+            return 0;
+        }
+        logger.info("Audit recovery found {} pending batches and {} dead letters", pending.size(), letters.size());
+
+        long start = System.nanoTime();
+        List<Future<Boolean>> redelivered = new ArrayList<>(letters.size());
+        letters.forEach((sequence, batches) -> redelivered.add(workers.submit(() -> redeliver(sequence, batches))));
+        // dead letters go first so their acknowledgements spare the pending blocks a round trip
+        int recovered = await(redelivered);
+        List<Future<Boolean>> resubmissions = new ArrayList<>(pending.size());
+        for (String batchId : pending) {
+            resubmissions.add(workers.submit(() -> resubmit(batchId)));
+        }
+        recovered += await(resubmissions);
+        long elapsed = System.nanoTime() - start;
+        drainRate = recovered * 1e9 / Math.max(1, elapsed);
+        logger.info("Audit recovery resubmitted {} of {} in {} ms", recovered, total,
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return recovered;
+    }
+
+    private static int await(List<Future<Boolean>> results) throws InterruptedException {
+        int succeeded = 0;
+        try {
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Audit recovery task failed", e.getCause());
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+        return succeeded;
+    }
+
+    private boolean resubmit(String batchId) throws InterruptedException {
+        try {
+            permits.acquire();
+            if (inFlight.test(batchId)) {
+                return false;
+            }
+            Optional<TransactionBlock> block = persistence.loadBlock(batchId);
+            if (block.isEmpty()) {
+                logger.warn("Pending audit batch {} has no stored transactions", batchId);
+                return false;
+            }
+            List<AuditBatch> batches = unacknowledged(batchingStrategy.groupIntoBatches(block.get()));
+            if (!batches.isEmpty()) {
+                Set<String> acked = notifier.submitForAck(0, batches);
+                persistence.markAcknowledged(acked);
+                deadLetters.remove(acked);
+                if (!AuditProcessingService.allAcknowledged(batches, acked)) {
+                    failures.increment();
+                    return false;
+                }
+            }
+            persistence.markSubmitted(batchId);
+            resubmitted.increment();
+            return true;
+        } catch (RuntimeException e) {
+            failures.increment();
+            logger.warn("Audit recovery of batch {} failed, will retry next run: {}", batchId, e.getMessage());
+            return false;
+        } finally {
+            backlog.decrementAndGet();
+        }
+    }
+
+    private boolean redeliver(long sequence, List<AuditBatch> letters) throws InterruptedException {
+        List<AuditBatch> batches = letters;
+        try {
+            batches = unacknowledged(letters);
+            if (batches.size() < letters.size()) {
+                // acknowledged since they were dead-lettered, by a live cycle or an earlier run
+                deadLetters.remove(letters.stream()
+                        .map(AuditBatch::getBatchId)
+                        .filter(persistence::isAcknowledged)
+                        .toList());
+            }
+            if (batches.isEmpty()) {
+                return true;
+            }
+            permits.acquire();
+            Set<String> acked = notifier.submitForAck(sequence, batches);
+            persistence.markAcknowledged(acked);
+            deadLetters.remove(acked);
+            // unacknowledged batches still belong to a pending block, which the next phase resubmits
+            if (!AuditProcessingService.allAcknowledged(batches, acked)) {
+                failures.increment();
+                return false;
+            }
+            resubmitted.increment();
+            return true;
+        } catch (RuntimeException e) {
+            failures.increment();
+            deadLetters.add(sequence, batches, String.valueOf(e.getMessage()), 1, Instant.now());
+            logger.warn("Redelivery of dead letter {} failed, will retry next run: {}", sequence, e.getMessage());
+            return false;
+        } finally {
+            backlog.decrementAndGet();
+        }
+    }
+
+    private List<AuditBatch> unacknowledged(List<AuditBatch> batches) {
+        return batches.stream()
+                .filter(batch -> !persistence.isAcknowledged(batch.getBatchId()))
+                .toList();
+    }
+
+    private void runQuietly() {
+        try {
+            recoverPending();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Audit recovery run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Pending batches and dead letters left in the current run.
+     */
+    public int backlog() {
+        return backlog.get();
+    }
+
+    public long resubmittedCount() {
+        return resubmitted.sum();
+    }
+
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Batches per second resubmitted by the last run that found any.
+     */
+    public double drainRate() {
+        return drainRate;
+    }
+
+    public void shutdown() {
+        scheduler.interrupt();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,533 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.shared.segment.SegmentFiles;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.transport.codec.CodecSchema;
+import com.arctiq.liquidity.balsys.transaction.transport.codec.TransactionDecoder;
+import com.arctiq.liquidity.balsys.transaction.transport.codec.TransactionEncoder;
+
+/**
+ * Audit queue that survives a restart.
+ * <p>
+ * Every accepted transaction is appended to a memory-mapped segment file as
+ * {@code [payload length][CRC32C][sequence][transaction block]} before it is
+ * handed to an in-memory {@link MpscRingBuffer}, under one short lock so file
+ * and ring see the same order. Appends never force: the written bytes sit in
+ * the page cache, which outlives a crash of the process, and a background
+ * thread forces them every sync interval, so a machine crash loses at most
+ * one interval.
+ * <p>
+ * Draining a transaction does not consume it for good: the consumer calls
+ * {@link #commit(long)} once everything up to a sequence has been notified
+ * downstream. The sync thread records the committed sequence in a small
+ * position file and turns segments that lie wholly behind it into spares,
+ * which later rolls rename and map again instead of allocating new files.
+ * <p>
+ * On open, records after the recorded position are replayed into the ring
+ * ahead of anything new, so transactions accepted but not notified before a
+ * crash, drained or not, still reach the audit. Records committed within the
+ * last interval before the crash are replayed as well; delivery is at least
+ * once.
+ * <p>
+ * Consuming methods follow the single-consumer contract of the ring.
+ */
+public final class MappedAuditQueue extends AbstractQueue<Transaction>
+        implements BlockingQueue<Transaction>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedAuditQueue.class);
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SPARE_PREFIX = "spare-";
+    private static final String POSITION_FILE = "consumer.position";
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+    // the encoder caps each variable-length field at 0xFFFF bytes
+    private static final int MAX_RECORD_BYTES = SegmentFiles.HEADER_BYTES + Long.BYTES
+            + TransactionEncoder.BLOCK_LENGTH + 2 * 0xFFFF;
+    private static final int MAX_SPARE_SEGMENTS = 2;
+    private static final long FULL_PARK_NANOS = 50_000;
+
+    private final SegmentFiles segments;
+    private final SegmentFiles spareFiles;
+    private final int segmentBytes;
+    private final long syncIntervalNanos;
+    private final MpscRingBuffer<Transaction> ring;
+    private final int replayed;
+    private final Thread syncThread;
+
+    private final ConcurrentLinkedDeque<Path> spares = new ConcurrentLinkedDeque<>();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder recycled = new LongAdder();
+
+    // Locks rather than monitors: both are held across a force, which would pin a virtual thread's carrier
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock positionLock = new ReentrantLock();
+
+    // guarded by appendLock
+    private final TransactionEncoder encoder = new TransactionEncoder();
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer segment;
+    private ByteBuffer checksumView;
+    private int forcedPosition;
+    private long nextSequence;
+
+    // guarded by positionLock
+    private final FileChannel positionChannel;
+    private final MappedByteBuffer positionBuffer;
+    private long committedSequence;
+
+    private volatile boolean closed;
+    private volatile long writtenSequence;
+    private volatile long durableSequence;
+    // written by the consumer only
+    private volatile long drainedSequence;
+    private final AtomicLong acknowledgedSequence = new AtomicLong();
+
+    /**
+     * Opens (or creates) the queue in {@code directory} and replays whatever
+     * the consumer had not committed.
+     *
+     * @param capacity transactions the in-memory ring holds; raised to fit
+     *                 the replay if that is larger
+     */
+    public MappedAuditQueue(Path directory, int capacity, int segmentBytes, Duration syncInterval) {
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Audit queue segments must be at least " + MIN_SEGMENT_BYTES + " bytes");
+        }
+        this.segments = new SegmentFiles(directory, SEGMENT_PREFIX, CodecSchema.BYTE_ORDER,
+                TransactionEncoder.BLOCK_LENGTH, "audit queue");
+        this.spareFiles = new SegmentFiles(directory, SPARE_PREFIX + SEGMENT_PREFIX, CodecSchema.BYTE_ORDER,
+                TransactionEncoder.BLOCK_LENGTH, "audit queue spare");
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalNanos = Math.max(1, syncInterval.toNanos());
+
+        long startNanos = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            Path positionFile = directory.resolve(POSITION_FILE);
+            positionChannel = FileChannel.open(positionFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            positionBuffer = positionChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES * 2);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open audit queue in " + directory, e);
+        }
+        long position = positionBuffer.getLong(0);
+        // the complement guards against a torn or never-written position
+        committedSequence = positionBuffer.getLong(Long.BYTES) == ~position ? position : 0;
+
+        spares.addAll(spareFiles.list());
+        openTail(committedSequence + 1);
+
+        List<Transaction> pending = new ArrayList<>();
+        TransactionDecoder decoder = new TransactionDecoder();
+        segments.read(committedSequence + 1, writtenSequence, (sequence, buffer, offset, length) -> pending.add(
+                decoder.wrap(buffer, offset, TransactionEncoder.BLOCK_LENGTH, CodecSchema.SCHEMA_VERSION)
+                        .toTransaction()));
+        this.ring = new MpscRingBuffer<>(Math.max(capacity, pending.size()));
+        pending.forEach(ring::offer);
+        this.replayed = pending.size();
+        this.drainedSequence = writtenSequence - replayed;
+        acknowledgedSequence.set(drainedSequence);
+        logger.info("Audit queue replayed {} unnotified transactions after sequence {} in {} ms", replayed,
+                drainedSequence, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        this.syncThread = new Thread(this::runSync, "audit-queue-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * Appends the transaction to the active segment and the ring, or returns
+     * {@code false} if the ring is full. Never forces.
+     */
+    @Override
+    public boolean offer(Transaction transaction) {
+        Objects.requireNonNull(transaction, "transaction");
+        appendLock.lock();
+        try {
+            ensureOpen();
+            // Only the consumer frees slots, so a free slot seen here is still free below
+            if (ring.remainingCapacity() == 0) {
+                return false;
+            }
+            write(transaction);
+            ring.offer(transaction);
+        } finally {
+            appendLock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public void put(Transaction transaction) throws InterruptedException {
+        while (!offer(transaction)) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(Transaction transaction, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(transaction)) {
+            if (deadline - System.nanoTime() <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Transaction poll() {
+        return consumed(ring.poll());
+    }
+
+    @Override
+    public Transaction take() throws InterruptedException {
+        return consumed(ring.take());
+    }
+
+    @Override
+    public Transaction poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return consumed(ring.poll(timeout, unit));
+    }
+
+    @Override
+    public Transaction peek() {
+        return ring.peek();
+    }
+
+    @Override
+    public int drainTo(Collection<? super Transaction> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Transaction> target, int maxElements) {
+        int drained = ring.drainTo(target, maxElements);
+        if (drained > 0) {
+            drainedSequence += drained;
+        }
+        return drained;
+    }
+
+    @Override
+    public int size() {
+        return ring.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return ring.remainingCapacity();
+    }
+
+    public int capacity() {
+        return ring.capacity();
+    }
+
+    /**
+     * @see MpscRingBuffer#oldestAgeNanos()
+     */
+    public long oldestAgeNanos() {
+        return ring.oldestAgeNanos();
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        return ring.iterator();
+    }
+
+    /**
+     * Transactions replayed from disk when the queue was opened.
+     */
+    public int replayedCount() {
+        return replayed;
+    }
+
+    public long syncCount() {
+        return syncs.sum();
+    }
+
+    public long recycledSegmentCount() {
+        return recycled.sum();
+    }
+
+    /**
+     * Transactions appended but not yet forced to disk.
+     */
+    public long unsyncedCount() {
+        return writtenSequence - durableSequence;
+    }
+
+    /**
+     * Sequence of the last transaction the consumer has taken out of the
+     * queue. Sequences are handed out in queue order from one.
+     */
+    public long drainedSequence() {
+        return drainedSequence;
+    }
+
+    /**
+     * Marks every transaction up to {@code sequence} as notified downstream,
+     * so a restart no longer replays it. Recorded, and the segments behind it
+     * recycled, at the next sync. Lower or repeated sequences are ignored.
+     *
+     * @throws IllegalArgumentException if {@code sequence} has not been drained
+     */
+    public void commit(long sequence) {
+        if (sequence > drainedSequence) {
+            throw new IllegalArgumentException(
+                    "Cannot commit sequence " + sequence + " beyond what was drained: " + drainedSequence);
+        }
+        acknowledgedSequence.accumulateAndGet(sequence, Math::max);
+    }
+
+    /**
+     * The committed sequence last recorded on disk.
+     */
+    public long consumerPosition() {
+        positionLock.lock();
+        try {
+            return committedSequence;
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    public int segmentCount() {
+        return segments.list().size();
+    }
+
+    /**
+     * Forces everything appended so far, then records the committed position
+     * and recycles the segments behind it.
+     */
+    public void sync() {
+        MappedByteBuffer current;
+        long target;
+        int from;
+        int to;
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            current = segment;
+            target = writtenSequence;
+            from = forcedPosition;
+            to = segment.position();
+        } finally {
+            appendLock.unlock();
+        }
+        if (target > durableSequence) {
+            // only the bytes written since the last force; a roll has forced everything before this segment
+            current.force(from, to - from);
+            syncs.increment();
+            appendLock.lock();
+            try {
+                durableSequence = Math.max(durableSequence, target);
+                if (segment == current) {
+                    forcedPosition = Math.max(forcedPosition, to);
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        }
+        commitPosition();
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        syncThread.interrupt();
+        try {
+            syncThread.join(TimeUnit.NANOSECONDS.toMillis(syncIntervalNanos) + 1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            positionChannel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close audit queue position file: {}", e.getMessage());
+        }
+    }
+
+    private Transaction consumed(Transaction transaction) {
+        if (transaction != null) {
+            drainedSequence++;
+        }
+        return transaction;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Audit queue is closed");
+        }
+    }
+
+    /**
+     * Appends {@code transaction} to the active segment, encoding the block
+     * in place. A record is only sized when the segment is within
+     * {@link #MAX_RECORD_BYTES} of full, since sizing costs as much as
+     * encoding; called with {@code appendLock} held.
+     */
+    private void write(Transaction transaction) {
+        if (segment.remaining() < MAX_RECORD_BYTES) {
+            int recordBytes = SegmentFiles.recordBytes(TransactionEncoder.blockSize(transaction));
+            segments.requireFits(recordBytes, segmentBytes);
+            if (segment.remaining() < recordBytes) {
+                roll();
+            }
+        }
+        long sequence = nextSequence++;
+        int bodyBytes = encoder.wrap(segment, SegmentFiles.begin(segment, sequence)).encode(transaction)
+                .encodedLength();
+        SegmentFiles.publish(segment, checksumView, bodyBytes, crc);
+        writtenSequence = sequence;
+    }
+
+    private void openTail(long minimumSequence) {
+        SegmentFiles.Tail tail = segments.tail();
+        if (tail == null) {
+            openSegment(minimumSequence, 0);
+            nextSequence = minimumSequence;
+        } else {
+            nextSequence = tail.lastSequence() + 1;
+            openSegment(tail.firstSequence(), tail.end());
+            if (nextSequence < minimumSequence) {
+                // the position is ahead of the surviving log; never reuse its sequences
+                logger.warn("Audit queue ends at {} but was consumed to {}; starting a new segment",
+                        nextSequence - 1, minimumSequence - 1);
+                nextSequence = minimumSequence;
+                roll();
+            }
+        }
+        writtenSequence = nextSequence - 1;
+        durableSequence = writtenSequence;
+    }
+
+    /**
+     * Seals the active segment and opens the next one, from a recycled spare
+     * when the consumer has freed one. Forcing first lets the committed
+     * consumer position, which never passes what is durable, reach the end of
+     * the sealed segment without waiting for the sync thread.
+     */
+    private void roll() {
+        segment.force();
+        syncs.increment();
+        durableSequence = writtenSequence;
+        openSegment(nextSequence, 0);
+    }
+
+    private void openSegment(long firstSequence, int position) {
+        Path file = segments.path(firstSequence);
+        Path spare = Files.exists(file) ? null : spares.poll();
+        if (spare != null) {
+            try {
+                // stale records left in a spare carry older sequences, so a scan stops at the first of them
+                Files.move(spare, file);
+                recycled.increment();
+            } catch (IOException e) {
+                logger.warn("Failed to reuse audit queue spare {}: {}", spare.getFileName(), e.getMessage());
+            }
+        }
+        segment = segments.map(firstSequence, segmentBytes, position);
+        forcedPosition = position;
+        checksumView = segment.duplicate();
+    }
+
+    /**
+     * Persists how far the consumer has committed, capped at what is durable,
+     * and recycles the segments that lie wholly behind it.
+     */
+    private void commitPosition() {
+        positionLock.lock();
+        try {
+            long position = Math.min(acknowledgedSequence.get(), durableSequence);
+            if (position <= committedSequence) {
+                return;
+            }
+            positionBuffer.putLong(0, position);
+            positionBuffer.putLong(Long.BYTES, ~position);
+            positionBuffer.force();
+            committedSequence = position;
+            recycleThrough(position);
+        } finally {
+            positionLock.unlock();
+        }
+    }
+
+    private void recycleThrough(long sequence) {
+        for (Path file : segments.sealedThrough(sequence)) {
+            try {
+                if (spares.size() < MAX_SPARE_SEGMENTS) {
+                    Path spare = file.resolveSibling(SPARE_PREFIX + file.getFileName());
+                    Files.move(file, spare);
+                    spares.add(spare);
+                } else {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to retire audit queue segment {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    private void runSync() {
+        while (!Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(syncIntervalNanos);
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                logger.error("Audit queue sync failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Audit stages of the reactive pipeline mode, built from the same cut,
+ * persist, pack and notify steps as the {@link AuditPipeline} of
+ * {@link AuditProcessingService}.
+ * <p>
+ * Accepted transactions are grouped with {@code bufferTimeout} into cycles of
+ * at most {@code submissionLimit} that wait no longer than
+ * {@code flushIntervalMillis}. Up to {@code auditThreads} cycles are persisted
+ * and packed at once on a bounded parallel scheduler, and notified one at a
+ * time, in the order they were cut, on a single notify thread. Every operator
+ * requests only what the next one can take, so a slow notifier slows the
+ * buffer, the buffer slows the balance stage, and that slows the producers: no
+ * queue in between grows. A cycle whose stage throws is logged and dropped, and
+ * its persisted block stays pending for recovery.
+ */
+public final class ReactiveAuditPipeline implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAuditPipeline.class);
+
+    private final AuditProcessingService service;
+    private final int submissionLimit;
+    private final Duration flushInterval;
+    private final int parallelism;
+    private final Scheduler batchers;
+    private final Scheduler notifier;
+
+    public ReactiveAuditPipeline(AuditProcessingService service, TransactionConfigProperties config) {
+        if (config.getSubmissionLimit() <= 0) {
+            throw new IllegalArgumentException("Submission limit must be positive");
+        }
+        if (config.getFlushIntervalMillis() <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.service = service;
+        this.submissionLimit = config.getSubmissionLimit();
+        this.flushInterval = Duration.ofMillis(config.getFlushIntervalMillis());
+        this.parallelism = Math.max(1, config.getAuditThreads());
+        this.batchers = Schedulers.newParallel("audit-batch", parallelism);
+        this.notifier = Schedulers.newSingle("audit-notify");
+    }
+
+    /**
+     * Audits {@code accepted} as it arrives.
+     *
+     * @return the sequence of each notified cycle, in order; completes once
+     *         {@code accepted} completes and its last cycle is notified
+     */
+    public Flux<Long> audit(Flux<Transaction> accepted) {
+        return accepted
+                // fair backpressure: the buffer asks upstream only for what downstream has requested
+                .bufferTimeout(submissionLimit, flushInterval, true)
+                .map(buffer -> service.cut(buffer, oldestNanos(buffer)))
+                .flatMapSequential(cycle -> stage(cycle, "persist+pack", () -> {
+                    service.releasingOnFailure(service::persist).accept(cycle);
+                    service.releasingOnFailure(service::pack).accept(cycle);
+                }).subscribeOn(batchers), parallelism, 1)
+                .concatMap(cycle -> stage(cycle, "notify", () -> service.deliver(cycle))
+                        .map(notified -> notified.sequence)
+                        .subscribeOn(notifier), 1);
+    }
+
+    private static Mono<AuditPipeline.Cycle> stage(AuditPipeline.Cycle cycle, String name, Runnable work) {
+        return Mono.fromCallable(() -> {
+            work.run();
+            return cycle;
+        }).onErrorResume(e -> {
+            logger.error("Audit {} stage failed for cycle {}: {}", name, cycle.sequence, e.getMessage(), e);
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * Transactions carry their creation time, which stands in for the time the
+     * oldest of them was queued.
+     */
+    private static long oldestNanos(List<Transaction> buffer) {
+        Instant oldest = buffer.get(0).timestamp();
+        for (Transaction transaction : buffer) {
+            if (transaction.timestamp().isBefore(oldest)) {
+                oldest = transaction.timestamp();
+            }
+        }
+        long ageNanos = Math.max(0, Duration.between(oldest, Instant.now()).toNanos());
+        return System.nanoTime() - ageNanos;
+    }
+
+    @Override
+    public void close() {
+        batchers.dispose();
+        notifier.dispose();
+    }
+}
@@ -1,22 +1,40 @@
 package com.arctiq.liquidity.balsys.audit.persistence;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
 
 public interface AuditBatchPersistence {
 
-    void save(String batchId, List<Transaction> transactions);
+    void save(String batchId, TransactionBlock transactions);
 
-    Optional<List<Transaction>> load(String batchId);
+    Optional<TransactionBlock> loadBlock(String batchId);
+
+    default void save(String batchId, List<Transaction> transactions) {
+        save(batchId, TransactionBlock.of(transactions));
+    }
+
+    default Optional<List<Transaction>> load(String batchId) {
+        return loadBlock(batchId).map(TransactionBlock::toTransactions);
+    }
 
     void markSubmitted(String batchId);
 
+    /**
+     * Records that the receiver acknowledged these audit batches, by their
+     * content-derived {@link AuditBatch#getBatchId() IDs}.
+     */
+    void markAcknowledged(Collection<String> auditBatchIds);
+
+    boolean isAcknowledged(String auditBatchId);
+
     List<String> findPendingBatchIds();
 
     List<AuditBatch> fetchAll();
 
     void clear();
-}
\ No newline at end of file
+}
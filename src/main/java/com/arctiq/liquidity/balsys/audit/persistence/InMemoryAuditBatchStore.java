@@ -1,36 +1,78 @@
 package com.arctiq.liquidity.balsys.audit.persistence;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 
 import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
-import com.arctiq.liquidity.balsys.shared.domain.model.Money;
-import com.arctiq.liquidity.balsys.transaction.core.Transaction;
-
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
+
+/**
+ * Keeps batches and acknowledgements in memory. Acknowledged batch IDs are
+ * remembered for a bounded time only: they are held in a ring of time
+ * slices, newest first, and the oldest slice is dropped as a new one starts,
+ * so the set holds roughly {@code ackRetention} worth of acks however long
+ * the process runs. A batch still unacknowledged past that point may be
+ * delivered again.
+ */
 public class InMemoryAuditBatchStore implements AuditBatchPersistence {
 
+    public static final Duration DEFAULT_ACK_RETENTION = Duration.ofHours(1);
+    static final int ACK_SLICES = 8;
+
     private static class StoredBatch {
-        final List<Transaction> transactions;
+        final TransactionBlock transactions;
         boolean submitted;
 
-        StoredBatch(List<Transaction> txs) {
+        StoredBatch(TransactionBlock txs) {
             this.transactions = txs;
             this.submitted = false;
         }
     }
 
+    private record AckSlice(long startNanos, Set<String> ids) {
+        AckSlice(long startNanos) {
+            this(startNanos, ConcurrentHashMap.newKeySet());
+        }
+    }
+
     private final Map<String, StoredBatch> store = new ConcurrentHashMap<>();
+    private final long sliceNanos;
+    private final LongSupplier nanoClock;
+    // newest first
+    private final AtomicReference<AckSlice[]> acknowledged;
+
+    public InMemoryAuditBatchStore() {
+        this(DEFAULT_ACK_RETENTION);
+    }
+
+    public InMemoryAuditBatchStore(Duration ackRetention) {
+        this(ackRetention, System::nanoTime);
+    }
+
+    InMemoryAuditBatchStore(Duration ackRetention, LongSupplier nanoClock) {
+        if (ackRetention.isZero() || ackRetention.isNegative()) {
+            throw new IllegalArgumentException("Acknowledgement retention must be positive");
+        }
+        this.sliceNanos = Math.max(1, ackRetention.toNanos() / ACK_SLICES);
+        this.nanoClock = nanoClock;
+        this.acknowledged = new AtomicReference<>(emptySlices(nanoClock.getAsLong()));
+    }
 
     @Override
-    public void save(String batchId, List<Transaction> transactions) {
-        store.put(batchId, new StoredBatch(new ArrayList<>(transactions)));
+    public void save(String batchId, TransactionBlock transactions) {
+        store.put(batchId, new StoredBatch(transactions));
     }
 
     @Override
-    public Optional<List<Transaction>> load(String batchId) {
+    public Optional<TransactionBlock> loadBlock(String batchId) {
         StoredBatch batch = store.get(batchId);
         return batch == null ? Optional.empty() : Optional.of(batch.transactions);
     }
@@ -42,6 +84,32 @@ public class InMemoryAuditBatchStore implements AuditBatchPersistence {
             batch.submitted = true;
     }
 
+    @Override
+    public void markAcknowledged(Collection<String> auditBatchIds) {
+        currentSlices()[0].ids().addAll(auditBatchIds);
+    }
+
+    @Override
+    public boolean isAcknowledged(String auditBatchId) {
+        for (AckSlice slice : currentSlices()) {
+            if (slice.ids().contains(auditBatchId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Acknowledged batch IDs currently remembered.
+     */
+    public int acknowledgedCount() {
+        int count = 0;
+        for (AckSlice slice : currentSlices()) {
+            count += slice.ids().size();
+        }
+        return count;
+    }
+
     @Override
     public List<String> findPendingBatchIds() {
         List<String> pending = new ArrayList<>();
@@ -60,11 +128,7 @@ public class InMemoryAuditBatchStore implements AuditBatchPersistence {
             String batchId = entry.getKey();
             StoredBatch stored = entry.getValue();
 
-            double totalAmount = stored.transactions.stream()
-                    .mapToDouble(tx -> tx.amount().amount().doubleValue())
-                    .sum();
-
-            AuditBatch batch = new AuditBatch(batchId, stored.transactions, Money.of(totalAmount));
+            AuditBatch batch = new AuditBatch(batchId, stored.transactions, stored.transactions.signedTotal());
             allBatches.add(batch);
         }
 
@@ -74,5 +138,45 @@ public class InMemoryAuditBatchStore implements AuditBatchPersistence {
     @Override
     public void clear() {
         store.clear();
+        acknowledged.set(emptySlices(nanoClock.getAsLong()));
+    }
+
+    /**
+     * The slice ring as of now, shifted by however many slices have elapsed
+     * since the newest one started. A caller that loses the race to rotate
+     * uses the winner's ring; acks added to the outgoing newest slice stay
+     * visible because it moves down the ring rather than out of it.
+     */
+    private AckSlice[] currentSlices() {
+        while (true) {
+            AckSlice[] slices = acknowledged.get();
+            long now = nanoClock.getAsLong();
+            long elapsed = (now - slices[0].startNanos()) / sliceNanos;
+            if (elapsed <= 0) {
+                return slices;
+            }
+            AckSlice[] rotated;
+            if (elapsed >= ACK_SLICES) {
+                rotated = emptySlices(now);
+            } else {
+                int shift = (int) elapsed;
+                rotated = new AckSlice[ACK_SLICES];
+                for (int i = 0; i < shift; i++) {
+                    rotated[i] = new AckSlice(slices[0].startNanos() + (shift - i) * sliceNanos);
+                }
+                System.arraycopy(slices, 0, rotated, shift, ACK_SLICES - shift);
+            }
+            if (acknowledged.compareAndSet(slices, rotated)) {
+                return rotated;
+            }
+        }
+    }
+
+    private static AckSlice[] emptySlices(long now) {
+        AckSlice[] slices = new AckSlice[ACK_SLICES];
+        for (int i = 0; i < ACK_SLICES; i++) {
+            slices[i] = new AckSlice(now);
+        }
+        return slices;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package com.arctiq.liquidity.balsys.audit.transport.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
+import com.arctiq.liquidity.balsys.transaction.transport.codec.CodecSchema;
+import com.arctiq.liquidity.balsys.transaction.transport.codec.TransactionDecoder;
+
+/**
+ * Reads a message written by {@link AuditBatchEncoder} back into an
+ * {@link AuditBatch}. Entries are copied column by column into a
+ * {@link TransactionBlock}; no {@code Transaction} objects are created.
+ */
+public final class AuditBatchDecoder {
+
+    private final TransactionDecoder entry = new TransactionDecoder();
+    private int encodedLength;
+
+    public AuditBatch decode(ByteBuffer buffer, int offset) {
+        ByteBuffer source = CodecSchema.littleEndian(buffer);
+        CodecSchema.checkHeader(source, offset, CodecSchema.AUDIT_BATCH_TEMPLATE_ID, AuditBatchEncoder.BLOCK_LENGTH);
+        int version = CodecSchema.version(source, offset);
+        int block = offset + CodecSchema.HEADER_LENGTH;
+        long valueLimit = source.getLong(block + AuditBatchEncoder.VALUE_LIMIT_OFFSET);
+        int count = source.getInt(block + AuditBatchEncoder.COUNT_OFFSET);
+        int batchIdLength = Short.toUnsignedInt(source.getShort(block + AuditBatchEncoder.BATCH_ID_LENGTH_OFFSET));
+        int entryBlockLength = Short.toUnsignedInt(source.getShort(block + AuditBatchEncoder.ENTRY_BLOCK_LENGTH_OFFSET));
+        int limit = block + CodecSchema.blockLength(source, offset);
+
+        byte[] batchId = new byte[batchIdLength];
+        source.get(limit, batchId);
+        limit += batchIdLength;
+
+        TransactionBlock.Builder rows = TransactionBlock.builder(count);
+        for (int i = 0; i < count; i++) {
+            entry.wrap(source, limit, entryBlockLength, version);
+            long minorUnits = entry.minorUnits();
+            if (minorUnits != Money.NOT_REPRESENTABLE) {
+                rows.add(entry.id(), minorUnits, entry.epochNanos(), entry.accountId());
+            } else {
+                rows.add(entry.id(), entry.amount(), entry.epochNanos(), entry.accountId());
+            }
+            limit += entry.encodedLength();
+        }
+        encodedLength = limit - offset;
+        return new AuditBatch(new String(batchId, StandardCharsets.UTF_8), rows.build(),
+                Money.ofMinorUnits(valueLimit));
+    }
+
+    /**
+     * Length of the last message read by {@link #decode}.
+     */
+    public int encodedLength() {
+        return encodedLength;
+    }
+}
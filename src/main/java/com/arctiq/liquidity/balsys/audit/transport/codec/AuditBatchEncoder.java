@@ -0,0 +1,122 @@
+package com.arctiq.liquidity.balsys.audit.transport.codec;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
+import com.arctiq.liquidity.balsys.transaction.transport.codec.CodecSchema;
+import com.arctiq.liquidity.balsys.transaction.transport.codec.TransactionEncoder;
+
+/**
+ * Writes an {@link AuditBatch} as one message, straight from its
+ * {@link TransactionBlock} columns.
+ * <p>
+ * Fixed block, version 1 ({@value #BLOCK_LENGTH} bytes, little-endian):
+ *
+ * <pre>
+ * 0  i64 valueLimitMinorUnits  rounded up to a whole minor unit
+ * 8  i32 transactionCount
+ * 12 u16 batchIdLength
+ * 14 u16 entryBlockLength      fixed block length of each entry
+ * </pre>
+ *
+ * followed by the UTF-8 batch ID and then {@code transactionCount}
+ * headerless {@link TransactionEncoder} entries.
+ */
+public final class AuditBatchEncoder {
+
+    public static final int BLOCK_LENGTH = 16;
+
+    static final int VALUE_LIMIT_OFFSET = 0;
+    static final int COUNT_OFFSET = 8;
+    static final int BATCH_ID_LENGTH_OFFSET = 12;
+    static final int ENTRY_BLOCK_LENGTH_OFFSET = 14;
+
+    private final TransactionEncoder entry = new TransactionEncoder();
+    private int encodedLength;
+
+    /**
+     * Encodes {@code batch} with a header at {@code offset}.
+     *
+     * @return the number of bytes written
+     */
+    public int encode(ByteBuffer buffer, int offset, AuditBatch batch) {
+        ByteBuffer target = CodecSchema.littleEndian(buffer);
+        byte[] batchId = batch.getBatchId().getBytes(StandardCharsets.UTF_8);
+        if (batchId.length > 0xFFFF) {
+            throw new IllegalArgumentException("Batch ID too long to encode: " + batchId.length + " bytes");
+        }
+        TransactionBlock transactions = batch.getBlock();
+        CodecSchema.writeHeader(target, offset, BLOCK_LENGTH, CodecSchema.AUDIT_BATCH_TEMPLATE_ID);
+        int block = offset + CodecSchema.HEADER_LENGTH;
+        target.putLong(block + VALUE_LIMIT_OFFSET, ceilingMinorUnits(batch.getValueLimit().amount()));
+        target.putInt(block + COUNT_OFFSET, transactions.size());
+        target.putShort(block + BATCH_ID_LENGTH_OFFSET, (short) batchId.length);
+        target.putShort(block + ENTRY_BLOCK_LENGTH_OFFSET, (short) TransactionEncoder.BLOCK_LENGTH);
+        int limit = block + BLOCK_LENGTH;
+        target.put(limit, batchId);
+        limit += batchId.length;
+
+        for (int i = 0; i < transactions.size(); i++) {
+            entry.wrap(target, limit)
+                    .id(transactions.id(i))
+                    .epochNanos(transactions.epochNanos(i))
+                    .accountId(transactions.accountId(i));
+            long minorUnits = transactions.minorUnits(i);
+            if (minorUnits != Money.NOT_REPRESENTABLE) {
+                entry.minorUnits(minorUnits);
+            } else {
+                entry.amount(transactions.amount(i));
+            }
+            limit += entry.encodedLength();
+        }
+        encodedLength = limit - offset;
+        return encodedLength;
+    }
+
+    /**
+     * Length of the last message written by {@link #encode}.
+     */
+    public int encodedLength() {
+        return encodedLength;
+    }
+
+    /**
+     * Exact number of bytes {@link #encode} writes for {@code batch}.
+     */
+    public static int encodedSize(AuditBatch batch) {
+        TransactionBlock transactions = batch.getBlock();
+        int size = CodecSchema.HEADER_LENGTH + BLOCK_LENGTH
+                + batch.getBatchId().getBytes(StandardCharsets.UTF_8).length
+                + transactions.size() * TransactionEncoder.BLOCK_LENGTH;
+        AccountId lastAccount = AccountId.DEFAULT;
+        int lastAccountLength = 0;
+        for (int i = 0; i < transactions.size(); i++) {
+            AccountId account = transactions.accountId(i);
+            if (account != lastAccount) {
+                lastAccount = account;
+                lastAccountLength = AccountId.DEFAULT.equals(account) ? 0
+                        : account.value().getBytes(StandardCharsets.UTF_8).length;
+            }
+            size += lastAccountLength;
+            if (transactions.minorUnits(i) == Money.NOT_REPRESENTABLE) {
+                size += transactions.amount(i).unscaledValue().toByteArray().length;
+            }
+        }
+        return size;
+    }
+
+    private static long ceilingMinorUnits(BigDecimal amount) {
+        BigDecimal scaled = amount.setScale(Money.MINOR_UNIT_SCALE, RoundingMode.CEILING);
+        try {
+            return scaled.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return amount.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE + 1;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.arctiq.liquidity.balsys.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "audit-delivery")
+@Component
+public class AuditDeliveryConfigProperties {
+    private int maxAttempts = 3;
+    private long initialBackoffMillis = 50;
+    private long maxBackoffMillis = 2_000;
+    private long attemptTimeoutMillis = 2_000;
+    private int attemptThreads = 8;
+    private int attemptCapacity = 64;
+    private int breakerFailureThreshold = 5;
+    private long breakerOpenMillis = 10_000;
+    private int deadLetterCapacity = 10_000;
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public void setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public long getAttemptTimeoutMillis() {
+        return attemptTimeoutMillis;
+    }
+
+    public void setAttemptTimeoutMillis(long attemptTimeoutMillis) {
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+    }
+
+    public int getAttemptThreads() {
+        return attemptThreads;
+    }
+
+    public void setAttemptThreads(int attemptThreads) {
+        this.attemptThreads = attemptThreads;
+    }
+
+    public int getAttemptCapacity() {
+        return attemptCapacity;
+    }
+
+    public void setAttemptCapacity(int attemptCapacity) {
+        this.attemptCapacity = attemptCapacity;
+    }
+
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public void setBreakerFailureThreshold(int breakerFailureThreshold) {
+        this.breakerFailureThreshold = breakerFailureThreshold;
+    }
+
+    public long getBreakerOpenMillis() {
+        return breakerOpenMillis;
+    }
+
+    public void setBreakerOpenMillis(long breakerOpenMillis) {
+        this.breakerOpenMillis = breakerOpenMillis;
+    }
+
+    public int getDeadLetterCapacity() {
+        return deadLetterCapacity;
+    }
+
+    public void setDeadLetterCapacity(int deadLetterCapacity) {
+        this.deadLetterCapacity = deadLetterCapacity;
+    }
+
+}
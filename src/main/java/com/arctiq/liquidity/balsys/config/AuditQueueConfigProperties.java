@@ -0,0 +1,46 @@
+package com.arctiq.liquidity.balsys.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "audit-queue")
+@Component
+public class AuditQueueConfigProperties {
+    private boolean durable;
+    private String directory = "data/audit-queue";
+    private int segmentSizeMb = 16;
+    private long syncIntervalMillis = 10;
+
+    public boolean isDurable() {
+        return durable;
+    }
+
+    public void setDurable(boolean durable) {
+        this.durable = durable;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSizeMb() {
+        return segmentSizeMb;
+    }
+
+    public void setSegmentSizeMb(int segmentSizeMb) {
+        this.segmentSizeMb = segmentSizeMb;
+    }
+
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    public void setSyncIntervalMillis(long syncIntervalMillis) {
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+}
@@ -1,39 +1,98 @@
 package com.arctiq.liquidity.balsys.config;
 
+import com.arctiq.liquidity.balsys.account.application.BalanceStreamService;
 import com.arctiq.liquidity.balsys.account.application.BankAccountService;
 import com.arctiq.liquidity.balsys.account.application.BankAccountServiceImpl;
+import com.arctiq.liquidity.balsys.account.journal.MappedTransactionJournal;
+import com.arctiq.liquidity.balsys.account.journal.TransactionJournal;
 import com.arctiq.liquidity.balsys.audit.application.AuditStatsService;
+import com.arctiq.liquidity.balsys.audit.dispatch.AuditDeadLetterStore;
 import com.arctiq.liquidity.balsys.audit.dispatch.ConsoleAuditNotifier;
+import com.arctiq.liquidity.balsys.audit.dispatch.ResilientAuditNotifier;
 import com.arctiq.liquidity.balsys.audit.grouping.BatchingStrategy;
 import com.arctiq.liquidity.balsys.audit.grouping.FirstFitDecreasingBatchingStrategy;
 import com.arctiq.liquidity.balsys.audit.ingestion.AuditProcessingService;
+import com.arctiq.liquidity.balsys.audit.ingestion.AuditRecoveryService;
+import com.arctiq.liquidity.balsys.audit.ingestion.MappedAuditQueue;
 import com.arctiq.liquidity.balsys.audit.persistence.AuditBatchPersistence;
 import com.arctiq.liquidity.balsys.audit.persistence.InMemoryAuditBatchStore;
+import com.arctiq.liquidity.balsys.producer.orchestration.PipelineMode;
 import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.id.SnowflakeIdGenerator;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedTransferQueue;
 
 @Configuration
 public class DomainConfig {
 
     @Bean
-    public LinkedTransferQueue<Transaction> transactionQueue() {
-        return new LinkedTransferQueue<>();
+    public BlockingQueue<Transaction> transactionQueue(TransactionConfigProperties config,
+            AuditQueueConfigProperties auditQueueConfig) {
+        if (auditQueueConfig.isDurable()) {
+            if (config.getPipelineMode() == PipelineMode.REACTIVE) {
+                // the reactive pipeline never enqueues, so nothing would reach the durable queue
+                throw new IllegalStateException(
+                        "audit-queue.durable=true needs transaction.pipeline-mode=executor; the reactive pipeline bypasses the audit queue");
+            }
+            // closed (and its consumer position recorded) when the context closes; auditService depends on this bean,
+            // so it is destroyed first, and its destroy method waits for the final submissions
+            return new MappedAuditQueue(
+                    Path.of(auditQueueConfig.getDirectory()),
+                    config.getQueueCapacity(),
+                    auditQueueConfig.getSegmentSizeMb() * 1024 * 1024,
+                    Duration.ofMillis(auditQueueConfig.getSyncIntervalMillis()));
+        }
+        return new MpscRingBuffer<>(config.getQueueCapacity());
     }
 
     @Bean
-    public BankAccountService bankAccountService(LinkedTransferQueue<Transaction> transactionQueue,
+    public SnowflakeIdGenerator idGenerator(TransactionConfigProperties config, MetricsCollector metricsCollector) {
+        SnowflakeIdGenerator generator = SnowflakeIdGenerator.configureShared(config.getNodeId());
+        metricsCollector.bindIdGenerator(generator);
+        return generator;
+    }
+
+    @Bean(destroyMethod = "close")
+    public TransactionJournal transactionJournal(JournalConfigProperties journalConfig) {
+        if (!journalConfig.isEnabled()) {
+            return TransactionJournal.disabled();
+        }
+        return new MappedTransactionJournal(
+                Path.of(journalConfig.getDirectory()),
+                journalConfig.getSegmentSizeMb() * 1024 * 1024,
+                journalConfig.getDurability(),
+                Duration.ofMillis(journalConfig.getSyncIntervalMillis()),
+                Duration.ofSeconds(journalConfig.getSnapshotIntervalSeconds()),
+                journalConfig.getSnapshotHistoryLimit());
+    }
+
+    @Bean
+    @DependsOn("idGenerator")
+    public BankAccountService bankAccountService(BlockingQueue<Transaction> transactionQueue,
             MetricsCollector metricsCollector,
-            TransactionConfigProperties config) {
-        return new BankAccountServiceImpl(transactionQueue, config, metricsCollector);
+            TransactionConfigProperties config,
+            TransactionJournal transactionJournal) {
+        return new BankAccountServiceImpl(transactionQueue, config, metricsCollector, transactionJournal);
+    }
+
+    @Bean
+    public BalanceStreamService balanceStreamService(BankAccountService bankAccountService,
+            TransactionConfigProperties config,
+            MetricsCollector metricsCollector) {
+        return new BalanceStreamService(bankAccountService,
+                Duration.ofMillis(config.getBalanceStreamIntervalMillis()), metricsCollector);
     }
 
     @Bean
@@ -43,17 +102,29 @@ public class DomainConfig {
     }
 
     @Bean
-    public AuditNotifier auditNotifier(MetricsCollector metricsCollector, AuditStatsService auditStatsService) {
-        return new ConsoleAuditNotifier();
+    public AuditDeadLetterStore auditDeadLetterStore(AuditDeliveryConfigProperties deliveryConfig) {
+        return new AuditDeadLetterStore(deliveryConfig.getDeadLetterCapacity());
     }
 
     @Bean
+    public AuditNotifier auditNotifier(MetricsCollector metricsCollector, AuditStatsService auditStatsService,
+            AuditDeadLetterStore auditDeadLetterStore,
+            AuditDeliveryConfigProperties deliveryConfig,
+            ExecutorRegistry executorRegistry) {
+        ResilientAuditNotifier notifier = new ResilientAuditNotifier(new ConsoleAuditNotifier(),
+                auditDeadLetterStore, deliveryConfig, executorRegistry);
+        metricsCollector.bindAuditDelivery(notifier);
+        return notifier;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdownAndAwait")
     public AuditProcessingService auditService(BlockingQueue<Transaction> transactionQueue,
             TransactionConfigProperties config,
             BatchingStrategy batchingStrategy,
             AuditNotifier auditNotifier,
             AuditBatchPersistence auditBatchPersistence,
-            MetricsCollector metricsCollector) {
+            MetricsCollector metricsCollector,
+            ExecutorRegistry executorRegistry) {
 
         return new AuditProcessingService(
                 transactionQueue,
@@ -61,12 +132,27 @@ public class DomainConfig {
                 batchingStrategy,
                 auditNotifier,
                 auditBatchPersistence,
-                metricsCollector);
+                metricsCollector,
+                executorRegistry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public AuditRecoveryService auditRecoveryService(AuditBatchPersistence auditBatchPersistence,
+            BatchingStrategy batchingStrategy,
+            AuditNotifier auditNotifier,
+            AuditDeadLetterStore auditDeadLetterStore,
+            AuditProcessingService auditService,
+            TransactionConfigProperties config,
+            MetricsCollector metricsCollector,
+            ExecutorRegistry executorRegistry) {
+        return new AuditRecoveryService(auditBatchPersistence, batchingStrategy, auditNotifier,
+                auditDeadLetterStore, auditService::isInFlight, config, metricsCollector, executorRegistry);
     }
 
     @Bean
-    public AuditBatchPersistence auditBatchPersistence() {
-        return new InMemoryAuditBatchStore(); // or JpaAuditBatchStore in production
+    public AuditBatchPersistence auditBatchPersistence(TransactionConfigProperties config) {
+        // or JpaAuditBatchStore in production
+        return new InMemoryAuditBatchStore(Duration.ofSeconds(config.getAuditAckRetentionSeconds()));
     }
 
     @Bean
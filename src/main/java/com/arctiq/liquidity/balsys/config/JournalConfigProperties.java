@@ -0,0 +1,75 @@
+package com.arctiq.liquidity.balsys.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.arctiq.liquidity.balsys.account.journal.DurabilityMode;
+
+@ConfigurationProperties(prefix = "journal")
+@Component
+public class JournalConfigProperties {
+    private boolean enabled;
+    private String directory = "data/journal";
+    private DurabilityMode durability = DurabilityMode.GROUP_COMMIT;
+    private int segmentSizeMb = 64;
+    private long syncIntervalMillis = 2;
+    private long snapshotIntervalSeconds = 60;
+    private int snapshotHistoryLimit = 100_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DurabilityMode getDurability() {
+        return durability;
+    }
+
+    public void setDurability(DurabilityMode durability) {
+        this.durability = durability;
+    }
+
+    public int getSegmentSizeMb() {
+        return segmentSizeMb;
+    }
+
+    public void setSegmentSizeMb(int segmentSizeMb) {
+        this.segmentSizeMb = segmentSizeMb;
+    }
+
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    public void setSyncIntervalMillis(long syncIntervalMillis) {
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    public long getSnapshotIntervalSeconds() {
+        return snapshotIntervalSeconds;
+    }
+
+    public void setSnapshotIntervalSeconds(long snapshotIntervalSeconds) {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    public int getSnapshotHistoryLimit() {
+        return snapshotHistoryLimit;
+    }
+
+    public void setSnapshotHistoryLimit(int snapshotHistoryLimit) {
+        this.snapshotHistoryLimit = snapshotHistoryLimit;
+    }
+
+}
@@ -1,8 +1,6 @@
 package com.arctiq.liquidity.balsys.config;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -17,6 +15,7 @@ import com.arctiq.liquidity.balsys.producer.channel.CreditProducer;
 import com.arctiq.liquidity.balsys.producer.channel.DebitProducer;
 import com.arctiq.liquidity.balsys.producer.orchestration.TransactionProducerOrchestrator;
 import com.arctiq.liquidity.balsys.producer.simulation.TransactionSimulationManager;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
@@ -27,9 +26,11 @@ import io.micrometer.core.instrument.MeterRegistry;
 public class StreamConfig {
 
     // 🧵 Threading
-    @Bean
-    public ExecutorService auditExecutor() {
-        return Executors.newFixedThreadPool(2);
+    @Bean(destroyMethod = "close")
+    public ExecutorRegistry executorRegistry(TransactionConfigProperties config, MetricsCollector metricsCollector) {
+        ExecutorRegistry registry = new ExecutorRegistry(config.getExecutorMode());
+        metricsCollector.bindExecutors(registry);
+        return registry;
     }
 
     // 💰 Producers
@@ -50,8 +51,8 @@ public class StreamConfig {
             DebitProducer debitProducer,
             BankAccountService accountService,
             AuditProcessingService auditProcessingService,
-            LinkedTransferQueue<Transaction> transactionQueue,
-            ExecutorService auditExecutor,
+            BlockingQueue<Transaction> transactionQueue,
+            ExecutorRegistry executorRegistry,
             MeterRegistry meterRegistry,
             MetricsCollector metricsCollector) {
 
@@ -61,7 +62,7 @@ public class StreamConfig {
                 accountService,
                 auditProcessingService,
                 meterRegistry,
-                auditExecutor,
+                executorRegistry.executor("producer-emit", 2),
                 metricsCollector);
     }
 
@@ -84,9 +85,10 @@ public class StreamConfig {
             TransactionConfigProperties config,
             MetricsCollector metricsCollector,
             MeterRegistry meterRegistry,
-            LinkedTransferQueue<Transaction> transactionQueue,
+            BlockingQueue<Transaction> transactionQueue,
             BankAccountService accountService,
-            AuditProcessingService auditProcessingService) {
+            AuditProcessingService auditProcessingService,
+            ExecutorRegistry executorRegistry) {
 
         return new TransactionSimulationManager(
                 config,
@@ -94,6 +96,7 @@ public class StreamConfig {
                 meterRegistry,
                 transactionQueue,
                 accountService,
-                auditProcessingService);
+                auditProcessingService,
+                executorRegistry);
     }
 }
@@ -1,8 +1,16 @@
 package com.arctiq.liquidity.balsys.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import com.arctiq.liquidity.balsys.account.balance.ReconciliationMode;
+import com.arctiq.liquidity.balsys.producer.orchestration.PipelineMode;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorMode;
+import com.arctiq.liquidity.balsys.shared.queue.OverflowPolicy;
+
 @Component
 @ConfigurationProperties(prefix = "transaction")
 public class TransactionConfigProperties {
@@ -12,9 +20,37 @@ public class TransactionConfigProperties {
     private double defaultBalance;
     private double maxBatchValue;
     private int submissionLimit;
+    private boolean adaptiveSubmissionLimit;
+    private int submissionLimitFloor = 100;
+    private int submissionLimitCeiling = 10_000;
+    private long maxAuditLatencyMillis = 1000;
     private int queueCapacity;
+    private OverflowPolicy queueOverflowPolicy = OverflowPolicy.BLOCK;
     private long flushIntervalMillis;
     private int auditThreads;
+    private int auditStageCapacity = 4;
+    private PipelineMode pipelineMode = PipelineMode.EXECUTOR;
+    private ExecutorMode executorMode = ExecutorMode.PLATFORM;
+    private long auditRecoveryIntervalSeconds = 30;
+    private int auditRecoveryParallelism = 2;
+    private double auditRecoveryRatePerSecond = 20;
+    private long auditAckRetentionSeconds = 3600;
+    private long auditShutdownTimeoutMillis = 10_000;
+    private ReconciliationMode balanceReconciliation = ReconciliationMode.EXACT;
+    private int balanceStripes;
+    private int ledgerShards;
+    private int historySegmentSize = 4096;
+    private int historyMaxSegments = 256;
+    private long historyRetentionSeconds;
+    private long holdTtlSeconds = 900;
+    private long holdTickMillis = 10;
+    private long dedupWindowSeconds = 60;
+    private int dedupSlices = 4;
+    private int dedupSliceCapacity = 262_144;
+    private long balanceStreamIntervalMillis = 250;
+    private long balanceIndexPollMillis = 100;
+    private List<VelocityRuleProperties> rules = new ArrayList<>();
+    private int nodeId = 0;
 
     public double getMinAmount() {
         return minAmount;
@@ -56,6 +92,38 @@ public class TransactionConfigProperties {
         this.submissionLimit = submissionLimit;
     }
 
+    public boolean isAdaptiveSubmissionLimit() {
+        return adaptiveSubmissionLimit;
+    }
+
+    public void setAdaptiveSubmissionLimit(boolean adaptiveSubmissionLimit) {
+        this.adaptiveSubmissionLimit = adaptiveSubmissionLimit;
+    }
+
+    public int getSubmissionLimitFloor() {
+        return submissionLimitFloor;
+    }
+
+    public void setSubmissionLimitFloor(int submissionLimitFloor) {
+        this.submissionLimitFloor = submissionLimitFloor;
+    }
+
+    public int getSubmissionLimitCeiling() {
+        return submissionLimitCeiling;
+    }
+
+    public void setSubmissionLimitCeiling(int submissionLimitCeiling) {
+        this.submissionLimitCeiling = submissionLimitCeiling;
+    }
+
+    public long getMaxAuditLatencyMillis() {
+        return maxAuditLatencyMillis;
+    }
+
+    public void setMaxAuditLatencyMillis(long maxAuditLatencyMillis) {
+        this.maxAuditLatencyMillis = maxAuditLatencyMillis;
+    }
+
     public int getQueueCapacity() {
         return queueCapacity;
     }
@@ -64,6 +132,14 @@ public class TransactionConfigProperties {
         this.queueCapacity = queueCapacity;
     }
 
+    public OverflowPolicy getQueueOverflowPolicy() {
+        return queueOverflowPolicy;
+    }
+
+    public void setQueueOverflowPolicy(OverflowPolicy queueOverflowPolicy) {
+        this.queueOverflowPolicy = queueOverflowPolicy;
+    }
+
     public long getFlushIntervalMillis() {
         return flushIntervalMillis;
     }
@@ -80,4 +156,188 @@ public class TransactionConfigProperties {
         this.auditThreads = auditThreads;
     }
 
+    public int getAuditStageCapacity() {
+        return auditStageCapacity;
+    }
+
+    public void setAuditStageCapacity(int auditStageCapacity) {
+        this.auditStageCapacity = auditStageCapacity;
+    }
+
+    public PipelineMode getPipelineMode() {
+        return pipelineMode;
+    }
+
+    public void setPipelineMode(PipelineMode pipelineMode) {
+        this.pipelineMode = pipelineMode;
+    }
+
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
+
+    public void setExecutorMode(ExecutorMode executorMode) {
+        this.executorMode = executorMode;
+    }
+
+    public long getAuditRecoveryIntervalSeconds() {
+        return auditRecoveryIntervalSeconds;
+    }
+
+    public void setAuditRecoveryIntervalSeconds(long auditRecoveryIntervalSeconds) {
+        this.auditRecoveryIntervalSeconds = auditRecoveryIntervalSeconds;
+    }
+
+    public int getAuditRecoveryParallelism() {
+        return auditRecoveryParallelism;
+    }
+
+    public void setAuditRecoveryParallelism(int auditRecoveryParallelism) {
+        this.auditRecoveryParallelism = auditRecoveryParallelism;
+    }
+
+    public double getAuditRecoveryRatePerSecond() {
+        return auditRecoveryRatePerSecond;
+    }
+
+    public void setAuditRecoveryRatePerSecond(double auditRecoveryRatePerSecond) {
+        this.auditRecoveryRatePerSecond = auditRecoveryRatePerSecond;
+    }
+
+    public long getAuditAckRetentionSeconds() {
+        return auditAckRetentionSeconds;
+    }
+
+    public void setAuditAckRetentionSeconds(long auditAckRetentionSeconds) {
+        this.auditAckRetentionSeconds = auditAckRetentionSeconds;
+    }
+
+    public long getAuditShutdownTimeoutMillis() {
+        return auditShutdownTimeoutMillis;
+    }
+
+    public void setAuditShutdownTimeoutMillis(long auditShutdownTimeoutMillis) {
+        this.auditShutdownTimeoutMillis = auditShutdownTimeoutMillis;
+    }
+
+    public ReconciliationMode getBalanceReconciliation() {
+        return balanceReconciliation;
+    }
+
+    public void setBalanceReconciliation(ReconciliationMode balanceReconciliation) {
+        this.balanceReconciliation = balanceReconciliation;
+    }
+
+    public int getBalanceStripes() {
+        return balanceStripes;
+    }
+
+    public void setBalanceStripes(int balanceStripes) {
+        this.balanceStripes = balanceStripes;
+    }
+
+    public int getLedgerShards() {
+        return ledgerShards;
+    }
+
+    public void setLedgerShards(int ledgerShards) {
+        this.ledgerShards = ledgerShards;
+    }
+
+    public int getHistorySegmentSize() {
+        return historySegmentSize;
+    }
+
+    public void setHistorySegmentSize(int historySegmentSize) {
+        this.historySegmentSize = historySegmentSize;
+    }
+
+    public int getHistoryMaxSegments() {
+        return historyMaxSegments;
+    }
+
+    public void setHistoryMaxSegments(int historyMaxSegments) {
+        this.historyMaxSegments = historyMaxSegments;
+    }
+
+    public long getHistoryRetentionSeconds() {
+        return historyRetentionSeconds;
+    }
+
+    public void setHistoryRetentionSeconds(long historyRetentionSeconds) {
+        this.historyRetentionSeconds = historyRetentionSeconds;
+    }
+
+    public long getHoldTtlSeconds() {
+        return holdTtlSeconds;
+    }
+
+    public void setHoldTtlSeconds(long holdTtlSeconds) {
+        this.holdTtlSeconds = holdTtlSeconds;
+    }
+
+    public long getHoldTickMillis() {
+        return holdTickMillis;
+    }
+
+    public void setHoldTickMillis(long holdTickMillis) {
+        this.holdTickMillis = holdTickMillis;
+    }
+
+    public long getDedupWindowSeconds() {
+        return dedupWindowSeconds;
+    }
+
+    public void setDedupWindowSeconds(long dedupWindowSeconds) {
+        this.dedupWindowSeconds = dedupWindowSeconds;
+    }
+
+    public int getDedupSlices() {
+        return dedupSlices;
+    }
+
+    public void setDedupSlices(int dedupSlices) {
+        this.dedupSlices = dedupSlices;
+    }
+
+    public int getDedupSliceCapacity() {
+        return dedupSliceCapacity;
+    }
+
+    public void setDedupSliceCapacity(int dedupSliceCapacity) {
+        this.dedupSliceCapacity = dedupSliceCapacity;
+    }
+
+    public long getBalanceStreamIntervalMillis() {
+        return balanceStreamIntervalMillis;
+    }
+
+    public void setBalanceStreamIntervalMillis(long balanceStreamIntervalMillis) {
+        this.balanceStreamIntervalMillis = balanceStreamIntervalMillis;
+    }
+
+    public long getBalanceIndexPollMillis() {
+        return balanceIndexPollMillis;
+    }
+
+    public void setBalanceIndexPollMillis(long balanceIndexPollMillis) {
+        this.balanceIndexPollMillis = balanceIndexPollMillis;
+    }
+
+    public List<VelocityRuleProperties> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<VelocityRuleProperties> rules) {
+        this.rules = rules;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(int nodeId) {
+        this.nodeId = nodeId;
+    }
+
 }
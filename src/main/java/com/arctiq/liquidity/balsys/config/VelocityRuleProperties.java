@@ -0,0 +1,73 @@
+package com.arctiq.liquidity.balsys.config;
+
+import com.arctiq.liquidity.balsys.transaction.rules.RuleDirection;
+import com.arctiq.liquidity.balsys.transaction.rules.RuleMetric;
+
+/**
+ * One entry of {@code transaction.rules[n]}. For example:
+ *
+ * <pre>
+ * transaction.rules[0].name=debit-volume-60s
+ * transaction.rules[0].metric=volume
+ * transaction.rules[0].direction=debit
+ * transaction.rules[0].limit=2000000
+ * transaction.rules[0].window-seconds=60
+ * </pre>
+ */
+public class VelocityRuleProperties {
+
+    private String name;
+    private RuleMetric metric = RuleMetric.COUNT;
+    private RuleDirection direction = RuleDirection.ANY;
+    private double limit;
+    private long windowSeconds = 60;
+    private int buckets = 60;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public RuleMetric getMetric() {
+        return metric;
+    }
+
+    public void setMetric(RuleMetric metric) {
+        this.metric = metric;
+    }
+
+    public RuleDirection getDirection() {
+        return direction;
+    }
+
+    public void setDirection(RuleDirection direction) {
+        this.direction = direction;
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public void setLimit(double limit) {
+        this.limit = limit;
+    }
+
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public void setWindowSeconds(long windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+}
@@ -20,8 +20,9 @@ public class CreditProducer implements TransactionProducer {
 
     @Override
     public Transaction produce() {
-        double amount = config.getMinAmount()
-                + generator.nextDouble() * (config.getMaxAmount() - config.getMinAmount());
-        return new Transaction(TransactionId.generate(), Money.of(Math.abs(amount)));
+        long min = Money.toMinorUnits(config.getMinAmount());
+        long max = Money.toMinorUnits(config.getMaxAmount());
+        long amount = min + generator.nextLong(max - min + 1);
+        return new Transaction(TransactionId.generate(), Money.ofMinorUnits(Math.abs(amount)));
     }
 }
@@ -1,3 +1,18 @@
 package com.arctiq.liquidity.balsys.producer.config;
 
-public record ProducerConfig(int count, long intervalSeconds) {}
\ No newline at end of file
+/**
+ * @param blockSize transactions handed to the account service per call; 1
+ *                  submits them one at a time
+ */
+public record ProducerConfig(int count, long intervalSeconds, int blockSize) {
+
+    public ProducerConfig {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1");
+        }
+    }
+
+    public ProducerConfig(int count, long intervalSeconds) {
+        this(count, intervalSeconds, 1);
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
 public class ProducerSettings {
     private int count;
     private int intervalSeconds;
+    private int blockSize = 1;
 
     public int getCount() {
         return count;
@@ -25,7 +26,15 @@ public class ProducerSettings {
         this.intervalSeconds = intervalSeconds;
     }
 
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
     public ProducerConfig toConfig() {
-        return new ProducerConfig(count, intervalSeconds);
+        return new ProducerConfig(count, intervalSeconds, blockSize);
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.arctiq.liquidity.balsys.producer.orchestration;
+
+/**
+ * Selects how simulated transactions travel from the producers through the
+ * balance to the audit notifier.
+ */
+public enum PipelineMode {
+
+    /**
+     * Producer threads submit to the account service, which queues accepted
+     * transactions for the audit workers and their staged pipelines.
+     */
+    EXECUTOR,
+
+    /**
+     * Producers, balance and audit are one {@code Flux}, with demand flowing
+     * back from the notifier to the producers; see
+     * {@link ReactiveTransactionPipeline}.
+     */
+    REACTIVE
+}
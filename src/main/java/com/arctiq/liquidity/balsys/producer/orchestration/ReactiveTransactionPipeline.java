@@ -0,0 +1,108 @@
+package com.arctiq.liquidity.balsys.producer.orchestration;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.account.application.BankAccountService;
+import com.arctiq.liquidity.balsys.audit.ingestion.ReactiveAuditPipeline;
+import com.arctiq.liquidity.balsys.producer.channel.TransactionProducer;
+import com.arctiq.liquidity.balsys.producer.config.ProducerConfig;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionAccepted;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionInvalid;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionOutcome;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive counterpart of {@link TransactionProducerOrchestrator}: the credit
+ * and debit producers are two {@code Flux}es merged into one, each accepted
+ * transaction is applied to the balance in a {@code handle} stage, and the
+ * accepted stream is audited by a {@link ReactiveAuditPipeline}.
+ * <p>
+ * Producers generate a transaction only when one is requested, so the notifier
+ * paces the whole stream: there is no audit queue between balance and audit
+ * for a slow notifier to fill. Transactions are applied to the balance in the
+ * order the merge emits them, one at a time. Block size does not apply here;
+ * batching happens in the audit buffer.
+ */
+public class ReactiveTransactionPipeline implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveTransactionPipeline.class);
+
+    private final TransactionProducer creditProducer;
+    private final TransactionProducer debitProducer;
+    private final BankAccountService accountService;
+    private final ReactiveAuditPipeline audit;
+    private final MetricsCollector metricsCollector;
+    private final Scheduler producers = Schedulers.newParallel("reactive-producer", 2);
+
+    public ReactiveTransactionPipeline(
+            TransactionProducer creditProducer,
+            TransactionProducer debitProducer,
+            BankAccountService accountService,
+            ReactiveAuditPipeline audit,
+            MetricsCollector metricsCollector) {
+
+        this.creditProducer = creditProducer;
+        this.debitProducer = debitProducer;
+        this.accountService = accountService;
+        this.audit = audit;
+        this.metricsCollector = metricsCollector;
+    }
+
+    /**
+     * Emits {@code config.count()} transactions from each producer, spread over
+     * {@code config.intervalSeconds()}, or as fast as the audit takes them when
+     * that is zero. A count of zero emits nothing.
+     *
+     * @return the number of audit cycles notified, once the last one is
+     */
+    public Mono<Long> run(ProducerConfig config) {
+        logger.info("Starting reactive emission: {} tx/stream over {}s",
+                config.count(), config.intervalSeconds());
+        return Flux.merge(emit(creditProducer, config), emit(debitProducer, config))
+                .handle(this::apply)
+                .transform(audit::audit)
+                .count();
+    }
+
+    private Flux<Transaction> emit(TransactionProducer producer, ProducerConfig config) {
+        if (config.count() <= 0) {
+            return Flux.empty();
+        }
+        Flux<Transaction> transactions = Flux.<Transaction>generate(sink -> sink.next(producer.produce()))
+                .take(config.count())
+                .subscribeOn(producers);
+        long spacingNanos = Duration.ofSeconds(config.intervalSeconds()).toNanos() / config.count();
+        return spacingNanos > 0 ? transactions.delayElements(Duration.ofNanos(spacingNanos)) : transactions;
+    }
+
+    private void apply(Transaction transaction, SynchronousSink<Transaction> sink) {
+        try {
+            TransactionOutcome outcome = accountService.apply(transaction);
+            if (!(outcome instanceof TransactionAccepted)) {
+                logger.debug("Transaction rejected: {}", outcome);
+                return;
+            }
+            metricsCollector.recordTransaction(transaction);
+            sink.next(transaction);
+        } catch (RuntimeException ex) {
+            logger.warn("Transaction failed: {}", ex.getMessage(), ex);
+            metricsCollector.recordTransactionOutcome(new TransactionInvalid(null, ex.getMessage()));
+        }
+    }
+
+    @Override
+    public void close() {
+        producers.dispose();
+        audit.close();
+    }
+}
@@ -1,5 +1,7 @@
 package com.arctiq.liquidity.balsys.producer.orchestration;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -17,7 +19,10 @@ import com.arctiq.liquidity.balsys.producer.channel.TransactionProducer;
 import com.arctiq.liquidity.balsys.producer.config.ProducerConfig;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionAccepted;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionBatchResult;
 import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionInvalid;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionOutcome;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -65,7 +70,8 @@ public class TransactionProducerOrchestrator {
     }
 
     public void startEmitLoops(ProducerConfig config) {
-        logger.info("Starting emission: {} tx/stream over {}s", config.count(), config.intervalSeconds());
+        logger.info("Starting emission: {} tx/stream over {}s in blocks of {}",
+                config.count(), config.intervalSeconds(), config.blockSize());
         executor.submit(() -> emitLoop(creditProducer, config));
         executor.submit(() -> emitLoop(debitProducer, config));
     }
@@ -83,29 +89,25 @@ public class TransactionProducerOrchestrator {
 
         logger.debug("Planned audit flush points: {}", flushPoints);
 
-        for (int i = 1; i <= config.count(); i++) {
-            try {
-                Transaction tx = producer.produce();
-                producedCounter.increment();
-                currentEmissionRate.incrementAndGet();
-
-                accountService.processTransaction(tx);
-                submittedCounter.increment();
-                metricsCollector.recordTransaction(tx);
-
-                successfulEmissions++;
-
-            } catch (Exception ex) {
-                logger.warn("Transaction emission failed on iteration {}: {}", i, ex.getMessage(), ex);
-                metricsCollector.recordTransactionOutcome(new TransactionInvalid(null, ex.getMessage()));
+        int blockSize = config.blockSize();
+        for (int i = 1; i <= config.count(); i += blockSize) {
+            int last = Math.min(config.count(), i + blockSize - 1);
+            if (blockSize == 1) {
+                successfulEmissions += emitSingle(producer, i);
+            } else {
+                successfulEmissions += emitBlock(producer, last - i + 1, i);
             }
 
-            logger.debug("flushPoints.contains(i): {} {}", i, flushPoints.contains(i));
-            if (flushPoints.contains(i)) {
+            boolean flushDue = false;
+            for (int n = i; n <= last && !flushDue; n++) {
+                flushDue = flushPoints.contains(n);
+            }
+            logger.debug("flushPoints hit in [{}, {}]: {}", i, last, flushDue);
+            if (flushDue) {
                 auditProcessingService.flushIfThresholdMet();
             }
 
-            nextTick += spacingNanos;
+            nextTick += spacingNanos * (last - i + 1);
             long sleepTime = nextTick - System.nanoTime();
             if (sleepTime > 0) {
                 LockSupport.parkNanos(sleepTime);
@@ -118,4 +120,50 @@ public class TransactionProducerOrchestrator {
 
         currentEmissionRate.set(0);
     }
+
+    private int emitSingle(TransactionProducer producer, int iteration) {
+        try {
+            Transaction tx = producer.produce();
+            producedCounter.increment();
+            currentEmissionRate.incrementAndGet();
+
+            TransactionOutcome outcome = accountService.submit(tx);
+            if (!(outcome instanceof TransactionAccepted)) {
+                logger.debug("Transaction rejected on iteration {}: {}", iteration, outcome);
+                return 0;
+            }
+            submittedCounter.increment();
+            metricsCollector.recordTransaction(tx);
+            return 1;
+
+        } catch (Exception ex) {
+            logger.warn("Transaction emission failed on iteration {}: {}", iteration, ex.getMessage(), ex);
+            metricsCollector.recordTransactionOutcome(new TransactionInvalid(null, ex.getMessage()));
+            return 0;
+        }
+    }
+
+    private int emitBlock(TransactionProducer producer, int size, int firstIteration) {
+        try {
+            List<Transaction> block = new ArrayList<>(size);
+            for (int n = 0; n < size; n++) {
+                block.add(producer.produce());
+            }
+            producedCounter.increment(size);
+            currentEmissionRate.addAndGet(size);
+
+            TransactionBatchResult result = accountService.processTransactions(block);
+            submittedCounter.increment(result.acceptedCount());
+            if (result.rejectedCount() > 0) {
+                logger.warn("Block starting at iteration {}: {} of {} transactions rejected {}",
+                        firstIteration, result.rejectedCount(), size, result.rejections());
+            }
+            return result.acceptedCount();
+
+        } catch (Exception ex) {
+            logger.warn("Block emission failed at iteration {}: {}", firstIteration, ex.getMessage(), ex);
+            metricsCollector.recordTransactionOutcome(new TransactionInvalid(null, ex.getMessage()));
+            return 0;
+        }
+    }
 }
\ No newline at end of file
@@ -33,7 +33,8 @@ public class SimulationController {
     })
     @PostMapping("/start")
     public ResponseEntity<String> startSimulation(@RequestBody SimulationStartRequest request) {
-        simulationManager.startSimulation(request.getTransactionCount(), request.getDurationSeconds());
+        simulationManager.startSimulation(request.getTransactionCount(), request.getDurationSeconds(),
+                request.getBlockSize());
         return ResponseEntity.ok("Simulation started");
     }
 
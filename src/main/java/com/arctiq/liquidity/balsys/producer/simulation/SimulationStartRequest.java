@@ -3,6 +3,7 @@ package com.arctiq.liquidity.balsys.producer.simulation;
 public class SimulationStartRequest {
     private int transactionCount = 1000; // default
     private int durationSeconds = 10; // default
+    private int blockSize = 1; // default: one transaction per call
 
     public int getTransactionCount() {
         return transactionCount;
@@ -19,4 +20,12 @@ public class SimulationStartRequest {
     public void setDurationSeconds(int durationSeconds) {
         this.durationSeconds = durationSeconds;
     }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
 }
@@ -1,8 +1,8 @@
 package com.arctiq.liquidity.balsys.producer.simulation;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -11,32 +11,43 @@ import org.slf4j.LoggerFactory;
 
 import com.arctiq.liquidity.balsys.account.application.BankAccountService;
 import com.arctiq.liquidity.balsys.audit.ingestion.AuditProcessingService;
+import com.arctiq.liquidity.balsys.audit.ingestion.ReactiveAuditPipeline;
 import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
 import com.arctiq.liquidity.balsys.producer.channel.TransactionProducer;
 import com.arctiq.liquidity.balsys.producer.config.ProducerConfig;
+import com.arctiq.liquidity.balsys.producer.orchestration.PipelineMode;
+import com.arctiq.liquidity.balsys.producer.orchestration.ReactiveTransactionPipeline;
 import com.arctiq.liquidity.balsys.producer.orchestration.TransactionProducerOrchestrator;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
 import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 
 public class TransactionSimulationManager {
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionSimulationManager.class);
 
     private ScheduledExecutorService scheduler;
-    private final ExecutorService emitExecutor = Executors.newFixedThreadPool(2);
+    private final ExecutorService emitExecutor;
     private final TransactionProducerOrchestrator orchestrator;
+    private final ReactiveTransactionPipeline reactivePipeline;
+    private Disposable.Composite reactiveRuns = Disposables.composite();
 
     public TransactionSimulationManager(
             TransactionConfigProperties config,
             MetricsCollector metricsCollector,
             MeterRegistry meterRegistry,
-            LinkedTransferQueue<Transaction> txQueue,
+            BlockingQueue<Transaction> txQueue,
             BankAccountService accountService,
-            AuditProcessingService auditProcessingService) {
+            AuditProcessingService auditProcessingService,
+            ExecutorRegistry executors) {
+
+        this.emitExecutor = executors.executor("simulation-emit", 2);
 
         TransactionProducer creditProducer = () -> AuditTestFixtures.randomCredit(config);
         TransactionProducer debitProducer = () -> AuditTestFixtures.randomDebit(config);
@@ -49,17 +60,49 @@ public class TransactionSimulationManager {
                 meterRegistry,
                 emitExecutor,
                 metricsCollector);
+
+        this.reactivePipeline = config.getPipelineMode() == PipelineMode.REACTIVE
+                ? new ReactiveTransactionPipeline(
+                        creditProducer,
+                        debitProducer,
+                        accountService,
+                        new ReactiveAuditPipeline(auditProcessingService, config),
+                        metricsCollector)
+                : null;
     }
 
     public synchronized void startSimulation(int transactionCount, int durationSeconds) {
-        logger.info("Starting recurring simulation: emit {} every {} seconds", transactionCount, durationSeconds);
+        startSimulation(transactionCount, durationSeconds, 1);
+    }
+
+    public synchronized void startSimulation(int transactionCount, int durationSeconds, int blockSize) {
+        logger.info("Starting recurring simulation: emit {} every {} seconds in blocks of {}",
+                transactionCount, durationSeconds, blockSize);
 
         if (scheduler == null || scheduler.isShutdown()) {
             scheduler = Executors.newSingleThreadScheduledExecutor();
             logger.info("Scheduler reinitialized");
         }
 
-        ProducerConfig config = new ProducerConfig(transactionCount, durationSeconds);
+        ProducerConfig config = new ProducerConfig(transactionCount, durationSeconds, blockSize);
+
+        if (reactivePipeline != null) {
+            if (reactiveRuns.isDisposed()) {
+                reactiveRuns = Disposables.composite();
+            }
+            Disposable.Composite runs = reactiveRuns;
+            scheduler.scheduleAtFixedRate(() -> {
+                logger.debug("Scheduled reactive emit triggered");
+                Disposable.Swap run = Disposables.swap();
+                runs.add(run);
+                run.update(reactivePipeline.run(config)
+                        .doFinally(signal -> runs.remove(run))
+                        .subscribe(
+                                cycles -> logger.debug("Reactive emission audited in {} cycles", cycles),
+                                e -> logger.error("Reactive emission failed: {}", e.getMessage(), e)));
+            }, 0, durationSeconds, TimeUnit.SECONDS);
+            return;
+        }
 
         scheduler.scheduleAtFixedRate(() -> emitExecutor.submit(() -> {
             logger.debug("Scheduled emit triggered");
@@ -76,10 +119,14 @@ public class TransactionSimulationManager {
         }
 
         emitExecutor.shutdownNow();
+        reactiveRuns.dispose();
     }
 
     @PreDestroy
     public void cleanup() {
         stopSimulation();
+        if (reactivePipeline != null) {
+            reactivePipeline.close();
+        }
     }
 }
\ No newline at end of file
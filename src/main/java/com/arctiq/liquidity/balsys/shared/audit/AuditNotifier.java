@@ -1,9 +1,36 @@
 package com.arctiq.liquidity.balsys.shared.audit;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
 
 public interface AuditNotifier {
     void submit(List<AuditBatch> batches);
+
+    /**
+     * Submits the batches of one audit cycle. {@code sequence} increases by
+     * one per cycle across all audit workers, so a receiver can restore the
+     * order in which cycles were cut even when workers deliver out of order.
+     */
+    default void submit(long sequence, List<AuditBatch> batches) {
+        submit(batches);
+    }
+
+    /**
+     * Submits the batches and returns the IDs of those the receiver
+     * acknowledged. Batch IDs are content-derived, so a receiver can use them
+     * to drop duplicates. {@code sequence} is {@code 0} for a submission that
+     * belongs to no cycle. A notifier without per-batch receipts acknowledges
+     * every batch once its submit returns.
+     */
+    default Set<String> submitForAck(long sequence, List<AuditBatch> batches) {
+        if (sequence > 0) {
+            submit(sequence, batches);
+        } else {
+            submit(batches);
+        }
+        return batches.stream().map(AuditBatch::getBatchId).collect(Collectors.toSet());
+    }
 }
@@ -0,0 +1,18 @@
+package com.arctiq.liquidity.balsys.shared.concurrent;
+
+/**
+ * Kind of thread {@link ExecutorRegistry} runs its pools and dedicated loops on.
+ */
+public enum ExecutorMode {
+
+    /**
+     * Daemon platform threads; bounded pools have a fixed number of them.
+     */
+    PLATFORM,
+
+    /**
+     * One virtual thread per task, so a task blocked on I/O holds no platform
+     * thread. Needs a Java 21 runtime.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,163 @@
+package com.arctiq.liquidity.balsys.shared.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates and owns the application's executor pools and long-running threads,
+ * all in one {@link ExecutorMode}.
+ * <p>
+ * In platform mode a pool sized for {@code n} threads is a fixed pool of
+ * {@code n} daemon threads, and an unbounded one ({@code n <= 0}) a cached
+ * pool. In virtual mode every pool starts one virtual thread per task, so
+ * tasks blocked on notifier or persistence I/O do not hold platform threads
+ * and are not capped at {@code n}. Virtual threads are reached by reflection
+ * so that the default Java 17 build still compiles; virtual mode fails fast
+ * on an older runtime.
+ * <p>
+ * Pool names are unique; they name the pool's threads and tag its metrics.
+ */
+public class ExecutorRegistry implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorRegistry.class);
+
+    private final ExecutorMode mode;
+    private final Map<String, MeteredExecutor> pools = new ConcurrentHashMap<>();
+    private final List<Consumer<MeteredExecutor>> observers = new CopyOnWriteArrayList<>();
+
+    public ExecutorRegistry(ExecutorMode mode) {
+        if (mode == ExecutorMode.VIRTUAL && !virtualThreadsSupported()) {
+            throw new IllegalStateException(
+                    "Virtual threads need Java 21 or later, running on " + Runtime.version().feature());
+        }
+        this.mode = mode;
+    }
+
+    public static boolean virtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    public ExecutorMode mode() {
+        return mode;
+    }
+
+    /**
+     * Creates the pool {@code name}, sized for {@code threads} platform
+     * threads, or unbounded if {@code threads <= 0}.
+     */
+    public MeteredExecutor executor(String name, int threads) {
+        return executor(name, threads, 0);
+    }
+
+    /**
+     * Creates the pool {@code name}, sized for {@code threads} platform
+     * threads, that rejects tasks once {@code capacity} are queued or
+     * running; a capacity of {@code 0} never does.
+     */
+    public synchronized MeteredExecutor executor(String name, int threads, int capacity) {
+        if (capacity < 0 || capacity > 0 && capacity < threads) {
+            throw new IllegalArgumentException("Pool capacity must cover its threads: " + capacity);
+        }
+        if (pools.containsKey(name)) {
+            throw new IllegalArgumentException("Executor pool already registered: " + name);
+        }
+        ExecutorService delegate = switch (mode) {
+            case PLATFORM -> threads > 0
+                    ? Executors.newFixedThreadPool(threads, platformThreads(name))
+                    : Executors.newCachedThreadPool(platformThreads(name));
+            case VIRTUAL -> VirtualThreads.perTaskExecutor(name);
+        };
+        MeteredExecutor pool = new MeteredExecutor(name, mode, Math.max(0, threads), capacity, delegate);
+        pools.put(name, pool);
+        observers.forEach(observer -> observer.accept(pool));
+        logger.info("Executor pool {} created: {} mode, {} threads, capacity {}", name, mode,
+                threads > 0 ? threads : "unbounded", capacity > 0 ? capacity : "unbounded");
+        return pool;
+    }
+
+    /**
+     * An unstarted thread for a long-running loop, daemon in platform mode;
+     * virtual threads always are.
+     */
+    public Thread newThread(String name, Runnable task) {
+        if (mode == ExecutorMode.VIRTUAL) {
+            return VirtualThreads.unstarted(name, task);
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Calls {@code observer} for every pool, those already created and those
+     * created later.
+     */
+    public synchronized void observe(Consumer<MeteredExecutor> observer) {
+        observers.add(observer);
+        pools.values().forEach(observer);
+    }
+
+    public List<MeteredExecutor> pools() {
+        return new ArrayList<>(pools.values());
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    private static ThreadFactory platformThreads(String name) {
+        AtomicInteger index = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The Java 21 virtual thread API, looked up by reflection.
+     */
+    private static final class VirtualThreads {
+
+        static ExecutorService perTaskExecutor(String name) {
+            try {
+                Object builder = builder();
+                builder = builderType().getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+                ThreadFactory factory = (ThreadFactory) builderType().getMethod("factory").invoke(builder);
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual thread executor unavailable", e);
+            }
+        }
+
+        static Thread unstarted(String name, Runnable task) {
+            try {
+                Object builder = builderType().getMethod("name", String.class).invoke(builder(), name);
+                return (Thread) builderType().getMethod("unstarted", Runnable.class).invoke(builder, task);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual threads unavailable", e);
+            }
+        }
+
+        private static Object builder() throws ReflectiveOperationException {
+            return Thread.class.getMethod("ofVirtual").invoke(null);
+        }
+
+        private static Class<?> builderType() throws ClassNotFoundException {
+            return Class.forName("java.lang.Thread$Builder");
+        }
+    }
+}
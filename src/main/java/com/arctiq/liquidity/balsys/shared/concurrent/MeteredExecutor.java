@@ -0,0 +1,186 @@
+package com.arctiq.liquidity.balsys.shared.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named pool from {@link ExecutorRegistry} that counts what runs on it.
+ * <p>
+ * {@link #utilization()} is the number of running tasks over the pool's
+ * platform thread count, the concurrency it is sized for: at most 1 in
+ * platform mode, and in virtual mode how far past that size the pool went.
+ * Unbounded pools have no such size and report {@code NaN}.
+ * <p>
+ * A pool created with a capacity refuses a task with
+ * {@link RejectedExecutionException} while that many are already queued or
+ * running, whatever the mode, so tasks stuck on a hung dependency cannot pile
+ * up threads or queue entries without limit.
+ */
+public final class MeteredExecutor extends AbstractExecutorService {
+
+    private final String name;
+    private final ExecutorMode mode;
+    private final int threads;
+    private final int capacity;
+    private final ExecutorService delegate;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+
+    MeteredExecutor(String name, ExecutorMode mode, int threads, int capacity, ExecutorService delegate) {
+        this.name = name;
+        this.mode = mode;
+        this.threads = threads;
+        this.capacity = capacity;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (outstanding.incrementAndGet() > capacity && capacity > 0) {
+            outstanding.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Executor pool " + name + " is full: " + capacity + " tasks");
+        }
+        submitted.increment();
+        try {
+            delegate.execute(new MeteredTask(task));
+        } catch (RejectedExecutionException e) {
+            submitted.decrement();
+            outstanding.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * What the delegate actually runs; keeps the caller's task so
+     * {@link #shutdownNow()} can hand it back.
+     */
+    private final class MeteredTask implements Runnable {
+        final Runnable task;
+
+        MeteredTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            active.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                busyNanos.add(System.nanoTime() - start);
+                active.decrementAndGet();
+                completed.increment();
+                outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public ExecutorMode mode() {
+        return mode;
+    }
+
+    /**
+     * Platform threads the pool is sized for, or {@code 0} if unbounded.
+     */
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * Tasks the pool holds, queued and running, before it rejects more, or
+     * {@code 0} if it never rejects for size.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public int activeCount() {
+        return active.get();
+    }
+
+    /**
+     * Tasks submitted but not yet started.
+     */
+    public long queuedCount() {
+        return Math.max(0, submitted.sum() - completed.sum() - active.get());
+    }
+
+    public long completedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Tasks refused because the pool was at capacity.
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Total time tasks have spent running, all threads together.
+     */
+    public double busySeconds() {
+        return busyNanos.sum() / 1e9;
+    }
+
+    public double utilization() {
+        return threads > 0 ? (double) active.get() / threads : Double.NaN;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    /**
+     * Stops the pool and returns the caller's tasks that never started, not
+     * the wrappers the delegate held. They no longer count as queued.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> dropped = delegate.shutdownNow();
+        List<Runnable> tasks = new ArrayList<>(dropped.size());
+        for (Runnable runnable : dropped) {
+            if (runnable instanceof MeteredTask metered) {
+                submitted.decrement();
+                outstanding.decrementAndGet();
+                tasks.add(metered.task);
+            } else {
+                tasks.add(runnable);
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -6,6 +6,24 @@ import java.util.Objects;
 
 public record Money(BigDecimal amount) {
 
+    /**
+     * Scale of the fixed-point minor unit (1/1000 of a pound), matching
+     * {@link #roundedTo3Decimals()}.
+     */
+    public static final int MINOR_UNIT_SCALE = 3;
+
+    /**
+     * Sentinel returned by {@link #toMinorUnits(BigDecimal)} when an amount
+     * cannot be represented exactly as a {@code long} count of minor units.
+     */
+    public static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+
+    private static final int MAX_INTEGER_DIGITS = 15;
+    // below 10^15 an unscaled value is within a quarter of the nearest double, so it survives the round trip
+    private static final int DOUBLE_EXACT_DIGITS = 15;
+    private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1_000 };
+    private static final double MINOR_UNITS_PER_UNIT = 1_000d;
+
     public Money {
         Objects.requireNonNull(amount, "Amount must not be null");
     }
@@ -42,7 +60,49 @@ public record Money(BigDecimal amount) {
         return rounded(3);
     }
 
+    public long toMinorUnits() {
+        return toMinorUnits(amount);
+    }
+
     public static Money of(double value) {
         return new Money(BigDecimal.valueOf(value));
     }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return new Money(BigDecimal.valueOf(minorUnits, MINOR_UNIT_SCALE));
+    }
+
+    /**
+     * Converts an amount to a whole number of minor units without rounding.
+     * An amount of at most 15 digits and at most {@link #MINOR_UNIT_SCALE}
+     * decimal places, which covers every amount the producers generate, is
+     * converted without allocating.
+     *
+     * @return the minor-unit count, or {@link #NOT_REPRESENTABLE} if the amount
+     *         carries sub-minor-unit precision or does not fit in a {@code long}
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        int scale = amount.scale();
+        if (scale >= 0 && scale <= MINOR_UNIT_SCALE && amount.precision() <= DOUBLE_EXACT_DIGITS) {
+            // doubleValue and longValue read the compact unscaled value; scaleByPowerOfTen would copy it
+            long unscaled = scale == 0 ? amount.longValue()
+                    : Math.round(amount.doubleValue() * POWERS_OF_TEN[scale]);
+            return unscaled * POWERS_OF_TEN[MINOR_UNIT_SCALE - scale];
+        }
+        BigDecimal value = amount;
+        if (value.scale() > MINOR_UNIT_SCALE) {
+            value = value.stripTrailingZeros();
+            if (value.scale() > MINOR_UNIT_SCALE) {
+                return NOT_REPRESENTABLE;
+            }
+        }
+        if (value.precision() - value.scale() > MAX_INTEGER_DIGITS) {
+            return NOT_REPRESENTABLE;
+        }
+        return value.scaleByPowerOfTen(MINOR_UNIT_SCALE).longValue();
+    }
+
+    public static long toMinorUnits(double value) {
+        return Math.round(value * MINOR_UNITS_PER_UNIT);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.arctiq.liquidity.balsys.shared.id;
+
+/**
+ * Fibonacci hashing: a key is multiplied by 2<sup>64</sup> divided by the
+ * golden ratio and the high bits of the product pick the bucket. Keys that
+ * differ only in their low or middle bits, such as consecutive Snowflake
+ * sequences, identity hash codes or similar account names, land in buckets
+ * spread evenly across the range.
+ */
+public final class FibonacciHash {
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private FibonacciHash() {
+    }
+
+    /**
+     * Bucket of {@code key} in {@code [0, buckets)}, for any positive bucket
+     * count.
+     */
+    public static int bucketOf(long key, int buckets) {
+        long mixed = key * GOLDEN_RATIO;
+        return (int) ((mixed >>> 32) * buckets >>> 32);
+    }
+}
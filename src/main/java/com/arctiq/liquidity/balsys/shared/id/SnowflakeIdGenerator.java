@@ -0,0 +1,217 @@
+package com.arctiq.liquidity.balsys.shared.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Time-ordered 63-bit IDs for transactions and audit batches.
+ * <p>
+ * Layout, high to low: 41 bits of milliseconds since {@link #EPOCH_MILLIS},
+ * {@value #NODE_BITS} bits of node ID and {@value #SEQUENCE_BITS} bits of
+ * sequence. The (millisecond, sequence) pairs form a single global cursor.
+ * Callers do not take IDs from it one by one: a small array of padded lease
+ * slots, picked by a hash of the calling thread, each holds a run of
+ * {@value #DEFAULT_LEASE_SIZE} consecutive positions leased from the cursor
+ * with one CAS. The common case is a CAS on the caller's own slot, a cache
+ * line no other slot shares. Slots are not tied to threads, so virtual
+ * threads leave nothing behind; threads that hash to the same slot share its
+ * run. A run is abandoned once the clock moves past its millisecond, keeping
+ * IDs ordered by time to within a millisecond across threads. IDs from one
+ * thread are strictly increasing.
+ * <p>
+ * If demand outruns 4096 IDs per millisecond the cursor borrows from future
+ * milliseconds, by at most {@value #MAX_RUN_AHEAD_MILLIS} ms before callers
+ * wait for the clock. A restarted node therefore cannot reissue an ID as long
+ * as the restart takes longer than that and the clock does not step back;
+ * {@link #advancePast(long)} covers the rest when earlier IDs are recovered.
+ */
+public final class SnowflakeIdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnowflakeIdGenerator.class);
+
+    /** 2025-01-01T00:00:00Z. */
+    public static final long EPOCH_MILLIS = 1_735_689_600_000L;
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    static final int DEFAULT_LEASE_SIZE = 16;
+    static final long MAX_RUN_AHEAD_MILLIS = 1_000;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // A slot packs the positions left in its run above the next position itself (53 bits)
+    private static final int POSITION_BITS = 41 + SEQUENCE_BITS;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+    static final int MAX_LEASE_SIZE = 1 << (Long.SIZE - POSITION_BITS);
+    // 16 longs = 128 bytes between live slots, enough to defeat adjacent-line prefetch
+    private static final int PAD_SHIFT = 4;
+
+    private static volatile SnowflakeIdGenerator shared = new SnowflakeIdGenerator(0);
+
+    private final int nodeId;
+    private final int leaseSize;
+    private final LongSupplier clock;
+    // Next unleased (millisecond << SEQUENCE_BITS | sequence) position
+    private final AtomicLong cursor;
+    // (remaining << POSITION_BITS | next position) per slot; 0 is an empty slot
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final LongAdder leaseCount = new LongAdder();
+    private final LongAdder clockWaits = new LongAdder();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, DEFAULT_LEASE_SIZE, System::currentTimeMillis, 0);
+    }
+
+    SnowflakeIdGenerator(int nodeId, int leaseSize, LongSupplier clock, long initialCursor) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        if (leaseSize < 1 || leaseSize > MAX_LEASE_SIZE) {
+            throw new IllegalArgumentException("Lease size must be between 1 and " + MAX_LEASE_SIZE);
+        }
+        this.nodeId = nodeId;
+        this.leaseSize = leaseSize;
+        this.clock = clock;
+        this.cursor = new AtomicLong(initialCursor);
+        int processors = Runtime.getRuntime().availableProcessors();
+        int size = Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1;
+        this.slots = new AtomicLongArray(size << PAD_SHIFT);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Process-wide generator behind {@code TransactionId.generate()} and
+     * audit batch IDs.
+     */
+    public static SnowflakeIdGenerator shared() {
+        return shared;
+    }
+
+    /**
+     * Replaces the shared generator with one for {@code nodeId}, carrying the
+     * cursor over so IDs keep increasing.
+     */
+    public static synchronized SnowflakeIdGenerator configureShared(int nodeId) {
+        SnowflakeIdGenerator previous = shared;
+        if (previous.nodeId != nodeId) {
+            shared = new SnowflakeIdGenerator(nodeId, DEFAULT_LEASE_SIZE, System::currentTimeMillis,
+                    previous.cursor.get());
+        }
+        return shared;
+    }
+
+    public long nextId() {
+        int slot = slotOf(Thread.currentThread()) << PAD_SHIFT;
+        long now = clock.getAsLong() - EPOCH_MILLIS;
+        while (true) {
+            long state = slots.get(slot);
+            long position = state & POSITION_MASK;
+            long remaining = state >>> POSITION_BITS;
+            if (remaining > 0 && (position >>> SEQUENCE_BITS) >= now) {
+                if (slots.compareAndSet(slot, state, (remaining - 1) << POSITION_BITS | (position + 1))) {
+                    return idAt(position);
+                }
+                continue;
+            }
+            long start = lease(now);
+            // Losing this race only leaves a gap: the other caller installed a run of its own
+            if (slots.compareAndSet(slot, state, (long) (leaseSize - 1) << POSITION_BITS | (start + 1))) {
+                return idAt(start);
+            }
+        }
+    }
+
+    /**
+     * Takes the next {@code leaseSize} positions from the shared cursor,
+     * waiting for the clock if that would run too far ahead of it.
+     */
+    private long lease(long now) {
+        while (true) {
+            long current = cursor.get();
+            long start = Math.max(current, now << SEQUENCE_BITS);
+            if ((start >>> SEQUENCE_BITS) - now > MAX_RUN_AHEAD_MILLIS) {
+                clockWaits.increment();
+                LockSupport.parkNanos(1_000_000L);
+                now = clock.getAsLong() - EPOCH_MILLIS;
+                continue;
+            }
+            if (cursor.compareAndSet(current, start + leaseSize)) {
+                leaseCount.increment();
+                return start;
+            }
+        }
+    }
+
+    private long idAt(long position) {
+        return ((position >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                | ((long) nodeId << SEQUENCE_BITS)
+                | (position & SEQUENCE_MASK);
+    }
+
+    private int slotOf(Thread thread) {
+        // identity hash rather than the thread ID: stable per thread, and not deprecated on newer JDKs
+        return FibonacciHash.bucketOf(System.identityHashCode(thread), mask + 1);
+    }
+
+    /**
+     * Moves the cursor beyond an ID this node issued before a restart. IDs
+     * from other nodes, and IDs further ahead of the clock than this node
+     * could have issued, are ignored.
+     */
+    public void advancePast(long id) {
+        if (id <= 0 || nodeOf(id) != nodeId) {
+            return;
+        }
+        long millis = id >>> (NODE_BITS + SEQUENCE_BITS);
+        if (millis - (clock.getAsLong() - EPOCH_MILLIS) > MAX_RUN_AHEAD_MILLIS) {
+            logger.warn("Ignoring ID {} issued {} ms ahead of the local clock", id,
+                    millis - (clock.getAsLong() - EPOCH_MILLIS));
+            return;
+        }
+        long position = (millis << SEQUENCE_BITS) | (id & SEQUENCE_MASK);
+        cursor.accumulateAndGet(position + 1, Math::max);
+        // a run leased before the cursor moved could still hand out the recovered position
+        for (int slot = 0; slot <= mask; slot++) {
+            int index = slot << PAD_SHIFT;
+            long state;
+            while (((state = slots.get(index)) & POSITION_MASK) <= position && state != 0) {
+                if (slots.compareAndSet(index, state, 0)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    public int nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Runs of positions taken from the shared cursor; the only writes to it
+     * besides {@link #advancePast(long)}.
+     */
+    public long leaseCount() {
+        return leaseCount.sum();
+    }
+
+    /**
+     * Number of times a lease had to wait for the clock to catch up.
+     */
+    public long clockWaits() {
+        return clockWaits.sum();
+    }
+
+    public static long epochMillisOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
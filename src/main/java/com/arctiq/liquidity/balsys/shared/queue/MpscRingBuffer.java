@@ -0,0 +1,402 @@
+package com.arctiq.liquidity.balsys.shared.queue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded multi-producer, single-consumer queue over a preallocated ring.
+ * <p>
+ * Producers claim a sequence by CAS on the tail and then publish the element
+ * into its slot with a release store; the consumer sees a slot as filled once
+ * the element is visible. Head and tail live on their own cache lines, so
+ * producers contending on the tail do not invalidate the line the consumer
+ * advances. Offers allocate nothing, and the ring holds exactly
+ * {@link #capacity()} elements even though the slot array is rounded up to a
+ * power of two for masking.
+ * <p>
+ * Consuming methods ({@code poll}, {@code take}, {@code peek},
+ * {@code drainTo}, {@code clear}) must not run concurrently with each other;
+ * handing the consumer role from one thread to another is fine as long as the
+ * hand-off itself is synchronized. {@link #iterator()} is a weakly consistent
+ * snapshot and does not support removal.
+ *
+ * @param <E> element type
+ */
+public final class MpscRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] slots;
+    private final long[] enqueuedAt;
+
+    private final Sequence tail = new Sequence();
+    private final Sequence head = new Sequence();
+    // Producers' last view of the head, so a non-full ring is detected without touching the consumer's line
+    private volatile long headCache;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private volatile int waitingProducers;
+    private volatile boolean consumerWaiting;
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity too large: " + capacity);
+        }
+        int slotCount = Integer.highestOneBit(capacity);
+        if (slotCount < capacity) {
+            slotCount <<= 1;
+        }
+        this.capacity = capacity;
+        this.mask = slotCount - 1;
+        this.slots = new Object[slotCount];
+        this.enqueuedAt = new long[slotCount];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean offer(E element) {
+        Objects.requireNonNull(element, "element");
+        long sequence;
+        do {
+            sequence = tail.get();
+            long wrapPoint = sequence - capacity;
+            if (wrapPoint >= headCache) {
+                long current = head.get();
+                headCache = current;
+                if (wrapPoint >= current) {
+                    return false;
+                }
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        enqueuedAt[index] = System.nanoTime();
+        SLOTS.setRelease(slots, index, element);
+        // The CAS above orders this read after the tail moved, so a consumer that went to sleep on an empty ring is seen
+        if (consumerWaiting) {
+            signal(notEmpty);
+        }
+        return true;
+    }
+
+    /**
+     * Offers a run of elements with one claim on the tail: as many as fit are
+     * enqueued in order and the rest are left to the caller. Nothing is
+     * claimed if any element is {@code null}.
+     *
+     * @return how many leading elements of {@code elements} were enqueued
+     */
+    public int offerAll(List<? extends E> elements) {
+        int count = elements.size();
+        for (int i = 0; i < count; i++) {
+            Objects.requireNonNull(elements.get(i), "element");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long sequence;
+        int claimed;
+        do {
+            sequence = tail.get();
+            long free = capacity - (sequence - headCache);
+            if (free < count) {
+                long current = head.get();
+                headCache = current;
+                free = capacity - (sequence - current);
+                if (free <= 0) {
+                    return 0;
+                }
+            }
+            claimed = (int) Math.min(free, count);
+        } while (!tail.compareAndSet(sequence, sequence + claimed));
+
+        long now = System.nanoTime();
+        for (int i = 0; i < claimed; i++) {
+            int index = (int) (sequence + i) & mask;
+            enqueuedAt[index] = now;
+            SLOTS.setRelease(slots, index, elements.get(i));
+        }
+        if (consumerWaiting) {
+            signal(notEmpty);
+        }
+        return claimed;
+    }
+
+    @Override
+    public void put(E element) throws InterruptedException {
+        if (offer(element)) {
+            return;
+        }
+        lock.lockInterruptibly();
+        try {
+            waitingProducers++;
+            while (!offer(element)) {
+                notFull.await();
+            }
+        } finally {
+            waitingProducers--;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(element)) {
+            return true;
+        }
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            waitingProducers++;
+            while (!offer(element)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            waitingProducers--;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        long sequence = head.get();
+        int index = (int) sequence & mask;
+        Object element = SLOTS.getAcquire(slots, index);
+        if (element == null) {
+            if (sequence == tail.get()) {
+                return null;
+            }
+            // Claimed but not yet published; the producer is between its CAS and its store
+            do {
+                Thread.onSpinWait();
+                element = SLOTS.getAcquire(slots, index);
+            } while (element == null);
+        }
+        SLOTS.setOpaque(slots, index, null);
+        head.set(sequence + 1);
+        if (waitingProducers > 0) {
+            signal(notFull);
+        }
+        @SuppressWarnings("unchecked")
+        E result = (E) element;
+        return result;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E element = poll();
+        if (element != null) {
+            return element;
+        }
+        lock.lockInterruptibly();
+        try {
+            consumerWaiting = true;
+            while ((element = poll()) == null) {
+                notEmpty.await();
+            }
+            return element;
+        } finally {
+            consumerWaiting = false;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E element = poll();
+        if (element != null) {
+            return element;
+        }
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            consumerWaiting = true;
+            while ((element = poll()) == null) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return element;
+        } finally {
+            consumerWaiting = false;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E peek() {
+        long sequence = head.get();
+        while (sequence != tail.get()) {
+            @SuppressWarnings("unchecked")
+            E element = (E) SLOTS.getAcquire(slots, (int) sequence & mask);
+            if (element != null) {
+                return element;
+            }
+            Thread.onSpinWait();
+        }
+        return null;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        Objects.requireNonNull(target, "target");
+        if (target == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        // Publishes the new head once for the whole run instead of once per element
+        long first = head.get();
+        long sequence = first;
+        long limit = first + Math.min(maxElements, capacity);
+        while (sequence < limit) {
+            int index = (int) sequence & mask;
+            Object element = SLOTS.getAcquire(slots, index);
+            if (element == null) {
+                break;
+            }
+            SLOTS.setOpaque(slots, index, null);
+            @SuppressWarnings("unchecked")
+            E typed = (E) element;
+            target.add(typed);
+            sequence++;
+        }
+        if (sequence != first) {
+            head.set(sequence);
+            if (waitingProducers > 0) {
+                signal(notFull);
+            }
+        }
+        return (int) (sequence - first);
+    }
+
+    @Override
+    public int size() {
+        // Read head first: it only moves towards tail, so the difference never goes negative
+        long first = head.get();
+        long last = tail.get();
+        return (int) Math.max(0, Math.min(capacity, last - first));
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * Time the element at the head has been waiting, in nanoseconds, or
+     * {@code 0} when the ring is empty. Safe to call from any thread; the
+     * answer is approximate while the consumer is moving.
+     */
+    public long oldestAgeNanos() {
+        long sequence = head.get();
+        if (sequence == tail.get()) {
+            return 0;
+        }
+        int index = (int) sequence & mask;
+        if (SLOTS.getAcquire(slots, index) == null) {
+            return 0;
+        }
+        return Math.max(0, System.nanoTime() - enqueuedAt[index]);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>(size());
+        long last = tail.get();
+        for (long sequence = head.get(); sequence < last; sequence++) {
+            @SuppressWarnings("unchecked")
+            E element = (E) SLOTS.getAcquire(slots, (int) sequence & mask);
+            if (element != null) {
+                snapshot.add(element);
+            }
+        }
+        Iterator<E> delegate = snapshot.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return delegate.next();
+            }
+        };
+    }
+
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Padding on both sides keeps each index on a cache line of its own
+    @SuppressWarnings("unused")
+    private static class LeftPadding {
+        protected long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private static class Value extends LeftPadding {
+        protected volatile long value;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Sequence extends Value {
+
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        protected long p9, p10, p11, p12, p13, p14, p15;
+
+        long get() {
+            return value;
+        }
+
+        void set(long next) {
+            value = next;
+        }
+
+        boolean compareAndSet(long expected, long next) {
+            return VALUE.compareAndSet(this, expected, next);
+        }
+    }
+}
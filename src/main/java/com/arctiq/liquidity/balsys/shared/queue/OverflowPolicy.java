@@ -0,0 +1,109 @@
+package com.arctiq.liquidity.balsys.shared.queue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a producer does when a bounded queue has no room for its element.
+ * Callers try a plain {@link BlockingQueue#offer(Object)} first and only hand
+ * the element to {@link #onFull} when that fails, so none of this runs while
+ * the queue keeps up.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Waits on the queue's own condition until the consumer frees a slot.
+     */
+    BLOCK {
+        @Override
+        public <E> boolean onFull(BlockingQueue<E> queue, E element) throws InterruptedException {
+            queue.put(element);
+            return true;
+        }
+    },
+
+    /**
+     * Busy-spins briefly, then yields, then parks with a growing back-off
+     * capped at one millisecond. Reacts faster than
+     * {@link #BLOCK} to short stalls at the cost of some CPU.
+     */
+    SPIN_THEN_PARK {
+        @Override
+        public <E> boolean onFull(BlockingQueue<E> queue, E element) throws InterruptedException {
+            for (int attempt = 0; !queue.offer(element); attempt++) {
+                if (attempt < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+                    Thread.yield();
+                } else {
+                    int shift = Math.min(attempt - SPIN_TRIES - YIELD_TRIES, 10);
+                    LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, MIN_PARK_NANOS << shift));
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            }
+            return true;
+        }
+    },
+
+    /**
+     * Gives up on the element straight away; the caller counts it as dropped.
+     */
+    DROP_NEWEST {
+        @Override
+        public <E> boolean onFull(BlockingQueue<E> queue, E element) {
+            return false;
+        }
+    },
+
+    /**
+     * Refuses work up front: callers check {@link #admits(BlockingQueue)}
+     * before committing to an element and report a rejection instead.
+     * Admission and enqueue are not atomic, so concurrent producers that all
+     * passed the check can still find the queue full; they wait for a slot
+     * as under {@link #BLOCK}, which bounds the overshoot by the number of
+     * in-flight producers.
+     */
+    REJECT {
+        @Override
+        public <E> boolean onFull(BlockingQueue<E> queue, E element) throws InterruptedException {
+            queue.put(element);
+            return true;
+        }
+
+        @Override
+        public int admissible(BlockingQueue<?> queue) {
+            return queue.remainingCapacity();
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MIN_PARK_NANOS = 1_000;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Handles an element the queue just refused.
+     *
+     * @return {@code true} once the element is enqueued, {@code false} if it
+     *         was dropped
+     */
+    public abstract <E> boolean onFull(BlockingQueue<E> queue, E element) throws InterruptedException;
+
+    /**
+     * @return how many new elements should be accepted for {@code queue}
+     *         right now
+     */
+    public int admissible(BlockingQueue<?> queue) {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return whether new work should be accepted for {@code queue} at all
+     */
+    public boolean admits(BlockingQueue<?> queue) {
+        return admissible(queue) > 0;
+    }
+}
@@ -0,0 +1,263 @@
+package com.arctiq.liquidity.balsys.shared.segment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Segment files of an append-only log of sequenced records, named
+ * {@code <prefix><first sequence, 20 digits>.log} in one directory.
+ * <p>
+ * Records are framed as {@code [payload length][CRC32C][sequence][body]} in
+ * the byte order given at construction; the length is written last, so a zero
+ * length marks the end of a segment and a torn record is never read as valid.
+ * This class names, lists, maps and scans the files and frames records
+ * written into them; what a body holds, when to roll and when to force stay
+ * with the log that owns them.
+ */
+public final class SegmentFiles {
+
+    public static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final String SUFFIX = ".log";
+
+    /**
+     * Receives a valid record found by a scan. The body starts at
+     * {@code offset} in {@code buffer}, just after the sequence.
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(long sequence, ByteBuffer buffer, int offset, int length);
+    }
+
+    /**
+     * The newest segment as found on disk.
+     *
+     * @param lastSequence the last valid sequence in it, or
+     *                     {@code firstSequence - 1} if it holds none
+     * @param end          the byte position just after that record
+     */
+    public record Tail(long firstSequence, long lastSequence, int end) {
+    }
+
+    private final Path directory;
+    private final String prefix;
+    private final ByteOrder order;
+    private final int minBodyBytes;
+    private final String description;
+
+    /**
+     * @param minBodyBytes smallest body a valid record can have; shorter
+     *                     lengths end a scan
+     * @param description  what the files hold, for error messages
+     */
+    public SegmentFiles(Path directory, String prefix, ByteOrder order, int minBodyBytes, String description) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.order = order;
+        this.minBodyBytes = minBodyBytes;
+        this.description = description;
+    }
+
+    public Path path(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", prefix, firstSequence, SUFFIX));
+    }
+
+    /**
+     * Segment files in sequence order.
+     */
+    public List<Path> list() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(SUFFIX);
+            }).sorted(Comparator.comparingLong(this::firstSequenceOf)).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + description + " segments in " + directory, e);
+        }
+    }
+
+    public long firstSequenceOf(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Maps {@code bytes} of the segment starting at {@code firstSequence} for
+     * writing, creating the file if needed, positioned at {@code position}.
+     * The mapping stays valid after the channel used to create it is closed.
+     */
+    public MappedByteBuffer map(long firstSequence, int bytes, int position) {
+        Path file = path(firstSequence);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            segment.order(order);
+            segment.position(position);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map " + description + " segment " + file.getFileName(), e);
+        }
+    }
+
+    /**
+     * Scans the newest segment to find where appending resumes.
+     *
+     * @return the tail, or {@code null} if there are no segments
+     */
+    public Tail tail() {
+        List<Path> segments = list();
+        if (segments.isEmpty()) {
+            return null;
+        }
+        Path file = segments.get(segments.size() - 1);
+        long first = firstSequenceOf(file);
+        ByteBuffer buffer = mapForReading(file);
+        long last = scan(buffer, first, Long.MAX_VALUE, Long.MAX_VALUE, (sequence, b, offset, length) -> {
+        });
+        return new Tail(first, last, buffer.position());
+    }
+
+    /**
+     * Streams records with sequences in {@code [from, to]} to {@code sink},
+     * in order, skipping segments that lie wholly before {@code from}.
+     */
+    public void read(long from, long to, RecordSink sink) {
+        if (from > to) {
+            return;
+        }
+        List<Path> segments = list();
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= from) {
+                continue;
+            }
+            Path file = segments.get(i);
+            if (scan(mapForReading(file), firstSequenceOf(file), from, to, sink) >= to) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sealed segments whose records are all at or below {@code sequence}.
+     * The newest segment may be the active one and is never included.
+     */
+    public List<Path> sealedThrough(long sequence) {
+        List<Path> segments = list();
+        List<Path> sealed = new ArrayList<>();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequenceOf(segments.get(i + 1)) > sequence + 1) {
+                break;
+            }
+            sealed.add(segments.get(i));
+        }
+        return sealed;
+    }
+
+    /**
+     * Size of the framed record for a body of {@code bodyBytes}.
+     */
+    public static int recordBytes(int bodyBytes) {
+        return HEADER_BYTES + Long.BYTES + bodyBytes;
+    }
+
+    /**
+     * Rejects a record that could never fit in a segment, even an empty one.
+     */
+    public void requireFits(int recordBytes, int segmentBytes) {
+        if (recordBytes > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + recordBytes + " bytes exceeds " + description
+                    + " segment size of " + segmentBytes);
+        }
+    }
+
+    /**
+     * Starts a record at the position of {@code segment} by writing its
+     * sequence; the caller writes the body at the returned offset and then
+     * calls {@link #publish}. The position itself does not move.
+     *
+     * @return the offset at which the body starts
+     */
+    public static int begin(ByteBuffer segment, long sequence) {
+        int payloadStart = segment.position() + HEADER_BYTES;
+        segment.putLong(payloadStart, sequence);
+        return payloadStart + Long.BYTES;
+    }
+
+    /**
+     * Checksums the record started by {@link #begin}, publishes it by writing
+     * its length and moves the position of {@code segment} past it.
+     *
+     * @param view a duplicate of {@code segment} the checksum may reposition
+     */
+    public static void publish(ByteBuffer segment, ByteBuffer view, int bodyBytes, CRC32C crc) {
+        int start = segment.position();
+        int payloadStart = start + HEADER_BYTES;
+        int payloadBytes = Long.BYTES + bodyBytes;
+        view.limit(payloadStart + payloadBytes).position(payloadStart);
+        crc.reset();
+        crc.update(view);
+        segment.putInt(start + Integer.BYTES, (int) crc.getValue());
+        // length goes last: a reader never sees a non-zero length for a partial record
+        segment.putInt(start, payloadBytes);
+        segment.position(payloadStart + payloadBytes);
+    }
+
+    private ByteBuffer mapForReading(Path file) {
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            return reader.map(FileChannel.MapMode.READ_ONLY, 0, reader.size()).order(order);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + description + " segment " + file.getFileName(), e);
+        }
+    }
+
+    /**
+     * Walks valid records from the buffer's start, delivering those within
+     * {@code [from, to]}. Stops at the end marker, a checksum failure or a
+     * sequence gap, leaving the buffer positioned after the last valid record.
+     *
+     * @return the last valid sequence visited, or {@code firstSequence - 1}
+     */
+    private long scan(ByteBuffer buffer, long firstSequence, long from, long to, RecordSink sink) {
+        CRC32C checksum = new CRC32C();
+        ByteBuffer view = buffer.duplicate();
+        long expected = firstSequence;
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length < Long.BYTES + minBodyBytes || length > buffer.remaining() - HEADER_BYTES) {
+                break;
+            }
+            int payloadStart = start + HEADER_BYTES;
+            view.limit(payloadStart + length).position(payloadStart);
+            checksum.reset();
+            checksum.update(view);
+            if ((int) checksum.getValue() != buffer.getInt(start + Integer.BYTES)) {
+                break;
+            }
+            long sequence = buffer.getLong(payloadStart);
+            if (sequence != expected) {
+                break;
+            }
+            if (sequence > to) {
+                return sequence - 1;
+            }
+            if (sequence >= from) {
+                sink.accept(sequence, buffer, payloadStart + Long.BYTES, length - Long.BYTES);
+            }
+            buffer.position(payloadStart + length);
+            expected++;
+        }
+        return expected - 1;
+    }
+}
@@ -5,20 +5,43 @@ import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import com.arctiq.liquidity.balsys.account.application.BalanceStreamService;
+import com.arctiq.liquidity.balsys.account.balance.StripedBalanceAccumulator;
+import com.arctiq.liquidity.balsys.account.history.BalanceTimeIndex;
+import com.arctiq.liquidity.balsys.account.history.ChunkedHistoryLog;
+import com.arctiq.liquidity.balsys.account.hold.HoldLedger;
+import com.arctiq.liquidity.balsys.account.journal.TransactionJournal;
+import com.arctiq.liquidity.balsys.audit.dispatch.AuditDeadLetterStore;
+import com.arctiq.liquidity.balsys.audit.dispatch.ResilientAuditNotifier;
 import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.audit.ingestion.AdaptiveSubmissionLimit;
+import com.arctiq.liquidity.balsys.audit.ingestion.AuditRecoveryService;
+import com.arctiq.liquidity.balsys.audit.ingestion.MappedAuditQueue;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
+import com.arctiq.liquidity.balsys.shared.concurrent.MeteredExecutor;
+import com.arctiq.liquidity.balsys.shared.id.SnowflakeIdGenerator;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
 import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionAccepted;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionDuplicate;
 import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionInvalid;
 import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionOutcome;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionRejected;
+import com.arctiq.liquidity.balsys.transaction.dedup.TimeSlicedDedupWindow;
+import com.arctiq.liquidity.balsys.transaction.rules.RuleChain;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
@@ -26,19 +49,32 @@ import io.micrometer.core.instrument.Timer;
 @Component
 public class MetricsCollector {
     private static final Logger logger = LoggerFactory.getLogger(MetricsCollector.class);
+    private static final long DROP_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
 
     private final AtomicInteger queueSize = new AtomicInteger(0);
     private final AtomicInteger acceptedTxCount = new AtomicInteger();
     private final AtomicInteger invalidTxCount = new AtomicInteger();
+    private final AtomicInteger duplicateTxCount = new AtomicInteger();
+    private final AtomicInteger rejectedTxCount = new AtomicInteger();
     private final AtomicInteger auditBatchCount = new AtomicInteger();
     private final AtomicInteger totalAuditTransactions = new AtomicInteger();
 
+    private final MeterRegistry registry;
     private final Counter droppedTxCounter;
+    private final LongAdder droppedSinceLog = new LongAdder();
+    private final AtomicLong lastDropLogNanos = new AtomicLong(System.nanoTime() - DROP_LOG_INTERVAL_NANOS);
+    private final Counter duplicateTxCounter;
+    private final Counter rejectedTxCounter;
     private final Timer auditLatencyTimer;
+    private final Timer auditQueueWaitTimer;
+    private final Timer queueToSubmissionTimer;
+    private volatile BlockingQueue<?> auditQueue;
     private final Instant startTime = Instant.now();
 
     public MetricsCollector(MeterRegistry registry) {
-        Gauge.builder("audit_queue_size", queueSize, AtomicInteger::get)
+        this.registry = registry;
+
+        Gauge.builder("audit_queue_size", this, MetricsCollector::getCurrentQueueSize)
                 .description("Current size of the audit transaction queue")
                 .register(registry);
 
@@ -46,10 +82,367 @@ public class MetricsCollector {
                 .description("Total dropped transactions due to saturation")
                 .register(registry);
 
+        this.duplicateTxCounter = Counter.builder("duplicate_tx_total")
+                .description("Transactions ignored because their ID was already processed")
+                .register(registry);
+
+        this.rejectedTxCounter = Counter.builder("rejected_tx_total")
+                .description("Valid transactions turned away because the audit queue was full")
+                .register(registry);
+
         this.auditLatencyTimer = Timer.builder("audit_latency_ms")
                 .description("Latency of audit batch processing")
                 .publishPercentileHistogram()
                 .register(registry);
+
+        this.auditQueueWaitTimer = Timer.builder("audit_queue_offer_wait")
+                .description("Time producers spent on a full audit queue before enqueueing or dropping")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        this.queueToSubmissionTimer = Timer.builder("audit_queue_to_submission")
+                .description("Time from the oldest transaction of a submission entering the queue to its notification")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Reads {@code audit_queue_size} from the queue itself rather than from
+     * the last reported size, and exports capacity and head-of-line age when
+     * the queue is a ring buffer.
+     */
+    public void bindAuditQueue(BlockingQueue<?> queue) {
+        this.auditQueue = queue;
+        if (queue instanceof MpscRingBuffer<?> ring) {
+            Gauge.builder("audit_queue_capacity", ring, MpscRingBuffer::capacity)
+                    .description("Maximum number of transactions the audit queue holds")
+                    .register(registry);
+
+            Gauge.builder("audit_queue_oldest_age", ring, r -> r.oldestAgeNanos() / 1e9)
+                    .description("How long the transaction at the head of the audit queue has been waiting")
+                    .baseUnit("seconds")
+                    .register(registry);
+        } else if (queue instanceof MappedAuditQueue durable) {
+            Gauge.builder("audit_queue_capacity", durable, MappedAuditQueue::capacity)
+                    .description("Maximum number of transactions the audit queue holds")
+                    .register(registry);
+
+            Gauge.builder("audit_queue_oldest_age", durable, q -> q.oldestAgeNanos() / 1e9)
+                    .description("How long the transaction at the head of the audit queue has been waiting")
+                    .baseUnit("seconds")
+                    .register(registry);
+
+            Gauge.builder("audit_queue_unsynced", durable, MappedAuditQueue::unsyncedCount)
+                    .description("Transactions written to the audit queue log but not yet forced to disk")
+                    .register(registry);
+
+            FunctionCounter.builder("audit_queue_syncs_total", durable, MappedAuditQueue::syncCount)
+                    .description("Forces of the audit queue log")
+                    .register(registry);
+
+            FunctionCounter.builder("audit_queue_replayed_total", durable, MappedAuditQueue::replayedCount)
+                    .description("Undrained transactions replayed from the audit queue log at startup")
+                    .register(registry);
+        }
+    }
+
+    public void bindAuditDelivery(ResilientAuditNotifier delivery) {
+        FunctionCounter.builder("audit_delivery_attempts_total", delivery, ResilientAuditNotifier::successCount)
+                .description("Audit submission attempts by outcome")
+                .tag("outcome", "success")
+                .register(registry);
+
+        FunctionCounter.builder("audit_delivery_attempts_total", delivery, ResilientAuditNotifier::failureCount)
+                .description("Audit submission attempts by outcome")
+                .tag("outcome", "failure")
+                .register(registry);
+
+        FunctionCounter.builder("audit_delivery_attempts_total", delivery, ResilientAuditNotifier::timeoutCount)
+                .description("Audit submission attempts by outcome")
+                .tag("outcome", "timeout")
+                .register(registry);
+
+        FunctionCounter.builder("audit_delivery_attempts_total", delivery,
+                ResilientAuditNotifier::poolRejectionCount)
+                .description("Audit submission attempts by outcome")
+                .tag("outcome", "pool_full")
+                .register(registry);
+
+        FunctionCounter.builder("audit_delivery_retries_total", delivery, ResilientAuditNotifier::retryCount)
+                .description("Audit submission attempts made after a failed one")
+                .register(registry);
+
+        FunctionCounter.builder("audit_delivery_rejected_total", delivery, ResilientAuditNotifier::rejectionCount)
+                .description("Audit submissions refused by the open circuit breaker")
+                .register(registry);
+
+        FunctionCounter.builder("audit_delivery_dead_letters_total", delivery,
+                ResilientAuditNotifier::deadLetterCount)
+                .description("Audit submissions handed to the dead letter store")
+                .register(registry);
+
+        Gauge.builder("audit_delivery_breaker_state", delivery, d -> d.breakerState().ordinal())
+                .description("Audit sink circuit breaker: 0 closed, 1 half-open, 2 open")
+                .register(registry);
+
+        Gauge.builder("audit_dead_letter_backlog", delivery.deadLetters(), AuditDeadLetterStore::size)
+                .description("Dead-lettered audit submissions awaiting redelivery")
+                .register(registry);
+    }
+
+    public void bindAuditRecovery(AuditRecoveryService recovery) {
+        Gauge.builder("audit_recovery_backlog", recovery, AuditRecoveryService::backlog)
+                .description("Pending audit batches still to be resubmitted in the current recovery run")
+                .register(registry);
+
+        Gauge.builder("audit_recovery_drain_rate", recovery, AuditRecoveryService::drainRate)
+                .description("Batches per second resubmitted by the last recovery run")
+                .register(registry);
+
+        FunctionCounter.builder("audit_recovery_resubmitted_total", recovery,
+                AuditRecoveryService::resubmittedCount)
+                .description("Pending audit batches resubmitted by recovery")
+                .register(registry);
+
+        FunctionCounter.builder("audit_recovery_failures_total", recovery, AuditRecoveryService::failureCount)
+                .description("Recovery resubmissions that failed and were left pending")
+                .register(registry);
+    }
+
+    public void bindSubmissionLimit(AdaptiveSubmissionLimit limit) {
+        Gauge.builder("audit_submission_limit", limit, AdaptiveSubmissionLimit::current)
+                .description("Transactions an audit worker currently cuts per cycle")
+                .register(registry);
+
+        Gauge.builder("audit_arrival_rate", limit, AdaptiveSubmissionLimit::arrivalRate)
+                .description("Transactions per second reaching the audit workers, as seen by the limit controller")
+                .register(registry);
+
+        Gauge.builder("audit_cycle_cost_seconds", limit, AdaptiveSubmissionLimit::cycleCostSeconds)
+                .description("Smoothed time from cut to notified per audit cycle")
+                .register(registry);
+
+        FunctionCounter.builder("audit_submission_limit_decisions_total", limit, AdaptiveSubmissionLimit::increaseCount)
+                .description("Submission limit controller decisions")
+                .tag("decision", "increase")
+                .register(registry);
+
+        FunctionCounter.builder("audit_submission_limit_decisions_total", limit, AdaptiveSubmissionLimit::decreaseCount)
+                .description("Submission limit controller decisions")
+                .tag("decision", "decrease")
+                .register(registry);
+
+        FunctionCounter.builder("audit_submission_limit_decisions_total", limit, AdaptiveSubmissionLimit::holdCount)
+                .description("Submission limit controller decisions")
+                .tag("decision", "hold")
+                .register(registry);
+    }
+
+    /**
+     * Binds every pool of the registry, including those created later.
+     */
+    public void bindExecutors(ExecutorRegistry executors) {
+        executors.observe(this::bindExecutor);
+    }
+
+    private void bindExecutor(MeteredExecutor pool) {
+        String mode = pool.mode().name().toLowerCase();
+        Gauge.builder("executor_pool_active", pool, MeteredExecutor::activeCount)
+                .description("Tasks running on an executor pool")
+                .tags("pool", pool.name(), "mode", mode)
+                .register(registry);
+
+        Gauge.builder("executor_pool_queued", pool, MeteredExecutor::queuedCount)
+                .description("Tasks submitted to an executor pool and not yet started")
+                .tags("pool", pool.name(), "mode", mode)
+                .register(registry);
+
+        FunctionCounter.builder("executor_pool_completed_total", pool, MeteredExecutor::completedCount)
+                .description("Tasks an executor pool has finished")
+                .tags("pool", pool.name(), "mode", mode)
+                .register(registry);
+
+        FunctionCounter.builder("executor_pool_busy_seconds_total", pool, MeteredExecutor::busySeconds)
+                .description("Time tasks have spent running on an executor pool, all threads together")
+                .tags("pool", pool.name(), "mode", mode)
+                .register(registry);
+
+        if (pool.capacity() > 0) {
+            FunctionCounter.builder("executor_pool_rejected_total", pool, MeteredExecutor::rejectedCount)
+                    .description("Tasks an executor pool refused because it was at capacity")
+                    .tags("pool", pool.name(), "mode", mode)
+                    .register(registry);
+        }
+
+        if (pool.threads() > 0) {
+            Gauge.builder("executor_pool_utilization", pool, MeteredExecutor::utilization)
+                    .description("Running tasks over the platform threads the pool is sized for; above 1 only in virtual mode")
+                    .tags("pool", pool.name(), "mode", mode)
+                    .register(registry);
+        }
+    }
+
+    public void bindAuditPartitions(List<? extends BlockingQueue<?>> partitions) {
+        for (int i = 0; i < partitions.size(); i++) {
+            Gauge.builder("audit_partition_queue_size", partitions.get(i), BlockingQueue::size)
+                    .description("Transactions routed to an audit worker and not yet drained by it")
+                    .tag("partition", String.valueOf(i))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Latency of one audit pipeline stage, shared by every partition.
+     */
+    public Timer auditStageTimer(String stage) {
+        return Timer.builder("audit_stage_latency")
+                .description("Time one audit cycle spends in a pipeline stage")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void bindAuditStage(String stage, String partition, BlockingQueue<?> inbox) {
+        Gauge.builder("audit_stage_queue_depth", inbox, BlockingQueue::size)
+                .description("Audit cycles waiting for a pipeline stage")
+                .tag("stage", stage)
+                .tag("partition", partition)
+                .register(registry);
+    }
+
+    public void bindBalanceAccumulator(StripedBalanceAccumulator accumulator) {
+        FunctionCounter.builder("balance_updates_total", accumulator, StripedBalanceAccumulator::updates)
+                .description("Balance updates applied to the striped accumulator")
+                .register(registry);
+
+        FunctionCounter.builder("balance_cas_retries_total", accumulator, StripedBalanceAccumulator::casRetries)
+                .description("CAS retries on striped balance cells")
+                .register(registry);
+
+        FunctionCounter.builder("balance_residual_updates_total", accumulator,
+                StripedBalanceAccumulator::residualUpdates)
+                .description("Balance updates that allocated on the exact BigDecimal residual path")
+                .register(registry);
+
+        FunctionCounter.builder("balance_overflows_total", accumulator, StripedBalanceAccumulator::overflows)
+                .description("Balance cell updates diverted to the residual because of long overflow")
+                .register(registry);
+    }
+
+    public void bindHistoryLog(ChunkedHistoryLog historyLog) {
+        Gauge.builder("history_retained_entries", historyLog, ChunkedHistoryLog::retainedCount)
+                .description("Transactions currently retained in the history log")
+                .register(registry);
+
+        FunctionCounter.builder("history_retired_segments_total", historyLog, ChunkedHistoryLog::retiredSegments)
+                .description("History segments retired by the retention policy")
+                .register(registry);
+
+        FunctionCounter.builder("history_evicted_entries_total", historyLog, ChunkedHistoryLog::evictedEntries)
+                .description("Transactions dropped from history with their retired segment")
+                .register(registry);
+    }
+
+    public void bindBalanceIndex(BalanceTimeIndex index) {
+        Gauge.builder("balance_index_lag", index, BalanceTimeIndex::lag)
+                .description("History entries not yet folded into the point-in-time balance index")
+                .register(registry);
+
+        FunctionCounter.builder("balance_index_skipped_total", index, BalanceTimeIndex::skippedCount)
+                .description("History entries retired before the balance index reached them")
+                .register(registry);
+    }
+
+    public void bindHoldLedger(HoldLedger holds) {
+        Gauge.builder("holds_active", holds, HoldLedger::activeCount)
+                .description("Holds currently placed and not yet released or expired")
+                .register(registry);
+
+        Gauge.builder("holds_held_amount", holds, HoldLedger::heldTotalAsDouble)
+                .description("Total funds currently on hold")
+                .register(registry);
+
+        FunctionCounter.builder("holds_expired_total", holds, HoldLedger::expiredCount)
+                .description("Holds released automatically when their TTL elapsed")
+                .register(registry);
+
+        FunctionCounter.builder("holds_released_total", holds, HoldLedger::releasedCount)
+                .description("Holds released explicitly before expiry")
+                .register(registry);
+    }
+
+    public void bindJournal(TransactionJournal journal) {
+        Gauge.builder("journal_last_sequence", journal, TransactionJournal::lastSequence)
+                .description("Sequence of the last transaction written to the journal")
+                .register(registry);
+
+        Gauge.builder("journal_durable_sequence", journal, TransactionJournal::durableSequence)
+                .description("Sequence up to which the journal is forced to disk")
+                .register(registry);
+
+        FunctionCounter.builder("journal_syncs_total", journal, TransactionJournal::syncCount)
+                .description("Journal fsyncs, each covering one or more appends")
+                .register(registry);
+    }
+
+    public void bindDedupWindow(TimeSlicedDedupWindow window) {
+        Gauge.builder("dedup_window_ids", window, TimeSlicedDedupWindow::approximateSize)
+                .description("Transaction IDs currently remembered by the dedup window")
+                .register(registry);
+
+        FunctionCounter.builder("dedup_filter_hits_total", window, TimeSlicedDedupWindow::filterHitCount)
+                .description("Older-slice Bloom positives that required an exact lookup")
+                .register(registry);
+
+        FunctionCounter.builder("dedup_early_rotations_total", window, TimeSlicedDedupWindow::earlyRotationCount)
+                .description("Dedup slices rotated early because they reached capacity")
+                .register(registry);
+
+        FunctionCounter.builder("dedup_overflow_total", window, TimeSlicedDedupWindow::overflowCount)
+                .description("Transactions rejected because the newest dedup slice had no free slot")
+                .register(registry);
+
+        FunctionCounter.builder("dedup_rotation_retries_total", window, TimeSlicedDedupWindow::rotationRetryCount)
+                .description("Dedup marks retried because their slice rotated while they were being added")
+                .register(registry);
+    }
+
+    public void bindBalanceStream(BalanceStreamService stream) {
+        Gauge.builder("balance_stream_subscribers", stream, BalanceStreamService::subscriberCount)
+                .description("Clients currently subscribed to the balance stream")
+                .register(registry);
+    }
+
+    public void bindRuleChain(RuleChain rules) {
+        for (RuleChain.RuleStats stats : rules.stats()) {
+            FunctionCounter.builder("rule_evaluations_total", stats, RuleChain.RuleStats::evaluations)
+                    .description("Transactions evaluated by the rule")
+                    .tag("rule", stats.ruleName())
+                    .register(registry);
+
+            FunctionCounter.builder("rule_rejections_total", stats, RuleChain.RuleStats::rejections)
+                    .description("Transactions rejected by the rule")
+                    .tag("rule", stats.ruleName())
+                    .register(registry);
+
+            Gauge.builder("rule_evaluation_nanos", stats, RuleChain.RuleStats::meanEvaluationNanos)
+                    .description("Sampled mean cost of one evaluation of the rule")
+                    .tag("rule", stats.ruleName())
+                    .register(registry);
+        }
+    }
+
+    public void bindIdGenerator(SnowflakeIdGenerator generator) {
+        FunctionCounter.builder("id_leases_total", generator, SnowflakeIdGenerator::leaseCount)
+                .description("Runs of positions leased from the shared ID cursor")
+                .tag("node", String.valueOf(generator.nodeId()))
+                .register(registry);
+
+        FunctionCounter.builder("id_clock_waits_total", generator, SnowflakeIdGenerator::clockWaits)
+                .description("ID leases that waited for the clock to catch up with the cursor")
+                .tag("node", String.valueOf(generator.nodeId()))
+                .register(registry);
     }
 
     public void updateQueueSize(int size) {
@@ -57,9 +450,45 @@ public class MetricsCollector {
         logger.debug("Queue size updated: {}", size);
     }
 
+    /**
+     * Counts a dropped transaction. Under sustained overflow every offer
+     * drops, so at most one warning every ten seconds summarises the drops
+     * since the last one.
+     */
     public void incrementDropped(Transaction tx) {
         droppedTxCounter.increment();
-        logger.warn("Transaction dropped: {}", tx);
+        droppedSinceLog.increment();
+        long now = System.nanoTime();
+        long last = lastDropLogNanos.get();
+        if (now - last >= DROP_LOG_INTERVAL_NANOS && lastDropLogNanos.compareAndSet(last, now)) {
+            logger.warn("{} transactions dropped in the last {} s; latest: {}", droppedSinceLog.sumThenReset(),
+                    TimeUnit.NANOSECONDS.toSeconds(now - last), tx);
+        }
+    }
+
+    public void recordAuditQueueWait(long nanos) {
+        auditQueueWaitTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordQueueToSubmission(long nanos) {
+        queueToSubmissionTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Mean, max and p99 of {@code audit_queue_to_submission} in
+     * milliseconds; each is {@code -1} before the first submission.
+     */
+    public Map<String, Double> getQueueToSubmissionSnapshot() {
+        if (queueToSubmissionTimer.count() == 0) {
+            return Map.of("mean", -1.0, "max", -1.0, "p99", -1.0);
+        }
+        double p99 = Arrays.stream(queueToSubmissionTimer.takeSnapshot().percentileValues())
+                .filter(p -> p.percentile() == 0.99)
+                .mapToDouble(p -> p.value(TimeUnit.MILLISECONDS))
+                .findFirst()
+                .orElse(-1.0);
+        return Map.of("mean", queueToSubmissionTimer.mean(TimeUnit.MILLISECONDS),
+                "max", queueToSubmissionTimer.max(TimeUnit.MILLISECONDS), "p99", p99);
     }
 
     public Timer.Sample startAuditLatencySample() {
@@ -89,18 +518,38 @@ public class MetricsCollector {
 
     public void recordTransactionOutcome(TransactionOutcome outcome) {
         logger.debug("Record Transaction Outcome at {} | queue size is {} ", outcome, queueSize);
+        String type = "Invalid";
         if (outcome instanceof TransactionAccepted) {
             acceptedTxCount.incrementAndGet();
+            type = "Accepted";
+        } else if (outcome instanceof TransactionDuplicate) {
+            duplicateTxCount.incrementAndGet();
+            duplicateTxCounter.increment();
+            type = "Duplicate";
+        } else if (outcome instanceof TransactionRejected) {
+            rejectedTxCount.incrementAndGet();
+            rejectedTxCounter.increment();
+            type = "Rejected";
         } else if (outcome instanceof TransactionInvalid) {
             invalidTxCount.incrementAndGet();
         }
 
-        String type = outcome instanceof TransactionAccepted ? "Accepted" : "Invalid";
-        logger.debug("Transaction outcome [{}] at {} | Amount: {} | ID: {}",
-                type,
-                Instant.now(),
-                outcome.transaction() != null ? outcome.transaction().amount().amount() : "N/A",
-                outcome.transaction() != null ? outcome.transaction().id().value() : "N/A");
+        if (logger.isDebugEnabled()) {
+            logger.debug("Transaction outcome [{}] at {} | Amount: {} | ID: {}",
+                    type,
+                    Instant.now(),
+                    outcome.transaction() != null ? outcome.transaction().amount().amount() : "N/A",
+                    outcome.transaction() != null ? outcome.transaction().id().value() : "N/A");
+        }
+    }
+
+    /**
+     * Counts a block of accepted transactions without allocating an outcome
+     * per item.
+     */
+    public void recordAcceptedTransactions(int count) {
+        acceptedTxCount.addAndGet(count);
+        logger.debug("Recorded {} accepted transactions", count);
     }
 
     public void logRuntimeMetrics() {
@@ -109,14 +558,19 @@ public class MetricsCollector {
         logger.info(" - Dropped Tx: {}", getDroppedTxCount());
         logger.info(" - Accepted Tx: {}", getAcceptedTxCount());
         logger.info(" - Invalid Tx: {}", getInvalidTxCount());
+        logger.info(" - Duplicate Tx: {}", getDuplicateTxCount());
+        logger.info(" - Rejected Tx: {}", getRejectedTxCount());
         logger.info(" - Audit Submissions: {}", getAuditBatchCount());
         logger.info(" - Average Batch Size: {}", String.format("%.2f", getAverageBatchSize()));
         getLatencySnapshot()
                 .forEach((k, v) -> logger.info(" - Audit Latency [{}]: {} ms", k, String.format("%.2f", v)));
+        getQueueToSubmissionSnapshot().forEach(
+                (k, v) -> logger.info(" - Queue-to-Submission [{}]: {} ms", k, String.format("%.2f", v)));
     }
 
     public int getCurrentQueueSize() {
-        return queueSize.get();
+        BlockingQueue<?> queue = auditQueue;
+        return queue != null ? queue.size() : queueSize.get();
     }
 
     public double getDroppedTxCount() {
@@ -151,6 +605,14 @@ public class MetricsCollector {
         return invalidTxCount.get();
     }
 
+    public int getDuplicateTxCount() {
+        return duplicateTxCount.get();
+    }
+
+    public int getRejectedTxCount() {
+        return rejectedTxCount.get();
+    }
+
     public int getAuditBatchCount() {
         return auditBatchCount.get();
     }
@@ -2,7 +2,6 @@ package com.arctiq.liquidity.balsys.testfixtures;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.UUID;
 import java.util.random.RandomGenerator;
 import java.util.random.RandomGeneratorFactory;
 import java.util.stream.IntStream;
@@ -10,6 +9,7 @@ import java.util.stream.IntStream;
 import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
 import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.id.SnowflakeIdGenerator;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
 import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
 
@@ -39,22 +39,23 @@ public final class AuditTestFixtures {
     }
 
     public static Transaction randomTransaction(TransactionConfigProperties config) {
-        double value = config.getMinAmount() + generator.nextDouble() *
-                (config.getMaxAmount() - config.getMinAmount());
-        double signed = generator.nextBoolean() ? value : -value;
-        return new Transaction(TransactionId.generate(), Money.of(signed));
+        long value = randomMinorUnits(config);
+        long signed = generator.nextBoolean() ? value : -value;
+        return new Transaction(TransactionId.generate(), Money.ofMinorUnits(signed));
     }
 
     public static Transaction randomCredit(TransactionConfigProperties config) {
-        double amount = config.getMinAmount() + generator.nextDouble() *
-                (config.getMaxAmount() - config.getMinAmount());
-        return new Transaction(TransactionId.generate(), Money.of(Math.abs(amount)));
+        return new Transaction(TransactionId.generate(), Money.ofMinorUnits(randomMinorUnits(config)));
     }
 
     public static Transaction randomDebit(TransactionConfigProperties config) {
-        double amount = config.getMinAmount() + generator.nextDouble() *
-                (config.getMaxAmount() - config.getMinAmount());
-        return new Transaction(TransactionId.generate(), Money.of(-Math.abs(amount)));
+        return new Transaction(TransactionId.generate(), Money.ofMinorUnits(-randomMinorUnits(config)));
+    }
+
+    private static long randomMinorUnits(TransactionConfigProperties config) {
+        long min = Money.toMinorUnits(config.getMinAmount());
+        long max = Money.toMinorUnits(config.getMaxAmount());
+        return min + generator.nextLong(max - min + 1);
     }
 
     public static Transaction fixedTransaction(double amount) {
@@ -80,6 +81,6 @@ public final class AuditTestFixtures {
     }
 
     public static AuditBatch auditBatch(List<Transaction> txs, TransactionConfigProperties config) {
-        return new AuditBatch("batch-" + UUID.randomUUID(), txs, Money.of(config.getMaxBatchValue()));
+        return new AuditBatch("batch-" + SnowflakeIdGenerator.shared().nextId(), txs, Money.of(config.getMaxBatchValue()));
     }
 }
\ No newline at end of file
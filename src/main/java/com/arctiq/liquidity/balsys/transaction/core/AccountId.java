@@ -0,0 +1,22 @@
+package com.arctiq.liquidity.balsys.transaction.core;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+public record AccountId(@JsonValue String value) {
+
+    public static final AccountId DEFAULT = new AccountId("default");
+
+    public AccountId {
+        Objects.requireNonNull(value, "Account ID must not be null");
+        if (value.isBlank()) {
+            throw new IllegalArgumentException("Account ID must not be blank");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
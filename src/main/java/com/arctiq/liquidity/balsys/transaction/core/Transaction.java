@@ -4,7 +4,17 @@ import java.time.Instant;
 
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
 
-public record Transaction(TransactionId id, Money amount, Instant timestamp) {
+public record Transaction(TransactionId id, Money amount, Instant timestamp, AccountId accountId) {
+
+    public Transaction {
+        if (accountId == null) {
+            accountId = AccountId.DEFAULT;
+        }
+    }
+
+    public Transaction(TransactionId id, Money amount, Instant timestamp) {
+        this(id, amount, timestamp, AccountId.DEFAULT);
+    }
 
     public Transaction(TransactionId id, Money amount) {
         this(id, amount, Instant.now());
@@ -0,0 +1,363 @@
+package com.arctiq.liquidity.balsys.transaction.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+
+/**
+ * Immutable, column-oriented run of transactions.
+ * <p>
+ * A {@link Transaction} costs five objects (the record, its id, a
+ * {@link Money}, the {@code BigDecimal} inside it and an {@link Instant}); a
+ * block stores the same data as parallel primitive arrays, one slot per row:
+ * the id value, the signed amount in minor units and the timestamp in epoch
+ * nanoseconds, plus a reference to the (normally shared) {@link AccountId}.
+ * Amounts that are not a whole number of minor units keep their exact value in
+ * a side map, so converting a transaction into a block and back is lossless.
+ * <p>
+ * The audit path keeps transactions in this form from the queue drain through
+ * batching and persistence; {@link #transaction(int)} and
+ * {@link #toTransactions()} materialize objects only where an API needs them.
+ */
+public final class TransactionBlock {
+
+    private static final TransactionBlock EMPTY = new TransactionBlock(0, new long[0], new long[0], new long[0],
+            new AccountId[0], Map.of());
+
+    private final int size;
+    private final long[] ids;
+    private final long[] minorUnits;
+    private final long[] epochNanos;
+    private final AccountId[] accounts;
+    private final Map<Integer, BigDecimal> exactAmounts;
+
+    private TransactionBlock(int size, long[] ids, long[] minorUnits, long[] epochNanos, AccountId[] accounts,
+            Map<Integer, BigDecimal> exactAmounts) {
+        this.size = size;
+        this.ids = ids;
+        this.minorUnits = minorUnits;
+        this.epochNanos = epochNanos;
+        this.accounts = accounts;
+        this.exactAmounts = exactAmounts;
+    }
+
+    public static TransactionBlock empty() {
+        return EMPTY;
+    }
+
+    public static TransactionBlock of(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = builder(transactions.size());
+        for (Transaction transaction : transactions) {
+            builder.add(transaction);
+        }
+        return builder.build();
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long id(int index) {
+        return ids[checkIndex(index)];
+    }
+
+    /**
+     * @return the signed amount in minor units, or
+     *         {@link Money#NOT_REPRESENTABLE} if the row carries sub-minor-unit
+     *         precision (see {@link #amount(int)})
+     */
+    public long minorUnits(int index) {
+        return minorUnits[checkIndex(index)];
+    }
+
+    public long epochNanos(int index) {
+        return epochNanos[checkIndex(index)];
+    }
+
+    public AccountId accountId(int index) {
+        return accounts[checkIndex(index)];
+    }
+
+    public BigDecimal amount(int index) {
+        long value = minorUnits[checkIndex(index)];
+        return value != Money.NOT_REPRESENTABLE
+                ? BigDecimal.valueOf(value, Money.MINOR_UNIT_SCALE)
+                : exactAmounts.get(index);
+    }
+
+    /**
+     * Absolute amount of a row in whole minor units, rounded up when the row
+     * carries sub-minor-unit precision so limit checks stay conservative.
+     */
+    public long absoluteMinorUnits(int index) {
+        long value = minorUnits[checkIndex(index)];
+        if (value != Money.NOT_REPRESENTABLE) {
+            return Math.abs(value);
+        }
+        BigDecimal ceiling = exactAmounts.get(index).abs().setScale(Money.MINOR_UNIT_SCALE, RoundingMode.CEILING);
+        try {
+            return ceiling.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Exact sum of the absolute amounts of every row.
+     */
+    public Money absoluteTotal() {
+        long total = 0;
+        BigDecimal overflow = null;
+        for (int i = 0; i < size; i++) {
+            long value = minorUnits[i];
+            if (value == Money.NOT_REPRESENTABLE) {
+                overflow = add(overflow, exactAmounts.get(i).abs());
+                continue;
+            }
+            long sum = total + Math.abs(value);
+            if (sum < 0) {
+                overflow = add(overflow, BigDecimal.valueOf(total, Money.MINOR_UNIT_SCALE));
+                sum = Math.abs(value);
+            }
+            total = sum;
+        }
+        Money exact = Money.ofMinorUnits(total);
+        return overflow == null ? exact : new Money(exact.amount().add(overflow));
+    }
+
+    /**
+     * Exact sum of the signed amounts of every row.
+     */
+    public Money signedTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        long run = 0;
+        for (int i = 0; i < size; i++) {
+            long value = minorUnits[i];
+            if (value == Money.NOT_REPRESENTABLE) {
+                total = total.add(exactAmounts.get(i));
+                continue;
+            }
+            long sum = run + value;
+            if (((run ^ sum) & (value ^ sum)) < 0) {
+                total = total.add(BigDecimal.valueOf(run, Money.MINOR_UNIT_SCALE));
+                sum = value;
+            }
+            run = sum;
+        }
+        return new Money(total.add(BigDecimal.valueOf(run, Money.MINOR_UNIT_SCALE)));
+    }
+
+    /**
+     * Row indices ordered by absolute amount, largest first; rows with equal
+     * amounts keep their original order.
+     * <p>
+     * When every amount fits in the bits left over by the row index, each row
+     * is packed into a single {@code long} key and the keys are sorted as
+     * primitives; otherwise a boxed comparison sort is used.
+     */
+    public int[] indicesByAbsoluteAmountDescending() {
+        int[] order = new int[size];
+        if (size == 0) {
+            return order;
+        }
+        int indexBits = 32 - Integer.numberOfLeadingZeros(size - 1);
+        long indexMask = (1L << indexBits) - 1;
+        long maxAmount = 0;
+        for (int i = 0; i < size; i++) {
+            maxAmount = Math.max(maxAmount, absoluteMinorUnits(i));
+        }
+        if (indexBits == 0 || 64 - Long.numberOfLeadingZeros(maxAmount) <= 63 - indexBits) {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = (absoluteMinorUnits(i) << indexBits) | (indexMask - i);
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < size; i++) {
+                order[i] = (int) (indexMask - (keys[size - 1 - i] & indexMask));
+            }
+            return order;
+        }
+        Integer[] boxed = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> Long.compare(absoluteMinorUnits(b), absoluteMinorUnits(a)));
+        for (int i = 0; i < size; i++) {
+            order[i] = boxed[i];
+        }
+        return order;
+    }
+
+    /**
+     * Copies the given rows, in the given order, into a new block.
+     */
+    public TransactionBlock select(int[] indices) {
+        if (indices.length == 0) {
+            return EMPTY;
+        }
+        Builder builder = builder(indices.length);
+        for (int index : indices) {
+            checkIndex(index);
+            builder.addRow(ids[index], minorUnits[index], epochNanos[index], accounts[index],
+                    minorUnits[index] == Money.NOT_REPRESENTABLE ? exactAmounts.get(index) : null);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Materializes one row.
+     */
+    public Transaction transaction(int index) {
+        long nanos = epochNanos[checkIndex(index)];
+        Instant timestamp = Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                Math.floorMod(nanos, 1_000_000_000L));
+        return new Transaction(new TransactionId(ids[index]), new Money(amount(index)), timestamp, accounts[index]);
+    }
+
+    /**
+     * Read-only list view that materializes each row on access.
+     */
+    public List<Transaction> toTransactions() {
+        return new AbstractList<>() {
+            @Override
+            public Transaction get(int index) {
+                return transaction(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for block of " + size);
+        }
+        return index;
+    }
+
+    private static BigDecimal add(BigDecimal total, BigDecimal value) {
+        return total == null ? value : total.add(value);
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionBlock[size=" + size + "]";
+    }
+
+    /**
+     * Appends rows column by column. Not thread-safe.
+     */
+    public static final class Builder {
+
+        private int size;
+        private long[] ids;
+        private long[] minorUnits;
+        private long[] epochNanos;
+        private AccountId[] accounts;
+        private Map<Integer, BigDecimal> exactAmounts;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 8);
+            this.ids = new long[capacity];
+            this.minorUnits = new long[capacity];
+            this.epochNanos = new long[capacity];
+            this.accounts = new AccountId[capacity];
+        }
+
+        public Builder add(Transaction transaction) {
+            BigDecimal amount = transaction.amount().amount();
+            long units = Money.toMinorUnits(amount);
+            Instant timestamp = transaction.timestamp();
+            long nanos = Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), 1_000_000_000L),
+                    timestamp.getNano());
+            return addRow(transaction.id().value(), units, nanos, transaction.accountId(),
+                    units == Money.NOT_REPRESENTABLE ? amount : null);
+        }
+
+        /**
+         * Appends a row whose amount is a whole number of minor units.
+         */
+        public Builder add(long id, long minorUnits, long epochNanos, AccountId accountId) {
+            if (minorUnits == Money.NOT_REPRESENTABLE) {
+                throw new IllegalArgumentException("Amount is not representable in minor units");
+            }
+            return addRow(id, minorUnits, epochNanos, accountId, null);
+        }
+
+        /**
+         * Appends a row with an arbitrary-precision amount, keeping it exact
+         * when it is not a whole number of minor units.
+         */
+        public Builder add(long id, BigDecimal amount, long epochNanos, AccountId accountId) {
+            long units = Money.toMinorUnits(amount);
+            return addRow(id, units, epochNanos, accountId, units == Money.NOT_REPRESENTABLE ? amount : null);
+        }
+
+        private Builder addRow(long id, long units, long nanos, AccountId accountId, BigDecimal exact) {
+            if (size == ids.length) {
+                int capacity = Math.max(8, size + (size >> 1));
+                ids = Arrays.copyOf(ids, capacity);
+                minorUnits = Arrays.copyOf(minorUnits, capacity);
+                epochNanos = Arrays.copyOf(epochNanos, capacity);
+                accounts = Arrays.copyOf(accounts, capacity);
+            }
+            if (exact != null) {
+                if (exactAmounts == null) {
+                    exactAmounts = new HashMap<>();
+                }
+                exactAmounts.put(size, exact);
+            }
+            ids[size] = id;
+            minorUnits[size] = units;
+            epochNanos[size] = nanos;
+            accounts[size] = accountId == null ? AccountId.DEFAULT : accountId;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public TransactionBlock build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            TransactionBlock block = new TransactionBlock(size, trim(ids), trim(minorUnits), trim(epochNanos),
+                    size == accounts.length ? accounts : Arrays.copyOf(accounts, size),
+                    exactAmounts == null ? Map.of() : Map.copyOf(exactAmounts));
+            ids = new long[0];
+            minorUnits = new long[0];
+            epochNanos = new long[0];
+            accounts = new AccountId[0];
+            exactAmounts = null;
+            size = 0;
+            return block;
+        }
+
+        private long[] trim(long[] column) {
+            return size == column.length ? column : Arrays.copyOf(column, size);
+        }
+    }
+}
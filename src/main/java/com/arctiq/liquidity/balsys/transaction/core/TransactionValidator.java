@@ -1,38 +1,142 @@
 package com.arctiq.liquidity.balsys.transaction.core;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
 import com.arctiq.liquidity.balsys.exception.TransactionValidationException;
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.rules.RuleChain;
+import com.arctiq.liquidity.balsys.transaction.rules.TransactionRule;
 
 public class TransactionValidator {
 
+    private static final Logger logger = LoggerFactory.getLogger(TransactionValidator.class);
+
     private final BigDecimal minAmount;
     private final BigDecimal maxAmount;
+    private final long minMinorUnits;
+    private final long maxMinorUnits;
+    private final RuleChain rules;
 
     public TransactionValidator(TransactionConfigProperties config) {
+        this(config, RuleChain.compile(config.getRules()));
+    }
+
+    public TransactionValidator(TransactionConfigProperties config, RuleChain rules) {
+        this.rules = rules;
         this.minAmount = BigDecimal.valueOf(config.getMinAmount());
         this.maxAmount = BigDecimal.valueOf(config.getMaxAmount());
+        this.minMinorUnits = boundInMinorUnits(minAmount, RoundingMode.CEILING);
+        this.maxMinorUnits = boundInMinorUnits(maxAmount, RoundingMode.FLOOR);
     }
 
-    public void validate(TransactionId id, Money amount) {
+    /**
+     * Full check for an incoming transaction: the static bounds, then the
+     * rule chain. Nothing is counted here; once the transaction is taken,
+     * {@link #record(Transaction)} charges it to the velocity rules.
+     */
+    public ValidationResult check(Transaction transaction) {
+        return check(transaction, null);
+    }
+
+    /**
+     * As {@link #check(Transaction)}, with the velocity rules also counting
+     * {@code pending}: the items of the same block already admitted.
+     */
+    public ValidationResult check(Transaction transaction, RuleChain.Pending pending) {
+        ValidationResult result = check(transaction.id(), transaction.amount());
+        if (!result.isValid()) {
+            return result;
+        }
+        TransactionRule rejectedBy = rules.test(transaction, pending);
+        if (rejectedBy != null) {
+            logger.debug("Transaction {} rejected by rule {}", transaction.id().value(), rejectedBy.name());
+            return ValidationResult.RULE_VIOLATION;
+        }
+        return ValidationResult.VALID;
+    }
+
+    /**
+     * Counts a transaction that passed {@link #check(Transaction)} and was
+     * taken against the velocity rules.
+     */
+    public void record(Transaction transaction) {
+        rules.record(transaction);
+    }
+
+    /**
+     * Validates without throwing. The range check runs on pre-scaled
+     * {@code long} bounds; only amounts that cannot be expressed in whole
+     * minor units fall back to {@code BigDecimal} comparison.
+     */
+    public ValidationResult check(TransactionId id, Money amount) {
         if (id == null) {
-            throw new TransactionValidationException("Transaction ID must not be null");
+            return ValidationResult.MISSING_ID;
         }
-        validate(amount);
+        return check(amount);
     }
 
-    public void validate(Money amount) {
+    public ValidationResult check(Money amount) {
         if (amount == null) {
-            throw new TransactionValidationException("Transaction amount must not be null");
+            return ValidationResult.MISSING_AMOUNT;
+        }
+        long minorUnits = amount.toMinorUnits();
+        if (minorUnits != Money.NOT_REPRESENTABLE) {
+            long magnitude = Math.abs(minorUnits);
+            return magnitude < minMinorUnits || magnitude > maxMinorUnits
+                    ? ValidationResult.OUT_OF_RANGE
+                    : ValidationResult.VALID;
         }
-
         BigDecimal abs = amount.amount().abs();
-        if (abs.compareTo(minAmount) < 0 || abs.compareTo(maxAmount) > 0) {
-            throw new TransactionValidationException(
-                    "Transaction amount is out of range: " + amount.amount() +
+        return abs.compareTo(minAmount) < 0 || abs.compareTo(maxAmount) > 0
+                ? ValidationResult.OUT_OF_RANGE
+                : ValidationResult.VALID;
+    }
+
+    public RuleChain rules() {
+        return rules;
+    }
+
+    public void validate(TransactionId id, Money amount) {
+        ValidationResult result = check(id, amount);
+        if (!result.isValid()) {
+            throw failure(result, amount);
+        }
+    }
+
+    public void validate(Money amount) {
+        ValidationResult result = check(amount);
+        if (!result.isValid()) {
+            throw failure(result, amount);
+        }
+    }
+
+    /**
+     * Builds the detailed exception for callers that still want one.
+     */
+    public TransactionValidationException failure(ValidationResult result, Money amount) {
+        if (result == ValidationResult.OUT_OF_RANGE) {
+            return new TransactionValidationException(
+                    result.reason() + ": " + amount.amount() +
                             " (expected between " + minAmount + " and " + maxAmount + ")");
         }
+        return new TransactionValidationException(result.reason());
+    }
+
+    /**
+     * Bounds carrying sub-minor precision are rounded inwards so the
+     * {@code long} comparison never admits anything the exact one would reject.
+     */
+    private static long boundInMinorUnits(BigDecimal bound, RoundingMode inwards) {
+        long exact = Money.toMinorUnits(bound);
+        if (exact != Money.NOT_REPRESENTABLE) {
+            return exact;
+        }
+        BigDecimal scaled = bound.scaleByPowerOfTen(Money.MINOR_UNIT_SCALE).setScale(0, inwards);
+        return scaled.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) >= 0 ? Long.MAX_VALUE : scaled.longValue();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.arctiq.liquidity.balsys.transaction.core;
+
+/**
+ * Outcome of {@link TransactionValidator#check(Transaction)}. Each failure
+ * carries a fixed reason, so rejecting a transaction never builds a message.
+ */
+public enum ValidationResult {
+
+    VALID(null),
+    MISSING_ID("Transaction ID must not be null"),
+    MISSING_AMOUNT("Transaction amount must not be null"),
+    OUT_OF_RANGE("Transaction amount is out of range"),
+    RULE_VIOLATION("Transaction rejected by a velocity rule");
+
+    private final String reason;
+
+    ValidationResult(String reason) {
+        this.reason = reason;
+    }
+
+    public boolean isValid() {
+        return this == VALID;
+    }
+
+    /**
+     * @return the canonical rejection reason, or {@code null} for {@link #VALID}
+     */
+    public String reason() {
+        return reason;
+    }
+}
@@ -0,0 +1,60 @@
+package com.arctiq.liquidity.balsys.transaction.core.outcome;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-item outcome of a bulk submission, kept compact: one bit per item for
+ * acceptance and a reason only for the items that were rejected.
+ */
+public final class TransactionBatchResult {
+
+    private final int size;
+    private final BitSet accepted;
+    private final Map<Integer, String> rejections;
+
+    public TransactionBatchResult(int size, BitSet accepted, Map<Integer, String> rejections) {
+        this.size = size;
+        this.accepted = (BitSet) accepted.clone();
+        this.rejections = Collections.unmodifiableMap(rejections);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int acceptedCount() {
+        return accepted.cardinality();
+    }
+
+    public int rejectedCount() {
+        return size - acceptedCount();
+    }
+
+    public boolean isAccepted(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside batch of " + size);
+        }
+        return accepted.get(index);
+    }
+
+    /**
+     * @return why the item at {@code index} was rejected, or empty if it was
+     *         accepted
+     */
+    public Optional<String> rejectionReason(int index) {
+        return Optional.ofNullable(rejections.get(index));
+    }
+
+    public Map<Integer, String> rejections() {
+        return rejections;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionBatchResult[size=" + size + ", accepted=" + acceptedCount() + ", rejected="
+                + rejectedCount() + "]";
+    }
+}
@@ -0,0 +1,10 @@
+package com.arctiq.liquidity.balsys.transaction.core.outcome;
+
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+public final record TransactionDuplicate(Transaction transaction) implements TransactionOutcome {
+    @Override
+    public String reason() {
+        return "Duplicate transaction ID";
+    }
+}
@@ -3,7 +3,7 @@ package com.arctiq.liquidity.balsys.transaction.core.outcome;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
 
 public sealed interface TransactionOutcome
-        permits TransactionAccepted, TransactionInvalid {
+        permits TransactionAccepted, TransactionInvalid, TransactionDuplicate, TransactionRejected {
 
     Transaction transaction();
 
@@ -0,0 +1,10 @@
+package com.arctiq.liquidity.balsys.transaction.core.outcome;
+
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * A valid transaction turned away because the system is saturated. Nothing
+ * was applied, so the same transaction may be retried later.
+ */
+public final record TransactionRejected(Transaction transaction, String reason) implements TransactionOutcome {
+}
@@ -0,0 +1,350 @@
+package com.arctiq.liquidity.balsys.transaction.dedup;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers recently seen transaction IDs in a fixed memory budget.
+ * <p>
+ * The window is a ring of time slices, newest first. Each slice pairs a
+ * blocked Bloom filter (all probe bits in one 64-bit word, so a negative
+ * costs one memory access) with an exact open-addressing set of IDs claimed
+ * by CAS. Older slices are only probed exactly when their filter says the ID
+ * might be present, so a lookup stays O(slices). A slice is replaced once it
+ * ages out or its exact set reaches its load limit; the latter shortens the
+ * effective window instead of growing memory, and is counted.
+ * <p>
+ * Rotation seals the outgoing slice before publishing the new ring. A caller
+ * that added an ID to a slice and then finds it sealed cannot know whether a
+ * concurrent caller already checked that slice and moved on to the new one,
+ * so it takes the ID back out and starts again on the new ring; of two
+ * callers racing with the same ID, exactly one gets {@link Mark#NEW}. An ID
+ * that finds the newest slice's table saturated is not recorded at all: it is
+ * reported as {@link Mark#OVERFLOW}, counted, and the slice is rotated.
+ */
+public class TimeSlicedDedupWindow {
+
+    /**
+     * Outcome of {@link #mark(long)}.
+     */
+    public enum Mark {
+        /** Recorded; not seen within the window. */
+        NEW,
+        /** Already recorded within the window. */
+        DUPLICATE,
+        /** Not recorded because the newest slice had no free slot; may be retried. */
+        OVERFLOW
+    }
+
+    private enum Claim {
+        ADDED, PRESENT, SATURATED
+    }
+
+    private static final long EMPTY = 0L;
+    private static final long REMOVED = Long.MIN_VALUE;
+    private static final int BLOOM_BITS_PER_ENTRY = 12;
+    private static final int BLOOM_PROBES = 4;
+
+    private final int sliceCount;
+    private final int sliceCapacity;
+    private final long sliceNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<Slice[]> slices;
+
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder filterHits = new LongAdder();
+    private final LongAdder earlyRotations = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * @param window        how long an ID is remembered
+     * @param sliceCount    number of slices the window is divided into
+     * @param sliceCapacity IDs each slice holds before it is rotated early
+     */
+    public TimeSlicedDedupWindow(Duration window, int sliceCount, int sliceCapacity) {
+        this(window, sliceCount, sliceCapacity, System::nanoTime);
+    }
+
+    TimeSlicedDedupWindow(Duration window, int sliceCount, int sliceCapacity, LongSupplier nanoClock) {
+        if (sliceCount < 1 || sliceCapacity < 1) {
+            throw new IllegalArgumentException("Dedup window needs at least one slice of positive capacity");
+        }
+        if (window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("Dedup window must be positive");
+        }
+        this.sliceCount = sliceCount;
+        this.sliceCapacity = sliceCapacity;
+        this.sliceNanos = Math.max(1, window.toNanos() / sliceCount);
+        this.nanoClock = nanoClock;
+        this.slices = new AtomicReference<>(new Slice[] { new Slice(sliceCapacity, nanoClock.getAsLong()) });
+    }
+
+    /**
+     * Records {@code id} unless it is already inside the window.
+     */
+    public Mark mark(long id) {
+        long hash = mix(id);
+        while (true) {
+            Slice[] live = currentSlices();
+            for (int i = 1; i < live.length; i++) {
+                Slice older = live[i];
+                if (older.mightContain(hash)) {
+                    filterHits.increment();
+                    if (older.contains(id, hash)) {
+                        duplicates.increment();
+                        return Mark.DUPLICATE;
+                    }
+                }
+            }
+            Slice newest = live[0];
+            Claim claim = newest.add(id, hash);
+            if (claim == Claim.PRESENT) {
+                duplicates.increment();
+                return Mark.DUPLICATE;
+            }
+            if (claim == Claim.SATURATED) {
+                overflows.increment();
+                return Mark.OVERFLOW;
+            }
+            if (!newest.sealed) {
+                return Mark.NEW;
+            }
+            // rotated under us: a caller on the new ring may have checked this slice before our add landed
+            newest.remove(id, hash);
+            retries.increment();
+        }
+    }
+
+    /**
+     * Forgets an ID recorded by {@link #mark} whose transaction was
+     * not taken after all, so a retry of it is not reported as a duplicate.
+     * The slot it held stays used until its slice is rotated out.
+     */
+    public void unmark(long id) {
+        long hash = mix(id);
+        for (Slice slice : slices.get()) {
+            if (slice.mightContain(hash) && slice.remove(id, hash)) {
+                return;
+            }
+        }
+    }
+
+    public long duplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Older-slice filter positives, each of which cost an exact probe.
+     */
+    public long filterHitCount() {
+        return filterHits.sum();
+    }
+
+    public long earlyRotationCount() {
+        return earlyRotations.sum();
+    }
+
+    /**
+     * IDs reported as {@link Mark#OVERFLOW} because the newest slice's table
+     * had no free slot.
+     */
+    public long overflowCount() {
+        return overflows.sum();
+    }
+
+    /**
+     * Marks retried because the slice they were added to rotated meanwhile.
+     */
+    public long rotationRetryCount() {
+        return retries.sum();
+    }
+
+    public long approximateSize() {
+        long total = 0;
+        for (Slice slice : slices.get()) {
+            total += slice.size.get();
+        }
+        return total;
+    }
+
+    private Slice[] currentSlices() {
+        while (true) {
+            Slice[] live = slices.get();
+            long now = nanoClock.getAsLong();
+            Slice newest = live[0];
+            boolean expired = now - newest.createdNanos >= sliceNanos;
+            boolean full = newest.isFull();
+            if (!expired && !full) {
+                return live;
+            }
+            Slice[] rotated = new Slice[Math.min(sliceCount, live.length + 1)];
+            rotated[0] = new Slice(sliceCapacity, now);
+            System.arraycopy(live, 0, rotated, 1, rotated.length - 1);
+            // sealed before the new ring is visible, so an add that misses the seal is seen by later checks
+            newest.sealed = true;
+            if (slices.compareAndSet(live, rotated)) {
+                if (full && !expired) {
+                    earlyRotations.increment();
+                }
+                return rotated;
+            }
+        }
+    }
+
+    private static long mix(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Slice {
+
+        private final long createdNanos;
+        private final AtomicLongArray bloom;
+        private final int bloomMask;
+        private final AtomicLongArray ids;
+        private final int idMask;
+        private final int loadLimit;
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean emptyKeySeen = new AtomicBoolean(false);
+        private final AtomicBoolean removedKeySeen = new AtomicBoolean(false);
+        private volatile boolean sealed;
+        private volatile boolean saturated;
+
+        Slice(int capacity, long createdNanos) {
+            this.createdNanos = createdNanos;
+            int words = ceilPowerOfTwo(Math.max(1, (int) ((long) capacity * BLOOM_BITS_PER_ENTRY / Long.SIZE)));
+            this.bloom = new AtomicLongArray(words);
+            this.bloomMask = words - 1;
+            int slots = ceilPowerOfTwo(capacity * 2);
+            this.ids = new AtomicLongArray(slots);
+            this.idMask = slots - 1;
+            this.loadLimit = capacity;
+        }
+
+        boolean isFull() {
+            return saturated || size.get() >= loadLimit;
+        }
+
+        boolean mightContain(long hash) {
+            long mask = bloomMask(hash);
+            return (bloom.get(bloomWord(hash)) & mask) == mask;
+        }
+
+        boolean contains(long id, long hash) {
+            if (id == EMPTY || id == REMOVED) {
+                return reservedKey(id).get();
+            }
+            for (int slot = home(hash), probes = 0; probes <= idMask; slot = (slot + 1) & idMask, probes++) {
+                long current = ids.get(slot);
+                if (current == id) {
+                    return true;
+                }
+                if (current == EMPTY) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Claims a slot and then sets the filter bits, both before the caller
+         * reads {@link #sealed}.
+         */
+        Claim add(long id, long hash) {
+            if (id == EMPTY || id == REMOVED) {
+                if (!reservedKey(id).compareAndSet(false, true)) {
+                    return Claim.PRESENT;
+                }
+            } else {
+                Claim claim = claim(id, hash);
+                if (claim != Claim.ADDED) {
+                    return claim;
+                }
+            }
+            size.incrementAndGet();
+            int word = bloomWord(hash);
+            long mask = bloomMask(hash);
+            if ((bloom.get(word) & mask) != mask) {
+                bloom.accumulateAndGet(word, mask, (a, b) -> a | b);
+            }
+            return Claim.ADDED;
+        }
+
+        /**
+         * Leaves a marker in the slot rather than emptying it, so probes for
+         * IDs placed past it still find them. Markers are never reclaimed.
+         *
+         * @return {@code false} if the ID was not in this slice
+         */
+        boolean remove(long id, long hash) {
+            if (id == EMPTY || id == REMOVED) {
+                return reservedKey(id).compareAndSet(true, false);
+            }
+            for (int slot = home(hash), probes = 0; probes <= idMask; slot = (slot + 1) & idMask, probes++) {
+                long current = ids.get(slot);
+                if (current == id) {
+                    return ids.compareAndSet(slot, id, REMOVED);
+                }
+                if (current == EMPTY) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private AtomicBoolean reservedKey(long id) {
+            return id == EMPTY ? emptyKeySeen : removedKeySeen;
+        }
+
+        private Claim claim(long id, long hash) {
+            for (int slot = home(hash), probes = 0; probes <= idMask; slot = (slot + 1) & idMask, probes++) {
+                long current = ids.get(slot);
+                if (current == id) {
+                    return Claim.PRESENT;
+                }
+                if (current == EMPTY) {
+                    if (ids.compareAndSet(slot, EMPTY, id)) {
+                        return Claim.ADDED;
+                    }
+                    if (ids.get(slot) == id) {
+                        return Claim.PRESENT;
+                    }
+                }
+            }
+            // only reachable when concurrent adds or removal markers outrun rotation; rotate on the next mark
+            saturated = true;
+            return Claim.SATURATED;
+        }
+
+        private int home(long hash) {
+            return (int) (hash >>> 24) & idMask;
+        }
+
+        private int bloomWord(long hash) {
+            return (int) (hash >>> 40) & bloomMask;
+        }
+
+        private static long bloomMask(long hash) {
+            long mask = 0;
+            for (int i = 0; i < BLOOM_PROBES; i++) {
+                mask |= 1L << ((hash >>> (i * 6)) & 63);
+            }
+            return mask;
+        }
+
+        private static int ceilPowerOfTwo(int value) {
+            return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+        }
+    }
+}
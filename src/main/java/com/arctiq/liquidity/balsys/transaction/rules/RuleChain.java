@@ -0,0 +1,236 @@
+package com.arctiq.liquidity.balsys.transaction.rules;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.arctiq.liquidity.balsys.config.VelocityRuleProperties;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Ordered, immutable set of {@link TransactionRule}s evaluated on every
+ * transaction.
+ * <p>
+ * Declarative definitions are compiled once into a flat array of rule
+ * instances with limits pre-scaled to minor units, so evaluation is a loop of
+ * direct calls with no lookups. Every rule is asked before any records the
+ * transaction, and asking ({@link #test}) is kept apart from recording
+ * ({@link #record}) so the caller charges the windows only for transactions
+ * it goes on to take. Evaluation cost is sampled (one call in
+ * {@value #TIMING_SAMPLE_RATE}) to keep the clock reads off most
+ * transactions. Under concurrency the test and the record are not atomic,
+ * so a limit can be overshot by at most the number of in-flight submitters.
+ */
+public class RuleChain {
+
+    private static final int TIMING_SAMPLE_RATE = 64;
+    private static final RuleChain EMPTY = new RuleChain(List.of(), System::nanoTime);
+
+    private final TransactionRule[] rules;
+    private final RuleStats[] stats;
+    private final LongSupplier nanoClock;
+
+    public RuleChain(List<? extends TransactionRule> rules) {
+        this(rules, System::nanoTime);
+    }
+
+    RuleChain(List<? extends TransactionRule> rules, LongSupplier nanoClock) {
+        this.rules = rules.toArray(new TransactionRule[0]);
+        this.stats = new RuleStats[this.rules.length];
+        for (int i = 0; i < this.rules.length; i++) {
+            stats[i] = new RuleStats(this.rules[i].name());
+        }
+        this.nanoClock = nanoClock;
+    }
+
+    public static RuleChain empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles {@code transaction.rules} definitions into a chain, in
+     * declaration order.
+     */
+    public static RuleChain compile(List<VelocityRuleProperties> definitions) {
+        if (definitions == null || definitions.isEmpty()) {
+            return EMPTY;
+        }
+        List<TransactionRule> compiled = new ArrayList<>(definitions.size());
+        for (VelocityRuleProperties definition : definitions) {
+            long limit = definition.getMetric() == RuleMetric.VOLUME
+                    ? Money.toMinorUnits(definition.getLimit())
+                    : (long) definition.getLimit();
+            compiled.add(new VelocityRule(definition.getName(), definition.getMetric(), definition.getDirection(),
+                    limit, Duration.ofSeconds(definition.getWindowSeconds()), definition.getBuckets()));
+        }
+        return new RuleChain(compiled);
+    }
+
+    /**
+     * Runs the chain and records the transaction if every rule permits it;
+     * {@link #test} followed by {@link #record}.
+     *
+     * @return the first rule that rejected the transaction, or {@code null}
+     *         if it was admitted
+     */
+    public TransactionRule admit(Transaction transaction) {
+        TransactionRule rejectedBy = test(transaction);
+        if (rejectedBy == null) {
+            record(transaction);
+        }
+        return rejectedBy;
+    }
+
+    /**
+     * Asks every rule whether it permits the transaction, without charging
+     * any window. Only the per-rule statistics are updated.
+     *
+     * @return the first rule that rejected the transaction, or {@code null}
+     *         if all permit it
+     */
+    public TransactionRule test(Transaction transaction) {
+        return test(transaction, null);
+    }
+
+    /**
+     * As {@link #test(Transaction)}, counting {@code pending} on top of
+     * what the windows already hold.
+     */
+    public TransactionRule test(Transaction transaction, Pending pending) {
+        if (rules.length == 0) {
+            return null;
+        }
+        long minorUnits = signedMinorUnits(transaction);
+        long now = nanoClock.getAsLong();
+        boolean timed = ThreadLocalRandom.current().nextInt(TIMING_SAMPLE_RATE) == 0;
+        for (int i = 0; i < rules.length; i++) {
+            RuleStats ruleStats = stats[i];
+            ruleStats.evaluations.increment();
+            boolean permitted;
+            if (timed) {
+                long start = System.nanoTime();
+                permitted = permits(i, transaction, minorUnits, now, pending);
+                ruleStats.sampledNanos.add(System.nanoTime() - start);
+                ruleStats.samples.increment();
+            } else {
+                permitted = permits(i, transaction, minorUnits, now, pending);
+            }
+            if (!permitted) {
+                ruleStats.rejections.increment();
+                return rules[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Charges the transaction to every rule's window. Call it once the
+     * transaction has actually been taken, so duplicates and transactions
+     * turned away later do not count against the limits.
+     */
+    public void record(Transaction transaction) {
+        if (rules.length == 0) {
+            return;
+        }
+        long minorUnits = signedMinorUnits(transaction);
+        long now = nanoClock.getAsLong();
+        for (TransactionRule rule : rules) {
+            rule.record(transaction, minorUnits, now);
+        }
+    }
+
+    /**
+     * An empty tally of admitted but unrecorded transactions, for a caller
+     * that takes a block as a whole and may still fail to take it.
+     */
+    public Pending pending() {
+        return new Pending(rules);
+    }
+
+    public boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    public List<RuleStats> stats() {
+        return Arrays.asList(stats);
+    }
+
+    private boolean permits(int rule, Transaction transaction, long minorUnits, long now, Pending pending) {
+        return pending == null
+                ? rules[rule].permits(transaction, minorUnits, now)
+                : rules[rule].permits(transaction, minorUnits, now, pending.weights[rule]);
+    }
+
+    private static long signedMinorUnits(Transaction transaction) {
+        long exact = transaction.amount().toMinorUnits();
+        return exact != Money.NOT_REPRESENTABLE ? exact : Money.toMinorUnits(transaction.amount().asDouble());
+    }
+
+    /**
+     * Per-rule weight of transactions a caller has admitted and not yet
+     * recorded. Passing it to {@link #test(Transaction, Pending)} checks each
+     * item of a block against the items before it, while the windows are
+     * charged only once the whole block has been taken. Not thread-safe.
+     */
+    public static final class Pending {
+
+        private final TransactionRule[] rules;
+        private final long[] weights;
+
+        private Pending(TransactionRule[] rules) {
+            this.rules = rules;
+            this.weights = new long[rules.length];
+        }
+
+        public void add(Transaction transaction) {
+            if (rules.length == 0) {
+                return;
+            }
+            long minorUnits = signedMinorUnits(transaction);
+            for (int i = 0; i < rules.length; i++) {
+                weights[i] += rules[i].weight(minorUnits);
+            }
+        }
+    }
+
+    /**
+     * Counters for one rule, exported by {@code MetricsCollector}.
+     */
+    public static final class RuleStats {
+
+        private final String ruleName;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder sampledNanos = new LongAdder();
+        private final LongAdder samples = new LongAdder();
+
+        RuleStats(String ruleName) {
+            this.ruleName = ruleName;
+        }
+
+        public String ruleName() {
+            return ruleName;
+        }
+
+        public long evaluations() {
+            return evaluations.sum();
+        }
+
+        public long rejections() {
+            return rejections.sum();
+        }
+
+        /**
+         * Mean cost of one evaluation of this rule, from sampled calls.
+         */
+        public double meanEvaluationNanos() {
+            long count = samples.sum();
+            return count == 0 ? 0 : (double) sampledNanos.sum() / count;
+        }
+    }
+}
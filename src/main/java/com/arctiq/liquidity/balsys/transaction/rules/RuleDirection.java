@@ -0,0 +1,18 @@
+package com.arctiq.liquidity.balsys.transaction.rules;
+
+/**
+ * Which side of the ledger a rule watches.
+ */
+public enum RuleDirection {
+    DEBIT,
+    CREDIT,
+    ANY;
+
+    boolean matches(long signedMinorUnits) {
+        return switch (this) {
+            case DEBIT -> signedMinorUnits < 0;
+            case CREDIT -> signedMinorUnits > 0;
+            case ANY -> true;
+        };
+    }
+}
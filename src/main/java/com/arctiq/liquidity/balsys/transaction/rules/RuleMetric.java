@@ -0,0 +1,11 @@
+package com.arctiq.liquidity.balsys.transaction.rules;
+
+/**
+ * What a velocity rule accumulates over its window.
+ */
+public enum RuleMetric {
+    /** Number of transactions. */
+    COUNT,
+    /** Sum of absolute amounts, in currency units. */
+    VOLUME
+}
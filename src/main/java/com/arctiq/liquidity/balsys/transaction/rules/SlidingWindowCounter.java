@@ -0,0 +1,69 @@
+package com.arctiq.liquidity.balsys.transaction.rules;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling sum over a fixed window, held in a ring of time buckets.
+ * <p>
+ * Memory is two {@code long}s per bucket however many events arrive. Each
+ * bucket is stamped with the epoch (bucket-sized time slot) it currently
+ * counts; the first writer of a new epoch claims the stamp by CAS and
+ * subtracts what the stale epoch left behind, so concurrent adds are never
+ * lost. The window therefore slides in steps of one bucket, and a write that
+ * straddles a rollover may be counted in the newer bucket, which only errs
+ * towards stricter limits.
+ */
+final class SlidingWindowCounter {
+
+    private final int buckets;
+    private final long bucketNanos;
+    private final AtomicLongArray values;
+    private final AtomicLongArray epochs;
+
+    SlidingWindowCounter(Duration window, int buckets) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException("Window needs at least one bucket");
+        }
+        if (window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.buckets = buckets;
+        this.bucketNanos = Math.max(1, window.toNanos() / buckets);
+        this.values = new AtomicLongArray(buckets);
+        this.epochs = new AtomicLongArray(buckets);
+        for (int i = 0; i < buckets; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    long sum(long nowNanos) {
+        long current = Math.floorDiv(nowNanos, bucketNanos);
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            long epoch = epochs.get(i);
+            if (epoch != Long.MIN_VALUE && epoch <= current && current - epoch < buckets) {
+                total += values.get(i);
+            }
+        }
+        return total;
+    }
+
+    void add(long nowNanos, long amount) {
+        long epoch = Math.floorDiv(nowNanos, bucketNanos);
+        int slot = (int) Math.floorMod(epoch, (long) buckets);
+        while (true) {
+            long seen = epochs.get(slot);
+            if (seen >= epoch) {
+                // current epoch, or a clock that stepped back: count it where it lands
+                values.addAndGet(slot, amount);
+                return;
+            }
+            long stale = values.get(slot);
+            if (epochs.compareAndSet(slot, seen, epoch)) {
+                values.addAndGet(slot, amount - stale);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.arctiq.liquidity.balsys.transaction.rules;
+
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * A check applied to every transaction after the static amount bounds.
+ * <p>
+ * Evaluation is split in two so a chain can ask every rule first and only
+ * then let them record the transaction; a rule never counts a transaction
+ * that a later rule rejected.
+ */
+public interface TransactionRule {
+
+    String name();
+
+    /**
+     * @param signedMinorUnits the amount in minor units, negative for debits
+     * @param nowNanos         monotonic time of evaluation
+     * @return whether the transaction may proceed
+     */
+    boolean permits(Transaction transaction, long signedMinorUnits, long nowNanos);
+
+    /**
+     * As {@link #permits(Transaction, long, long)}, counting {@code pending}
+     * on top of the window: weight the caller has admitted but not recorded
+     * yet, such as the earlier items of a block still to be journaled.
+     */
+    default boolean permits(Transaction transaction, long signedMinorUnits, long nowNanos, long pending) {
+        return permits(transaction, signedMinorUnits, nowNanos);
+    }
+
+    /**
+     * What recording a transaction of this amount would add to the rule's
+     * window, {@code 0} if the rule does not count it.
+     */
+    default long weight(long signedMinorUnits) {
+        return 0;
+    }
+
+    /**
+     * Records an admitted transaction. Called only after every rule in the
+     * chain permitted it.
+     */
+    default void record(Transaction transaction, long signedMinorUnits, long nowNanos) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.arctiq.liquidity.balsys.transaction.rules;
+
+import java.time.Duration;
+
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Caps the count or absolute volume of matching transactions over a rolling
+ * window, e.g. "at most 2m of debits per 60s" or "at most 500 credits per
+ * second".
+ */
+public final class VelocityRule implements TransactionRule {
+
+    private final String name;
+    private final RuleMetric metric;
+    private final RuleDirection direction;
+    private final long limit;
+    private final SlidingWindowCounter window;
+
+    /**
+     * @param limit   maximum count, or maximum volume in minor units
+     * @param buckets resolution of the window; it slides one bucket at a time
+     */
+    public VelocityRule(String name, RuleMetric metric, RuleDirection direction, long limit, Duration window,
+            int buckets) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Rule name must not be blank");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Rule limit must not be negative: " + name);
+        }
+        this.name = name;
+        this.metric = metric;
+        this.direction = direction;
+        this.limit = limit;
+        this.window = new SlidingWindowCounter(window, buckets);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public boolean permits(Transaction transaction, long signedMinorUnits, long nowNanos) {
+        return permits(transaction, signedMinorUnits, nowNanos, 0);
+    }
+
+    @Override
+    public boolean permits(Transaction transaction, long signedMinorUnits, long nowNanos, long pending) {
+        if (!direction.matches(signedMinorUnits)) {
+            return true;
+        }
+        long weight = weight(signedMinorUnits);
+        return weight <= limit - pending && window.sum(nowNanos) <= limit - pending - weight;
+    }
+
+    @Override
+    public void record(Transaction transaction, long signedMinorUnits, long nowNanos) {
+        if (direction.matches(signedMinorUnits)) {
+            window.add(nowNanos, weight(signedMinorUnits));
+        }
+    }
+
+    @Override
+    public long weight(long signedMinorUnits) {
+        if (!direction.matches(signedMinorUnits)) {
+            return 0;
+        }
+        return metric == RuleMetric.COUNT ? 1 : Math.abs(signedMinorUnits);
+    }
+
+    long windowTotal(long nowNanos) {
+        return window.sum(nowNanos);
+    }
+}
@@ -0,0 +1,115 @@
+package com.arctiq.liquidity.balsys.transaction.transport.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Schema constants and message header for the binary codecs.
+ * <p>
+ * Every top-level message starts with an 8-byte little-endian header:
+ *
+ * <pre>
+ * 0  u16 blockLength   length of the fixed block that follows
+ * 2  u16 templateId    message type
+ * 4  u16 schemaId      always {@value #SCHEMA_ID}
+ * 6  u16 version       schema version the encoder was built against
+ * </pre>
+ *
+ * Versions evolve by appending fields to the end of a fixed block and never
+ * moving existing ones. Decoders locate variable-length data through the
+ * block length they are given rather than their own, so an older decoder
+ * skips fields it does not know and a newer one reads an older message by
+ * checking the acting version before touching a later field.
+ */
+public final class CodecSchema {
+
+    public static final int SCHEMA_ID = 0x4253;
+    public static final int SCHEMA_VERSION = 1;
+    public static final int HEADER_LENGTH = 8;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int TRANSACTION_TEMPLATE_ID = 1;
+    public static final int AUDIT_BATCH_TEMPLATE_ID = 2;
+
+    private static final int BLOCK_LENGTH_OFFSET = 0;
+    private static final int TEMPLATE_ID_OFFSET = 2;
+    private static final int SCHEMA_ID_OFFSET = 4;
+    private static final int VERSION_OFFSET = 6;
+
+    private CodecSchema() {
+    }
+
+    /**
+     * Remembers the little-endian view of the last buffer a flyweight was
+     * wrapped around, so wrapping the same big-endian buffer message after
+     * message duplicates it only once.
+     */
+    static final class LittleEndianView {
+
+        private ByteBuffer source;
+        private ByteBuffer view;
+
+        ByteBuffer of(ByteBuffer buffer) {
+            if (buffer != source || view.order() != BYTE_ORDER) {
+                view = littleEndian(buffer);
+                source = buffer;
+            }
+            return view;
+        }
+    }
+
+    /**
+     * @return {@code buffer} itself if it is already little-endian, otherwise
+     *         a little-endian view sharing its content
+     */
+    public static ByteBuffer littleEndian(ByteBuffer buffer) {
+        return buffer.order() == BYTE_ORDER ? buffer : buffer.duplicate().order(BYTE_ORDER);
+    }
+
+    public static void writeHeader(ByteBuffer buffer, int offset, int blockLength, int templateId) {
+        buffer.putShort(offset + BLOCK_LENGTH_OFFSET, (short) blockLength);
+        buffer.putShort(offset + TEMPLATE_ID_OFFSET, (short) templateId);
+        buffer.putShort(offset + SCHEMA_ID_OFFSET, (short) SCHEMA_ID);
+        buffer.putShort(offset + VERSION_OFFSET, (short) SCHEMA_VERSION);
+    }
+
+    public static int blockLength(ByteBuffer buffer, int offset) {
+        return Short.toUnsignedInt(buffer.getShort(offset + BLOCK_LENGTH_OFFSET));
+    }
+
+    public static int templateId(ByteBuffer buffer, int offset) {
+        return Short.toUnsignedInt(buffer.getShort(offset + TEMPLATE_ID_OFFSET));
+    }
+
+    public static int schemaId(ByteBuffer buffer, int offset) {
+        return Short.toUnsignedInt(buffer.getShort(offset + SCHEMA_ID_OFFSET));
+    }
+
+    public static int version(ByteBuffer buffer, int offset) {
+        return Short.toUnsignedInt(buffer.getShort(offset + VERSION_OFFSET));
+    }
+
+    /**
+     * Verifies the header at {@code offset} describes a message of the given
+     * template that a decoder with a fixed block of {@code minBlockLength}
+     * bytes can read.
+     */
+    public static void checkHeader(ByteBuffer buffer, int offset, int templateId, int minBlockLength) {
+        int schema = schemaId(buffer, offset);
+        if (schema != SCHEMA_ID) {
+            throw new IllegalStateException("Unknown schema ID: " + schema);
+        }
+        int template = templateId(buffer, offset);
+        if (template != templateId) {
+            throw new IllegalStateException("Expected template " + templateId + " but found " + template);
+        }
+        int version = version(buffer, offset);
+        if (version < 1) {
+            throw new IllegalStateException("Unknown schema version: " + version);
+        }
+        if (blockLength(buffer, offset) < minBlockLength) {
+            throw new IllegalStateException("Block of " + blockLength(buffer, offset)
+                    + " bytes is shorter than the " + minBlockLength + " bytes of version 1");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.arctiq.liquidity.balsys.transaction.transport.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+/**
+ * Flyweight over an encoded transaction; see {@link TransactionEncoder} for
+ * the layout. Primitive accessors read straight from the buffer. The last
+ * non-default account ID is cached, so a run of transactions for the same
+ * account decodes it once.
+ */
+public final class TransactionDecoder {
+
+    private final CodecSchema.LittleEndianView ordered = new CodecSchema.LittleEndianView();
+    private ByteBuffer buffer;
+    private int start;
+    private int offset;
+    private int actingBlockLength;
+    private int actingVersion;
+    private AccountId cachedAccount;
+    private byte[] cachedAccountBytes = new byte[0];
+
+    /**
+     * Wraps a message that starts with a header, validating it.
+     */
+    public TransactionDecoder wrapWithHeader(ByteBuffer buffer, int offset) {
+        ByteBuffer little = ordered.of(buffer);
+        CodecSchema.checkHeader(little, offset, CodecSchema.TRANSACTION_TEMPLATE_ID, TransactionEncoder.BLOCK_LENGTH);
+        wrapBlock(little, offset, offset + CodecSchema.HEADER_LENGTH, CodecSchema.blockLength(little, offset),
+                CodecSchema.version(little, offset));
+        return this;
+    }
+
+    /**
+     * Wraps a headerless block whose length and version come from an
+     * enclosing message.
+     */
+    public TransactionDecoder wrap(ByteBuffer buffer, int offset, int actingBlockLength, int actingVersion) {
+        wrapBlock(ordered.of(buffer), offset, offset, actingBlockLength, actingVersion);
+        return this;
+    }
+
+    private void wrapBlock(ByteBuffer little, int start, int blockOffset, int blockLength, int version) {
+        this.buffer = little;
+        this.start = start;
+        this.offset = blockOffset;
+        this.actingBlockLength = blockLength;
+        this.actingVersion = version;
+    }
+
+    public int actingVersion() {
+        return actingVersion;
+    }
+
+    public long id() {
+        return buffer.getLong(offset + TransactionEncoder.ID_OFFSET);
+    }
+
+    public long epochNanos() {
+        return buffer.getLong(offset + TransactionEncoder.EPOCH_NANOS_OFFSET);
+    }
+
+    /**
+     * @return the amount in minor units, or {@link Money#NOT_REPRESENTABLE}
+     *         if only {@link #amount()} can express it
+     */
+    public long minorUnits() {
+        return buffer.getLong(offset + TransactionEncoder.MINOR_UNITS_OFFSET);
+    }
+
+    public BigDecimal amount() {
+        long minorUnits = minorUnits();
+        if (minorUnits != Money.NOT_REPRESENTABLE) {
+            return BigDecimal.valueOf(minorUnits, Money.MINOR_UNIT_SCALE);
+        }
+        byte[] unscaled = new byte[exactLength()];
+        buffer.get(varStart() + accountLength(), unscaled);
+        return new BigDecimal(new BigInteger(unscaled), buffer.getInt(offset + TransactionEncoder.EXACT_SCALE_OFFSET));
+    }
+
+    public AccountId accountId() {
+        int length = accountLength();
+        if (length == 0) {
+            return AccountId.DEFAULT;
+        }
+        int from = varStart();
+        if (cachedAccount != null && cachedAccountBytes.length == length && sameBytes(from, cachedAccountBytes)) {
+            return cachedAccount;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(from, bytes);
+        cachedAccount = new AccountId(new String(bytes, StandardCharsets.UTF_8));
+        cachedAccountBytes = bytes;
+        return cachedAccount;
+    }
+
+    public Transaction toTransaction() {
+        long nanos = epochNanos();
+        Instant timestamp = Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                Math.floorMod(nanos, 1_000_000_000L));
+        return new Transaction(new TransactionId(id()), new Money(amount()), timestamp, accountId());
+    }
+
+    /**
+     * Bytes occupied from the wrapped offset, header included.
+     */
+    public int encodedLength() {
+        return varStart() + accountLength() + exactLength() - start;
+    }
+
+    private int varStart() {
+        return offset + actingBlockLength;
+    }
+
+    private int accountLength() {
+        return Short.toUnsignedInt(buffer.getShort(offset + TransactionEncoder.ACCOUNT_LENGTH_OFFSET));
+    }
+
+    private int exactLength() {
+        return Short.toUnsignedInt(buffer.getShort(offset + TransactionEncoder.EXACT_LENGTH_OFFSET));
+    }
+
+    private boolean sameBytes(int from, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(from + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
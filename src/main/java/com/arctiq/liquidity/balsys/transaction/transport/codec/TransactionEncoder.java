@@ -0,0 +1,173 @@
+package com.arctiq.liquidity.balsys.transaction.transport.codec;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+/**
+ * Flyweight that writes one transaction in place, with no intermediate
+ * objects for the common case of the default account and a whole number of
+ * minor units, once the buffer it writes to has been wrapped before.
+ * <p>
+ * Fixed block, version 1 ({@value #BLOCK_LENGTH} bytes, little-endian):
+ *
+ * <pre>
+ * 0  i64 id
+ * 8  i64 epochNanos
+ * 16 i64 minorUnits     Money.NOT_REPRESENTABLE when the exact amount follows
+ * 24 i32 exactScale
+ * 28 u16 accountLength  0 for AccountId.DEFAULT
+ * 30 u16 exactLength    0 unless minorUnits is NOT_REPRESENTABLE
+ * </pre>
+ *
+ * followed by the UTF-8 account ID and then the two's-complement unscaled
+ * value of an exact amount. Set {@link #accountId(AccountId)} before
+ * {@link #amount(BigDecimal)}, as variable-length fields are written in
+ * order.
+ */
+public final class TransactionEncoder {
+
+    public static final int BLOCK_LENGTH = 32;
+
+    static final int ID_OFFSET = 0;
+    static final int EPOCH_NANOS_OFFSET = 8;
+    static final int MINOR_UNITS_OFFSET = 16;
+    static final int EXACT_SCALE_OFFSET = 24;
+    static final int ACCOUNT_LENGTH_OFFSET = 28;
+    static final int EXACT_LENGTH_OFFSET = 30;
+
+    private final CodecSchema.LittleEndianView ordered = new CodecSchema.LittleEndianView();
+    private ByteBuffer buffer;
+    private int start;
+    private int offset;
+    private int limit;
+    private AccountId cachedAccount;
+    private byte[] cachedAccountBytes;
+
+    /**
+     * Writes a message header at {@code offset} and wraps the block after it.
+     */
+    public TransactionEncoder wrapAndApplyHeader(ByteBuffer buffer, int offset) {
+        ByteBuffer target = ordered.of(buffer);
+        CodecSchema.writeHeader(target, offset, BLOCK_LENGTH, CodecSchema.TRANSACTION_TEMPLATE_ID);
+        wrapBlock(target, offset, offset + CodecSchema.HEADER_LENGTH);
+        return this;
+    }
+
+    /**
+     * Wraps a headerless block, as used for entries of a repeating group.
+     */
+    public TransactionEncoder wrap(ByteBuffer buffer, int offset) {
+        wrapBlock(ordered.of(buffer), offset, offset);
+        return this;
+    }
+
+    private void wrapBlock(ByteBuffer target, int start, int blockOffset) {
+        this.buffer = target;
+        this.start = start;
+        this.offset = blockOffset;
+        this.limit = blockOffset + BLOCK_LENGTH;
+        target.putInt(blockOffset + EXACT_SCALE_OFFSET, 0);
+        target.putShort(blockOffset + ACCOUNT_LENGTH_OFFSET, (short) 0);
+        target.putShort(blockOffset + EXACT_LENGTH_OFFSET, (short) 0);
+    }
+
+    public TransactionEncoder id(long id) {
+        buffer.putLong(offset + ID_OFFSET, id);
+        return this;
+    }
+
+    public TransactionEncoder epochNanos(long epochNanos) {
+        buffer.putLong(offset + EPOCH_NANOS_OFFSET, epochNanos);
+        return this;
+    }
+
+    public TransactionEncoder minorUnits(long minorUnits) {
+        if (minorUnits == Money.NOT_REPRESENTABLE) {
+            throw new IllegalArgumentException("Amount is not representable in minor units");
+        }
+        buffer.putLong(offset + MINOR_UNITS_OFFSET, minorUnits);
+        return this;
+    }
+
+    public TransactionEncoder accountId(AccountId accountId) {
+        if (limit != offset + BLOCK_LENGTH) {
+            throw new IllegalStateException("Account ID must be written before the exact amount");
+        }
+        if (accountId == null || AccountId.DEFAULT.equals(accountId)) {
+            return this;
+        }
+        byte[] bytes = accountBytes(accountId);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Account ID too long to encode: " + bytes.length + " bytes");
+        }
+        buffer.putShort(offset + ACCOUNT_LENGTH_OFFSET, (short) bytes.length);
+        buffer.put(limit, bytes);
+        limit += bytes.length;
+        return this;
+    }
+
+    /**
+     * Writes an amount, falling back to the exact representation when it is
+     * not a whole number of minor units.
+     */
+    public TransactionEncoder amount(BigDecimal amount) {
+        long minorUnits = Money.toMinorUnits(amount);
+        if (minorUnits != Money.NOT_REPRESENTABLE) {
+            return minorUnits(minorUnits);
+        }
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        if (unscaled.length > 0xFFFF) {
+            throw new IllegalArgumentException("Amount too large to encode");
+        }
+        buffer.putLong(offset + MINOR_UNITS_OFFSET, Money.NOT_REPRESENTABLE);
+        buffer.putInt(offset + EXACT_SCALE_OFFSET, amount.scale());
+        buffer.putShort(offset + EXACT_LENGTH_OFFSET, (short) unscaled.length);
+        buffer.put(limit, unscaled);
+        limit += unscaled.length;
+        return this;
+    }
+
+    public TransactionEncoder encode(Transaction transaction) {
+        Instant timestamp = transaction.timestamp();
+        return id(transaction.id().value())
+                .epochNanos(timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano())
+                .accountId(transaction.accountId())
+                .amount(transaction.amount().amount());
+    }
+
+    /**
+     * Bytes written since the wrapped offset, header included.
+     */
+    public int encodedLength() {
+        return limit - start;
+    }
+
+    /**
+     * Exact number of bytes a headerless block for {@code transaction} takes.
+     */
+    public static int blockSize(Transaction transaction) {
+        int size = BLOCK_LENGTH;
+        if (!AccountId.DEFAULT.equals(transaction.accountId())) {
+            size += transaction.accountId().value().getBytes(StandardCharsets.UTF_8).length;
+        }
+        BigDecimal amount = transaction.amount().amount();
+        if (Money.toMinorUnits(amount) == Money.NOT_REPRESENTABLE) {
+            size += amount.unscaledValue().toByteArray().length;
+        }
+        return size;
+    }
+
+    private byte[] accountBytes(AccountId accountId) {
+        if (accountId != cachedAccount) {
+            cachedAccountBytes = accountId.value().getBytes(StandardCharsets.UTF_8);
+            cachedAccount = accountId;
+        }
+        return cachedAccountBytes;
+    }
+}
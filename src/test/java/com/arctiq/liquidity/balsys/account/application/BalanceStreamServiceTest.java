@@ -0,0 +1,75 @@
+package com.arctiq.liquidity.balsys.account.application;
+
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.LinkedTransferQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceStreamServiceTest {
+
+    private BankAccountService accounts;
+    private MetricsCollector metrics;
+    private double initial;
+
+    @BeforeEach
+    void setup() {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        metrics = new MetricsCollector(new SimpleMeterRegistry());
+        accounts = new BankAccountServiceImpl(new LinkedTransferQueue<>(), config, metrics);
+        initial = accounts.retrieveBalance();
+    }
+
+    @Test
+    @DisplayName("Conflates a burst of transactions into a single update per tick")
+    void shouldConflateBurstsPerTick() {
+        StepVerifier.withVirtualTime(() -> new BalanceStreamService(accounts, Duration.ofMillis(100), metrics)
+                .stream(null))
+                .expectSubscription()
+                .thenAwait(Duration.ZERO)
+                .assertNext(update -> assertEquals(initial, update.balance()))
+                .then(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        accounts.processTransaction(AuditTestFixtures.fixedTransaction(1_000.0));
+                    }
+                })
+                .thenAwait(Duration.ofMillis(100))
+                .assertNext(update -> assertEquals(initial + 50_000.0, update.balance()))
+                .expectNoEvent(Duration.ofMillis(500))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Honours a slower per-subscriber interval with the latest balance")
+    void shouldSampleAtRequestedInterval() {
+        StepVerifier.withVirtualTime(() -> new BalanceStreamService(accounts, Duration.ofMillis(100), metrics)
+                .stream(Duration.ofSeconds(1)))
+                .expectSubscription()
+                .then(() -> accounts.processTransaction(AuditTestFixtures.fixedTransaction(1_000.0)))
+                .thenAwait(Duration.ofMillis(500))
+                .then(() -> accounts.processTransaction(AuditTestFixtures.fixedTransaction(1_000.0)))
+                .thenAwait(Duration.ofMillis(500))
+                .assertNext(update -> assertEquals(initial + 2_000.0, update.balance()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Rejects a non-positive stream interval")
+    void shouldRejectNonPositiveInterval() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new BalanceStreamService(accounts, Duration.ZERO, metrics));
+    }
+}
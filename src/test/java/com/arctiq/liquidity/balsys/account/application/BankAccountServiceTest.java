@@ -1,23 +1,50 @@
 package com.arctiq.liquidity.balsys.account.application;
 
+import com.arctiq.liquidity.balsys.account.journal.DurabilityMode;
+import com.arctiq.liquidity.balsys.account.journal.JournalSnapshot;
+import com.arctiq.liquidity.balsys.account.journal.MappedTransactionJournal;
+import com.arctiq.liquidity.balsys.account.journal.TransactionJournal;
 import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.config.VelocityRuleProperties;
 import com.arctiq.liquidity.balsys.exception.TransactionValidationException;
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.shared.queue.OverflowPolicy;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
 import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
 import com.arctiq.liquidity.balsys.transaction.core.Transaction;
 import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+import com.arctiq.liquidity.balsys.transaction.core.ValidationResult;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionAccepted;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionBatchResult;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionDuplicate;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionInvalid;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionOutcome;
+import com.arctiq.liquidity.balsys.transaction.core.outcome.TransactionRejected;
+import com.arctiq.liquidity.balsys.transaction.rules.RuleDirection;
+import com.arctiq.liquidity.balsys.transaction.rules.RuleMetric;
 
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -110,4 +137,320 @@ class BankAccountServiceTest {
 
         assertTrue(thrown.getMessage().contains("out of range"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Processes a block, applying only the valid items")
+    void shouldProcessBlockWithPerItemOutcomes() {
+        List<Transaction> block = Arrays.asList(
+                AuditTestFixtures.fixedTransaction(300_000.0),
+                new Transaction(TransactionId.generate(), Money.of(199.0)),
+                null,
+                AuditTestFixtures.fixedTransaction(-200_000.0),
+                new Transaction(TransactionId.generate(), new Money(new java.math.BigDecimal("250.0005"))));
+
+        TransactionBatchResult result = service.processTransactions(block);
+
+        assertEquals(5, result.size());
+        assertEquals(3, result.acceptedCount());
+        assertTrue(result.isAccepted(0));
+        assertFalse(result.isAccepted(1));
+        assertTrue(result.rejectionReason(1).orElseThrow().contains("out of range"));
+        assertEquals("Transaction must not be null", result.rejectionReason(2).orElseThrow());
+        assertTrue(result.rejectionReason(3).isEmpty());
+        assertEquals(100_250.0005, service.retrieveBalance());
+        assertEquals(3, queue.size());
+        assertEquals(3, metrics.getAcceptedTxCount());
+    }
+
+    @Test
+    @DisplayName("Block processing matches per-transaction processing")
+    void shouldMatchSingleProcessingForBlocks() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            transactions.add(i % 2 == 0 ? AuditTestFixtures.randomCredit(config) : AuditTestFixtures.randomDebit(config));
+        }
+        BankAccountService single = new BankAccountServiceImpl(new LinkedTransferQueue<>(), config,
+                new MetricsCollector(new SimpleMeterRegistry()));
+        transactions.forEach(single::processTransaction);
+
+        for (int from = 0; from < transactions.size(); from += 64) {
+            service.processTransactions(transactions.subList(from, Math.min(transactions.size(), from + 64)));
+        }
+
+        assertEquals(single.retrieveBalance(), service.retrieveBalance());
+        assertEquals(1_000, queue.size());
+    }
+
+    @Test
+    @DisplayName("Restores balance and history from the journal after a restart")
+    void shouldRecoverStateFromJournal(@TempDir Path journalDir) {
+        try (MappedTransactionJournal journal = new MappedTransactionJournal(journalDir, 1 << 20,
+                DurabilityMode.GROUP_COMMIT, Duration.ofMillis(1), Duration.ZERO, 1_000)) {
+            BankAccountServiceImpl first = new BankAccountServiceImpl(queue, config, metrics, journal);
+            first.processTransaction(AuditTestFixtures.fixedTransaction(300_000.0));
+            first.processTransaction(AuditTestFixtures.fixedTransaction(-200_000.0));
+            first.shutdown();
+        }
+
+        try (MappedTransactionJournal journal = new MappedTransactionJournal(journalDir, 1 << 20,
+                DurabilityMode.GROUP_COMMIT, Duration.ofMillis(1), Duration.ZERO, 1_000)) {
+            BankAccountServiceImpl restarted = new BankAccountServiceImpl(new LinkedTransferQueue<>(), config,
+                    new MetricsCollector(new SimpleMeterRegistry()), journal);
+
+            assertEquals(100_000.0, restarted.retrieveBalance());
+            assertEquals(2, restarted.getTransactionHistory(Instant.EPOCH, Instant.now().plusSeconds(60)).size());
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Keeps each account's balance with its one owner, across a restart")
+    void shouldApplyEachAccountOnce(@TempDir Path journalDir) {
+        AccountId alice = new AccountId("alice");
+        try (MappedTransactionJournal journal = new MappedTransactionJournal(journalDir, 1 << 20,
+                DurabilityMode.GROUP_COMMIT, Duration.ofMillis(1), Duration.ZERO, 1_000)) {
+            BankAccountServiceImpl first = new BankAccountServiceImpl(queue, config, metrics, journal);
+            first.processTransaction(AuditTestFixtures.fixedTransaction(300_000.0));
+            first.processTransaction(new Transaction(TransactionId.generate(), Money.of(50_000.0), Instant.now(), alice));
+            first.processTransactions(List.of(
+                    AuditTestFixtures.fixedTransaction(-100_000.0),
+                    new Transaction(TransactionId.generate(), Money.of(25_000.0), Instant.now(), alice)));
+
+            assertEquals(Optional.of(200_000.0), first.retrieveBalance(AccountId.DEFAULT));
+            assertTrue(first.awaitLedgerQuiescence(2, TimeUnit.SECONDS));
+            assertEquals(Optional.of(75_000.0), first.retrieveBalance(alice));
+            assertEquals(275_000.0, first.retrieveBalance());
+            first.shutdown();
+        }
+
+        try (MappedTransactionJournal journal = new MappedTransactionJournal(journalDir, 1 << 20,
+                DurabilityMode.GROUP_COMMIT, Duration.ofMillis(1), Duration.ZERO, 1_000)) {
+            BankAccountServiceImpl restarted = new BankAccountServiceImpl(new LinkedTransferQueue<>(), config,
+                    new MetricsCollector(new SimpleMeterRegistry()), journal);
+
+            assertEquals(Optional.of(200_000.0), restarted.retrieveBalance(AccountId.DEFAULT));
+            assertEquals(Optional.of(75_000.0), restarted.retrieveBalance(alice));
+            assertEquals(275_000.0, restarted.retrieveBalance());
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Ignores resubmitted transaction IDs and counts them as duplicates")
+    void shouldSuppressDuplicateTransactions() {
+        Transaction tx = AuditTestFixtures.fixedTransaction(300_000.0);
+        assertTrue(service.processTransaction(tx));
+        assertFalse(service.processTransaction(tx));
+
+        TransactionBatchResult result = service.processTransactions(
+                List.of(tx, AuditTestFixtures.fixedTransaction(200_000.0)));
+
+        assertEquals(500_000.0, service.retrieveBalance());
+        assertEquals(2, queue.size());
+        assertFalse(result.isAccepted(0));
+        assertEquals("Duplicate transaction ID", result.rejectionReason(0).orElseThrow());
+        assertTrue(result.isAccepted(1));
+        assertEquals(2, metrics.getDuplicateTxCount());
+        assertEquals(2, metrics.getAcceptedTxCount());
+    }
+
+    @Test
+    @DisplayName("A transaction whose journal write fails is neither remembered as a duplicate nor charged to velocity rules")
+    void shouldAllowRetryAfterJournalFailure() {
+        VelocityRuleProperties rule = new VelocityRuleProperties();
+        rule.setName("count-60s");
+        rule.setMetric(RuleMetric.COUNT);
+        rule.setLimit(3);
+        config.setRules(List.of(rule));
+        AtomicBoolean failing = new AtomicBoolean(true);
+        TransactionJournal flaky = new TransactionJournal() {
+            @Override
+            public long append(Transaction transaction) {
+                if (failing.get()) {
+                    throw new IllegalStateException("disk full");
+                }
+                return 1;
+            }
+
+            @Override
+            public Optional<JournalSnapshot> recover() {
+                return Optional.empty();
+            }
+
+            @Override
+            public long lastSequence() {
+                return 0;
+            }
+
+            @Override
+            public long durableSequence() {
+                return 0;
+            }
+
+            @Override
+            public long syncCount() {
+                return 0;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        BankAccountService journaled = new BankAccountServiceImpl(queue, config, metrics, flaky);
+        Transaction single = AuditTestFixtures.fixedTransaction(1_000.0);
+        Transaction blocked = AuditTestFixtures.fixedTransaction(2_000.0);
+        Transaction extra = AuditTestFixtures.fixedTransaction(500.0);
+        Transaction surplus = AuditTestFixtures.fixedTransaction(700.0);
+
+        assertThrows(IllegalStateException.class, () -> journaled.submit(single));
+        assertThrows(IllegalStateException.class, () -> journaled.processTransactions(List.of(blocked, extra)));
+        failing.set(false);
+
+        assertInstanceOf(TransactionAccepted.class, journaled.submit(single));
+        // the failed attempts left the window empty; within the block the third item meets the limit
+        TransactionBatchResult result = journaled.processTransactions(List.of(blocked, extra, surplus));
+        assertEquals(2, result.acceptedCount());
+        assertEquals(Optional.of(ValidationResult.RULE_VIOLATION.reason()), result.rejectionReason(2));
+        assertEquals(3_500.0, journaled.retrieveBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Answers point-in-time balance queries from history")
+    void shouldRetrieveBalanceAtInstant() {
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+        double opening = service.retrieveBalance();
+        service.processTransaction(new Transaction(TransactionId.generate(), Money.of(300_000.0), base.plusSeconds(1)));
+        service.processTransaction(new Transaction(TransactionId.generate(), Money.of(-200_000.0), base.plusSeconds(3)));
+
+        assertEquals(opening, service.retrieveBalanceAt(base));
+        assertEquals(opening + 300_000.0, service.retrieveBalanceAt(base.plusSeconds(2)));
+        assertEquals(opening + 100_000.0, service.retrieveBalanceAt(base.plusSeconds(3)));
+    }
+
+    @Test
+    @DisplayName("Submit reports rejections as outcomes without throwing")
+    void shouldReportOutcomesWithoutThrowing() {
+        Transaction valid = AuditTestFixtures.fixedTransaction(300_000.0);
+
+        assertInstanceOf(TransactionAccepted.class, service.submit(valid));
+        assertInstanceOf(TransactionDuplicate.class, service.submit(valid));
+        TransactionOutcome invalid = service.submit(new Transaction(TransactionId.generate(), Money.of(199.0)));
+        assertInstanceOf(TransactionInvalid.class, invalid);
+        assertEquals(ValidationResult.OUT_OF_RANGE.reason(), ((TransactionInvalid) invalid).reason());
+        assertInstanceOf(TransactionInvalid.class, service.submit(null));
+
+        assertEquals(1, queue.size());
+        assertEquals(2, metrics.getInvalidTxCount());
+    }
+
+    @Test
+    @DisplayName("Applies configured velocity rules after the static bounds")
+    void shouldRejectTransactionsBreachingVelocityRules() {
+        VelocityRuleProperties rule = new VelocityRuleProperties();
+        rule.setName("debit-volume-60s");
+        rule.setMetric(RuleMetric.VOLUME);
+        rule.setDirection(RuleDirection.DEBIT);
+        rule.setLimit(250_000.0);
+        config.setRules(List.of(rule));
+        BankAccountService limited = new BankAccountServiceImpl(queue, config, metrics);
+
+        assertInstanceOf(TransactionAccepted.class, limited.submit(AuditTestFixtures.fixedTransaction(-200_000.0)));
+        TransactionOutcome rejected = limited.submit(AuditTestFixtures.fixedTransaction(-100_000.0));
+        assertEquals(ValidationResult.RULE_VIOLATION.reason(), ((TransactionInvalid) rejected).reason());
+        assertInstanceOf(TransactionAccepted.class, limited.submit(AuditTestFixtures.fixedTransaction(300_000.0)));
+        assertThrows(TransactionValidationException.class,
+                () -> limited.processTransaction(AuditTestFixtures.fixedTransaction(-60_000.0)));
+    }
+
+    @Test
+    @DisplayName("Duplicates and transactions turned away by a full audit queue do not count towards velocity limits")
+    void shouldOnlyChargeVelocityRulesForTakenTransactions() {
+        VelocityRuleProperties rule = new VelocityRuleProperties();
+        rule.setName("count-60s");
+        rule.setMetric(RuleMetric.COUNT);
+        rule.setLimit(2);
+        config.setRules(List.of(rule));
+        config.setQueueOverflowPolicy(OverflowPolicy.REJECT);
+        MpscRingBuffer<Transaction> ring = new MpscRingBuffer<>(2);
+        BankAccountService limited = new BankAccountServiceImpl(ring, config, metrics);
+
+        Transaction first = AuditTestFixtures.fixedTransaction(300_000.0);
+        assertInstanceOf(TransactionAccepted.class, limited.submit(first));
+        assertInstanceOf(TransactionDuplicate.class, limited.submit(first));
+        assertEquals(0, limited.processTransactions(List.of(first)).acceptedCount());
+        ring.offer(AuditTestFixtures.fixedTransaction(1_000.0));
+        assertInstanceOf(TransactionRejected.class, limited.submit(AuditTestFixtures.fixedTransaction(300_000.0)));
+        ring.poll();
+
+        // the window still holds one transaction, so one more fits
+        assertInstanceOf(TransactionAccepted.class, limited.submit(AuditTestFixtures.fixedTransaction(300_000.0)));
+        TransactionOutcome over = limited.submit(AuditTestFixtures.fixedTransaction(300_000.0));
+        assertEquals(ValidationResult.RULE_VIOLATION.reason(), ((TransactionInvalid) over).reason());
+    }
+
+    @Test
+    @DisplayName("Drop-newest applies the transaction but counts it as dropped from the audit queue")
+    void shouldDropNewestWhenAuditQueueIsFull() {
+        config.setQueueOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        MpscRingBuffer<Transaction> ring = new MpscRingBuffer<>(2);
+        BankAccountService bounded = new BankAccountServiceImpl(ring, config, metrics);
+
+        for (int i = 0; i < 3; i++) {
+            assertInstanceOf(TransactionAccepted.class, bounded.submit(AuditTestFixtures.fixedTransaction(300_000.0)));
+        }
+
+        assertEquals(2, ring.size());
+        assertEquals(2, metrics.getCurrentQueueSize());
+        assertEquals(1.0, metrics.getDroppedTxCount());
+        assertEquals(900_000.0, bounded.retrieveBalance());
+    }
+
+    @Test
+    @DisplayName("Reject turns transactions away untouched, so a retry after draining is accepted")
+    void shouldRejectWhenAuditQueueIsFull() {
+        config.setQueueOverflowPolicy(OverflowPolicy.REJECT);
+        MpscRingBuffer<Transaction> ring = new MpscRingBuffer<>(2);
+        BankAccountService bounded = new BankAccountServiceImpl(ring, config, metrics);
+        bounded.submit(AuditTestFixtures.fixedTransaction(300_000.0));
+        bounded.submit(AuditTestFixtures.fixedTransaction(300_000.0));
+        Transaction overflow = AuditTestFixtures.fixedTransaction(300_000.0);
+
+        TransactionOutcome outcome = bounded.submit(overflow);
+        assertInstanceOf(TransactionRejected.class, outcome);
+        assertEquals(600_000.0, bounded.retrieveBalance());
+        assertThrows(IllegalStateException.class, () -> bounded.processTransaction(overflow));
+
+        TransactionBatchResult block = bounded.processTransactions(List.of(overflow));
+        assertEquals(0, block.acceptedCount());
+        assertEquals("Audit queue is full", block.rejectionReason(0).orElseThrow());
+        assertEquals(3, metrics.getRejectedTxCount());
+
+        ring.poll();
+        assertInstanceOf(TransactionAccepted.class, bounded.submit(overflow));
+        assertEquals(0, metrics.getDroppedTxCount());
+    }
+
+    @Test
+    @DisplayName("Blocking policies hold the producer until the consumer frees a slot")
+    void shouldWaitForSpaceUnderBlockingPolicies() throws Exception {
+        for (OverflowPolicy policy : List.of(OverflowPolicy.BLOCK, OverflowPolicy.SPIN_THEN_PARK)) {
+            config.setQueueOverflowPolicy(policy);
+            MpscRingBuffer<Transaction> ring = new MpscRingBuffer<>(1);
+            BankAccountService bounded = new BankAccountServiceImpl(ring, config, metrics);
+            bounded.submit(AuditTestFixtures.fixedTransaction(300_000.0));
+
+            CountDownLatch done = new CountDownLatch(1);
+            Thread producer = new Thread(() -> {
+                bounded.submit(AuditTestFixtures.fixedTransaction(300_000.0));
+                done.countDown();
+            });
+            producer.start();
+
+            assertFalse(done.await(50, TimeUnit.MILLISECONDS), policy + " should wait while the queue is full");
+            assertNotNull(ring.poll());
+            assertTrue(done.await(5, TimeUnit.SECONDS), policy + " should resume once a slot is free");
+            assertEquals(1, ring.size());
+            producer.join();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.arctiq.liquidity.balsys.account.balance;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedBalanceAccumulatorTest {
+
+    @Test
+    @DisplayName("Matches BigDecimal addition for minor-unit and sub-minor-unit amounts")
+    void shouldStayExactlyConsistentWithBigDecimal() {
+        StripedBalanceAccumulator accumulator = new StripedBalanceAccumulator(
+                BigDecimal.valueOf(1_000.5), ReconciliationMode.EXACT, 4);
+        BigDecimal expected = BigDecimal.valueOf(1_000.5);
+        RandomGenerator random = RandomGenerator.of("L64X128MixRandom");
+
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal amount = i % 10 == 0
+                    ? BigDecimal.valueOf(random.nextDouble(-500_000, 500_000))
+                    : BigDecimal.valueOf(random.nextLong(-500_000_000, 500_000_000), 3);
+            accumulator.add(amount);
+            expected = expected.add(amount);
+        }
+
+        assertEquals(0, expected.compareTo(accumulator.sum()));
+        assertEquals(expected.doubleValue(), accumulator.doubleValue());
+        assertTrue(accumulator.residualUpdates() >= 1_000, "Sub-minor amounts should take the residual path");
+    }
+
+    @Test
+    @DisplayName("Minor-unit amounts never allocate on the residual path")
+    void shouldKeepMinorUnitAmountsOnStripedCells() {
+        StripedBalanceAccumulator accumulator = new StripedBalanceAccumulator(
+                BigDecimal.ZERO, ReconciliationMode.EXACT, 8);
+
+        for (int i = 0; i < 1_000; i++) {
+            accumulator.addMinorUnits(250_000_000L);
+        }
+
+        assertEquals(0, new BigDecimal("250000000").compareTo(accumulator.sum()));
+        assertEquals(0, accumulator.residualUpdates());
+        assertEquals(1_001, accumulator.updates());
+    }
+
+    @Test
+    @DisplayName("Rounded mode keeps sub-minor amounts on the striped cells")
+    void shouldRoundSubMinorAmountsInRoundedMode() {
+        StripedBalanceAccumulator accumulator = new StripedBalanceAccumulator(
+                BigDecimal.ZERO, ReconciliationMode.ROUNDED, 2);
+
+        accumulator.add(new BigDecimal("0.0015"));
+        accumulator.add(new BigDecimal("10.1234"));
+
+        assertEquals(0, new BigDecimal("10.125").compareTo(accumulator.sum()));
+        assertEquals(0, accumulator.residualUpdates());
+    }
+
+    @Test
+    @DisplayName("Cell overflow is diverted to the exact residual")
+    void shouldDetectOverflow() {
+        StripedBalanceAccumulator accumulator = new StripedBalanceAccumulator(
+                BigDecimal.ZERO, ReconciliationMode.EXACT, 1);
+
+        accumulator.addMinorUnits(Long.MAX_VALUE);
+        accumulator.addMinorUnits(Long.MAX_VALUE);
+
+        BigDecimal expected = BigDecimal.valueOf(Long.MAX_VALUE, 3).multiply(BigDecimal.valueOf(2));
+        assertEquals(0, expected.compareTo(accumulator.sum()));
+        assertEquals(1, accumulator.overflows());
+    }
+
+    @Test
+    @DisplayName("Concurrent writers converge on the exact total")
+    void shouldAccumulateConcurrently() throws InterruptedException {
+        StripedBalanceAccumulator accumulator = new StripedBalanceAccumulator(
+                BigDecimal.ZERO, ReconciliationMode.EXACT);
+        int threads = 8;
+        int perThread = 50_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    accumulator.addMinorUnits(i % 2 == 0 ? 1_234 : -234);
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        long expectedMinor = (long) threads * (perThread / 2) * (1_234 - 234);
+        assertEquals(0, BigDecimal.valueOf(expectedMinor, 3).compareTo(accumulator.sum()));
+        assertEquals((long) threads * perThread + 1, accumulator.updates());
+    }
+}
@@ -0,0 +1,151 @@
+package com.arctiq.liquidity.balsys.account.history;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceTimeIndexTest {
+
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+    private static final BigDecimal OPENING = new BigDecimal("1000");
+
+    private static Transaction at(Instant timestamp, String amount) {
+        return new Transaction(TransactionId.generate(), new Money(new BigDecimal(amount)), timestamp);
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+
+    @Test
+    @DisplayName("Answers balances at whole and partial seconds")
+    void shouldAnswerBalanceAtInstant() {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(8, HistoryRetentionPolicy.segments(64));
+        BalanceTimeIndex index = new BalanceTimeIndex(log, OPENING);
+        log.append(at(BASE.plusMillis(100), "200"));
+        log.append(at(BASE.plusMillis(900), "-50"));
+        log.append(at(BASE.plusSeconds(5).plusMillis(250), "300.125"));
+
+        assertAmount("1000", index.balanceAt(BASE.minusSeconds(1)));
+        assertAmount("1000", index.balanceAt(BASE.plusMillis(99)));
+        assertAmount("1200", index.balanceAt(BASE.plusMillis(100)));
+        assertAmount("1150", index.balanceAt(BASE.plusSeconds(1)));
+        assertAmount("1150", index.balanceAt(BASE.plusSeconds(5).plusMillis(249)));
+        assertAmount("1450.125", index.balanceAt(BASE.plusSeconds(5).plusMillis(250)));
+        assertAmount("1450.125", index.balanceAt(BASE.plusSeconds(86_400)));
+    }
+
+    @Test
+    @DisplayName("Handles out-of-order timestamps, earlier seconds and sub-minor amounts")
+    void shouldHandleIrregularInput() {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(8, HistoryRetentionPolicy.segments(64));
+        BalanceTimeIndex index = new BalanceTimeIndex(log, OPENING);
+        log.append(at(BASE.plusSeconds(10), "100"));
+        assertAmount("1100", index.balanceAt(BASE.plusSeconds(11)));
+
+        log.append(at(BASE.minusSeconds(5_000), "7"));
+        log.append(at(BASE.plusSeconds(3), "0.0001"));
+        log.append(at(Instant.parse("1990-01-01T00:00:00Z"), "11"));
+
+        assertAmount("1011", index.balanceAt(BASE.minusSeconds(10_000)));
+        assertAmount("1018", index.balanceAt(BASE.minusSeconds(4_999)));
+        assertAmount("1018.0001", index.balanceAt(BASE.plusSeconds(4)));
+        assertAmount("1118.0001", index.balanceAt(BASE.plusSeconds(10)));
+    }
+
+    @Test
+    @DisplayName("Matches a full rescan of history for random instants")
+    void shouldMatchBruteForce() {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(64, HistoryRetentionPolicy.segments(1_024));
+        BalanceTimeIndex index = new BalanceTimeIndex(log, OPENING);
+        Random random = new Random(7);
+        List<Transaction> appended = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Instant ts = BASE.plusMillis(i * 731L + random.nextInt(3_000));
+            String amount = BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 3).toPlainString();
+            Transaction tx = at(ts, amount);
+            log.append(tx);
+            appended.add(tx);
+
+            if (i % 97 == 0) {
+                Instant probe = BASE.plusMillis(random.nextInt((i + 1) * 731 + 3_000));
+                BigDecimal expected = OPENING;
+                for (Transaction seen : appended) {
+                    if (!seen.timestamp().isAfter(probe)) {
+                        expected = expected.add(seen.amount().amount());
+                    }
+                }
+                assertAmount(expected.toPlainString(), index.balanceAt(probe));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Background tailer folds new history without lookups")
+    void shouldCatchUpInBackground() throws InterruptedException {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(8, HistoryRetentionPolicy.segments(64));
+        BalanceTimeIndex index = new BalanceTimeIndex(log, OPENING, Duration.ofMillis(1));
+        try {
+            for (int i = 0; i < 100; i++) {
+                log.append(at(BASE.plusSeconds(i), "1"));
+            }
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (index.lag() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, index.lag());
+            assertAmount("1050", index.balanceAt(BASE.plusSeconds(49)));
+        } finally {
+            index.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Slides with the log's retention, folding retired seconds into the opening balance")
+    void shouldSlideWithRetention() {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(4, HistoryRetentionPolicy.segments(2));
+        BalanceTimeIndex index = new BalanceTimeIndex(log, OPENING);
+        Instant last = BASE;
+        for (int i = 0; i < 100; i++) {
+            last = BASE.plusSeconds(i * 1_000L);
+            log.append(at(last, "1"));
+            index.balanceAt(last);
+        }
+        long retired = 100 - log.retainedCount();
+
+        assertTrue(retired > 0);
+        assertEquals(0, index.skippedCount());
+        assertTrue(index.coveredSeconds() <= 16_384, "buckets span the retained seconds only: "
+                + index.coveredSeconds());
+        assertAmount("1100", index.balanceAt(last));
+        assertAmount("1099", index.balanceAt(last.minusMillis(1)));
+        // before the retained history, everything retired counts as opening balance
+        assertAmount(String.valueOf(1000 + retired), index.balanceAt(BASE.minusSeconds(86_400)));
+    }
+
+    @Test
+    @DisplayName("Counts history retired before the index reached it")
+    void shouldCountSkippedEntries() {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(4, HistoryRetentionPolicy.segments(2));
+        BalanceTimeIndex index = new BalanceTimeIndex(log, OPENING);
+        for (int i = 0; i < 20; i++) {
+            log.append(at(BASE.plusSeconds(i), "1"));
+        }
+
+        assertAmount("1008", index.balanceAt(BASE.plusSeconds(60)));
+        assertEquals(12, index.skippedCount());
+        assertEquals(0, index.lag());
+    }
+}
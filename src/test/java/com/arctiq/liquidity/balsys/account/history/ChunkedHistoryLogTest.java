@@ -0,0 +1,195 @@
+package com.arctiq.liquidity.balsys.account.history;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedHistoryLogTest {
+
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    private static Transaction at(long offsetSeconds) {
+        return new Transaction(TransactionId.generate(), Money.of(250.0), BASE.plusSeconds(offsetSeconds));
+    }
+
+    @Test
+    @DisplayName("Range query returns only transactions inside the window, across segments")
+    void shouldReturnTransactionsWithinRange() {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(8, HistoryRetentionPolicy.segments(64));
+        for (int i = 0; i < 100; i++) {
+            log.append(at(i));
+        }
+
+        List<Transaction> window = log.range(BASE.plusSeconds(10), BASE.plusSeconds(29));
+
+        assertEquals(20, window.size());
+        assertEquals(BASE.plusSeconds(10), window.get(0).timestamp());
+        assertEquals(BASE.plusSeconds(29), window.get(19).timestamp());
+        assertEquals(13, log.segmentCount());
+        assertTrue(log.range(BASE.plusSeconds(200), BASE.plusSeconds(300)).isEmpty());
+        assertTrue(log.range(BASE.plusSeconds(20), BASE.plusSeconds(10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Out-of-order timestamps are still found through the watermarks")
+    void shouldFindLateArrivals() {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(4, HistoryRetentionPolicy.segments(64));
+        for (int i = 0; i < 40; i++) {
+            log.append(at(i));
+        }
+        log.append(at(-500));
+        log.append(at(5_000));
+
+        assertEquals(1, log.range(BASE.minusSeconds(600), BASE.minusSeconds(400)).size());
+        assertEquals(1, log.range(BASE.plusSeconds(4_000), BASE.plusSeconds(6_000)).size());
+        assertEquals(42, log.range(BASE.minusSeconds(1_000), BASE.plusSeconds(10_000)).size());
+    }
+
+    @Test
+    @DisplayName("Segments beyond the retention count are retired from the head")
+    void shouldRetireByCount() {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(16, HistoryRetentionPolicy.segments(4));
+        for (int i = 0; i < 160; i++) {
+            log.append(at(i));
+        }
+
+        assertEquals(4, log.segmentCount());
+        assertEquals(6, log.retiredSegments());
+        assertEquals(96, log.evictedEntries());
+        assertEquals(64, log.retainedCount());
+        assertEquals(160, log.appendedCount());
+
+        List<Transaction> all = log.range(BASE, BASE.plusSeconds(1_000));
+        assertEquals(64, all.size());
+        assertEquals(BASE.plusSeconds(96), all.get(0).timestamp());
+    }
+
+    @Test
+    @DisplayName("Segments older than the retention age are retired on rollover")
+    void shouldRetireByAge() {
+        Clock clock = Clock.fixed(BASE.plusSeconds(1_000), ZoneOffset.UTC);
+        ChunkedHistoryLog log = new ChunkedHistoryLog(10,
+                new HistoryRetentionPolicy(100, Duration.ofSeconds(100)), clock);
+        for (int i = 0; i < 64; i++) {
+            log.append(at(i));
+        }
+        for (int i = 0; i < 17; i++) {
+            log.append(at(950 + i));
+        }
+
+        assertTrue(log.range(BASE, BASE.plusSeconds(100)).isEmpty());
+        assertEquals(17, log.range(BASE.plusSeconds(900), BASE.plusSeconds(1_000)).size());
+        assertTrue(log.retiredSegments() > 0);
+        assertEquals(log.appendedCount() - log.retainedCount(), log.evictedEntries());
+    }
+
+    @Test
+    @DisplayName("A segment an append is still filling survives a rollover that retention would otherwise retire")
+    void shouldKeepSegmentsStillBeingFilled() throws Exception {
+        // age: every written segment is long past the cutoff; count: only one segment is allowed
+        assertKeepsInFlightSegment(new HistoryRetentionPolicy(100, Duration.ofSeconds(1)));
+        assertKeepsInFlightSegment(new HistoryRetentionPolicy(1, Duration.ofDays(365)));
+    }
+
+    private static void assertKeepsInFlightSegment(HistoryRetentionPolicy retention) throws Exception {
+        CountDownLatch parked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] slowWriter = new Thread[1];
+        // the slow writer's rollover stalls on the clock, after claiming its sequence and before writing it
+        Clock clock = new Clock() {
+            @Override
+            public Instant instant() {
+                if (Thread.currentThread() == slowWriter[0]) {
+                    parked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return BASE.plusSeconds(10_000);
+            }
+
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+        };
+        ChunkedHistoryLog log = new ChunkedHistoryLog(1, retention, clock);
+        slowWriter[0] = new Thread(() -> log.append(at(0)));
+        slowWriter[0].start();
+        assertTrue(parked.await(5, TimeUnit.SECONDS));
+
+        log.append(at(1));
+        log.append(at(2));
+        release.countDown();
+        slowWriter[0].join(5_000);
+
+        assertEquals(0, log.droppedAppends());
+        assertEquals(0, log.evictedEntries());
+        assertEquals(3, log.range(BASE, BASE.plusSeconds(10)).size());
+
+        log.append(at(3));
+        assertEquals(log.appendedCount() - log.retainedCount(), log.evictedEntries());
+        assertTrue(log.evictedEntries() > 0);
+    }
+
+    @Test
+    @DisplayName("Rejects invalid segment sizes and retention policies")
+    void shouldRejectInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ChunkedHistoryLog(0, HistoryRetentionPolicy.segments(1)));
+        assertThrows(IllegalArgumentException.class, () -> HistoryRetentionPolicy.segments(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HistoryRetentionPolicy(1, Duration.ofSeconds(-1)));
+        assertEquals(16, new ChunkedHistoryLog(10, HistoryRetentionPolicy.segments(1)).segmentSize());
+    }
+
+    @Test
+    @DisplayName("Concurrent appenders lose no transactions")
+    void shouldAppendConcurrently() throws InterruptedException {
+        ChunkedHistoryLog log = new ChunkedHistoryLog(64, HistoryRetentionPolicy.segments(10_000));
+        int threads = 8;
+        int perThread = 20_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log.append(at(offset * perThread + i));
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals((long) threads * perThread, log.appendedCount());
+        assertEquals(threads * perThread, log.range(BASE, BASE.plusSeconds(threads * perThread)).size());
+        assertEquals(perThread, log.range(BASE.plusSeconds(perThread), BASE.plusSeconds(2L * perThread - 1)).size());
+        assertEquals(0, log.droppedAppends());
+    }
+}
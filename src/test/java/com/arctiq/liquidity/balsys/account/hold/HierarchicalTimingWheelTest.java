@@ -0,0 +1,81 @@
+package com.arctiq.liquidity.balsys.account.hold;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK_NANOS = Duration.ofMillis(10).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> fired = new ArrayList<>();
+    private final HierarchicalTimingWheel<String> wheel =
+            new HierarchicalTimingWheel<>(Duration.ofMillis(10), fired::add, clock::get);
+
+    private void advanceTicks(long ticks) {
+        clock.addAndGet(ticks * TICK_NANOS);
+        wheel.advance();
+    }
+
+    @Test
+    @DisplayName("Entries fire on their deadline tick and not before")
+    void shouldFireOnDeadline() {
+        wheel.schedule("a", Duration.ofMillis(30));
+        wheel.schedule("b", Duration.ofMillis(50));
+
+        advanceTicks(2);
+        assertTrue(fired.isEmpty());
+        advanceTicks(1);
+        assertEquals(List.of("a"), fired);
+        advanceTicks(2);
+        assertEquals(List.of("a", "b"), fired);
+    }
+
+    @Test
+    @DisplayName("Deadlines beyond the first wheel cascade down through the levels")
+    void shouldCascadeAcrossLevels() {
+        long[] delaysInTicks = { 63, 64, 65, 4_095, 4_096, 4_097, 300_000 };
+        for (long ticks : delaysInTicks) {
+            wheel.schedule("t" + ticks, Duration.ofNanos(ticks * TICK_NANOS));
+        }
+
+        long elapsed = 0;
+        for (long ticks : delaysInTicks) {
+            advanceTicks(ticks - 1 - elapsed);
+            assertFalse(fired.contains("t" + ticks), "fired early: " + ticks);
+            advanceTicks(1);
+            assertTrue(fired.contains("t" + ticks), "not fired on time: " + ticks);
+            elapsed = ticks;
+        }
+        assertEquals(delaysInTicks.length, wheel.firedCount());
+    }
+
+    @Test
+    @DisplayName("Entries scheduled after the ticker has moved on are still placed relative to now")
+    void shouldScheduleRelativeToCurrentTick() {
+        advanceTicks(1_000);
+        wheel.schedule("late", Duration.ofMillis(100));
+
+        advanceTicks(9);
+        assertTrue(fired.isEmpty());
+        advanceTicks(1);
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    @DisplayName("Zero delay fires on the next advance")
+    void shouldFireImmediatelyForZeroDelay() {
+        wheel.schedule("now", Duration.ZERO);
+        wheel.advance();
+
+        assertEquals(List.of("now"), fired);
+        assertEquals(1, wheel.scheduledCount());
+    }
+}
@@ -0,0 +1,113 @@
+package com.arctiq.liquidity.balsys.account.hold;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HoldLedgerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final HoldLedger ledger = new HoldLedger(Duration.ofSeconds(5), Duration.ofMillis(10), clock::get);
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+        ledger.advanceExpiry();
+    }
+
+    @Test
+    @DisplayName("Placing and releasing holds adjusts the held total")
+    void shouldTrackHeldTotal() {
+        String first = ledger.place(new BigDecimal("250.500"), "card auth");
+        String second = ledger.place(new BigDecimal("100"), "hotel");
+
+        assertNotEquals(first, second);
+        assertEquals(0, new BigDecimal("350.5").compareTo(ledger.heldTotal()));
+        assertEquals(2, ledger.activeCount());
+        assertEquals("card auth", ledger.reasonOf(first).orElseThrow());
+
+        assertTrue(ledger.release(first));
+        assertFalse(ledger.release(first));
+        assertFalse(ledger.release("HOLD-unknown"));
+
+        assertEquals(0, new BigDecimal("100").compareTo(ledger.heldTotal()));
+        assertEquals(1, ledger.releasedCount());
+        assertFalse(ledger.isActive(first));
+    }
+
+    @Test
+    @DisplayName("Holds expire after their TTL and cannot be released afterwards")
+    void shouldExpireHolds() {
+        String shortHold = ledger.place(new BigDecimal("40"), "short", Duration.ofSeconds(1));
+        String defaultHold = ledger.place(new BigDecimal("60"), "default");
+
+        advance(Duration.ofMillis(990));
+        assertTrue(ledger.isActive(shortHold));
+
+        advance(Duration.ofMillis(10));
+        assertFalse(ledger.isActive(shortHold));
+        assertFalse(ledger.release(shortHold));
+        assertEquals(0, new BigDecimal("60").compareTo(ledger.heldTotal()));
+
+        advance(Duration.ofSeconds(4));
+        assertFalse(ledger.isActive(defaultHold));
+        assertEquals(0, BigDecimal.ZERO.compareTo(ledger.heldTotal()));
+        assertEquals(2, ledger.expiredCount());
+    }
+
+    @Test
+    @DisplayName("Released holds are skipped when their deadline fires")
+    void shouldIgnoreReleasedHoldsOnExpiry() {
+        String hold = ledger.place(new BigDecimal("75"), "released early");
+        assertTrue(ledger.release(hold));
+
+        advance(Duration.ofSeconds(10));
+
+        assertEquals(0, ledger.expiredCount());
+        assertEquals(0, BigDecimal.ZERO.compareTo(ledger.heldTotal()));
+    }
+
+    @Test
+    @DisplayName("Rejects non-positive hold amounts")
+    void shouldRejectInvalidAmounts() {
+        assertThrows(IllegalArgumentException.class, () -> ledger.place(BigDecimal.ZERO, "zero"));
+        assertThrows(IllegalArgumentException.class, () -> ledger.place(null, "null"));
+        assertEquals(0, ledger.placedCount());
+    }
+
+    @Test
+    @DisplayName("Concurrent place and release leaves a consistent held total")
+    void shouldPlaceAndReleaseConcurrently() throws InterruptedException {
+        int threads = 8;
+        int perThread = 10_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String id = ledger.place(new BigDecimal("12.345"), "load");
+                    if (i % 2 == 0) {
+                        ledger.release(id);
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        long remaining = (long) threads * perThread / 2;
+        assertEquals(remaining, ledger.activeCount());
+        assertEquals(0, new BigDecimal("12.345").multiply(BigDecimal.valueOf(remaining)).compareTo(ledger.heldTotal()));
+    }
+}
@@ -0,0 +1,176 @@
+package com.arctiq.liquidity.balsys.account.journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTransactionJournalTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private MappedTransactionJournal open(DurabilityMode mode) {
+        return new MappedTransactionJournal(directory, SEGMENT_BYTES, mode,
+                Duration.ofMillis(1), Duration.ZERO, 1_000);
+    }
+
+    private static Transaction tx(long id, String amount, String account) {
+        return new Transaction(new TransactionId(id), new Money(new BigDecimal(amount)),
+                BASE.plusSeconds(id), new AccountId(account));
+    }
+
+    @Test
+    @DisplayName("Recovers balances, accounts and history after reopening")
+    void shouldRecoverAfterRestart() {
+        try (MappedTransactionJournal journal = open(DurabilityMode.GROUP_COMMIT)) {
+            assertTrue(journal.recover().isEmpty());
+            journal.append(tx(1, "250.000", "alice"));
+            journal.append(tx(2, "-100.125", "bob"));
+            journal.append(tx(3, "0.0001", "alice"));
+            assertEquals(3, journal.durableSequence());
+        }
+
+        try (MappedTransactionJournal journal = open(DurabilityMode.GROUP_COMMIT)) {
+            JournalSnapshot recovered = journal.recover().orElseThrow();
+            assertEquals(3, recovered.lastSequence());
+            assertEquals(0, new BigDecimal("149.8751").compareTo(recovered.balance()));
+            assertEquals(0, new BigDecimal("250.0001").compareTo(recovered.accounts().get(new AccountId("alice"))));
+            assertEquals(3, recovered.recentHistory().size());
+            assertEquals(tx(3, "0.0001", "alice").amount().amount(), recovered.recentHistory().get(2).amount().amount());
+            assertEquals(4, journal.append(tx(4, "1", "bob")));
+        }
+    }
+
+    @Test
+    @DisplayName("Rolls over segments and replays across all of them")
+    void shouldReplayAcrossSegments() {
+        try (MappedTransactionJournal journal = open(DurabilityMode.ASYNC)) {
+            for (int i = 1; i <= 5_000; i++) {
+                journal.append(tx(i, "1.500", "acct-" + (i % 7)));
+            }
+            assertTrue(journal.segmentCount() > 1);
+        }
+
+        try (MappedTransactionJournal journal = open(DurabilityMode.ASYNC)) {
+            JournalSnapshot recovered = journal.recover().orElseThrow();
+            assertEquals(5_000, recovered.lastSequence());
+            assertEquals(0, new BigDecimal("7500").compareTo(recovered.balance()));
+            assertEquals(7, recovered.accounts().size());
+            assertEquals(1_000, recovered.recentHistory().size());
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the tail is discarded and its sequence reused")
+    void shouldStopAtTornTail() throws IOException {
+        try (MappedTransactionJournal journal = open(DurabilityMode.PER_TRANSACTION)) {
+            journal.append(tx(1, "10", "alice"));
+            journal.append(tx(2, "20", "alice"));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(p -> p.getFileName().toString().startsWith("journal-")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer first = ByteBuffer.allocate(4);
+            channel.read(first, 0);
+            int secondRecord = 8 + first.flip().getInt();
+            channel.write(ByteBuffer.wrap(new byte[] { 0x7f }), secondRecord + 12);
+        }
+
+        try (MappedTransactionJournal journal = open(DurabilityMode.PER_TRANSACTION)) {
+            JournalSnapshot recovered = journal.recover().orElseThrow();
+            assertEquals(1, recovered.lastSequence());
+            assertEquals(0, new BigDecimal("10").compareTo(recovered.balance()));
+            assertEquals(2, journal.append(tx(3, "5", "alice")));
+        }
+        try (MappedTransactionJournal journal = open(DurabilityMode.PER_TRANSACTION)) {
+            assertEquals(0, new BigDecimal("15").compareTo(journal.recover().orElseThrow().balance()));
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots retire covered segments and recovery replays only the tail")
+    void shouldRecoverFromSnapshotPlusTail() {
+        try (MappedTransactionJournal journal = new MappedTransactionJournal(directory, SEGMENT_BYTES,
+                DurabilityMode.ASYNC, Duration.ofMillis(1), Duration.ofHours(1), 10)) {
+            for (int i = 1; i <= 5_000; i++) {
+                journal.append(tx(i, "2", "alice"));
+            }
+            journal.sync();
+            int segmentsBefore = journal.segmentCount();
+            journal.snapshot();
+            assertEquals(1, journal.snapshotCount());
+            assertTrue(journal.segmentCount() < segmentsBefore);
+
+            for (int i = 5_001; i <= 5_010; i++) {
+                journal.append(tx(i, "-1", "bob"));
+            }
+        }
+
+        try (MappedTransactionJournal journal = open(DurabilityMode.ASYNC)) {
+            JournalSnapshot recovered = journal.recover().orElseThrow();
+            assertEquals(5_010, recovered.lastSequence());
+            assertEquals(0, new BigDecimal("9990").compareTo(recovered.balance()));
+            assertEquals(0, new BigDecimal("-10").compareTo(recovered.accounts().get(new AccountId("bob"))));
+            assertEquals(5_010, recovered.recentHistory().get(recovered.recentHistory().size() - 1).id().value());
+        }
+    }
+
+    @Test
+    @DisplayName("Group commit shares fsyncs between concurrent writers")
+    void shouldGroupCommitConcurrentAppends() throws InterruptedException {
+        int threads = 8;
+        int perThread = 500;
+        List<Long> sequences = new ArrayList<>();
+        try (MappedTransactionJournal journal = open(DurabilityMode.GROUP_COMMIT)) {
+            CountDownLatch done = new CountDownLatch(threads);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                int offset = t * perThread;
+                executor.execute(() -> {
+                    for (int i = 1; i <= perThread; i++) {
+                        long sequence = journal.append(tx(offset + i, "1", "load"));
+                        synchronized (sequences) {
+                            sequences.add(sequence);
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            executor.shutdown();
+
+            assertEquals(threads * perThread, journal.durableSequence());
+            assertTrue(journal.syncCount() < threads * perThread, "fsyncs should be shared");
+        }
+        assertEquals(threads * perThread, sequences.stream().distinct().count());
+    }
+}
@@ -0,0 +1,168 @@
+package com.arctiq.liquidity.balsys.account.ledger;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedLedgerTest {
+
+    private ShardedLedger ledger;
+
+    @BeforeEach
+    void setup() {
+        ledger = new ShardedLedger(4);
+    }
+
+    @AfterEach
+    void teardown() {
+        ledger.shutdown();
+    }
+
+    @Test
+    @DisplayName("Applies transactions to the owning account only")
+    void shouldKeepAccountsIndependent() {
+        AccountId alice = new AccountId("alice");
+        AccountId bob = new AccountId("bob");
+
+        ledger.submit(transaction(alice, 300_000.0));
+        ledger.submit(transaction(bob, -200_000.0));
+        ledger.submit(transaction(alice, -50_000.0));
+
+        assertTrue(ledger.awaitQuiescence(2, TimeUnit.SECONDS));
+        assertEquals(0, new BigDecimal("250000").compareTo(ledger.balanceOf(alice).orElseThrow()));
+        assertEquals(0, new BigDecimal("-200000").compareTo(ledger.balanceOf(bob).orElseThrow()));
+        assertTrue(ledger.balanceOf(new AccountId("carol")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Seeded opening balance is carried forward")
+    void shouldApplyOpeningBalance() {
+        AccountId alice = new AccountId("alice");
+        ledger.seed(alice, BigDecimal.valueOf(1_000));
+        ledger.submit(transaction(alice, 500.0));
+
+        assertTrue(ledger.awaitQuiescence(2, TimeUnit.SECONDS));
+        assertEquals(0, new BigDecimal("1500").compareTo(ledger.balanceOf(alice).orElseThrow()));
+        assertThrows(IllegalStateException.class, () -> ledger.seed(new AccountId("late"), BigDecimal.ONE));
+    }
+
+    @Test
+    @DisplayName("Routes each account to one shard and spreads accounts across shards")
+    void shouldPartitionAccounts() {
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 64; i++) {
+            AccountId account = new AccountId("acct-" + i);
+            int shard = ledger.shardIndexOf(account);
+            assertEquals(shard, ledger.shardIndexOf(new AccountId("acct-" + i)));
+            used.add(shard);
+        }
+        assertEquals(4, used.size());
+
+        AccountId alice = new AccountId("alice");
+        ledger.seed(alice, BigDecimal.valueOf(10));
+        for (int i = 0; i < 64; i++) {
+            ledger.submit(transaction(alice, 0.25));
+        }
+        assertTrue(ledger.awaitQuiescence(2, TimeUnit.SECONDS));
+        assertEquals(0, new BigDecimal("26").compareTo(ledger.balanceOf(alice).orElseThrow()));
+        assertEquals(0, new BigDecimal("26").compareTo(ledger.balances().get(alice)));
+        assertEquals(0, new BigDecimal("26").compareTo(ledger.total()));
+    }
+
+    @Test
+    @DisplayName("An interrupted producer still hands its transaction over and keeps the interrupt")
+    void shouldHandOffDespiteInterrupt() {
+        AccountId alice = new AccountId("alice");
+        ShardedLedger tiny = new ShardedLedger(1, 1);
+        try {
+            for (int i = 0; i < 100; i++) {
+                Thread.currentThread().interrupt();
+                tiny.submit(transaction(alice, 1.0));
+                assertTrue(Thread.interrupted(), "interrupt must be restored");
+            }
+            assertTrue(tiny.awaitQuiescence(2, TimeUnit.SECONDS));
+            assertEquals(0, new BigDecimal("100").compareTo(tiny.balanceOf(alice).orElseThrow()));
+            assertEquals(0, tiny.failedCount());
+        } finally {
+            tiny.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("A shut-down ledger turns transactions away instead of blocking")
+    void shouldRejectAfterShutdown() {
+        AccountId alice = new AccountId("alice");
+        ledger.submit(transaction(alice, 1.0));
+        assertTrue(ledger.awaitQuiescence(2, TimeUnit.SECONDS));
+        ledger.shutdown();
+
+        ledger.submit(transaction(alice, 1.0));
+
+        assertEquals(1, ledger.failedCount());
+        assertTrue(ledger.awaitQuiescence(1, TimeUnit.SECONDS));
+        assertEquals(0, BigDecimal.ONE.compareTo(ledger.balanceOf(alice).orElseThrow()));
+    }
+
+    @Test
+    @DisplayName("A transaction that cannot be applied is skipped without stopping its shard")
+    void shouldSkipFailingTransaction() {
+        AccountId alice = new AccountId("alice");
+        ledger.submit(new Transaction(TransactionId.generate(), null, java.time.Instant.now(), alice));
+        for (int i = 0; i < 32; i++) {
+            ledger.submit(transaction(alice, 1.0));
+        }
+
+        assertTrue(ledger.awaitQuiescence(2, TimeUnit.SECONDS));
+        assertEquals(1, ledger.failedCount());
+        assertEquals(0, new BigDecimal("32").compareTo(ledger.balanceOf(alice).orElseThrow()));
+    }
+
+    @Test
+    @DisplayName("Concurrent producers converge on exact per-account balances")
+    void shouldHandleConcurrentProducers() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 10_000;
+        int accounts = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    ledger.submit(transaction(new AccountId("acct-" + (i % accounts)), 1.5));
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(ledger.awaitQuiescence(5, TimeUnit.SECONDS));
+
+        BigDecimal expected = BigDecimal.valueOf(1.5).multiply(BigDecimal.valueOf((long) producers * perProducer / accounts));
+        for (int a = 0; a < accounts; a++) {
+            assertEquals(0, expected.compareTo(ledger.balanceOf(new AccountId("acct-" + a)).orElseThrow()));
+        }
+        assertEquals(accounts, ledger.balances().size());
+    }
+
+    private static Transaction transaction(AccountId accountId, double amount) {
+        return new Transaction(TransactionId.generate(), Money.of(amount), java.time.Instant.now(), accountId);
+    }
+}
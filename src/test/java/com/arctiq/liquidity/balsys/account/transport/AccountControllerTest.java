@@ -9,10 +9,19 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.security.test.context.support.WithMockUser;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
+import java.time.Instant;
+import java.util.Optional;
+
+import com.arctiq.liquidity.balsys.account.application.BalanceStreamService;
+import com.arctiq.liquidity.balsys.account.application.BalanceStreamService.BalanceUpdate;
 import com.arctiq.liquidity.balsys.account.application.BankAccountService;
 import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+
+import reactor.core.publisher.Flux;
 
 @WebFluxTest(AccountController.class)
 class AccountControllerTest {
@@ -26,6 +35,9 @@ class AccountControllerTest {
     @MockBean
     private MetricsCollector metricsCollector;
 
+    @MockBean
+    private BalanceStreamService balanceStreamService;
+
     @Test
     @WithMockUser(username = "user", roles = { "USER" })
     @DisplayName("Exposes current balance as JSON via /balance for authorized USER")
@@ -42,4 +54,67 @@ class AccountControllerTest {
                 .expectBody()
                 .jsonPath("$.balance").isEqualTo(mockedBalance);
     }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    @DisplayName("Answers /balance?at= from the point-in-time index")
+    void shouldReturnBalanceAtInstant() {
+        Instant at = Instant.parse("2025-01-01T12:00:00Z");
+        when(bankAccountService.retrieveBalanceAt(at)).thenReturn(125_000.0);
+
+        webTestClient.get()
+                .uri("/account/balance?at=2025-01-01T12:00:00Z")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(125_000.0);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    @DisplayName("Exposes a single account balance via /{id}/balance")
+    void shouldReturnAccountBalance() {
+        when(bankAccountService.retrieveBalance(new AccountId("acct-42"))).thenReturn(Optional.of(1_250.0));
+
+        webTestClient.get()
+                .uri("/account/acct-42/balance")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.accountId").isEqualTo("acct-42")
+                .jsonPath("$.balance").isEqualTo(1_250.0);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    @DisplayName("Returns 404 for an unknown account")
+    void shouldReturnNotFoundForUnknownAccount() {
+        when(bankAccountService.retrieveBalance(new AccountId("ghost"))).thenReturn(Optional.empty());
+
+        webTestClient.get()
+                .uri("/account/ghost/balance")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = { "USER" })
+    @DisplayName("Streams balance updates as NDJSON via /balance/stream")
+    void shouldStreamBalanceUpdates() {
+        when(balanceStreamService.stream(any())).thenReturn(Flux.just(
+                new BalanceUpdate(100.0, Instant.EPOCH),
+                new BalanceUpdate(250.0, Instant.EPOCH.plusSeconds(1))));
+
+        webTestClient.get()
+                .uri("/account/balance/stream?intervalMillis=500")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BalanceUpdate.class)
+                .hasSize(2);
+    }
 }
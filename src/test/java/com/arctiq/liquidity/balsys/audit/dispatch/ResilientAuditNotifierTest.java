@@ -0,0 +1,222 @@
+package com.arctiq.liquidity.balsys.audit.dispatch;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.config.AuditDeliveryConfigProperties;
+import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionBlock;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientAuditNotifierTest {
+
+    /**
+     * Fails the first {@code failures} calls, then succeeds; optionally hangs
+     * instead of failing.
+     */
+    static class FlakyNotifier implements AuditNotifier {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile int failures;
+        volatile boolean hang;
+
+        FlakyNotifier(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void submit(List<AuditBatch> batches) {
+            submit(0, batches);
+        }
+
+        @Override
+        public void submit(long sequence, List<AuditBatch> batches) {
+            if (calls.incrementAndGet() <= failures) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            if (hang) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static AuditDeliveryConfigProperties config(int maxAttempts) {
+        AuditDeliveryConfigProperties config = new AuditDeliveryConfigProperties();
+        config.setMaxAttempts(maxAttempts);
+        config.setInitialBackoffMillis(1);
+        config.setMaxBackoffMillis(5);
+        config.setAttemptTimeoutMillis(500);
+        return config;
+    }
+
+    @Test
+    @DisplayName("Transient failures are retried until the sink accepts")
+    void shouldRetryUntilSuccess() {
+        FlakyNotifier sink = new FlakyNotifier(2);
+        AuditDeadLetterStore deadLetters = new AuditDeadLetterStore(10);
+        try (ResilientAuditNotifier notifier = new ResilientAuditNotifier(sink, deadLetters, config(3))) {
+            notifier.submit(7, List.of());
+
+            assertEquals(3, sink.calls.get());
+            assertEquals(2, notifier.retryCount());
+            assertEquals(2, notifier.failureCount());
+            assertEquals(1, notifier.successCount());
+            assertEquals(0, deadLetters.size());
+            assertEquals(CircuitBreaker.State.CLOSED, notifier.breakerState());
+        }
+    }
+
+    @Test
+    @DisplayName("Only unacknowledged batches are retried, and only those are dead-lettered")
+    void shouldRetryOnlyUnacknowledgedBatches() {
+        List<AuditBatch> batches = List.of(batch(1), batch(2), batch(3));
+        List<List<String>> calls = new CopyOnWriteArrayList<>();
+        AuditNotifier sink = new AuditNotifier() {
+            @Override
+            public void submit(List<AuditBatch> submitted) {
+            }
+
+            @Override
+            public Set<String> submitForAck(long sequence, List<AuditBatch> submitted) {
+                List<String> ids = submitted.stream().map(AuditBatch::getBatchId).toList();
+                calls.add(ids);
+                // the receiver never acknowledges the last batch
+                return ids.stream().filter(id -> !id.equals(batches.get(2).getBatchId())).collect(Collectors.toSet());
+            }
+        };
+        AuditDeadLetterStore deadLetters = new AuditDeadLetterStore(10);
+        try (ResilientAuditNotifier notifier = new ResilientAuditNotifier(sink, deadLetters, config(2))) {
+            Set<String> acked = notifier.submitForAck(5, batches);
+
+            assertEquals(Set.of(batches.get(0).getBatchId(), batches.get(1).getBatchId()), acked);
+            assertEquals(List.of(batches.get(2).getBatchId()), calls.get(1));
+            List<AuditDeadLetterStore.DeadLetter> letters = deadLetters.drain();
+            assertEquals(1, letters.size());
+            assertEquals(batches.get(2), letters.get(0).batch());
+            assertEquals(5, letters.get(0).sequence());
+        }
+    }
+
+    private static AuditBatch batch(long id) {
+        Transaction transaction = new Transaction(new TransactionId(id), Money.of(10.0), Instant.EPOCH);
+        List<Transaction> members = List.of(transaction);
+        return new AuditBatch(AuditBatch.contentId(TransactionBlock.of(members)), members, Money.of(100.0));
+    }
+
+    @Test
+    @DisplayName("A hung sink costs one timeout per attempt and the submission is dead-lettered")
+    void shouldDeadLetterAfterTimeouts() {
+        FlakyNotifier sink = new FlakyNotifier(0);
+        sink.hang = true;
+        AuditDeliveryConfigProperties config = config(2);
+        config.setAttemptTimeoutMillis(50);
+        AuditDeadLetterStore deadLetters = new AuditDeadLetterStore(10);
+        try (ResilientAuditNotifier notifier = new ResilientAuditNotifier(sink, deadLetters, config)) {
+            long start = System.nanoTime();
+            notifier.submit(3, List.of(batch(1)));
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsedMillis < 2_000, "bounded by the attempt timeout: " + elapsedMillis);
+            assertEquals(2, notifier.timeoutCount());
+            assertEquals(1, notifier.deadLetterCount());
+            List<AuditDeadLetterStore.DeadLetter> letters = deadLetters.drain();
+            assertEquals(1, letters.size());
+            assertEquals(3, letters.get(0).sequence());
+            assertEquals(2, letters.get(0).attempts());
+            assertTrue(letters.get(0).reason().startsWith("timed out"), letters.get(0).reason());
+        }
+    }
+
+    @Test
+    @DisplayName("A sink that ignores interrupts holds no more threads than the pool has, and a full pool trips the breaker")
+    void shouldBoundThreadsHeldByHungSink() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger entered = new AtomicInteger();
+        AuditNotifier stuck = new AuditNotifier() {
+            @Override
+            public void submit(List<AuditBatch> batches) {
+                entered.incrementAndGet();
+                boolean interrupted = false;
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        AuditDeliveryConfigProperties config = config(1);
+        config.setAttemptTimeoutMillis(50);
+        config.setAttemptThreads(1);
+        config.setAttemptCapacity(2);
+        config.setBreakerFailureThreshold(3);
+        AuditDeadLetterStore deadLetters = new AuditDeadLetterStore(10);
+        try (ResilientAuditNotifier notifier = new ResilientAuditNotifier(stuck, deadLetters, config)) {
+            notifier.submit(1, List.of(batch(1)));
+            notifier.submit(2, List.of(batch(2)));
+            assertEquals(2, notifier.timeoutCount());
+            assertEquals(CircuitBreaker.State.CLOSED, notifier.breakerState());
+
+            // one attempt holds the only thread, the other its queue slot: the third is refused at once
+            notifier.submit(3, List.of(batch(3)));
+            assertEquals(1, notifier.poolRejectionCount());
+            assertEquals(CircuitBreaker.State.OPEN, notifier.breakerState());
+            assertEquals(1, entered.get());
+            assertEquals(3, deadLetters.size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("The breaker opens on repeated failures, fails fast, then closes after a successful trial")
+    void shouldOpenAndRecoverBreaker() throws InterruptedException {
+        FlakyNotifier sink = new FlakyNotifier(2);
+        AuditDeliveryConfigProperties config = config(1);
+        config.setBreakerFailureThreshold(2);
+        config.setBreakerOpenMillis(200);
+        AuditDeadLetterStore deadLetters = new AuditDeadLetterStore(10);
+        try (ResilientAuditNotifier notifier = new ResilientAuditNotifier(sink, deadLetters, config)) {
+            notifier.submit(1, List.of(batch(1)));
+            notifier.submit(2, List.of(batch(2)));
+            assertEquals(CircuitBreaker.State.OPEN, notifier.breakerState());
+
+            notifier.submit(3, List.of(batch(3)));
+            assertEquals(2, sink.calls.get(), "open breaker does not call the sink");
+            assertEquals(1, notifier.rejectionCount());
+            assertEquals(3, deadLetters.size());
+
+            // the same batch failing again updates its letter instead of taking another slot
+            notifier.submit(3, List.of(batch(3)));
+            assertEquals(3, deadLetters.size());
+            assertEquals(2, notifier.rejectionCount());
+
+            Thread.sleep(250);
+            notifier.submit(4, List.of());
+            assertEquals(3, sink.calls.get());
+            assertEquals(CircuitBreaker.State.CLOSED, notifier.breakerState());
+            assertEquals(1, notifier.successCount());
+        }
+    }
+}
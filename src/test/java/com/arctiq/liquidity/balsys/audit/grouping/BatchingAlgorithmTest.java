@@ -67,4 +67,20 @@ class BatchingAlgorithmTest {
             assertTrue(batch.getTotalValue().asDouble() <= config.getMaxBatchValue());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Batch IDs derive from content, so re-batching the same transactions reproduces them")
+    void shouldDeriveBatchIdsFromContent() {
+        List<Transaction> transactions = AuditTestFixtures.randomTransactions(500, config);
+        List<String> first = batchingStrategy.groupIntoBatches(transactions).stream()
+                .map(AuditBatch::getBatchId).toList();
+        List<String> again = batchingStrategy.groupIntoBatches(transactions).stream()
+                .map(AuditBatch::getBatchId).toList();
+
+        assertEquals(first, again);
+        assertEquals(first.size(), first.stream().distinct().count(), "distinct contents, distinct IDs");
+        List<String> other = batchingStrategy.groupIntoBatches(transactions.subList(0, 499)).stream()
+                .map(AuditBatch::getBatchId).toList();
+        assertNotEquals(first, other);
+    }
+}
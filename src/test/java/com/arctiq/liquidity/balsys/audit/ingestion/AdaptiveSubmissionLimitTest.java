@@ -0,0 +1,86 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveSubmissionLimitTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static TransactionConfigProperties config(int initial) {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setAdaptiveSubmissionLimit(true);
+        config.setSubmissionLimit(initial);
+        config.setSubmissionLimitFloor(100);
+        config.setSubmissionLimitCeiling(5_000);
+        config.setMaxAuditLatencyMillis(1_000);
+        config.setQueueCapacity(10_000);
+        return config;
+    }
+
+    @Test
+    @DisplayName("The ceiling is capped at the queue capacity")
+    void shouldCapCeilingAtQueueCapacity() {
+        TransactionConfigProperties config = config(1_000);
+        config.setQueueCapacity(2_048);
+
+        assertEquals(2_048, new AdaptiveSubmissionLimit(config, 1).ceiling());
+    }
+
+    @Test
+    @DisplayName("Full cycles at a high arrival rate grow the limit additively up to the ceiling")
+    void shouldGrowUnderBacklog() {
+        AdaptiveSubmissionLimit limit = new AdaptiveSubmissionLimit(config(1_000), 1);
+        long now = System.nanoTime();
+        // 50k tx/s: every cycle is full and 10 ms apart
+        for (int i = 0; i < 100; i++) {
+            int size = limit.current();
+            now += size * 1_000_000_000L / 50_000;
+            limit.onCycle(size, size, 2 * MS, 50 * MS, now);
+        }
+
+        assertEquals(5_000, limit.current());
+        assertTrue(limit.arrivalRate() > 40_000, "rate " + limit.arrivalRate());
+        assertEquals(40, limit.increaseCount());
+        assertEquals(0, limit.decreaseCount());
+    }
+
+    @Test
+    @DisplayName("A low arrival rate shrinks the limit to what fits in the latency budget, not below the floor")
+    void shouldShrinkAtLowRate() {
+        AdaptiveSubmissionLimit limit = new AdaptiveSubmissionLimit(config(1_000), 1);
+        long now = System.nanoTime();
+        // 50 tx/s, cut by the flush interval every second
+        for (int i = 0; i < 10; i++) {
+            now += 1_000 * MS;
+            limit.onCycle(50, limit.current(), 2 * MS, 900 * MS, now);
+        }
+
+        assertEquals(100, limit.current());
+        assertEquals(50, limit.arrivalRate(), 1);
+        assertEquals(4, limit.decreaseCount(), "1000 -> 500 -> 250 -> 125 -> floor");
+    }
+
+    @Test
+    @DisplayName("A cycle over the latency budget halves the limit; disabled, the limit never moves")
+    void shouldBackOffOnLatencyAndStayFixedWhenDisabled() {
+        AdaptiveSubmissionLimit limit = new AdaptiveSubmissionLimit(config(4_000), 1);
+        limit.onCycle(4_000, 4_000, 300 * MS, 1_500 * MS);
+        assertEquals(2_000, limit.current());
+        assertEquals(1, limit.decreaseCount());
+
+        TransactionConfigProperties fixed = config(4_000);
+        fixed.setAdaptiveSubmissionLimit(false);
+        AdaptiveSubmissionLimit disabled = new AdaptiveSubmissionLimit(fixed, 1);
+        disabled.onCycle(4_000, 4_000, 300 * MS, 1_500 * MS);
+        assertEquals(4_000, disabled.current());
+        assertEquals(0, disabled.decreaseCount());
+    }
+}
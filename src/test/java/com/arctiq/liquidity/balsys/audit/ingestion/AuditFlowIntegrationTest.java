@@ -16,16 +16,19 @@ import com.arctiq.liquidity.balsys.transaction.core.Transaction;
 
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.arctiq.liquidity.balsys.audit.application.AuditStatsService;
 import com.arctiq.liquidity.balsys.audit.dispatch.ConsoleAuditNotifier;
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
 
 class AuditFlowIntegrationTest {
 
@@ -69,4 +72,64 @@ class AuditFlowIntegrationTest {
         int totalTx = persisted.stream().mapToInt(AuditBatch::getTransactionCount).sum();
         assertEquals(config.getSubmissionLimit(), totalTx, "Expected all submitted transactions to be batched");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("The consumer flushes a tail below the submission limit once it ages out")
+    void shouldFlushTailOnAge() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setFlushIntervalMillis(50);
+        MetricsCollector metrics = new MetricsCollector(new SimpleMeterRegistry());
+        AuditBatchPersistence persistence = new InMemoryAuditBatchStore();
+        MpscRingBuffer<Transaction> queue = new MpscRingBuffer<>(config.getQueueCapacity());
+        BankAccountService accountService = new BankAccountServiceImpl(queue, config, metrics);
+        AuditProcessingService auditService = new AuditProcessingService(queue, config,
+                new FirstFitDecreasingBatchingStrategy(Money.of(config.getMaxBatchValue())),
+                new ConsoleAuditNotifier(), persistence, metrics);
+        auditService.start();
+
+        try {
+            AuditTestFixtures.thresholdTransactions(10, 250_000.0).forEach(accountService::processTransaction);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (metrics.getQueueToSubmissionSnapshot().get("max") < 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(10, persistence.fetchAll().stream().mapToInt(AuditBatch::getTransactionCount).sum());
+            assertTrue(queue.isEmpty());
+            double max = metrics.getQueueToSubmissionSnapshot().get("max");
+            assertTrue(max >= 0 && max < 1_000, "queue-to-submission latency should track the flush interval: " + max);
+        } finally {
+            auditService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("The consumer cuts full submissions on size and flushes the rest on shutdown")
+    void shouldCutOnSizeAndDrainOnShutdown() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setSubmissionLimit(100);
+        config.setFlushIntervalMillis(60_000);
+        MetricsCollector metrics = new MetricsCollector(new SimpleMeterRegistry());
+        AuditBatchPersistence persistence = new InMemoryAuditBatchStore();
+        MpscRingBuffer<Transaction> queue = new MpscRingBuffer<>(config.getQueueCapacity());
+        BankAccountService accountService = new BankAccountServiceImpl(queue, config, metrics);
+        AuditProcessingService auditService = new AuditProcessingService(queue, config,
+                new FirstFitDecreasingBatchingStrategy(Money.of(config.getMaxBatchValue())),
+                new ConsoleAuditNotifier(), persistence, metrics);
+        auditService.start();
+
+        AuditTestFixtures.thresholdTransactions(250, 250_000.0).forEach(accountService::processTransaction);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (persistence.fetchAll().stream().mapToInt(AuditBatch::getTransactionCount).sum() < 200
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(200, persistence.fetchAll().stream().mapToInt(AuditBatch::getTransactionCount).sum(),
+                "only whole submissions are cut before the interval elapses");
+
+        auditService.shutdown();
+        assertTrue(auditService.awaitTermination(2, TimeUnit.SECONDS));
+        assertEquals(250, persistence.fetchAll().stream().mapToInt(AuditBatch::getTransactionCount).sum());
+    }
+}
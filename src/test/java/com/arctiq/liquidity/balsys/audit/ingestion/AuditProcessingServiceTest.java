@@ -0,0 +1,238 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.audit.grouping.FirstFitDecreasingBatchingStrategy;
+import com.arctiq.liquidity.balsys.audit.persistence.AuditBatchPersistence;
+import com.arctiq.liquidity.balsys.audit.persistence.InMemoryAuditBatchStore;
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditProcessingServiceTest {
+
+    /** Records what it receives and stands in for a downstream call of fixed latency. */
+    static class RecordingNotifier implements AuditNotifier {
+        final Queue<Long> sequences = new ConcurrentLinkedQueue<>();
+        final AtomicInteger transactions = new AtomicInteger();
+        final long latencyNanos;
+
+        RecordingNotifier(long latencyNanos) {
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public void submit(List<AuditBatch> batches) {
+            submit(0, batches);
+        }
+
+        @Override
+        public void submit(long sequence, List<AuditBatch> batches) {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            sequences.add(sequence);
+            transactions.addAndGet(batches.stream().mapToInt(AuditBatch::getTransactionCount).sum());
+        }
+    }
+
+    private static AuditProcessingService service(MpscRingBuffer<Transaction> queue, TransactionConfigProperties config,
+            AuditNotifier notifier) {
+        return service(queue, config, notifier, new InMemoryAuditBatchStore());
+    }
+
+    private static AuditProcessingService service(BlockingQueue<Transaction> queue, TransactionConfigProperties config,
+            AuditNotifier notifier, AuditBatchPersistence store) {
+        return new AuditProcessingService(queue, config,
+                new FirstFitDecreasingBatchingStrategy(Money.of(config.getMaxBatchValue())), notifier, store,
+                new MetricsCollector(new SimpleMeterRegistry()));
+    }
+
+    /**
+     * Waits up to 10 s for {@code count} transactions to be notified.
+     */
+    private static void awaitNotified(RecordingNotifier notifier, int count) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (notifier.transactions.get() < count && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+        assertEquals(count, notifier.transactions.get(), "notified before the deadline");
+    }
+
+    private static MpscRingBuffer<Transaction> filledQueue(int count, TransactionConfigProperties config) {
+        MpscRingBuffer<Transaction> queue = new MpscRingBuffer<>(count);
+        AuditTestFixtures.randomTransactions(count, config).forEach(queue::add);
+        return queue;
+    }
+
+    @Test
+    @DisplayName("Partitioned workers audit every transaction under gap-free submission sequences")
+    void shouldAuditEverythingAcrossPartitions() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setAuditThreads(4);
+        config.setSubmissionLimit(100);
+        config.setFlushIntervalMillis(20);
+        MpscRingBuffer<Transaction> queue = filledQueue(5_000, config);
+        RecordingNotifier notifier = new RecordingNotifier(0);
+        AuditProcessingService auditService = service(queue, config, notifier);
+
+        auditService.start();
+        auditService.shutdown();
+        assertTrue(auditService.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(5_000, notifier.transactions.get());
+        long submissions = auditService.lastSubmissionSequence();
+        assertEquals(submissions, notifier.sequences.size());
+        assertEquals(submissions * (submissions + 1) / 2,
+                notifier.sequences.stream().mapToLong(Long::longValue).sum(), "sequences are 1..n without gaps");
+        assertTrue(submissions >= 50, "each of the 4 partitions cuts its own submissions");
+    }
+
+    @Test
+    @DisplayName("A partition stuck behind its notifier does not hold up the others")
+    void shouldKeepRoutingPastStalledPartition() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setAuditThreads(2);
+        config.setSubmissionLimit(10);
+        config.setFlushIntervalMillis(5);
+        config.setQueueCapacity(200);
+        config.setAuditStageCapacity(1);
+        MpscRingBuffer<Transaction> queue = filledQueue(600, config);
+        int healthy = (int) queue.stream()
+                .filter(t -> AuditProcessingService.partitionOf(t.id().value(), 2) == 1).count();
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingNotifier notifier = new RecordingNotifier(0) {
+            @Override
+            public void submit(long sequence, List<AuditBatch> batches) {
+                if (Thread.currentThread().getName().endsWith("-0")) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.submit(sequence, batches);
+            }
+        };
+        AuditProcessingService auditService = service(queue, config, notifier);
+
+        auditService.start();
+        // partition 0 can take in about 180 before its ring stays full; a blocking hand-off would stop there
+        awaitNotified(notifier, healthy);
+
+        release.countDown();
+        auditService.shutdown();
+        assertTrue(auditService.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(600, notifier.transactions.get());
+    }
+
+    @Test
+    @DisplayName("A stalled notifier does not stop later cycles from being drained and persisted")
+    void shouldOverlapStagesBehindSlowNotifier() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setSubmissionLimit(100);
+        config.setFlushIntervalMillis(20);
+        config.setAuditStageCapacity(4);
+        MpscRingBuffer<Transaction> queue = filledQueue(500, config);
+        InMemoryAuditBatchStore store = new InMemoryAuditBatchStore();
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingNotifier notifier = new RecordingNotifier(0) {
+            @Override
+            public void submit(long sequence, List<AuditBatch> batches) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.submit(sequence, batches);
+            }
+        };
+        AuditProcessingService auditService = service(queue, config, notifier, store);
+
+        auditService.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.findPendingBatchIds().size() < 5 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        assertEquals(5, store.findPendingBatchIds().size(), "every cycle persisted while the first is still notifying");
+        assertTrue(queue.isEmpty());
+        assertTrue(notifier.sequences.isEmpty());
+
+        release.countDown();
+        auditService.shutdown();
+        assertTrue(auditService.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), List.copyOf(notifier.sequences), "notified in the order cut");
+        assertEquals(500, notifier.transactions.get());
+        assertTrue(store.findPendingBatchIds().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Transactions drained from the durable queue but not yet notified are replayed after a crash")
+    void shouldCommitDurableQueueOnlyAfterNotify(@TempDir Path directory) throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setAuditThreads(2);
+        config.setSubmissionLimit(10);
+        config.setFlushIntervalMillis(20);
+        MappedAuditQueue queue = new MappedAuditQueue(directory, 1_000, 64 * 1024, Duration.ofHours(1));
+        AuditTestFixtures.randomTransactions(50, config).forEach(queue::add);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingNotifier notifier = new RecordingNotifier(0) {
+            @Override
+            public void submit(long sequence, List<AuditBatch> batches) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.submit(sequence, batches);
+            }
+        };
+        AuditProcessingService auditService = service(queue, config, notifier, new InMemoryAuditBatchStore());
+
+        auditService.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.drainedSequence() < 50 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        assertEquals(50, queue.drainedSequence());
+        queue.sync();
+        // crash here: everything is drained, nothing is notified
+        try (MappedAuditQueue restarted = new MappedAuditQueue(directory, 1_000, 64 * 1024, Duration.ofHours(1))) {
+            assertEquals(0, restarted.consumerPosition());
+            assertEquals(50, restarted.replayedCount());
+        }
+
+        release.countDown();
+        auditService.shutdown();
+        assertTrue(auditService.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(50, notifier.transactions.get());
+        queue.sync();
+        assertEquals(50, queue.consumerPosition());
+        queue.close();
+        try (MappedAuditQueue restarted = new MappedAuditQueue(directory, 1_000, 64 * 1024, Duration.ofHours(1))) {
+            assertEquals(0, restarted.replayedCount());
+        }
+    }
+}
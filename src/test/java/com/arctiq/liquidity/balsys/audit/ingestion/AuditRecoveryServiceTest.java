@@ -0,0 +1,248 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arctiq.liquidity.balsys.audit.dispatch.AuditDeadLetterStore;
+import com.arctiq.liquidity.balsys.audit.dispatch.ResilientAuditNotifier;
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.audit.grouping.BatchingStrategy;
+import com.arctiq.liquidity.balsys.audit.grouping.FirstFitDecreasingBatchingStrategy;
+import com.arctiq.liquidity.balsys.audit.ingestion.AuditProcessingServiceTest.RecordingNotifier;
+import com.arctiq.liquidity.balsys.audit.persistence.InMemoryAuditBatchStore;
+import com.arctiq.liquidity.balsys.config.AuditDeliveryConfigProperties;
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorMode;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditRecoveryServiceTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditRecoveryServiceTest.class);
+
+    private static BatchingStrategy batching(TransactionConfigProperties config) {
+        return new FirstFitDecreasingBatchingStrategy(Money.of(config.getMaxBatchValue()));
+    }
+
+    @Test
+    @DisplayName("A cycle whose notify failed is resubmitted and marked submitted")
+    void shouldResubmitFailedCycle() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setSubmissionLimit(100);
+        config.setFlushIntervalMillis(20);
+        MpscRingBuffer<Transaction> queue = new MpscRingBuffer<>(300);
+        AuditTestFixtures.randomTransactions(300, config).forEach(queue::add);
+        InMemoryAuditBatchStore store = new InMemoryAuditBatchStore();
+        RecordingNotifier notifier = new RecordingNotifier(0) {
+            @Override
+            public void submit(long sequence, List<AuditBatch> batches) {
+                if (sequence == 1) {
+                    throw new IllegalStateException("downstream unavailable");
+                }
+                super.submit(sequence, batches);
+            }
+        };
+        MetricsCollector metrics = new MetricsCollector(new SimpleMeterRegistry());
+        AuditProcessingService auditService = new AuditProcessingService(queue, config, batching(config), notifier,
+                store, metrics);
+        auditService.start();
+        auditService.shutdown();
+        assertTrue(auditService.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, store.findPendingBatchIds().size());
+        assertEquals(200, notifier.transactions.get());
+
+        AuditRecoveryService recovery = new AuditRecoveryService(store, batching(config), notifier,
+                new AuditDeadLetterStore(10), auditService::isInFlight, config, metrics);
+        try {
+            assertEquals(1, recovery.recoverPending());
+        } finally {
+            recovery.shutdown();
+        }
+
+        assertTrue(store.findPendingBatchIds().isEmpty());
+        assertEquals(300, notifier.transactions.get());
+        assertEquals(1, recovery.resubmittedCount());
+        assertEquals(0, recovery.backlog());
+    }
+
+    @Test
+    @DisplayName("Batches still in flight are left to their cycle")
+    void shouldSkipInFlightBatches() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        InMemoryAuditBatchStore store = new InMemoryAuditBatchStore();
+        store.save("in-flight", AuditTestFixtures.randomTransactions(10, config));
+        RecordingNotifier notifier = new RecordingNotifier(0);
+        AuditRecoveryService recovery = new AuditRecoveryService(store, batching(config), notifier,
+                new AuditDeadLetterStore(10), "in-flight"::equals, config, new MetricsCollector(new SimpleMeterRegistry()));
+        try {
+            assertEquals(0, recovery.recoverPending());
+        } finally {
+            recovery.shutdown();
+        }
+
+        assertEquals(List.of("in-flight"), store.findPendingBatchIds());
+        assertEquals(0, notifier.transactions.get());
+    }
+
+    @Test
+    @DisplayName("Dead letters are redelivered with their sequence, and a failed one waits for the next run")
+    void shouldRedeliverDeadLetters() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setAuditRecoveryParallelism(1);
+        List<AuditBatch> first = batching(config).groupIntoBatches(AuditTestFixtures.randomTransactions(20, config));
+        List<AuditBatch> second = batching(config).groupIntoBatches(AuditTestFixtures.randomTransactions(20, config));
+        AuditDeadLetterStore deadLetters = new AuditDeadLetterStore(100);
+        deadLetters.add(4, first, "timed out", 3, Instant.now());
+        deadLetters.add(9, second, "circuit open", 0, Instant.now());
+        AtomicBoolean down = new AtomicBoolean(true);
+        RecordingNotifier notifier = new RecordingNotifier(0) {
+            @Override
+            public void submit(long sequence, List<AuditBatch> batches) {
+                if (sequence == 9 && down.getAndSet(false)) {
+                    throw new IllegalStateException("still down");
+                }
+                super.submit(sequence, batches);
+            }
+        };
+        InMemoryAuditBatchStore store = new InMemoryAuditBatchStore();
+        AuditRecoveryService recovery = new AuditRecoveryService(store, batching(config), notifier, deadLetters,
+                id -> false, config, new MetricsCollector(new SimpleMeterRegistry()));
+        try {
+            assertEquals(1, recovery.recoverPending());
+            assertEquals(List.of(4L), List.copyOf(notifier.sequences));
+            assertEquals(1, recovery.failureCount());
+            assertEquals(second.size(), deadLetters.size());
+            assertTrue(deadLetters.snapshot().stream().allMatch(letter -> letter.sequence() == 9
+                    && letter.attempts() == 1 && letter.reason().equals("still down")));
+            assertTrue(first.stream().allMatch(batch -> store.isAcknowledged(batch.getBatchId())));
+
+            // a duplicate of an acknowledged letter is dropped without a round trip
+            deadLetters.add(4, first, "timed out", 3, Instant.now());
+            assertEquals(2, recovery.recoverPending());
+            assertEquals(List.of(4L, 9L), List.copyOf(notifier.sequences));
+            assertEquals(0, deadLetters.size());
+        } finally {
+            recovery.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("A batch that keeps failing holds one dead letter, updated in place by every run")
+    void shouldUpdateDeadLettersInPlace() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        InMemoryAuditBatchStore store = new InMemoryAuditBatchStore();
+        store.save("stuck", AuditTestFixtures.randomTransactions(10, config));
+        int batches = batching(config).groupIntoBatches(store.loadBlock("stuck").orElseThrow()).size();
+        AuditDeliveryConfigProperties delivery = new AuditDeliveryConfigProperties();
+        delivery.setMaxAttempts(1);
+        delivery.setBreakerFailureThreshold(1_000);
+        // exactly as many slots as the block has batches: one extra letter per run would overflow
+        AuditDeadLetterStore deadLetters = new AuditDeadLetterStore(batches);
+        RecordingNotifier sink = new RecordingNotifier(0) {
+            @Override
+            public void submit(long sequence, List<AuditBatch> submitted) {
+                throw new IllegalStateException("still down");
+            }
+        };
+        try (ExecutorRegistry executors = new ExecutorRegistry(ExecutorMode.PLATFORM);
+                ResilientAuditNotifier notifier = new ResilientAuditNotifier(sink, deadLetters, delivery,
+                        executors)) {
+            AuditRecoveryService recovery = new AuditRecoveryService(store, batching(config), notifier,
+                    deadLetters, id -> false, config, new MetricsCollector(new SimpleMeterRegistry()), executors);
+            try {
+                for (int run = 0; run < 3; run++) {
+                    assertEquals(0, recovery.recoverPending());
+                    assertEquals(batches, deadLetters.size());
+                }
+            } finally {
+                recovery.shutdown();
+            }
+            assertEquals(0, deadLetters.overflowCount());
+            // one attempt from the first run's resubmission, then a redelivery and a resubmission per run
+            assertTrue(deadLetters.snapshot().stream().allMatch(letter -> letter.attempts() == 5
+                    && letter.reason().equals("still down")));
+            assertTrue(executors.pools().stream().anyMatch(pool -> pool.name().equals("audit-recovery")));
+        }
+    }
+
+    @Test
+    @DisplayName("Only the batches a receiver did not acknowledge are resubmitted")
+    void shouldResubmitOnlyUnacknowledgedBatches() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        InMemoryAuditBatchStore store = new InMemoryAuditBatchStore();
+        List<Transaction> transactions = AuditTestFixtures.thresholdTransactions(3, config.getMaxBatchValue() * 0.9);
+        store.save("cycle", transactions);
+        store.save("crashed", AuditTestFixtures.randomTransactions(10, config));
+        List<AuditBatch> cycle = batching(config).groupIntoBatches(transactions);
+        assertEquals(3, cycle.size());
+        // the cycle's first two batches were acknowledged; the crash came before markSubmitted
+        store.markAcknowledged(List.of(cycle.get(0).getBatchId(), cycle.get(1).getBatchId()));
+        batching(config).groupIntoBatches(store.loadBlock("crashed").orElseThrow())
+                .forEach(batch -> store.markAcknowledged(List.of(batch.getBatchId())));
+
+        List<String> submitted = new CopyOnWriteArrayList<>();
+        RecordingNotifier notifier = new RecordingNotifier(0) {
+            @Override
+            public void submit(List<AuditBatch> batches) {
+                batches.forEach(batch -> submitted.add(batch.getBatchId()));
+                super.submit(batches);
+            }
+        };
+        AuditRecoveryService recovery = new AuditRecoveryService(store, batching(config), notifier,
+                new AuditDeadLetterStore(10), id -> false, config, new MetricsCollector(new SimpleMeterRegistry()));
+        try {
+            assertEquals(2, recovery.recoverPending());
+        } finally {
+            recovery.shutdown();
+        }
+
+        assertEquals(List.of(cycle.get(2).getBatchId()), submitted);
+        assertTrue(store.findPendingBatchIds().isEmpty());
+        assertTrue(store.isAcknowledged(cycle.get(2).getBatchId()));
+    }
+
+    @Test
+    @DisplayName("A large backlog drains at the configured rate however many workers there are")
+    void shouldRateLimitResubmission() throws InterruptedException {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setAuditRecoveryParallelism(4);
+        config.setAuditRecoveryRatePerSecond(100);
+        InMemoryAuditBatchStore store = new InMemoryAuditBatchStore();
+        for (int i = 0; i < 30; i++) {
+            store.save("batch-" + i, AuditTestFixtures.randomTransactions(5, config));
+        }
+        RecordingNotifier notifier = new RecordingNotifier(0);
+        AuditRecoveryService recovery = new AuditRecoveryService(store, batching(config), notifier,
+                new AuditDeadLetterStore(10), id -> false, config, new MetricsCollector(new SimpleMeterRegistry()));
+
+        long start = System.nanoTime();
+        try {
+            assertEquals(30, recovery.recoverPending());
+        } finally {
+            recovery.shutdown();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        logger.info("Recovered 30 batches at 100/s on 4 workers in {} ms ({} batches/s)", elapsedMillis,
+                Math.round(recovery.drainRate()));
+        assertTrue(elapsedMillis >= 280, "29 permits beyond the first take at least 290 ms: " + elapsedMillis);
+        assertTrue(recovery.drainRate() <= 110, "drain rate " + recovery.drainRate());
+        assertTrue(store.findPendingBatchIds().isEmpty());
+    }
+}
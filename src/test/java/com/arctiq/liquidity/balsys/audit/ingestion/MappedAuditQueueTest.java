@@ -0,0 +1,150 @@
+package com.arctiq.liquidity.balsys.audit.ingestion;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedAuditQueueTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private MappedAuditQueue open(Duration syncInterval) {
+        return new MappedAuditQueue(directory, 1_000, SEGMENT_BYTES, syncInterval);
+    }
+
+    private static Transaction tx(long id) {
+        String account = id % 3 == 0 ? "default" : "acct-" + id % 7;
+        return new Transaction(new TransactionId(id), new Money(new BigDecimal(id + ".125")), BASE.plusNanos(id),
+                new AccountId(account));
+    }
+
+    private static List<Long> ids(List<Transaction> transactions) {
+        return transactions.stream().map(t -> t.id().value()).toList();
+    }
+
+    @Test
+    @DisplayName("Replays only what the consumer had not committed before a restart")
+    void shouldReplayUncommittedAfterRestart() {
+        try (MappedAuditQueue queue = open(Duration.ofMillis(1))) {
+            for (long id = 1; id <= 10; id++) {
+                assertTrue(queue.offer(tx(id)));
+            }
+            List<Transaction> drained = new ArrayList<>();
+            assertEquals(4, queue.drainTo(drained, 4));
+            assertEquals(tx(5), queue.poll());
+            assertEquals(5, queue.drainedSequence());
+            queue.commit(5);
+        }
+
+        try (MappedAuditQueue queue = open(Duration.ofMillis(1))) {
+            assertEquals(5, queue.replayedCount());
+            assertEquals(5, queue.consumerPosition());
+            List<Transaction> replayed = new ArrayList<>();
+            queue.drainTo(replayed);
+            assertEquals(List.of(6L, 7L, 8L, 9L, 10L), ids(replayed));
+            assertEquals(tx(7), replayed.get(1), "account and exact amount survive the round trip");
+
+            queue.offer(tx(11));
+            assertEquals(tx(11), queue.poll());
+            queue.commit(queue.drainedSequence());
+        }
+
+        try (MappedAuditQueue queue = open(Duration.ofMillis(1))) {
+            assertEquals(0, queue.replayedCount());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("A crash before the next sync replays everything since the last recorded position")
+    void shouldReplayAtLeastOnceAfterCrash() {
+        MappedAuditQueue crashed = open(Duration.ofHours(1));
+        for (long id = 1; id <= 10; id++) {
+            crashed.offer(tx(id));
+        }
+        crashed.poll();
+        crashed.commit(1);
+        crashed.sync();
+        crashed.poll();
+        crashed.commit(2);
+        crashed.offer(tx(11));
+        // never closed: the second commit and the last append were not recorded by a sync
+
+        try (MappedAuditQueue queue = open(Duration.ofMillis(1))) {
+            assertEquals(10, queue.replayedCount());
+            List<Transaction> replayed = new ArrayList<>();
+            queue.drainTo(replayed);
+            assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L), ids(replayed));
+        }
+    }
+
+    @Test
+    @DisplayName("Consumed segments are recycled as spares instead of piling up")
+    void shouldRecycleConsumedSegments() {
+        try (MappedAuditQueue queue = open(Duration.ofHours(1))) {
+            List<Transaction> sink = new ArrayList<>();
+            for (long id = 1; id <= 20_000; id++) {
+                assertTrue(queue.offer(tx(id)));
+                if (queue.size() == 1_000) {
+                    queue.drainTo(sink);
+                    sink.clear();
+                    queue.commit(queue.drainedSequence());
+                    queue.sync();
+                }
+            }
+            queue.drainTo(sink);
+            queue.commit(queue.drainedSequence());
+            queue.sync();
+
+            assertTrue(queue.recycledSegmentCount() > 0, "rolls reuse spare segments");
+            assertTrue(queue.segmentCount() <= 2, "segments behind the consumer are retired: " + queue.segmentCount());
+            assertEquals(20_000, queue.consumerPosition());
+        }
+
+        try (MappedAuditQueue queue = open(Duration.ofMillis(1))) {
+            assertEquals(0, queue.replayedCount());
+            queue.offer(tx(20_001));
+            assertEquals(tx(20_001), queue.poll());
+        }
+    }
+
+    @Test
+    @DisplayName("Transactions drained but never committed are replayed after a crash")
+    void shouldReplayDrainedButUncommittedAfterCrash() {
+        MappedAuditQueue crashed = open(Duration.ofHours(1));
+        for (long id = 1; id <= 10; id++) {
+            crashed.offer(tx(id));
+        }
+        List<Transaction> drained = new ArrayList<>();
+        crashed.drainTo(drained);
+        crashed.commit(3);
+        crashed.sync();
+        // drained through 10, but only 1..3 were notified before the crash
+
+        try (MappedAuditQueue queue = open(Duration.ofMillis(1))) {
+            assertEquals(3, queue.consumerPosition());
+            List<Transaction> replayed = new ArrayList<>();
+            queue.drainTo(replayed);
+            assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L, 10L), ids(replayed));
+            assertThrows(IllegalArgumentException.class, () -> queue.commit(11));
+        }
+    }
+}
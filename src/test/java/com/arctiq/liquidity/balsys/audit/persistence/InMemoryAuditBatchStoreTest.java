@@ -1,12 +1,15 @@
 package com.arctiq.liquidity.balsys.audit.persistence;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import com.arctiq.liquidity.balsys.shared.domain.model.Money;
@@ -61,6 +64,30 @@ class InMemoryAuditBatchStoreTest {
         assertFalse(pending.contains(batchId), "Batch should no longer be pending");
     }
 
+    @Test
+    @DisplayName("Acknowledgements are forgotten once they age out of the retention window")
+    void shouldExpireAcknowledgements() {
+        AtomicLong clock = new AtomicLong();
+        long slice = Duration.ofSeconds(80).toNanos() / InMemoryAuditBatchStore.ACK_SLICES;
+        InMemoryAuditBatchStore acks = new InMemoryAuditBatchStore(Duration.ofSeconds(80), clock::get);
+
+        acks.markAcknowledged(List.of("batch-a", "batch-b"));
+        clock.addAndGet(3 * slice);
+        acks.markAcknowledged(List.of("batch-c"));
+        clock.addAndGet(4 * slice);
+        assertTrue(acks.isAcknowledged("batch-a"), "still inside the window");
+        assertEquals(3, acks.acknowledgedCount());
+
+        clock.addAndGet(slice);
+        assertFalse(acks.isAcknowledged("batch-a"));
+        assertTrue(acks.isAcknowledged("batch-c"));
+        assertEquals(1, acks.acknowledgedCount());
+
+        clock.addAndGet(100 * slice);
+        assertFalse(acks.isAcknowledged("batch-c"));
+        assertEquals(0, acks.acknowledgedCount());
+    }
+
     @Test
     void shouldHandleUnknownBatchGracefully() {
         Optional<List<Transaction>> result = store.load("nonexistent");
@@ -0,0 +1,85 @@
+package com.arctiq.liquidity.balsys.audit.transport.codec;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.audit.grouping.FirstFitDecreasingBatchingStrategy;
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+import com.arctiq.liquidity.balsys.transaction.transport.codec.CodecSchema;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditBatchCodecTest {
+
+    private final AuditBatchEncoder encoder = new AuditBatchEncoder();
+    private final AuditBatchDecoder decoder = new AuditBatchDecoder();
+
+    @Test
+    @DisplayName("Batches round-trip with their ID, limit and every transaction")
+    void shouldRoundTripBatch() {
+        Instant now = Instant.parse("2026-03-01T10:15:30.000000001Z");
+        AuditBatch original = new AuditBatch("batch-1", List.of(
+                new Transaction(new TransactionId(1), Money.of(300_000.5), now),
+                new Transaction(new TransactionId(2), Money.of(-150_000.0), now, new AccountId("acc-1")),
+                new Transaction(new TransactionId(3), new Money(new BigDecimal("0.0001")), now, new AccountId("acc-1"))),
+                Money.of(1_000_000.0));
+        ByteBuffer buffer = ByteBuffer.allocate(AuditBatchEncoder.encodedSize(original) + 5);
+
+        int length = encoder.encode(buffer, 5, original);
+        AuditBatch decoded = decoder.decode(buffer, 5);
+
+        assertEquals(AuditBatchEncoder.encodedSize(original), length);
+        assertEquals(length, decoder.encodedLength());
+        assertEquals(original.getBatchId(), decoded.getBatchId());
+        assertEquals(0, original.getTotalValue().amount().compareTo(decoded.getTotalValue().amount()));
+        assertEquals(0, original.getValueLimit().amount().compareTo(decoded.getValueLimit().amount()));
+        List<Transaction> expected = original.getTransactions();
+        List<Transaction> actual = decoded.getTransactions();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).id(), actual.get(i).id());
+            assertEquals(0, expected.get(i).amount().amount().compareTo(actual.get(i).amount().amount()));
+            assertEquals(expected.get(i).timestamp(), actual.get(i).timestamp());
+            assertEquals(expected.get(i).accountId(), actual.get(i).accountId());
+        }
+    }
+
+    @Test
+    @DisplayName("Strategy output encodes back to back in one buffer")
+    void shouldStreamBatchesBackToBack() {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        List<AuditBatch> batches = new FirstFitDecreasingBatchingStrategy(Money.of(config.getMaxBatchValue()))
+                .groupIntoBatches(AuditTestFixtures.randomTransactions(1_000, config));
+        int size = batches.stream().mapToInt(AuditBatchEncoder::encodedSize).sum();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+
+        int offset = 0;
+        for (AuditBatch batch : batches) {
+            offset += encoder.encode(buffer, offset, batch);
+        }
+        assertEquals(size, offset);
+
+        offset = 0;
+        int transactions = 0;
+        for (AuditBatch batch : batches) {
+            assertEquals(CodecSchema.AUDIT_BATCH_TEMPLATE_ID, CodecSchema.templateId(buffer.order(CodecSchema.BYTE_ORDER), offset));
+            AuditBatch decoded = decoder.decode(buffer, offset);
+            assertEquals(batch.getBatchId(), decoded.getBatchId());
+            assertEquals(batch.getTransactionCount(), decoded.getTransactionCount());
+            transactions += decoded.getTransactionCount();
+            offset += decoder.encodedLength();
+        }
+        assertEquals(1_000, transactions);
+    }
+}
@@ -0,0 +1,57 @@
+package com.arctiq.liquidity.balsys.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.arctiq.liquidity.balsys.audit.ingestion.MappedAuditQueue;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorMode;
+import com.arctiq.liquidity.balsys.shared.concurrent.ExecutorRegistry;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainConfigTest {
+
+    private static final int SEGMENT_BYTES = 1024 * 1024;
+
+    @Test
+    @DisplayName("Closing the context audits the durable queue before closing it")
+    void shouldDrainDurableQueueBeforeClosingIt(@TempDir Path directory) {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setFlushIntervalMillis(20);
+        AuditQueueConfigProperties queueConfig = new AuditQueueConfigProperties();
+        queueConfig.setDurable(true);
+        queueConfig.setDirectory(directory.toString());
+        queueConfig.setSegmentSizeMb(1);
+        try (MappedAuditQueue queue = new MappedAuditQueue(directory, config.getQueueCapacity(), SEGMENT_BYTES,
+                Duration.ofMillis(10))) {
+            AuditTestFixtures.randomTransactions(50, config).forEach(queue::add);
+        }
+
+        // closed straight after startup, while the replayed transactions are still queued
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(TransactionConfigProperties.class, () -> config);
+            context.registerBean(AuditQueueConfigProperties.class, () -> queueConfig);
+            context.registerBean(JournalConfigProperties.class);
+            context.registerBean(AuditDeliveryConfigProperties.class);
+            context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+            context.registerBean(ExecutorRegistry.class, () -> new ExecutorRegistry(ExecutorMode.PLATFORM));
+            context.register(DomainConfig.class);
+            context.refresh();
+        }
+
+        try (MappedAuditQueue reopened = new MappedAuditQueue(directory, config.getQueueCapacity(), SEGMENT_BYTES,
+                Duration.ofMillis(10))) {
+            assertEquals(50, reopened.consumerPosition());
+            assertEquals(0, reopened.replayedCount());
+        }
+    }
+}
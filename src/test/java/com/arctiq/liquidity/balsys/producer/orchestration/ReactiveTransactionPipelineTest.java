@@ -0,0 +1,118 @@
+package com.arctiq.liquidity.balsys.producer.orchestration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.account.application.BankAccountService;
+import com.arctiq.liquidity.balsys.account.application.BankAccountServiceImpl;
+import com.arctiq.liquidity.balsys.audit.domain.AuditBatch;
+import com.arctiq.liquidity.balsys.audit.grouping.FirstFitDecreasingBatchingStrategy;
+import com.arctiq.liquidity.balsys.audit.ingestion.AuditProcessingService;
+import com.arctiq.liquidity.balsys.audit.ingestion.ReactiveAuditPipeline;
+import com.arctiq.liquidity.balsys.audit.persistence.InMemoryAuditBatchStore;
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.producer.channel.TransactionProducer;
+import com.arctiq.liquidity.balsys.producer.config.ProducerConfig;
+import com.arctiq.liquidity.balsys.shared.audit.AuditNotifier;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.shared.queue.MpscRingBuffer;
+import com.arctiq.liquidity.balsys.telemetry.metrics.MetricsCollector;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveTransactionPipelineTest {
+
+    static class SlowNotifier implements AuditNotifier {
+        final Queue<Long> sequences = new ConcurrentLinkedQueue<>();
+        final AtomicInteger transactions = new AtomicInteger();
+        final long latencyNanos;
+
+        SlowNotifier(long latencyNanos) {
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public void submit(List<AuditBatch> batches) {
+            submit(0, batches);
+        }
+
+        @Override
+        public void submit(long sequence, List<AuditBatch> batches) {
+            LockSupport.parkNanos(latencyNanos);
+            sequences.add(sequence);
+            transactions.addAndGet(batches.stream().mapToInt(AuditBatch::getTransactionCount).sum());
+        }
+    }
+
+    private static TransactionConfigProperties config() {
+        TransactionConfigProperties config = AuditTestFixtures.config();
+        config.setSubmissionLimit(200);
+        config.setFlushIntervalMillis(50);
+        config.setAuditThreads(2);
+        config.setDefaultBalance(1_000_000_000.0);
+        return config;
+    }
+
+    private static AuditProcessingService auditService(MpscRingBuffer<Transaction> queue,
+            TransactionConfigProperties config, AuditNotifier notifier, MetricsCollector metrics) {
+        return new AuditProcessingService(queue, config,
+                new FirstFitDecreasingBatchingStrategy(Money.of(config.getMaxBatchValue())), notifier,
+                new InMemoryAuditBatchStore(), metrics);
+    }
+
+    @Test
+    @DisplayName("Every accepted transaction is applied and audited, with cycles notified in order")
+    void shouldApplyAndAuditEveryAcceptedTransaction() {
+        TransactionConfigProperties config = config();
+        MetricsCollector metrics = new MetricsCollector(new SimpleMeterRegistry());
+        MpscRingBuffer<Transaction> queue = new MpscRingBuffer<>(config.getQueueCapacity());
+        BankAccountService accounts = new BankAccountServiceImpl(queue, config, metrics);
+        SlowNotifier notifier = new SlowNotifier(0);
+        TransactionProducer credits = () -> AuditTestFixtures.randomCredit(config);
+        TransactionProducer debits = () -> AuditTestFixtures.randomDebit(config);
+
+        try (ReactiveTransactionPipeline pipeline = new ReactiveTransactionPipeline(credits, debits, accounts,
+                new ReactiveAuditPipeline(auditService(queue, config, notifier, metrics), config), metrics)) {
+            Long cycles = pipeline.run(new ProducerConfig(1000, 0)).block(Duration.ofSeconds(30));
+
+            assertEquals(notifier.sequences.size(), cycles.intValue());
+            assertEquals(2000, metrics.getAcceptedTxCount());
+            assertEquals(2000, notifier.transactions.get());
+            assertTrue(queue.isEmpty(), "the reactive path bypasses the audit queue");
+            List<Long> sequences = List.copyOf(notifier.sequences);
+            for (int i = 1; i < sequences.size(); i++) {
+                assertTrue(sequences.get(i) > sequences.get(i - 1), "out of order: " + sequences);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A count of zero emits nothing instead of failing on the emission spacing")
+    void shouldEmitNothingForZeroCount() {
+        TransactionConfigProperties config = config();
+        MetricsCollector metrics = new MetricsCollector(new SimpleMeterRegistry());
+        MpscRingBuffer<Transaction> queue = new MpscRingBuffer<>(config.getQueueCapacity());
+        SlowNotifier notifier = new SlowNotifier(0);
+
+        try (ReactiveTransactionPipeline pipeline = new ReactiveTransactionPipeline(
+                () -> AuditTestFixtures.randomCredit(config), () -> AuditTestFixtures.randomDebit(config),
+                new BankAccountServiceImpl(queue, config, metrics),
+                new ReactiveAuditPipeline(auditService(queue, config, notifier, metrics), config), metrics)) {
+            Long cycles = pipeline.run(new ProducerConfig(0, 1)).block(Duration.ofSeconds(5));
+
+            assertEquals(0, cycles.intValue());
+            assertEquals(0, metrics.getAcceptedTxCount());
+        }
+    }
+}
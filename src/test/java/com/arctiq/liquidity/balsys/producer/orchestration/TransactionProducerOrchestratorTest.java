@@ -80,4 +80,23 @@ class TransactionProducerOrchestratorTest {
 
                 assertEquals(20, queue.size(), "Expected 10 credits + 10 debits");
         }
-}
\ No newline at end of file
+
+        @Test
+        void shouldEmitConfiguredVolumeInBlocks() throws InterruptedException {
+                TransactionProducer creditProducer = () -> AuditTestFixtures.randomCredit(configProperties);
+                TransactionProducer debitProducer = () -> AuditTestFixtures.randomDebit(configProperties);
+
+                ProducerConfig producerConfig = new ProducerConfig(25, 1, 8); // blocks of 8, last one partial
+
+                TransactionProducerOrchestrator orchestrator = new TransactionProducerOrchestrator(creditProducer,
+                                debitProducer, accountService, auditProcessingService, new SimpleMeterRegistry(),
+                                executor, metrics);
+
+                orchestrator.startEmitLoops(producerConfig);
+                executor.shutdown();
+                executor.awaitTermination(3, TimeUnit.SECONDS);
+
+                assertEquals(50, queue.size(), "Expected 25 credits + 25 debits");
+                assertEquals(50, metrics.getAcceptedTxCount());
+        }
+}
@@ -0,0 +1,126 @@
+package com.arctiq.liquidity.balsys.shared.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ExecutorRegistryTest {
+
+    @Test
+    @DisplayName("Platform pools run on named daemon threads and count their tasks")
+    void shouldMeterPlatformPool() throws Exception {
+        try (ExecutorRegistry registry = new ExecutorRegistry(ExecutorMode.PLATFORM)) {
+            List<MeteredExecutor> observed = new ArrayList<>();
+            registry.observe(observed::add);
+            MeteredExecutor pool = registry.executor("test-pool", 2);
+
+            Thread thread = pool.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(thread.getName().startsWith("test-pool-"), thread.getName());
+            assertTrue(thread.isDaemon());
+
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 3; i++) {
+                pool.execute(() -> awaitQuietly(release));
+            }
+            waitFor(() -> pool.activeCount() == 2);
+            assertEquals(1.0, pool.utilization());
+            assertEquals(1, pool.queuedCount());
+            release.countDown();
+            waitFor(() -> pool.completedCount() == 4);
+
+            assertEquals(List.of(pool), observed);
+            assertTrue(pool.busySeconds() > 0);
+            assertEquals(0.0, pool.utilization());
+            assertThrows(IllegalArgumentException.class, () -> registry.executor("test-pool", 1));
+        }
+    }
+
+    @Test
+    @DisplayName("A pool with a capacity refuses tasks beyond it until one finishes")
+    void shouldRejectBeyondCapacity() throws Exception {
+        try (ExecutorRegistry registry = new ExecutorRegistry(ExecutorMode.PLATFORM)) {
+            MeteredExecutor pool = registry.executor("bounded-pool", 1, 2);
+            CountDownLatch release = new CountDownLatch(1);
+            pool.execute(() -> awaitQuietly(release));
+            pool.execute(() -> awaitQuietly(release));
+
+            assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> { }));
+            assertEquals(1, pool.rejectedCount());
+            release.countDown();
+            waitFor(() -> pool.completedCount() == 2);
+            pool.submit(() -> { }).get(5, TimeUnit.SECONDS);
+            assertThrows(IllegalArgumentException.class, () -> registry.executor("too-small", 2, 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Virtual mode fails fast on runtimes without virtual threads")
+    void shouldRejectVirtualModeBeforeJava21() {
+        assumeFalse(ExecutorRegistry.virtualThreadsSupported(), "runtime has virtual threads");
+        assertThrows(IllegalStateException.class, () -> new ExecutorRegistry(ExecutorMode.VIRTUAL));
+    }
+
+    @Test
+    @DisplayName("Virtual mode runs pool tasks and dedicated loops on named virtual threads")
+    void shouldRunOnVirtualThreads() throws Exception {
+        assumeTrue(ExecutorRegistry.virtualThreadsSupported(), "needs Java 21");
+        try (ExecutorRegistry registry = new ExecutorRegistry(ExecutorMode.VIRTUAL)) {
+            Thread pooled = registry.executor("test-pool", 2).submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(isVirtual(pooled));
+            assertTrue(pooled.getName().startsWith("test-pool-"), pooled.getName());
+
+            Thread loop = registry.newThread("test-loop", () -> { });
+            assertTrue(isVirtual(loop));
+            assertEquals("test-loop", loop.getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Shutting down now hands back the caller's queued tasks, not the pool's wrappers")
+    void shouldReturnUnstartedTasksOnShutdownNow() {
+        try (ExecutorRegistry registry = new ExecutorRegistry(ExecutorMode.PLATFORM)) {
+            MeteredExecutor pool = registry.executor("drained-pool", 1);
+            CountDownLatch release = new CountDownLatch(1);
+            pool.execute(() -> awaitQuietly(release));
+            waitFor(() -> pool.activeCount() == 1);
+            Runnable first = () -> { };
+            Runnable second = () -> { };
+            pool.execute(first);
+            pool.execute(second);
+
+            assertEquals(List.of(first, second), pool.shutdownNow());
+            waitFor(() -> pool.completedCount() == 1);
+            assertEquals(0, pool.queuedCount());
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 s");
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
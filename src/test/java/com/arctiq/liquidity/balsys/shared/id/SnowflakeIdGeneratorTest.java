@@ -0,0 +1,167 @@
+package com.arctiq.liquidity.balsys.shared.id;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long START = SnowflakeIdGenerator.EPOCH_MILLIS + 86_400_000L;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    private SnowflakeIdGenerator generator(int nodeId) {
+        return new SnowflakeIdGenerator(nodeId, SnowflakeIdGenerator.DEFAULT_LEASE_SIZE, clock::get, 0);
+    }
+
+    @Test
+    @DisplayName("IDs embed the node and issue time and increase strictly")
+    void shouldEncodeNodeAndTime() {
+        SnowflakeIdGenerator ids = generator(5);
+
+        long first = ids.nextId();
+        long second = ids.nextId();
+
+        assertEquals(5, SnowflakeIdGenerator.nodeOf(first));
+        assertEquals(START, SnowflakeIdGenerator.epochMillisOf(first));
+        assertTrue(second > first);
+        assertTrue(first > 0);
+    }
+
+    @Test
+    @DisplayName("A partly used lease is abandoned once the clock moves on")
+    void shouldKeepIdsTimeOrdered() {
+        SnowflakeIdGenerator ids = generator(1);
+
+        long before = ids.nextId();
+        clock.addAndGet(3);
+        long after = ids.nextId();
+
+        assertEquals(START + 3, SnowflakeIdGenerator.epochMillisOf(after));
+        assertTrue(after > before);
+        assertEquals(2, ids.leaseCount());
+    }
+
+    @Test
+    @DisplayName("Bursts beyond one millisecond of sequence borrow the next millisecond")
+    void shouldBorrowFutureMillisecondsUnderBurst() {
+        SnowflakeIdGenerator ids = generator(0);
+        long last = 0;
+        for (int i = 0; i < 5_000; i++) {
+            long id = ids.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+
+        assertEquals(START + 1, SnowflakeIdGenerator.epochMillisOf(last));
+        assertEquals(0, ids.clockWaits());
+    }
+
+    @Test
+    @DisplayName("Recovered IDs push the cursor forward even if the clock stepped back")
+    void shouldNotReissueRecoveredIds() {
+        long issuedBeforeRestart = generator(7).nextId();
+        clock.addAndGet(-500);
+
+        SnowflakeIdGenerator restarted = generator(7);
+        restarted.advancePast(issuedBeforeRestart);
+        restarted.advancePast(generator(8).nextId());
+        long farAhead = ((START - SnowflakeIdGenerator.EPOCH_MILLIS + 60_000) << 22) | (7L << 12);
+        restarted.advancePast(farAhead);
+
+        long next = restarted.nextId();
+        assertTrue(next > issuedBeforeRestart);
+        assertEquals(START, SnowflakeIdGenerator.epochMillisOf(next));
+    }
+
+    @Test
+    @DisplayName("Concurrent threads never receive the same ID and each sees increasing IDs")
+    void shouldIssueUniqueIdsAcrossThreads() throws InterruptedException {
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(3);
+        int threads = 8;
+        int perThread = 100_000;
+        long[][] issued = new long[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long[] out = issued[t];
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    out[i] = ids.nextId();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 1; i < perThread; i++) {
+                assertTrue(issued[t][i] > issued[t][i - 1]);
+            }
+            System.arraycopy(issued[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent callers touch the shared cursor once per leased run, not once per ID")
+    void shouldLeaseRunsUnderContention() throws InterruptedException {
+        SnowflakeIdGenerator ids = generator(2);
+        int threads = 8;
+        int perThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    ids.nextId();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        long runs = threads * perThread / SnowflakeIdGenerator.DEFAULT_LEASE_SIZE;
+        // threads sharing a slot may each lease while racing to refill it; the loser's run is left unused
+        assertTrue(ids.leaseCount() >= runs);
+        assertTrue(ids.leaseCount() < 2 * runs, "leases: " + ids.leaseCount() + " for " + runs + " full runs");
+    }
+
+    @Test
+    @DisplayName("Recovering an ID drops a run that was leased before the cursor moved past it")
+    void shouldDropLeasedRunBehindRecoveredId() {
+        SnowflakeIdGenerator ids = generator(4);
+        long first = ids.nextId();
+
+        ids.advancePast(first + 3);
+        long next = ids.nextId();
+
+        assertTrue(next > first + 3);
+        assertEquals(2, ids.leaseCount());
+    }
+
+    @Test
+    @DisplayName("Rejects node IDs that do not fit in the node field")
+    void shouldRejectOutOfRangeNode() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+    }
+}
@@ -0,0 +1,126 @@
+package com.arctiq.liquidity.balsys.shared.queue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("Holds exactly its capacity even when that is not a power of two")
+    void shouldEnforceExactCapacity() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(5);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(5));
+        assertEquals(5, ring.size());
+        assertEquals(0, ring.remainingCapacity());
+        assertThrows(IllegalStateException.class, () -> ring.add(5));
+        assertEquals(List.of(0, 1, 2, 3, 4), new ArrayList<>(ring));
+
+        assertEquals(Integer.valueOf(0), ring.poll());
+        assertTrue(ring.offer(5));
+        assertFalse(ring.offer(6));
+    }
+
+    @Test
+    @DisplayName("Stays FIFO across many wraps of the slot array")
+    void shouldWrapAround() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(3);
+        List<Integer> drained = new ArrayList<>();
+
+        for (int i = 0; i < 1_000; i += 2) {
+            ring.offer(i);
+            ring.offer(i + 1);
+            assertEquals(Integer.valueOf(i), ring.peek());
+            ring.drainTo(drained);
+        }
+
+        assertEquals(1_000, drained.size());
+        for (int i = 0; i < drained.size(); i++) {
+            assertEquals(Integer.valueOf(i), drained.get(i));
+        }
+        assertNull(ring.poll());
+        assertEquals(0, ring.oldestAgeNanos());
+    }
+
+    @Test
+    @DisplayName("A bulk offer enqueues the leading run that fits and reports how much that was")
+    void shouldOfferRunThatFits() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(5);
+        ring.offer(-1);
+
+        assertEquals(3, ring.offerAll(List.of(0, 1, 2)));
+        assertEquals(1, ring.offerAll(List.of(3, 4, 5)));
+        assertEquals(0, ring.offerAll(List.of(6)));
+        assertEquals(0, ring.offerAll(List.of()));
+        assertEquals(List.of(-1, 0, 1, 2, 3), new ArrayList<>(ring));
+
+        ring.clear();
+        assertThrows(NullPointerException.class, () -> ring.offerAll(Arrays.asList(7, null)));
+        assertTrue(ring.isEmpty(), "nothing is claimed for a run holding a null");
+        for (int i = 0; i < 100; i++) {
+            assertEquals(4, ring.offerAll(List.of(i, i + 1, i + 2, i + 3)));
+            assertEquals(Integer.valueOf(i), ring.poll());
+            assertEquals(3, ring.drainTo(new ArrayList<>()));
+        }
+    }
+
+    @Test
+    @DisplayName("Bounded waits time out on a full or empty ring")
+    void shouldTimeOutWaiting() throws InterruptedException {
+        MpscRingBuffer<String> ring = new MpscRingBuffer<>(1);
+
+        assertNull(ring.poll(10, TimeUnit.MILLISECONDS));
+        assertTrue(ring.offer("a", 10, TimeUnit.MILLISECONDS));
+        assertFalse(ring.offer("b", 10, TimeUnit.MILLISECONDS));
+        assertTrue(ring.oldestAgeNanos() >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals("a", ring.take());
+    }
+
+    @Test
+    @DisplayName("Concurrent producers lose nothing and keep their own order")
+    void shouldPreserveEveryElementUnderContention() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 100_000;
+        MpscRingBuffer<Long> ring = new MpscRingBuffer<>(1_000);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        ring.put(producer << 32 | i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        long[] next = new long[producers];
+        for (int received = 0; received < producers * perProducer; received++) {
+            long value = ring.take();
+            int producer = (int) (value >>> 32);
+            assertEquals(next[producer]++, value & 0xFFFF_FFFFL, "out of order for producer " + producer);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(ring.isEmpty());
+    }
+}
@@ -0,0 +1,69 @@
+package com.arctiq.liquidity.balsys.transaction.core;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionBlockTest {
+
+    private static Transaction tx(long id, String amount) {
+        return new Transaction(new TransactionId(id), new Money(new BigDecimal(amount)),
+                Instant.parse("2026-03-01T10:15:30.123456789Z"), new AccountId("acc-" + id % 2));
+    }
+
+    @Test
+    @DisplayName("Converting to a block and back is lossless, including sub-minor-unit amounts")
+    void shouldRoundTripTransactions() {
+        List<Transaction> source = List.of(tx(1, "250.5"), tx(2, "-0.0004"), tx(3, "1000000.000"));
+
+        TransactionBlock block = TransactionBlock.of(source);
+
+        assertEquals(3, block.size());
+        assertEquals(250_500, block.minorUnits(0));
+        assertEquals(Money.NOT_REPRESENTABLE, block.minorUnits(1));
+        assertEquals(1, block.absoluteMinorUnits(1), "sub-minor amounts round up");
+        for (int i = 0; i < source.size(); i++) {
+            Transaction original = source.get(i);
+            Transaction restored = block.transaction(i);
+            assertEquals(original.id(), restored.id());
+            assertEquals(0, original.amount().amount().compareTo(restored.amount().amount()));
+            assertEquals(original.timestamp(), restored.timestamp());
+            assertEquals(original.accountId(), restored.accountId());
+        }
+        assertEquals(new BigDecimal("1000250.5004"), block.absoluteTotal().amount().stripTrailingZeros());
+        assertEquals(new BigDecimal("1000250.4996"), block.signedTotal().amount().stripTrailingZeros());
+    }
+
+    @Test
+    @DisplayName("Orders rows by absolute amount descending, keeping ties in arrival order")
+    void shouldOrderByAbsoluteAmountDescending() {
+        TransactionBlock block = TransactionBlock.of(List.of(
+                tx(1, "100"), tx(2, "-300"), tx(3, "100"), tx(4, "200"), tx(5, "-100")));
+
+        assertArrayEquals(new int[] { 1, 3, 0, 2, 4 }, block.indicesByAbsoluteAmountDescending());
+
+        TransactionBlock selected = block.select(new int[] { 3, 1 });
+        assertEquals(2, selected.size());
+        assertEquals(4, selected.id(0));
+        assertEquals(-300_000, selected.minorUnits(1));
+    }
+
+    @Test
+    @DisplayName("Falls back to a comparison sort when amounts do not fit beside the row index")
+    void shouldSortAmountsTooLargeToPack() {
+        TransactionBlock block = TransactionBlock.builder(3)
+                .add(1, 5, 0, AccountId.DEFAULT)
+                .add(2, Long.MAX_VALUE / 2, 0, AccountId.DEFAULT)
+                .add(3, -7, 0, AccountId.DEFAULT)
+                .build();
+
+        assertArrayEquals(new int[] { 1, 2, 0 }, block.indicesByAbsoluteAmountDescending());
+    }
+}
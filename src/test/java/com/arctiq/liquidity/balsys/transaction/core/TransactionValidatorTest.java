@@ -0,0 +1,95 @@
+package com.arctiq.liquidity.balsys.transaction.core;
+
+import com.arctiq.liquidity.balsys.config.TransactionConfigProperties;
+import com.arctiq.liquidity.balsys.config.VelocityRuleProperties;
+import com.arctiq.liquidity.balsys.exception.TransactionValidationException;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.testfixtures.AuditTestFixtures;
+import com.arctiq.liquidity.balsys.transaction.rules.RuleMetric;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionValidatorTest {
+
+    private TransactionConfigProperties config;
+    private TransactionValidator validator;
+
+    @BeforeEach
+    void setup() {
+        config = AuditTestFixtures.config();
+        validator = new TransactionValidator(config);
+    }
+
+    @Test
+    @DisplayName("Reports result codes with canonical reasons instead of throwing")
+    void shouldReturnResultCodes() {
+        TransactionId id = TransactionId.generate();
+
+        assertEquals(ValidationResult.VALID, validator.check(id, Money.of(200.0)));
+        assertEquals(ValidationResult.VALID, validator.check(id, Money.of(-500_000.0)));
+        assertEquals(ValidationResult.MISSING_ID, validator.check(null, Money.of(300.0)));
+        assertEquals(ValidationResult.MISSING_AMOUNT, validator.check(id, null));
+        assertEquals(ValidationResult.OUT_OF_RANGE, validator.check(id, Money.of(199.999)));
+        assertEquals(ValidationResult.OUT_OF_RANGE, validator.check(id, Money.of(-500_000.001)));
+        assertEquals(ValidationResult.OUT_OF_RANGE, validator.check(id, new Money(new BigDecimal("0.00000000001"))));
+        assertEquals(ValidationResult.OUT_OF_RANGE, validator.check(id, new Money(new BigDecimal("1e40"))));
+        assertEquals(ValidationResult.VALID, validator.check(id, new Money(new BigDecimal("300.0001"))));
+
+        assertSame(ValidationResult.OUT_OF_RANGE.reason(),
+                validator.check(id, Money.of(1.0)).reason());
+    }
+
+    @Test
+    @DisplayName("Long-bound check agrees with the exact BigDecimal comparison")
+    void shouldAgreeWithExactComparison() {
+        BigDecimal min = BigDecimal.valueOf(config.getMinAmount());
+        BigDecimal max = BigDecimal.valueOf(config.getMaxAmount());
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong() % 1_200_000_000L, 3 + random.nextInt(2));
+            BigDecimal abs = amount.abs();
+            boolean expected = abs.compareTo(min) >= 0 && abs.compareTo(max) <= 0;
+
+            assertEquals(expected, validator.check(TransactionId.generate(), new Money(amount)).isValid(),
+                    () -> "mismatch for " + amount);
+        }
+    }
+
+    @Test
+    @DisplayName("Throwing API keeps its detailed message")
+    void shouldKeepDetailedExceptionMessage() {
+        TransactionValidationException ex = assertThrows(TransactionValidationException.class,
+                () -> validator.validate(TransactionId.generate(), Money.of(199.0)));
+
+        assertTrue(ex.getMessage().startsWith(ValidationResult.OUT_OF_RANGE.reason()));
+        assertTrue(ex.getMessage().contains("expected between"));
+    }
+
+    @Test
+    @DisplayName("Checking a transaction leaves the velocity rules untouched until it is recorded")
+    void shouldChargeRulesOnlyOnRecord() {
+        VelocityRuleProperties rule = new VelocityRuleProperties();
+        rule.setName("one-per-minute");
+        rule.setMetric(RuleMetric.COUNT);
+        rule.setLimit(1);
+        config.setRules(List.of(rule));
+        TransactionValidator limited = new TransactionValidator(config);
+        Transaction first = AuditTestFixtures.fixedTransaction(300.0);
+        Transaction second = AuditTestFixtures.fixedTransaction(300.0);
+
+        assertEquals(ValidationResult.VALID, limited.check(first));
+        assertEquals(ValidationResult.VALID, limited.check(first));
+        assertEquals(ValidationResult.VALID, limited.check(second));
+
+        limited.record(first);
+        assertEquals(ValidationResult.RULE_VIOLATION, limited.check(second));
+    }
+}
@@ -0,0 +1,154 @@
+package com.arctiq.liquidity.balsys.transaction.dedup;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.transaction.dedup.TimeSlicedDedupWindow.Mark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSlicedDedupWindowTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Rejects IDs already seen inside the window")
+    void shouldDetectDuplicates() {
+        TimeSlicedDedupWindow window = new TimeSlicedDedupWindow(Duration.ofSeconds(60), 4, 1_024, clock::get);
+
+        assertEquals(Mark.NEW, window.mark(42L));
+        assertEquals(Mark.NEW, window.mark(0L));
+        assertEquals(Mark.NEW, window.mark(-7L));
+        assertEquals(Mark.DUPLICATE, window.mark(42L));
+        assertEquals(Mark.DUPLICATE, window.mark(0L));
+        assertEquals(Mark.DUPLICATE, window.mark(-7L));
+
+        assertEquals(3, window.duplicateCount());
+        assertEquals(3, window.approximateSize());
+    }
+
+    @Test
+    @DisplayName("Remembers IDs across slices and forgets them once the window has passed")
+    void shouldExpireOldSlices() {
+        TimeSlicedDedupWindow window = new TimeSlicedDedupWindow(Duration.ofSeconds(60), 4, 1_024, clock::get);
+        assertEquals(Mark.NEW, window.mark(1L));
+
+        clock.addAndGet(Duration.ofSeconds(20).toNanos());
+        assertEquals(Mark.NEW, window.mark(2L));
+        assertEquals(Mark.DUPLICATE, window.mark(1L));
+
+        for (int i = 0; i < 4; i++) {
+            clock.addAndGet(Duration.ofSeconds(15).toNanos());
+            window.mark(1_000L + i);
+        }
+
+        assertEquals(Mark.NEW, window.mark(1L));
+        assertTrue(window.filterHitCount() >= 1);
+    }
+
+    @Test
+    @DisplayName("Forgets an unmarked ID without losing the IDs probed past it")
+    void shouldForgetUnmarkedIds() {
+        TimeSlicedDedupWindow window = new TimeSlicedDedupWindow(Duration.ofSeconds(60), 4, 1_024, clock::get);
+        for (long id = 1; id <= 500; id++) {
+            assertEquals(Mark.NEW, window.mark(id));
+        }
+        assertEquals(Mark.NEW, window.mark(0L));
+
+        window.unmark(250L);
+        window.unmark(0L);
+        clock.addAndGet(Duration.ofSeconds(20).toNanos());
+        window.unmark(100L);
+
+        assertEquals(Mark.NEW, window.mark(250L));
+        assertEquals(Mark.NEW, window.mark(0L));
+        assertEquals(Mark.NEW, window.mark(100L));
+        for (long id = 1; id <= 500; id++) {
+            assertEquals(Mark.DUPLICATE, window.mark(id), "id " + id + " should still be remembered");
+        }
+    }
+
+    @Test
+    @DisplayName("Rotates a slice early when it fills rather than growing")
+    void shouldRotateEarlyWhenFull() {
+        TimeSlicedDedupWindow window = new TimeSlicedDedupWindow(Duration.ofSeconds(60), 4, 100, clock::get);
+
+        for (long id = 1; id <= 250; id++) {
+            assertEquals(Mark.NEW, window.mark(id));
+        }
+
+        assertEquals(2, window.earlyRotationCount());
+        assertTrue(window.approximateSize() <= 400);
+        for (long id = 1; id <= 250; id++) {
+            assertEquals(Mark.DUPLICATE, window.mark(id), "id " + id + " should still be remembered");
+        }
+    }
+
+    @Test
+    @DisplayName("Exactly one concurrent submitter wins for the same ID")
+    void shouldAdmitExactlyOneConcurrentWinner() throws InterruptedException {
+        TimeSlicedDedupWindow window = new TimeSlicedDedupWindow(Duration.ofSeconds(60), 4, 1 << 16);
+        int threads = 8;
+        int ids = 10_000;
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (long id = 1; id <= ids; id++) {
+                    if (window.mark(id) == Mark.NEW) {
+                        winners.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(ids, winners.get());
+        assertEquals((long) ids * (threads - 1), window.duplicateCount());
+    }
+
+    @Test
+    @DisplayName("Exactly one concurrent submitter wins even while slices rotate under them")
+    void shouldAdmitExactlyOneWinnerAcrossRotations() throws InterruptedException {
+        // 64 slices of 64 IDs remember all 2,000 IDs, but the newest slice rotates every 64 of them
+        TimeSlicedDedupWindow window = new TimeSlicedDedupWindow(Duration.ofSeconds(60), 64, 64);
+        int threads = 8;
+        int ids = 2_000;
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (long id = 1; id <= ids; id++) {
+                    if (window.mark(id) == Mark.NEW) {
+                        winners.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(ids, winners.get());
+        assertEquals(0, window.overflowCount());
+        assertTrue(window.earlyRotationCount() >= ids / 64 - 1);
+    }
+}
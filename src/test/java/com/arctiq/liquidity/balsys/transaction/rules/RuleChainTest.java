@@ -0,0 +1,155 @@
+package com.arctiq.liquidity.balsys.transaction.rules;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.config.VelocityRuleProperties;
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleChainTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    private static Transaction tx(double amount) {
+        return new Transaction(TransactionId.generate(), Money.of(amount));
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    @DisplayName("Volume rule caps debits over a rolling window and frees capacity as it slides")
+    void shouldCapRollingDebitVolume() {
+        VelocityRule debits = new VelocityRule("debit-volume-60s", RuleMetric.VOLUME, RuleDirection.DEBIT,
+                Money.toMinorUnits(1_000.0), Duration.ofSeconds(60), 60);
+        RuleChain chain = new RuleChain(List.of(debits), clock::get);
+
+        assertNull(chain.admit(tx(-600.0)));
+        advance(Duration.ofSeconds(30));
+        assertNull(chain.admit(tx(-400.0)));
+        assertSame(debits, chain.admit(tx(-0.5)));
+        assertNull(chain.admit(tx(5_000.0)), "credits are not watched by a debit rule");
+
+        advance(Duration.ofSeconds(31));
+        assertNull(chain.admit(tx(-550.0)));
+        assertSame(debits, chain.admit(tx(-100.0)));
+
+        RuleChain.RuleStats stats = chain.stats().get(0);
+        assertEquals(6, stats.evaluations());
+        assertEquals(2, stats.rejections());
+    }
+
+    @Test
+    @DisplayName("Count rule limits transactions per second")
+    void shouldCapCountPerSecond() {
+        VelocityRule perSecond = new VelocityRule("tx-per-second", RuleMetric.COUNT, RuleDirection.ANY, 3,
+                Duration.ofSeconds(1), 10);
+        RuleChain chain = new RuleChain(List.of(perSecond), clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(chain.admit(tx(i % 2 == 0 ? 250.0 : -250.0)));
+        }
+        assertSame(perSecond, chain.admit(tx(250.0)));
+
+        advance(Duration.ofMillis(1_001));
+        assertNull(chain.admit(tx(250.0)));
+    }
+
+    @Test
+    @DisplayName("A transaction rejected by a later rule is not counted by earlier ones")
+    void shouldNotRecordRejectedTransactions() {
+        VelocityRule volume = new VelocityRule("volume", RuleMetric.VOLUME, RuleDirection.ANY,
+                Money.toMinorUnits(10_000.0), Duration.ofSeconds(60), 6);
+        VelocityRule count = new VelocityRule("count", RuleMetric.COUNT, RuleDirection.ANY, 1,
+                Duration.ofSeconds(60), 6);
+        RuleChain chain = new RuleChain(List.of(volume, count), clock::get);
+
+        assertNull(chain.admit(tx(1_000.0)));
+        assertSame(count, chain.admit(tx(2_000.0)));
+
+        assertEquals(Money.toMinorUnits(1_000.0), volume.windowTotal(clock.get()));
+        assertEquals(1, count.windowTotal(clock.get()));
+    }
+
+    @Test
+    @DisplayName("Pending items are checked against but leave the windows uncharged")
+    void shouldCountPendingWithoutRecording() {
+        VelocityRule debits = new VelocityRule("debit-volume", RuleMetric.VOLUME, RuleDirection.DEBIT,
+                Money.toMinorUnits(1_000.0), Duration.ofSeconds(60), 6);
+        RuleChain chain = new RuleChain(List.of(debits), clock::get);
+        assertNull(chain.admit(tx(-300.0)));
+
+        RuleChain.Pending pending = chain.pending();
+        Transaction first = tx(-400.0);
+        assertNull(chain.test(first, pending));
+        pending.add(first);
+        pending.add(tx(900.0));
+        assertSame(debits, chain.test(tx(-400.0), pending));
+        assertNull(chain.test(tx(-300.0), pending));
+
+        assertEquals(Money.toMinorUnits(300.0), debits.windowTotal(clock.get()));
+        assertNull(chain.test(tx(-700.0)), "a dropped tally charges nothing");
+    }
+
+    @Test
+    @DisplayName("Compiles declarative definitions in order with limits in minor units")
+    void shouldCompileDefinitions() {
+        VelocityRuleProperties volume = new VelocityRuleProperties();
+        volume.setName("debit-volume-60s");
+        volume.setMetric(RuleMetric.VOLUME);
+        volume.setDirection(RuleDirection.DEBIT);
+        volume.setLimit(750.5);
+        VelocityRuleProperties count = new VelocityRuleProperties();
+        count.setName("credits-per-second");
+        count.setDirection(RuleDirection.CREDIT);
+        count.setLimit(100);
+        count.setWindowSeconds(1);
+        count.setBuckets(10);
+
+        RuleChain chain = RuleChain.compile(List.of(volume, count));
+
+        assertEquals(List.of("debit-volume-60s", "credits-per-second"),
+                chain.stats().stream().map(RuleChain.RuleStats::ruleName).toList());
+        assertNull(chain.admit(tx(-750.5)));
+        assertEquals("debit-volume-60s", chain.admit(tx(-0.001)).name());
+        assertTrue(RuleChain.compile(List.of()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Concurrent adds to the window are never lost")
+    void shouldCountConcurrentAdds() throws InterruptedException {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofSeconds(1), 4);
+        int threads = 8;
+        int perThread = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    counter.add(clock.get(), 1);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals((long) threads * perThread, counter.sum(clock.get()));
+        assertEquals(0, counter.sum(clock.get() + Duration.ofSeconds(2).toNanos()));
+    }
+}
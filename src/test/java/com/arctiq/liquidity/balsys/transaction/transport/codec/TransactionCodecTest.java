@@ -0,0 +1,116 @@
+package com.arctiq.liquidity.balsys.transaction.transport.codec;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arctiq.liquidity.balsys.shared.domain.model.Money;
+import com.arctiq.liquidity.balsys.transaction.core.AccountId;
+import com.arctiq.liquidity.balsys.transaction.core.Transaction;
+import com.arctiq.liquidity.balsys.transaction.core.TransactionId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCodecTest {
+
+    private static final Instant TIMESTAMP = Instant.parse("2026-03-01T10:15:30.123456789Z");
+
+    private final TransactionEncoder encoder = new TransactionEncoder();
+    private final TransactionDecoder decoder = new TransactionDecoder();
+
+    @Test
+    @DisplayName("Default-account transactions in minor units encode to a fixed 40 bytes")
+    void shouldRoundTripFixedLayout() {
+        Transaction original = new Transaction(new TransactionId(42), Money.of(-250.125), TIMESTAMP);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        int length = encoder.wrapAndApplyHeader(buffer, 0).encode(original).encodedLength();
+
+        assertEquals(CodecSchema.HEADER_LENGTH + TransactionEncoder.BLOCK_LENGTH, length);
+        assertEquals(length, TransactionEncoder.blockSize(original) + CodecSchema.HEADER_LENGTH);
+        decoder.wrapWithHeader(buffer, 0);
+        assertEquals(42, decoder.id());
+        assertEquals(-250_125, decoder.minorUnits());
+        assertEquals(length, decoder.encodedLength());
+        assertEquals(original, decoder.toTransaction());
+    }
+
+    @Test
+    @DisplayName("Amounts of up to three decimal places encode as exact minor units at every scale")
+    void shouldEncodeEveryMinorUnitScaleExactly() {
+        String[] amounts = { "0", "-7", "250.5", "-0.01", "0.001", "999999999999.999", "-999999999999.999",
+                "123456789012345", "1.10", "12.3450000", "0.0005" };
+        long[] expected = { 0, -7_000, 250_500, -10, 1, 999_999_999_999_999L, -999_999_999_999_999L,
+                123_456_789_012_345_000L, 1_100, 12_345, Money.NOT_REPRESENTABLE };
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        for (int i = 0; i < amounts.length; i++) {
+            BigDecimal amount = new BigDecimal(amounts[i]);
+            encoder.wrapAndApplyHeader(buffer, 0).amount(amount);
+            decoder.wrapWithHeader(buffer, 0);
+            assertEquals(expected[i], decoder.minorUnits(), amounts[i]);
+            assertEquals(0, amount.compareTo(decoder.amount()), amounts[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Account IDs and sub-minor-unit amounts round-trip through variable-length data")
+    void shouldRoundTripVariableData() {
+        Transaction original = new Transaction(new TransactionId(7), new Money(new BigDecimal("0.00012345")),
+                TIMESTAMP, new AccountId("acc-é"));
+        ByteBuffer buffer = ByteBuffer.allocate(128).order(ByteOrder.BIG_ENDIAN);
+
+        encoder.wrapAndApplyHeader(buffer, 3).encode(original);
+        Transaction decoded = decoder.wrapWithHeader(buffer, 3).toTransaction();
+
+        assertEquals(Money.NOT_REPRESENTABLE, decoder.minorUnits());
+        assertEquals(original.amount().amount(), decoded.amount().amount());
+        assertEquals(original.accountId(), decoded.accountId());
+        assertSame(decoded.accountId(), decoder.accountId(), "repeated account IDs are served from the cache");
+        assertEquals(TransactionEncoder.blockSize(original) + CodecSchema.HEADER_LENGTH, decoder.encodedLength());
+    }
+
+    @Test
+    @DisplayName("A version 1 decoder reads a newer message with extra block fields")
+    void shouldSkipFieldsAddedByNewerVersions() {
+        Transaction original = new Transaction(new TransactionId(9), Money.of(10), TIMESTAMP, new AccountId("acc-1"));
+        ByteBuffer v1 = ByteBuffer.allocate(128).order(CodecSchema.BYTE_ORDER);
+        int length = encoder.wrapAndApplyHeader(v1, 0).encode(original).encodedLength();
+
+        // Simulate version 2 appending an 8-byte field to the fixed block
+        int extra = 8;
+        int block = CodecSchema.HEADER_LENGTH;
+        ByteBuffer v2 = ByteBuffer.allocate(128).order(CodecSchema.BYTE_ORDER);
+        v2.put(0, v1, 0, block + TransactionEncoder.BLOCK_LENGTH);
+        v2.put(block + TransactionEncoder.BLOCK_LENGTH + extra, v1, block + TransactionEncoder.BLOCK_LENGTH,
+                length - block - TransactionEncoder.BLOCK_LENGTH);
+        v2.putShort(0, (short) (TransactionEncoder.BLOCK_LENGTH + extra));
+        v2.putShort(6, (short) 2);
+        v2.putLong(block + TransactionEncoder.BLOCK_LENGTH, -1L);
+
+        decoder.wrapWithHeader(v2, 0);
+        assertEquals(2, decoder.actingVersion());
+        assertEquals(10_000, decoder.minorUnits());
+        assertEquals(original.accountId(), decoder.accountId());
+        assertEquals(original.timestamp(), decoder.toTransaction().timestamp());
+        assertEquals(length + extra, decoder.encodedLength());
+    }
+
+    @Test
+    @DisplayName("Rejects messages from another schema or of another type")
+    void shouldRejectForeignMessages() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        encoder.wrapAndApplyHeader(buffer, 0).encode(new Transaction(new TransactionId(1), Money.of(1)));
+        ByteBuffer little = buffer.order(CodecSchema.BYTE_ORDER);
+
+        little.putShort(2, (short) CodecSchema.AUDIT_BATCH_TEMPLATE_ID);
+        assertThrows(IllegalStateException.class, () -> decoder.wrapWithHeader(little, 0));
+        little.putShort(2, (short) CodecSchema.TRANSACTION_TEMPLATE_ID);
+        little.putShort(4, (short) 0x1234);
+        assertThrows(IllegalStateException.class, () -> decoder.wrapWithHeader(little, 0));
+    }
+}